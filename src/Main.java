@@ -1,15 +1,68 @@
+import Model.Book.*;
+import Model.Engine.*;
+import Model.Match.*;
+import Model.Server.*;
+import Model.Tablebase.*;
+import Model.Tuning.*;
 import Model.View.*;
 
 import javax.swing.*;
+import java.io.IOException;
 
 /**
  * The main entry point for the Chess Application.
  *
- * Its sole responsibility is to instantiate and run the main
- * application window (MainFrame) on the Event Dispatch Thread (EDT). */
+ * It instantiates and runs the main application window (MainFrame)
+ * on the Event Dispatch Thread (EDT).
+ *
+ * The first argument selects a headless mode instead:
+ *   uci                                 UCI engine on stdin/stdout
+ *   server [port]                       multi-game server (see GameServer)
+ *   loadgen [host] [port] [games] [plies] [spectators]  random games against a server
+ *   book <games.pgn> <book.bin> [maxPly] [minGames]    compile a Polyglot opening book
+ *   tablebases <directory> [threads]    generate the endgame tablebases
+ *   nnue <network.nnue>                 write a starting network made from the piece-square tables
+ *   tune <games.pgn> <tables.txt> [epochs] [threads]  tune the piece-square tables on the games
+ *   bench [depth]                       search the benchmark positions: node signature and nodes per second
+ *   match <openings> <games.pgn> <engine> <engine> [games] [tc] [concurrency] [seed] [tablebases]
+ *                                       play two engine configurations against each other (see MatchRunner) */
 
 public class Main{
-    public static void main(String[] args){
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if(args.length > 0){
+            switch(args[0]){
+                case "uci":
+                    new UciEngine(System.in, System.out).run();
+                    return;
+                case "server":
+                    GameServer.runFromCommandLine(args);
+                    return;
+                case "loadgen":
+                    LoadGenerator.runFromCommandLine(args);
+                    return;
+                case "book":
+                    PolyglotBookBuilder.runFromCommandLine(args);
+                    return;
+                case "tablebases":
+                    TablebaseGenerator.runFromCommandLine(args);
+                    return;
+                case "nnue":
+                    NnueNetwork.runFromCommandLine(args);
+                    return;
+                case "tune":
+                    TexelTuner.runFromCommandLine(args);
+                    return;
+                case "bench":
+                    Bench.runFromCommandLine(args);
+                    return;
+                case "match":
+                    MatchRunner.runFromCommandLine(args);
+                    return;
+                default:
+                    break;
+            }
+        }
+
         /**
          * All Swing applications should be started on the
          * Event Dispatch Thread (EDT) to ensure thread safety.
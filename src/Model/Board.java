@@ -2,10 +2,23 @@ package Model;
 
 import Model.Pieces.*;
 
+import java.util.Arrays;
+
 public class Board{
     // The 8x8 grid. pieceGrid[row][column]
     private final Piece[][] pieceGrid;
 
+    // The evaluation terms of the pieces on the grid, kept up to date by setPieceAt() so the
+    // evaluation needn't scan the board. Scores are White minus Black, PieceSquareTables values.
+    // Not saved: a Board loaded from JSON must call recomputeTerms().
+    private transient int middleGame;
+    private transient int endGame;
+    private transient int phase;
+    private transient int[] pieceCounts = new int[12]; // By PieceType ordinal, +6 for Black
+    private transient long pawnKey; // Zobrist key of the pawns only
+    private transient int[] kingSquares = {-1, -1}; // White's and Black's, row * 8 + column
+    private transient byte[] pieceCodes = new byte[64]; // By row * 8 + column: getPieceCode() + 1, 0 if empty
+
     public Board(){
         this.pieceGrid = new Piece[8][8];
         initialSetup();
@@ -21,6 +34,13 @@ public class Board{
                 this.pieceGrid[r][c] = other.pieceGrid[r][c]; // Pieces are immutable, so shallow copy is fine
             }
         }
+        this.middleGame = other.middleGame;
+        this.endGame = other.endGame;
+        this.phase = other.phase;
+        this.pieceCounts = other.pieceCounts.clone();
+        this.pawnKey = other.pawnKey;
+        this.kingSquares = other.kingSquares.clone();
+        this.pieceCodes = other.pieceCodes.clone();
     }
 
     public Board deepCopy(){
@@ -56,6 +76,7 @@ public class Board{
         pieceGrid[7][5] = new Bishop(true);
         pieceGrid[7][6] = new Knight(true);
         pieceGrid[7][7] = new Rook(true);
+        recomputeTerms();
     }
 
     /**
@@ -68,6 +89,7 @@ public class Board{
                 pieceGrid[r][c] = null;
             }
         }
+        recomputeTerms();
     }
 
     /**
@@ -124,6 +146,36 @@ public class Board{
         }
     }
 
+    /**
+     * Takes back a move made with applyMove(), the "dumb" way too:
+     * everything needed (captured piece, special move flags) is in the Move.
+     *
+     * @param move The last move applied to this board.
+     */
+    public void undoMove(Move move){
+        Position from = move.getFrom();
+        Position to = move.getTo();
+
+        // 1. The moving piece goes back (for a promotion: the pawn, not the new piece)
+        setPieceAt(from, move.getPieceMoved());
+
+        // 2. The captured piece comes back
+        if(move.isEnPassant()){
+            setPieceAt(to, null);
+            setPieceAt(new Position(from.row(), to.column()), move.getPieceCaptured());
+        }else{
+            setPieceAt(to, move.getPieceCaptured()); // null if nothing was captured
+        }
+
+        // 3. The rook goes back to its corner
+        if(move.isCastling()){
+            int rookFromCol = to.column() == 6 ? 7 : 0;
+            int rookToCol = to.column() == 6 ? 5 : 3;
+            setPieceAt(new Position(from.row(), rookFromCol), getPieceAt(new Position(from.row(), rookToCol)));
+            setPieceAt(new Position(from.row(), rookToCol), null);
+        }
+    }
+
     public Piece getPieceAt(Position pos){
         if(!pos.isOnBoard()){
             return null;
@@ -133,7 +185,123 @@ public class Board{
 
     public void setPieceAt(Position pos, Piece piece){
         if(pos.isOnBoard()){
+            Piece old = pieceGrid[pos.row()][pos.column()];
+            if(old != null){
+                updateTerms(old, pos.row(), pos.column(), -1);
+            }
             pieceGrid[pos.row()][pos.column()] = piece;
+            if(piece != null){
+                updateTerms(piece, pos.row(), pos.column(), 1);
+            }
+        }
+    }
+
+    /**
+     * Sum of the middlegame values (material + square) of the pieces, White minus Black.
+     */
+    public int getMiddleGameScore(){ return middleGame; }
+
+    /**
+     * Sum of the endgame values (material + square) of the pieces, White minus Black.
+     */
+    public int getEndGameScore(){ return endGame; }
+
+    /**
+     * Game phase: the PHASE_WEIGHT of every piece on the board (not capped at MAX_PHASE).
+     */
+    public int getPhase(){ return phase; }
+
+    /**
+     * The Zobrist key of the pawns alone: what the pawn-structure evaluation depends on.
+     */
+    public long getPawnKey(){ return pawnKey; }
+
+    /**
+     * @return The square (row * 8 + column) of the side's king, or -1 if it has none.
+     */
+    public int getKingSquare(boolean isWhite){
+        return kingSquares[isWhite ? 0 : 1];
+    }
+
+    /**
+     * The piece on a square as a number, for evaluations that index tables by piece.
+     *
+     * @param square row * 8 + column
+     * @return PieceType ordinal (plus 6 for a black piece), or -1 if the square is empty.
+     */
+    public int getPieceCode(int square){
+        return pieceCodes[square] - 1;
+    }
+
+    public int getPieceCount(PieceType type, boolean isWhite){
+        return pieceCounts[type.ordinal() + (isWhite ? 0 : 6)];
+    }
+
+    /**
+     * Men of both sides on the board, kings and pawns included.
+     */
+    public int getPieceCount(){
+        int total = 0;
+        for(int count : pieceCounts){
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Works the evaluation terms out again from the grid, for a board whose grid was filled
+     * without setPieceAt() (initial setup, JSON loading).
+     */
+    public void recomputeTerms(){
+        middleGame = 0;
+        endGame = 0;
+        phase = 0;
+        pieceCounts = new int[12];
+        pawnKey = 0;
+        kingSquares = new int[]{-1, -1};
+        pieceCodes = new byte[64];
+        for(int r = 0; r < 8; r++){
+            for(int c = 0; c < 8; c++){
+                if(pieceGrid[r][c] != null){
+                    updateTerms(pieceGrid[r][c], r, c, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Do the incrementally kept terms match a recount of the grid? For assertions and tests.
+     */
+    public boolean termsMatchGrid(){
+        Board recount = new Board(this);
+        recount.recomputeTerms();
+        return recount.middleGame == middleGame && recount.endGame == endGame && recount.phase == phase
+                && recount.pawnKey == pawnKey
+                && Arrays.equals(recount.kingSquares, kingSquares)
+                && Arrays.equals(recount.pieceCodes, pieceCodes)
+                && Arrays.equals(recount.pieceCounts, pieceCounts);
+    }
+
+    // Adds (sign 1) or removes (sign -1) a piece's share of the terms
+    private void updateTerms(Piece piece, int row, int column, int sign){
+        PieceType type = piece.getType();
+        int colour = piece.isWhite() ? sign : -sign;
+        middleGame += colour * PieceSquareTables.middleGame(type, piece.isWhite(), row, column);
+        endGame += colour * PieceSquareTables.endGame(type, piece.isWhite(), row, column);
+        phase += sign * PieceSquareTables.PHASE_WEIGHT[type.ordinal()];
+        int code = type.ordinal() + (piece.isWhite() ? 0 : 6);
+        pieceCounts[code] += sign;
+        pieceCodes[row * 8 + column] = (byte) (sign > 0 ? code + 1 : 0);
+        if(type == PieceType.PAWN){
+            pawnKey ^= Zobrist.pieceKey(piece, row, column);
+        }else if(type == PieceType.KING){
+            // A move puts the king on its new square before clearing the old one
+            int side = piece.isWhite() ? 0 : 1;
+            if(sign > 0){
+                kingSquares[side] = row * 8 + column;
+            }else if(kingSquares[side] == row * 8 + column){
+                kingSquares[side] = -1;
+            }
         }
     }
 
@@ -0,0 +1,9 @@
+package Model.Book;
+
+/**
+ * A book move of a position.
+ *
+ * @param moveCode The move, see MoveCodes.
+ * @param weight How good (or how often played) the move is, relative to the other moves of the position.
+ */
+public record BookMove(int moveCode, int weight){}
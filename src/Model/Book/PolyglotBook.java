@@ -0,0 +1,170 @@
+package Model.Book;
+
+import Model.*;
+import Model.Pieces.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * An opening book in the Polyglot ".bin" format.
+ *
+ * The file is a sorted array of 16-byte big-endian entries: position key (8), move (2),
+ * weight (2), learn data (4). It is memory-mapped and searched in place, so opening a book
+ * of any size is instant and a lookup touches only the few pages of the binary search.
+ *
+ * Position keys are Zobrist.hash() keys, which are the Polyglot keys, so books made
+ * by other tools are read as well as those written by PolyglotBookBuilder.
+ *
+ * Lookups may run on any number of threads.
+ */
+public class PolyglotBook implements Closeable{
+    public static final int ENTRY_BYTES = 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer entries;
+    private final int entryCount;
+
+    private PolyglotBook(FileChannel channel, ByteBuffer entries){
+        this.channel = channel;
+        this.entries = entries;
+        this.entryCount = entries.capacity() / ENTRY_BYTES;
+    }
+
+    /**
+     * Maps a book file.
+     *
+     * @throws IOException if it can't be read, or isn't a whole number of entries.
+     */
+    public static PolyglotBook open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if(size % ENTRY_BYTES != 0 || size > Integer.MAX_VALUE){
+                throw new IOException("Not a Polyglot book: " + path);
+            }
+            return new PolyglotBook(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } catch(IOException e){
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int size(){
+        return entryCount;
+    }
+
+    /**
+     * The book moves of a position, best first. Moves that aren't legal here
+     * (a key collision) are left out.
+     */
+    public List<BookMove> getMoves(GameState state){
+        long key = Zobrist.hash(state);
+        RuleEngine ruleEngine = new RuleEngine();
+        List<BookMove> moves = new ArrayList<>();
+        for(int i = firstEntryOf(key); i < entryCount && keyAt(i) == key; i++){
+            int moveCode = fromPolyglot(entries.getShort(i * ENTRY_BYTES + 8) & 0xFFFF, state.getBoard());
+            int weight = entries.getShort(i * ENTRY_BYTES + 10) & 0xFFFF;
+            if(MoveCodes.decode(state, ruleEngine, moveCode) != null){
+                moves.add(new BookMove(moveCode, weight));
+            }
+        }
+        moves.sort(Comparator.comparingInt(BookMove::weight).reversed());
+        return moves;
+    }
+
+    /**
+     * @return The move with the highest weight, or MoveCodes.NONE if the position isn't in the book.
+     */
+    public int bestMove(GameState state){
+        List<BookMove> moves = getMoves(state);
+        return moves.isEmpty() ? MoveCodes.NONE : moves.get(0).moveCode();
+    }
+
+    /**
+     * Picks a move at random, each with a chance proportional to its weight (for variety in play).
+     *
+     * @return The move, or MoveCodes.NONE if the position isn't in the book.
+     */
+    public int pickMove(GameState state, Random random){
+        List<BookMove> moves = getMoves(state);
+        long total = 0;
+        for(BookMove move : moves){
+            total += move.weight();
+        }
+        if(total == 0){
+            return moves.isEmpty() ? MoveCodes.NONE : moves.get(random.nextInt(moves.size())).moveCode();
+        }
+        long pick = (long) (random.nextDouble() * total);
+        for(BookMove move : moves){
+            pick -= move.weight();
+            if(pick < 0){
+                return move.moveCode();
+            }
+        }
+        return moves.get(moves.size() - 1).moveCode();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Binary search for the first entry with the key (keys compare unsigned)
+    private int firstEntryOf(long key){
+        int low = 0;
+        int high = entryCount;
+        while(low < high){
+            int mid = (low + high) >>> 1;
+            if(Long.compareUnsigned(keyAt(mid), key) < 0){
+                low = mid + 1;
+            }else{
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long keyAt(int index){
+        return entries.getLong(index * ENTRY_BYTES);
+    }
+
+    // --- Move format ---
+
+    /**
+     * Converts a Polyglot move to a move code. Polyglot counts ranks from 1 (row 0 is rank 1)
+     * and writes castling as the king taking its own rook (e1h1 for O-O).
+     */
+    static int fromPolyglot(int move, Board board){
+        int toFile = move & 7;
+        int toRank = (move >>> 3) & 7;
+        int fromFile = (move >>> 6) & 7;
+        int fromRank = (move >>> 9) & 7;
+        int promotion = (move >>> 12) & 7;
+
+        Position from = new Position(7 - fromRank, fromFile);
+        Position to = new Position(7 - toRank, toFile);
+        Piece piece = board.getPieceAt(from);
+        if(piece != null && piece.getType() == PieceType.KING && fromFile == 4 && (toFile == 7 || toFile == 0) && fromRank == toRank){
+            to = new Position(to.row(), toFile == 7 ? 6 : 2);
+        }
+        return MoveCodes.square(from) | MoveCodes.square(to) << 6 | promotion << 12;
+    }
+
+    /**
+     * Converts a move code to the Polyglot format (see fromPolyglot()).
+     */
+    static int toPolyglot(int moveCode, Board board){
+        Position from = MoveCodes.from(moveCode);
+        Position to = MoveCodes.to(moveCode);
+        int toFile = to.column();
+        Piece piece = board.getPieceAt(from);
+        if(piece != null && piece.getType() == PieceType.KING && Math.abs(to.column() - from.column()) == 2){
+            toFile = to.column() == 6 ? 7 : 0;
+        }
+        return toFile | (7 - to.row()) << 3 | from.column() << 6 | (7 - from.row()) << 9 | (moveCode >>> 12) << 12;
+    }
+}
@@ -0,0 +1,251 @@
+package Model.Book;
+
+import Model.*;
+import Model.IOs.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Compiles a Polyglot book from a PGN collection.
+ *
+ * Every position of the first maxPly plies of every game gets the move played in it.
+ * Like Polyglot's own make-book, a move scores 2 for a win of the side that played it,
+ * 1 for a draw and 0 for a loss; moves played fewer than minGames times are left out.
+ * The scores of a position are scaled down if they don't fit the 16-bit weights.
+ *
+ * The occurrences are collected in primitive arrays and sorted in place,
+ * so a collection of a million games doesn't need a million map entries.
+ */
+public class PolyglotBookBuilder{
+    private final int maxPly;
+    private final int minGames;
+
+    // One row per (position, move) occurrence until write(), then merged
+    private long[] keys = new long[4096];
+    private int[] moves = new int[4096];
+    private int[] scores = new int[4096];
+    private int[] counts = new int[4096];
+    private int size = 0;
+    private int gameCount = 0;
+
+    public PolyglotBookBuilder(){
+        this(30, 1);
+    }
+
+    public PolyglotBookBuilder(int maxPly, int minGames){
+        this.maxPly = maxPly;
+        this.minGames = minGames;
+    }
+
+    /**
+     * Adds every game of a PGN file. Games that don't parse are skipped.
+     *
+     * @return The number of games added.
+     */
+    public int addPgn(Path pgnFile) throws IOException {
+        int added = 0;
+        PGNParser parser = new PGNParser();
+        try(PGNGameReader reader = PGNGameReader.open(pgnFile)){
+            while(reader.next()){
+                GameTree tree;
+                try {
+                    tree = parser.parseTree(reader.getGameText());
+                } catch(IllegalArgumentException e){
+                    continue;
+                }
+                if(tree.getTags().containsKey("FEN")){
+                    continue; // Not from the starting position
+                }
+                int[] mainLine = tree.mainLine();
+                int[] codes = new int[mainLine.length];
+                for(int i = 0; i < codes.length; i++){
+                    codes[i] = tree.getMoveCode(mainLine[i]);
+                }
+                addGame(codes, tree.getResult());
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Adds one game from the starting position.
+     *
+     * @param moveCodes The moves of the game (see MoveCodes).
+     * @param result "1-0", "0-1", "1/2-1/2" or "*" (an unfinished game adds no score, only counts).
+     */
+    public void addGame(int[] moveCodes, String result){
+        GameState state = new GameState();
+        RuleEngine ruleEngine = new RuleEngine();
+        for(int ply = 0; ply < Math.min(maxPly, moveCodes.length); ply++){
+            Move move = MoveCodes.decode(state, ruleEngine, moveCodes[ply]);
+            if(move == null){
+                break;
+            }
+            boolean isWhite = state.isWhiteTurn();
+            int score;
+            switch(result){
+                case "1-0": score = isWhite ? 2 : 0; break;
+                case "0-1": score = isWhite ? 0 : 2; break;
+                case "1/2-1/2": score = 1; break;
+                default: score = 0; break;
+            }
+            add(Zobrist.hash(state), PolyglotBook.toPolyglot(moveCodes[ply], state.getBoard()), score);
+            state.makeMove(move);
+        }
+        gameCount++;
+    }
+
+    public int getGameCount(){
+        return gameCount;
+    }
+
+    /**
+     * Sorts and merges the collected moves and writes the book.
+     *
+     * @return The number of entries written.
+     */
+    public int write(Path bookFile) throws IOException {
+        int entries = merge();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        Path temp = bookFile.resolveSibling(bookFile.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            int start = 0;
+            while(start < entries){
+                // The entries of one position, with their weights scaled to 16 bits
+                int end = start;
+                int maxScore = 0;
+                while(end < entries && keys[end] == keys[start]){
+                    maxScore = Math.max(maxScore, scores[end]);
+                    end++;
+                }
+                for(int i = start; i < end; i++){
+                    int weight = maxScore > 0xFFFF ? (int) ((long) scores[i] * 0xFFFF / maxScore) : scores[i];
+                    if(buffer.remaining() < PolyglotBook.ENTRY_BYTES){
+                        writeFully(channel, buffer);
+                    }
+                    buffer.putLong(keys[i]).putShort((short) moves[i]).putShort((short) weight).putInt(0);
+                }
+                start = end;
+            }
+            writeFully(channel, buffer);
+        }
+        Files.move(temp, bookFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return entries;
+    }
+
+    /**
+     * "book games.pgn book.bin [maxPly] [minGames]": compiles a book from the command line.
+     */
+    public static void runFromCommandLine(String[] args) throws IOException {
+        if(args.length < 3){
+            System.err.println("Usage: book <games.pgn> <book.bin> [maxPly] [minGames]");
+            return;
+        }
+        int maxPly = args.length > 3 ? Integer.parseInt(args[3]) : 30;
+        int minGames = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+        PolyglotBookBuilder builder = new PolyglotBookBuilder(maxPly, minGames);
+        long start = System.currentTimeMillis();
+        int games = builder.addPgn(Paths.get(args[1]));
+        int entries = builder.write(Paths.get(args[2]));
+        System.out.println(games + " games, " + entries + " entries written in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private void add(long key, int move, int score){
+        if(size == keys.length){
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            moves = Arrays.copyOf(moves, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        keys[size] = key;
+        moves[size] = move;
+        scores[size] = score;
+        counts[size] = 1;
+        size++;
+    }
+
+    /**
+     * Sorts the rows by key (unsigned) and move, sums the duplicates and drops the rare moves.
+     *
+     * @return The number of rows left.
+     */
+    private int merge(){
+        sort(0, size - 1);
+        int out = 0;
+        for(int i = 0; i < size; ){
+            int j = i;
+            int score = 0;
+            int count = 0;
+            while(j < size && keys[j] == keys[i] && moves[j] == moves[i]){
+                score += scores[j];
+                count += counts[j];
+                j++;
+            }
+            if(count >= minGames){
+                keys[out] = keys[i];
+                moves[out] = moves[i];
+                scores[out] = score;
+                counts[out] = count;
+                out++;
+            }
+            i = j;
+        }
+        size = out;
+        return out;
+    }
+
+    private int compare(int a, int b){
+        int byKey = Long.compareUnsigned(keys[a], keys[b]);
+        return byKey != 0 ? byKey : Integer.compare(moves[a], moves[b]);
+    }
+
+    // Three-way quicksort of the parallel arrays: the opening positions repeat in every game,
+    // so equal rows are gathered in the middle instead of being partitioned over and over
+    private void sort(int low, int high){
+        while(low < high){
+            swap(low, low + (high - low) / 2);
+            int less = low;     // [low, less) < pivot
+            int greater = high; // (greater, high] > pivot
+            int i = low + 1;
+            while(i <= greater){
+                int order = compare(i, less);
+                if(order < 0){
+                    swap(i++, less++);
+                }else if(order > 0){
+                    swap(i, greater--);
+                }else{
+                    i++;
+                }
+            }
+            // Recurse into the smaller side, loop on the larger one
+            if(less - low < high - greater){
+                sort(low, less - 1);
+                low = greater + 1;
+            }else{
+                sort(greater + 1, high);
+                high = less - 1;
+            }
+        }
+    }
+
+    private void swap(int a, int b){
+        long key = keys[a]; keys[a] = keys[b]; keys[b] = key;
+        int move = moves[a]; moves[a] = moves[b]; moves[b] = move;
+        int score = scores[a]; scores[a] = scores[b]; scores[b] = score;
+        int count = counts[a]; counts[a] = counts[b]; counts[b] = count;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -15,6 +15,14 @@ public class CastlingRights{
         this.blackCastleQueenSide = true;
     }
 
+    // Constructor for positions set up from FEN
+    public CastlingRights(boolean whiteKingSide, boolean whiteQueenSide, boolean blackKingSide, boolean blackQueenSide){
+        this.whiteCastleKingSide = whiteKingSide;
+        this.whiteCastleQueenSide = whiteQueenSide;
+        this.blackCastleKingSide = blackKingSide;
+        this.blackCastleQueenSide = blackQueenSide;
+    }
+
     // Copying constructor
     public CastlingRights(CastlingRights other){
         this.whiteCastleKingSide = other.whiteCastleKingSide;
@@ -0,0 +1,129 @@
+package Model.Controller;
+
+import Model.*;
+import Model.Engine.*;
+import Model.IOs.*;
+import Model.View.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Analyses a position on the "analysis" thread, with as many lines as the AnalysisPanel asks for,
+ * until it is stopped. Every line the search finishes is posted to the panel as soon as it is found.
+ *
+ * start() and stop() are called on the EDT and never wait for the search. Each start belongs to
+ * a new generation: the search of an older one stops itself at its next report, as it may only
+ * have started running after the stop() meant for it (Search.search() clears the stop flag).
+ */
+public class AnalysisRunner{
+    private static final int HASH_MB = 32;
+
+    private final AnalysisPanel panel;
+    private final Search search = new Search(new ClassicalEvaluator(), new TranspositionTable(HASH_MB));
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "analysis");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Only used on the analysis thread
+    private final RuleEngine ruleEngine = new RuleEngine();
+    private final PGNFormatter pgnFormatter = new PGNFormatter();
+
+    // The current generation, guarded by this: a report of an older one is dropped
+    private int generation = 0;
+
+    public AnalysisRunner(AnalysisPanel panel){
+        this.panel = panel;
+    }
+
+    /**
+     * Stops the running analysis and starts one of this position.
+     *
+     * @param position The position (it is copied).
+     * @param history Zobrist keys of the game's earlier positions, for repetition detection.
+     */
+    public synchronized void start(GameState position, List<Long> history, int lines){
+        stop();
+        int started = generation;
+        GameState root = new GameState(position);
+        List<Long> keys = List.copyOf(history);
+        executor.execute(() -> {
+            if(!isCurrent(started)){
+                return; // Already replaced by a newer position
+            }
+            search.setMultiPv(lines);
+            SearchLimits limits = new SearchLimits();
+            limits.setInfinite(true);
+            search.search(root, keys, limits, new SearchListener(){
+                @Override
+                public void onIteration(SearchInfo info){
+                    report(started, root, info);
+                }
+
+                @Override
+                public void onProgress(long nodes, long timeMs){
+                    if(!isCurrent(started)){
+                        search.stop();
+                    }
+                }
+            });
+        });
+    }
+
+    /**
+     * Stops the analysis right away and empties the panel. The search thread notices
+     * the stop within a few nodes; the position may change immediately.
+     */
+    public synchronized void stop(){
+        generation++;
+        search.stop();
+        panel.clear();
+    }
+
+    private synchronized boolean isCurrent(int started){
+        return generation == started;
+    }
+
+    // On the analysis thread
+    private void report(int started, GameState root, SearchInfo info){
+        AnalysisPanel.Line line = new AnalysisPanel.Line(info.multiPv(), info.depth(),
+                formatScore(info, root.isWhiteTurn()), toSan(root, info.pv()), info.nodes(), info.nps());
+        // Checked and posted together, so a stop() can't come in between and leave an old line behind
+        synchronized(this){
+            if(generation != started){
+                search.stop();
+                return;
+            }
+            panel.post(line);
+        }
+    }
+
+    /**
+     * The score from White's point of view: "+0.35", or "#3" / "#-3" for a mate.
+     */
+    private static String formatScore(SearchInfo info, boolean whiteToMove){
+        int sign = whiteToMove ? 1 : -1;
+        if(info.isMateScore()){
+            return "#" + sign * info.mateIn();
+        }
+        return String.format(Locale.ROOT, "%+.2f", sign * info.score() / 100.0);
+    }
+
+    private String toSan(GameState root, int[] pv){
+        GameState state = new GameState(root);
+        StringJoiner joiner = new StringJoiner(" ");
+        for(int code : pv){
+            Move move = MoveCodes.decode(state, ruleEngine, code);
+            if(move == null){
+                break;
+            }
+            Board before = new Board(state.getBoard());
+            state.makeMove(move);
+            move.setCheck(ruleEngine.isKingInCheck(state, state.isWhiteTurn()));
+            joiner.add(pgnFormatter.toSan(before, move));
+        }
+        return joiner.toString();
+    }
+}
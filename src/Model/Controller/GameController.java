@@ -1,13 +1,17 @@
 package Model.Controller;
 
 import Model.*;
+import Model.Book.*;
 import Model.Pieces.*;
 import Model.IOs.*;
+import Model.Tablebase.*;
 import Model.View.*;
 
 import javax.swing.*;
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * The central controller (the core of the "C" in MVC).
@@ -23,19 +27,52 @@ public class GameController{
     private final MainFrame mainFrame;
     private final BoardPanel boardPanel;
     private final SidePanel sidePanel;
+    private final AnalysisPanel analysisPanel;
 
     //Helper classes (Persistence)
     private final JsonPersistence jsonPersistence;
     private final PGNFormatter pgnFormatter;
     private final PGNParser pgnParser;
 
+    // Runs the rules work and the file operations off the EDT
+    private final TaskRunner taskRunner;
+
+    // Legal moves of the side to move, precomputed once per turn for the GUI
+    private final MoveHintCache moveHintCache;
+
+    // Autosave: every move is appended to a journal next to the save file (null when off).
+    // The journal is only touched by the autosave thread, one task after the other.
+    private Path autosavePath = null;
+    private MoveJournal autosaveJournal = null;
+    private final ExecutorService autosaveExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "autosave");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Every position of the game, for takeback and reviewing earlier moves
+    private final HistoryNavigator historyNavigator = new HistoryNavigator();
+    // The ply shown while reviewing, -1 while showing the current position
+    private int reviewedPly = -1;
+
+    // The opening book the hints come from (null until one is opened)
+    private PolyglotBook openingBook = null;
+
+    // The endgame tablebases the hints come from (null until a directory is opened)
+    private TablebaseProber tablebases = null;
+
+    // Engine analysis of the position on the board, while the analysis panel has it turned on
+    private final AnalysisRunner analysisRunner;
+    private boolean isAnalysing = false;
+
     // State flag to stop interactions when game is over
     private boolean isGameInProgress = false;
 
-    public GameController(MainFrame mainFrame, BoardPanel boardPanel, SidePanel sidePanel){
+    public GameController(MainFrame mainFrame, BoardPanel boardPanel, SidePanel sidePanel, AnalysisPanel analysisPanel){
         this.mainFrame = mainFrame;
         this.boardPanel = boardPanel;
         this.sidePanel = sidePanel;
+        this.analysisPanel = analysisPanel;
 
         //Initialise helper classes
         this.jsonPersistence = new JsonPersistence();
@@ -46,6 +83,9 @@ public class GameController{
         this.gameState = null;
 
         this.ruleEngine = new RuleEngine();
+        this.taskRunner = new TaskRunner(mainFrame);
+        this.moveHintCache = new MoveHintCache(ruleEngine, taskRunner.getExecutor(), this::showHintError);
+        this.analysisRunner = new AnalysisRunner(analysisPanel);
     }
 
     /**
@@ -97,25 +137,53 @@ public class GameController{
         this.gameState = new GameState();
         this.gameState.setPlayers(white, black);
         this.isGameInProgress = true;
+        resetHistory();
+        restartAutosave();
 
         //We refresh the views with the new state.
         refreshAllViews();
     }
 
+    /**
+     * The result of judging a move in the background:
+     * the tagged move and whether it ends the game in stalemate.
+     */
+    private record JudgedMove(Move move, boolean isStalemate){}
+
     /**
      * Handles the user's move attempt (from click or drag).
      * Asks the RuleEngine to generate a full Move object.
+     * The rules work (generation, mate and stalemate detection) runs in the background
+     * on a copy of the GameState, and the result is applied on the EDT.
      *
      * @param from The starting position.
      * @param to The target position.
      */
     public void handleMoveAttempt(Position from, Position to){
-        if(gameState == null || !isGameInProgress) return;
+        if(gameState == null || !isGameInProgress || taskRunner.isBusy()) return;
+        if(isReviewing()){
+            showCurrentPosition();
+            return;
+        }
+
+        GameState snapshot = new GameState(gameState);
+        // The game the move belongs to: the menus stay usable, and a load, an import or an accepted
+        // draw may replace it before the background work is done
+        GameState game = gameState;
+        int ply = game.getMoveHistory().size();
 
         // 1. Ask the RuleEngine to generate and validate the move.
-        Move move = ruleEngine.generateMove(gameState, from, to);
+        taskRunner.submit(null, progress -> ruleEngine.generateMove(snapshot, from, to), move -> {
+            if(!isCurrentGame(game, ply)){
+                return;
+            }
+            if(move == null){
+                // Move was illegal, just reset the GUI
+                boardPanel.clearSelections();
+                boardPanel.updateBoard(gameState.getBoard()); // Resets the piece
+                return;
+            }
 
-        if(move != null){
             // 2. Handle Promotion (if move is tagged)
             if(move.isPromotion()){
                 // We must ask the user what piece they want(by default, a Queen is selected)
@@ -123,33 +191,77 @@ public class GameController{
                 move.setPromotionPiece(promotionPiece);
             }
 
-            // 3. Execute the move on the Model
-            gameState.makeMove(move);
-            refreshAllViews();
-
-            // 4. Check for game-ending conditions
-            if(move.isCheckmate()){
-                boardPanel.setKingInCheck(findKingPos(!gameState.isWhiteTurn())); // Highlight losing player's king
-                JOptionPane.showMessageDialog(mainFrame, "Sakk-matt!");
-                isGameInProgress = false;
-            }else if(move.isCheck()){
-                boardPanel.setKingInCheck(findKingPos(gameState.isWhiteTurn())); // Highlight the checked king
-            }else{
-                boardPanel.setKingInCheck(null); // Clear highlight
-            }
+            // 3. Check for game-ending conditions with the final move, then apply it
+            taskRunner.submit(null, progress -> judgeMove(snapshot, move), judged -> {
+                if(isCurrentGame(game, ply)){
+                    applyMove(judged);
+                }
+            }, this::showMoveError);
+        }, this::showMoveError);
+    }
 
-            if(ruleEngine.isStalemate(gameState)){
-                JOptionPane.showMessageDialog(mainFrame, "Patt!\nAz ellenfélnek nincs szabályos lépése.");
-                isGameInProgress = false;
-            }
+    /**
+     * Is this game, at this ply, still the one on the board? A late result of the background
+     * work is dropped otherwise.
+     */
+    private boolean isCurrentGame(GameState game, int ply){
+        return gameState == game && game.getMoveHistory().size() == ply;
+    }
 
-        }else{
-            // Move was illegal, just reset the GUI
-            boardPanel.clearSelections();
-            boardPanel.updateBoard(gameState.getBoard()); // Resets the piece
+    /**
+     * Runs in the background: plays the move on the snapshot and tags it
+     * with check/mate, also checking for stalemate.
+     */
+    private JudgedMove judgeMove(GameState snapshot, Move move){
+        snapshot.makeMove(move);
+
+        // Re-tag, as an under-promotion can change the result of the default (Queen) tagging
+        boolean isCheck = ruleEngine.isKingInCheck(snapshot, snapshot.isWhiteTurn());
+        move.setCheck(isCheck);
+        move.setCheckmate(isCheck && ruleEngine.isCheckmate(snapshot));
+
+        return new JudgedMove(move, !isCheck && ruleEngine.isStalemate(snapshot));
+    }
+
+    /**
+     * Runs on the EDT: executes the judged move on the Model and updates every view at once.
+     */
+    private void applyMove(JudgedMove judged){
+        Move move = judged.move();
+
+        // The analysis of the old position must not outlive it
+        analysisRunner.stop();
+
+        // Execute the move on the Model
+        gameState.makeMove(move);
+        historyNavigator.push(gameState);
+        moveHintCache.invalidate();
+        autosaveMove(move);
+        refreshAllViews();
+
+        if(move.isCheckmate()){
+            boardPanel.setKingInCheck(findKingPos(gameState.isWhiteTurn())); // Highlight losing player's king
+            JOptionPane.showMessageDialog(mainFrame, "Sakk-matt!");
+            isGameInProgress = false;
+        }else if(judged.isStalemate()){
+            JOptionPane.showMessageDialog(mainFrame, "Patt!\nAz ellenfélnek nincs szabályos lépése.");
+            isGameInProgress = false;
+        }
+    }
+
+    private void showMoveError(Exception e){
+        e.printStackTrace();
+        boardPanel.clearSelections();
+        if(gameState != null){
+            boardPanel.updateBoard(gameState.getBoard());
         }
     }
 
+    // The hints fall back to the RuleEngine on the EDT, so the selection can stay as it is
+    private void showHintError(Exception e){
+        e.printStackTrace();
+    }
+
     /**
      * Helper method to show a dialog for pawn promotion.
      */
@@ -183,6 +295,7 @@ public class GameController{
 
     /**
      * Handles the "Save (JSON)" menu item.
+     * Serialisation and writing happen in the background, on a copy of the game.
      */
     public void handleSaveGame(){
         if(gameState == null){
@@ -194,32 +307,33 @@ public class GameController{
         fileChooser.setDialogTitle("Save Game State (JSON)");
         if(fileChooser.showSaveDialog(mainFrame) == JFileChooser.APPROVE_OPTION){
             File file = fileChooser.getSelectedFile();
+            GameState snapshot = new GameState(gameState);
 
-            // Ensure extension is correct
-            try {
-                jsonPersistence.saveGame(gameState, file.getPath());
-                JOptionPane.showMessageDialog(mainFrame, "Game saved successfully!");
-            } catch (Exception e){
-                JOptionPane.showMessageDialog(mainFrame, "Error while saving:\n" + e.getMessage(), "Save Error", JOptionPane.ERROR_MESSAGE);
-            }
+            taskRunner.submit("Saving game...", progress -> {
+                jsonPersistence.saveGame(snapshot, file.getPath());
+                return file;
+            }, saved -> JOptionPane.showMessageDialog(mainFrame, "Game saved successfully!"),
+               e -> JOptionPane.showMessageDialog(mainFrame, "Error while saving:\n" + e.getMessage(), "Save Error", JOptionPane.ERROR_MESSAGE));
         }
     }
 
     /**
      * Handles the "Load (JSON)" menu item.
+     * If the save has an autosave journal, the moves in it are replayed too.
      */
     public void handleLoadGame(){
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Load Game State (JSON)");
         if(fileChooser.showOpenDialog(mainFrame) == JFileChooser.APPROVE_OPTION){
             File file = fileChooser.getSelectedFile();
-            try {
-                this.gameState = jsonPersistence.loadGame(file.getPath());
+
+            taskRunner.submit("Loading game...", progress -> MoveJournal.load(file.toPath(), jsonPersistence), loaded -> {
+                this.gameState = loaded;
+                resetHistory();
+                restartAutosave();
                 refreshAllViews();
                 JOptionPane.showMessageDialog(mainFrame, "Game loaded successfully!");
-            } catch (Exception e){
-                JOptionPane.showMessageDialog(mainFrame, "Error while loading:\n" + e.getMessage(), "Load Error", JOptionPane.ERROR_MESSAGE);
-            }
+            }, e -> JOptionPane.showMessageDialog(mainFrame, "Error while loading:\n" + e.getMessage(), "Load Error", JOptionPane.ERROR_MESSAGE));
         }
     }
 
@@ -236,38 +350,316 @@ public class GameController{
         fileChooser.setDialogTitle("Export Game as PGN");
         if(fileChooser.showSaveDialog(mainFrame) == JFileChooser.APPROVE_OPTION){
             File file = fileChooser.getSelectedFile();
-            try (FileWriter writer = new FileWriter(file)){
-                String pgnText = pgnFormatter.format(gameState);
-                writer.write(pgnText);
-                JOptionPane.showMessageDialog(mainFrame, "Game exported to PGN successfully!");
-            } catch (Exception e){
-                JOptionPane.showMessageDialog(mainFrame, "Error during export:\n" + e.getMessage(), "Export Error", JOptionPane.ERROR_MESSAGE);
-            }
+            GameState snapshot = new GameState(gameState);
+
+            taskRunner.submit("Exporting PGN...", progress -> {
+                try (FileWriter writer = new FileWriter(file)){
+                    String pgnText = pgnFormatter.format(snapshot);
+                    writer.write(pgnText);
+                }
+                return file;
+            }, exported -> JOptionPane.showMessageDialog(mainFrame, "Game exported to PGN successfully!"),
+               e -> JOptionPane.showMessageDialog(mainFrame, "Error during export:\n" + e.getMessage(), "Export Error", JOptionPane.ERROR_MESSAGE));
         }
     }
 
     /**
      * Handles the "PGN Import" menu item.
+     * Parsing large files can take a while, so it shows its progress and can be cancelled.
      */
     public void handleImportPgn(){
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("PGN Importálása");
         if(fileChooser.showOpenDialog(mainFrame) == JFileChooser.APPROVE_OPTION){
             File file = fileChooser.getSelectedFile();
-            try {
-                this.gameState = pgnParser.importGame(file.getPath());
+
+            taskRunner.submit("PGN importálása...", progress -> pgnParser.importGame(file.getPath(), progress::update), imported -> {
+                this.gameState = imported;
                 this.isGameInProgress = true;
+                resetHistory();
+                restartAutosave();
 
                 // Assuming successful load means game is active
                 refreshAllViews();
                 JOptionPane.showMessageDialog(mainFrame, "PGN import successful!");
-            } catch (Exception e){
+            }, e -> {
                 e.printStackTrace();
                 JOptionPane.showMessageDialog(mainFrame, "Hiba PGN importálás közben:\n" + e.getMessage(), "Import Hiba", JOptionPane.ERROR_MESSAGE);
+            });
+        }
+    }
+
+    /**
+     * Handles the "Takeback" menu item: takes back the last move.
+     * Uses the game's undo records, or the history checkpoints for moves of a loaded game.
+     */
+    public void handleTakeback(){
+        if(gameState == null || gameState.getMoveHistory().isEmpty() || taskRunner.isBusy()) return;
+
+        int ply = gameState.getMoveHistory().size() - 1;
+        if(gameState.canUndo()){
+            gameState.undoMove();
+        }else{
+            gameState = historyNavigator.positionAt(ply);
+        }
+        historyNavigator.truncate(ply);
+        reviewedPly = -1;
+        isGameInProgress = true;
+        moveHintCache.invalidate();
+        boardPanel.clearSelections();
+
+        // The journal only appends, so it starts over from the new position
+        restartAutosave();
+        refreshAllViews();
+    }
+
+    /**
+     * Called when a move in the move log is clicked: shows the position after that ply.
+     * The board is drawn from the history checkpoints, the RuleEngine isn't involved.
+     * Clicking the last move (or trying to move) returns to the current position.
+     */
+    public void handleShowPly(int ply){
+        if(gameState == null) return;
+
+        if(ply >= historyNavigator.size()){
+            showCurrentPosition();
+            return;
+        }
+        reviewedPly = ply;
+        GameState position = historyNavigator.positionAt(ply);
+        boardPanel.clearSelections();
+        boardPanel.setKingInCheck(null);
+        boardPanel.updateBoard(position.getBoard());
+        sidePanel.updatePlayerTurn(position.isWhiteTurn());
+        boardPanel.repaint();
+        restartAnalysis(position, ply);
+    }
+
+    public boolean isReviewing(){
+        return reviewedPly >= 0;
+    }
+
+    public void showCurrentPosition(){
+        reviewedPly = -1;
+        boardPanel.clearSelections();
+        refreshAllViews();
+    }
+
+    private void resetHistory(){
+        reviewedPly = -1;
+        historyNavigator.reset(gameState);
+    }
+
+    /**
+     * Handles the "Autosave" menu item: turns autosaving on (asking for the save file) or off.
+     *
+     * @return Whether autosave is on afterwards.
+     */
+    public boolean handleToggleAutosave(boolean enable){
+        if(!enable){
+            autosavePath = null;
+            restartAutosave();
+            return false;
+        }
+
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Autosave Game State (JSON)");
+        if(fileChooser.showSaveDialog(mainFrame) != JFileChooser.APPROVE_OPTION){
+            return autosavePath != null;
+        }
+        autosavePath = fileChooser.getSelectedFile().toPath();
+        restartAutosave();
+        return true;
+    }
+
+    /**
+     * Closes the current journal and, if autosave is on, starts a new one for the current game.
+     */
+    private void restartAutosave(){
+        MoveJournal previous = autosaveJournal;
+        autosaveJournal = null;
+        if(previous != null){
+            autosaveExecutor.execute(() -> {
+                try {
+                    previous.close();
+                } catch(IOException e){
+                    e.printStackTrace();
+                }
+            });
+        }
+        if(autosavePath == null || gameState == null){
+            return;
+        }
+
+        MoveJournal journal = new MoveJournal(autosavePath, jsonPersistence, new GameState(gameState));
+        autosaveJournal = journal;
+        autosaveExecutor.execute(() -> runAutosave(journal, journal::open));
+    }
+
+    /**
+     * Appends the move to the journal in the background; constant cost however long the game is.
+     */
+    private void autosaveMove(Move move){
+        MoveJournal journal = autosaveJournal;
+        if(journal != null){
+            int moveCode = MoveCodes.encode(move);
+            autosaveExecutor.execute(() -> runAutosave(journal, () -> journal.append(moveCode)));
+        }
+    }
+
+    private interface JournalTask{
+        void run() throws IOException;
+    }
+
+    // On the autosave thread: a failure turns autosave off and tells the user
+    private void runAutosave(MoveJournal journal, JournalTask task){
+        try {
+            task.run();
+        } catch(IOException e){
+            SwingUtilities.invokeLater(() -> {
+                if(autosaveJournal == journal){
+                    autosavePath = null;
+                    restartAutosave();
+                    JOptionPane.showMessageDialog(mainFrame, "Autosave failed and was turned off:\n" + e.getMessage(), "Autosave Error", JOptionPane.ERROR_MESSAGE);
+                }
+            });
+        }
+    }
+
+    /**
+     * Handles the "Open Book" menu item: opens a Polyglot opening book for the hints.
+     */
+    public void handleOpenBook(){
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Megnyitási könyv (Polyglot .bin)");
+        if(fileChooser.showOpenDialog(mainFrame) == JFileChooser.APPROVE_OPTION){
+            File file = fileChooser.getSelectedFile();
+            try {
+                PolyglotBook book = PolyglotBook.open(file.toPath());
+                if(openingBook != null){
+                    openingBook.close();
+                }
+                openingBook = book;
+                JOptionPane.showMessageDialog(mainFrame, "Book opened: " + book.size() + " entries.");
+            } catch(IOException e){
+                JOptionPane.showMessageDialog(mainFrame, "Cannot open the book:\n" + e.getMessage(), "Book Error", JOptionPane.ERROR_MESSAGE);
             }
         }
     }
 
+    /**
+     * Handles the "Book Hint" menu item: lists the book moves of the current position
+     * and marks the best one on the board.
+     */
+    public void handleBookHint(){
+        if(gameState == null || isReviewing()) return;
+        if(openingBook == null){
+            JOptionPane.showMessageDialog(mainFrame, "Open an opening book first.", "Book", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        List<BookMove> bookMoves = openingBook.getMoves(gameState);
+        if(bookMoves.isEmpty()){
+            JOptionPane.showMessageDialog(mainFrame, "The position is not in the book.", "Book", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        long total = 0;
+        for(BookMove bookMove : bookMoves){
+            total += bookMove.weight();
+        }
+        StringBuilder text = new StringBuilder();
+        for(BookMove bookMove : bookMoves){
+            Move move = MoveCodes.decode(gameState, ruleEngine, bookMove.moveCode());
+            text.append(pgnFormatter.toSan(gameState.getBoard(), move));
+            if(total > 0){
+                text.append("  ").append(bookMove.weight() * 100 / total).append("%");
+            }
+            text.append("\n");
+        }
+
+        // Mark the best move like a selected piece with its target
+        int best = bookMoves.get(0).moveCode();
+        boardPanel.setSelectedPosition(MoveCodes.from(best));
+        boardPanel.showValidMoves(Set.of(MoveCodes.to(best)));
+        boardPanel.repaint();
+        JOptionPane.showMessageDialog(mainFrame, text.toString(), "Book Moves", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    /**
+     * Handles the "Open Tablebases" menu item: opens the tablebase files of a directory.
+     */
+    public void handleOpenTablebases(){
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Végjáték-adatbázis könyvtára");
+        fileChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        if(fileChooser.showOpenDialog(mainFrame) == JFileChooser.APPROVE_OPTION){
+            TablebaseProber opened = TablebaseProber.openDirectory(fileChooser.getSelectedFile().toPath());
+            if(opened.isEmpty()){
+                JOptionPane.showMessageDialog(mainFrame, "No tablebase files in this directory.", "Tablebase Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            try {
+                if(tablebases != null){
+                    tablebases.close();
+                }
+            } catch(IOException e){
+                e.printStackTrace();
+            }
+            tablebases = opened;
+            JOptionPane.showMessageDialog(mainFrame, "Tablebases opened: " + opened.getMaterials());
+        }
+    }
+
+    /**
+     * Handles the "Tablebase Hint" menu item: tells the result of the current position
+     * with perfect play and marks a move that keeps it.
+     */
+    public void handleTablebaseHint(){
+        if(gameState == null || isReviewing()) return;
+        if(tablebases == null){
+            JOptionPane.showMessageDialog(mainFrame, "Open the tablebases first.", "Tablebase", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        TablebaseResult result = tablebases.probe(gameState);
+        if(result == null){
+            JOptionPane.showMessageDialog(mainFrame, "No tablebase covers this position.", "Tablebase", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        // The best move: a win mates soonest, a loss lasts longest, a draw stays a draw
+        Move best = null;
+        int bestScore = Integer.MIN_VALUE;
+        for(Move move : ruleEngine.getAllLegalMoves(gameState)){
+            GameState child = new GameState(gameState);
+            child.makeMove(move);
+            TablebaseResult reply = tablebases.probe(child);
+            int score;
+            if(reply == null){
+                // Out of the tables: mate, stalemate, or a capture or promotion into other material
+                score = ruleEngine.isCheckmate(child) ? 1000 : 0;
+            }else{
+                score = reply.isLoss() ? 1000 - reply.pliesToMate() : reply.isWin() ? -1000 + reply.pliesToMate() : 0;
+            }
+            if(score > bestScore){
+                bestScore = score;
+                best = move;
+            }
+        }
+
+        String side = gameState.isWhiteTurn() ? "White" : "Black";
+        String text = result.isDraw() ? "Draw."
+                : result.isWin() ? side + " wins: mate in " + (result.pliesToMate() + 1) / 2 + "."
+                : side + " loses: mated in " + result.pliesToMate() / 2 + ".";
+        if(best != null){
+            boardPanel.setSelectedPosition(best.getFrom());
+            boardPanel.showValidMoves(Set.of(best.getTo()));
+            boardPanel.repaint();
+            text += "\nBest move: " + pgnFormatter.toSan(gameState.getBoard(), best);
+        }
+        JOptionPane.showMessageDialog(mainFrame, text, "Tablebase", JOptionPane.INFORMATION_MESSAGE);
+    }
+
     /**
      * Handles the "Offer Draw" menu item.
      */
@@ -289,7 +681,10 @@ public class GameController{
 
         if(response == JOptionPane.YES_OPTION){
             JOptionPane.showMessageDialog(mainFrame, "The game has ended in a draw.");
+            handleToggleAnalysis(false);
             gameState = null;
+            moveHintCache.invalidate();
+            restartAutosave();
         }else{
             JOptionPane.showMessageDialog(mainFrame, "Draw offer declined.");
             gameState.recordDrawOfferRejection();
@@ -324,6 +719,52 @@ public class GameController{
 
         // 5. Repaint
         boardPanel.repaint();
+
+        // 6. Start computing the move hints of the new turn in the background
+        moveHintCache.prefetch(gameState);
+
+        // 7. And the analysis of the new position
+        restartAnalysis(gameState, historyNavigator.size());
+    }
+
+    /**
+     * Handles the analysis panel's button: analyses the position on the board until turned off.
+     */
+    public void handleToggleAnalysis(boolean enable){
+        isAnalysing = enable && gameState != null;
+        analysisPanel.setRunning(isAnalysing);
+        if(!isAnalysing){
+            analysisRunner.stop();
+            return;
+        }
+        int ply = isReviewing() ? reviewedPly : historyNavigator.size();
+        restartAnalysis(isReviewing() ? historyNavigator.positionAt(ply) : gameState, ply);
+    }
+
+    /**
+     * Handles the analysis panel's line count: the analysis starts over with the new count.
+     */
+    public void handleAnalysisLines(int lines){
+        if(isAnalysing){
+            handleToggleAnalysis(true);
+        }
+    }
+
+    /**
+     * Analyses the position shown (if the analysis is on), with the keys of the positions
+     * since the last capture or pawn move for the repetitions.
+     *
+     * @param ply The position's ply in the history.
+     */
+    private void restartAnalysis(GameState position, int ply){
+        if(!isAnalysing){
+            return;
+        }
+        List<Long> history = new ArrayList<>();
+        for(int i = Math.max(0, ply - position.getHalfMoveClock()); i < ply; i++){
+            history.add(Zobrist.hash(historyNavigator.positionAt(i)));
+        }
+        analysisRunner.start(position, history, analysisPanel.getLineCount());
     }
 
     public GameState getGameState(){ return gameState; }
@@ -331,11 +772,12 @@ public class GameController{
     /**
      * Gets the valid moves for the GUI (MouseController)
      * so it can draw the green dots.
+     * Served from the per-turn hint cache.
      */
     public Set<Position> getValidMovesForPiece(Position pos){
-        if(gameState == null){
+        if(gameState == null || isReviewing()){
             return Set.of(); //Return an empty set
         }
-        return ruleEngine.getValidMovesForPiece(gameState, pos);
+        return moveHintCache.getValidMoves(gameState, pos);
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package Model.Controller;
 
+import javax.swing.*;
 import java.awt.event.*;
 
 /**
@@ -36,6 +37,26 @@ public class MenuController implements ActionListener{
             case "LOAD_GAME_JSON":
                 gameController.handleLoadGame();
                 break;
+            case "TOGGLE_AUTOSAVE":
+                // The check box shows whether autosave really is on (the user may cancel the file dialog)
+                AbstractButton item = (AbstractButton) e.getSource();
+                item.setSelected(gameController.handleToggleAutosave(item.isSelected()));
+                break;
+            case "TAKEBACK":
+                gameController.handleTakeback();
+                break;
+            case "OPEN_BOOK":
+                gameController.handleOpenBook();
+                break;
+            case "BOOK_HINT":
+                gameController.handleBookHint();
+                break;
+            case "OPEN_TABLEBASES":
+                gameController.handleOpenTablebases();
+                break;
+            case "TABLEBASE_HINT":
+                gameController.handleTablebaseHint();
+                break;
             case "OFFER_DRAW":
                 gameController.handleDrawOffer();
                 break;
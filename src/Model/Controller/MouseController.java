@@ -40,6 +40,11 @@ public class MouseController extends MouseAdapter{
         if(gameController.getGameState() == null){
             return;
         }
+        if(gameController.isReviewing()){
+            // Clicking the board while reviewing returns to the game
+            gameController.showCurrentPosition();
+            return;
+        }
 
         // Reset flag
         clickingSelectedPiece = false;
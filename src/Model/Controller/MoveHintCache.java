@@ -0,0 +1,91 @@
+package Model.Controller;
+
+import Model.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+/**
+ * Caches the legal moves of the side to move, indexed by source square.
+ *
+ * As soon as the turn changes, GameController calls prefetch(), and all legal
+ * moves are generated once on a background thread (on a copy of the GameState).
+ * The MouseController's clicks and drags are then answered from the cache
+ * instead of asking the RuleEngine again for every press. The EDT never waits for
+ * the background work: until it is done, a press asks the RuleEngine for that one piece.
+ */
+public class MoveHintCache{
+    private final RuleEngine ruleEngine;
+    private final ExecutorService executor;
+    private final Consumer<Exception> onFailure;
+
+    // The position the cached hints belong to (game object + number of plies played)
+    private GameState cachedState = null;
+    private int cachedPly = -1;
+    private Future<Map<Position, Set<Position>>> pendingHints = null;
+    private boolean failureReported = false;
+
+    /**
+     * @param onFailure Told (on the EDT) when the background computation of a position fails.
+     */
+    public MoveHintCache(RuleEngine ruleEngine, ExecutorService executor, Consumer<Exception> onFailure){
+        this.ruleEngine = ruleEngine;
+        this.executor = executor;
+        this.onFailure = onFailure;
+    }
+
+    /**
+     * Starts computing the hints for the current position in the background.
+     * Called on the EDT whenever the turn changes.
+     */
+    public void prefetch(GameState state){
+        invalidate();
+        if(state == null) return;
+
+        // The EDT keeps mutating the original, so the worker gets its own copy
+        GameState snapshot = new GameState(state);
+        this.cachedState = state;
+        this.cachedPly = state.getMoveHistory().size();
+        this.failureReported = false;
+        this.pendingHints = executor.submit(() -> ruleEngine.getAllValidMoves(snapshot));
+    }
+
+    /**
+     * Drops the cached hints, must be called whenever the position changes.
+     */
+    public void invalidate(){
+        if(pendingHints != null){
+            pendingHints.cancel(true);
+        }
+        pendingHints = null;
+        cachedState = null;
+        cachedPly = -1;
+    }
+
+    /**
+     * Returns the valid target squares of the piece on 'pos'. Called on the EDT, so it
+     * doesn't wait for a background computation that is still running (or has failed):
+     * the moves of the one piece are computed right here instead.
+     */
+    public Set<Position> getValidMoves(GameState state, Position pos){
+        if(pendingHints == null || cachedState != state || cachedPly != state.getMoveHistory().size()){
+            prefetch(state);
+        }
+
+        if(pendingHints.isDone() && !pendingHints.isCancelled()){
+            try {
+                return pendingHints.get().getOrDefault(pos, Set.of());
+            } catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            } catch(ExecutionException e){
+                if(!failureReported){
+                    failureReported = true;
+                    Throwable cause = e.getCause();
+                    onFailure.accept(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+                }
+            }
+        }
+        return ruleEngine.getValidMovesForPiece(state, pos);
+    }
+}
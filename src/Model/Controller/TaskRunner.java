@@ -0,0 +1,175 @@
+package Model.Controller;
+
+import Model.View.*;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+/**
+ * Runs the expensive work (rules checks, file parsing, serialisation, file I/O)
+ * off the Event Dispatch Thread.
+ *
+ * Every job is a SwingWorker executed on a virtual thread. The result is handed
+ * back to the EDT in one piece (onSuccess runs there), so the views are never
+ * updated halfway. Long jobs get a progress dialog with a Cancel button.
+ */
+public class TaskRunner{
+    /**
+     * The work to be done in the background.
+     */
+    public interface Job<T>{
+        T run(Progress progress) throws Exception;
+    }
+
+    /**
+     * Handed to the running job to report progress and to check for cancellation.
+     */
+    public interface Progress{
+        void update(long done, long total);
+        boolean isCancelled();
+    }
+
+    // Jobs finishing quicker than this never show the progress dialog (no flashing)
+    private static final int DIALOG_DELAY_MS = 400;
+
+    private final Frame owner;
+    private final ExecutorService executor;
+
+    // Number of jobs submitted and not yet finished, only touched on the EDT
+    private int runningTasks = 0;
+
+    public TaskRunner(Frame owner){
+        this.owner = owner;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("chess-task-", 0).factory());
+    }
+
+    /**
+     * The executor for fire-and-forget background work (e.g. move hints).
+     */
+    public ExecutorService getExecutor(){
+        return executor;
+    }
+
+    /**
+     * True while a submitted job is running. The controller ignores
+     * board input meanwhile, so the GameState can't change under the job.
+     * A cancelled job counts until its thread has really left it.
+     */
+    public boolean isBusy(){
+        return runningTasks > 0;
+    }
+
+    /**
+     * Submits a job. Must be called on the EDT.
+     *
+     * @param title Title of the progress dialog, or null for short jobs that need none.
+     * @param job The work to run in the background.
+     * @param onSuccess Receives the result on the EDT.
+     * @param onFailure Receives the exception thrown by the job on the EDT.
+     * @return The worker, which can be cancelled.
+     */
+    public <T> SwingWorker<T, Void> submit(String title, Job<T> job, Consumer<T> onSuccess, Consumer<Exception> onFailure){
+        Worker<T> worker = new Worker<>(job, onSuccess, onFailure);
+        runningTasks++;
+
+        if(title != null){
+            worker.attachDialog(title);
+        }
+        executor.execute(worker);
+        return worker;
+    }
+
+    private class Worker<T> extends SwingWorker<T, Void> implements Progress{
+        private final Job<T> job;
+        private final Consumer<T> onSuccess;
+        private final Consumer<Exception> onFailure;
+
+        private ProgressDialog dialog = null;
+        private Timer dialogTimer = null;
+
+        // Set by whichever comes first: the job starting, or a cancel before it could start
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        Worker(Job<T> job, Consumer<T> onSuccess, Consumer<Exception> onFailure){
+            this.job = job;
+            this.onSuccess = onSuccess;
+            this.onFailure = onFailure;
+        }
+
+        /**
+         * Shows the progress dialog, if the job is still running after a short delay.
+         */
+        void attachDialog(String title){
+            dialog = new ProgressDialog(owner, title, () -> cancel(true));
+            addPropertyChangeListener(e -> {
+                if("progress".equals(e.getPropertyName())){
+                    dialog.setProgress((Integer) e.getNewValue());
+                }
+            });
+
+            dialogTimer = new Timer(DIALOG_DELAY_MS, e -> {
+                if(!isDone()){
+                    dialog.setVisible(true);
+                }
+            });
+            dialogTimer.setRepeats(false);
+            dialogTimer.start();
+        }
+
+        @Override
+        protected T doInBackground() throws Exception{
+            if(!started.compareAndSet(false, true)){
+                return null; // Cancelled before it started, done() has already counted it
+            }
+            try {
+                return job.run(this);
+            } finally {
+                // Not in done(): a cancelled job gets there at once, while it may still be running
+                SwingUtilities.invokeLater(() -> runningTasks--);
+            }
+        }
+
+        @Override
+        public void update(long done, long total){
+            if(total > 0){
+                setProgress((int) Math.min(100, done * 100 / total));
+            }
+        }
+
+        /**
+         * Runs on the EDT, after the job finished, failed or was cancelled.
+         */
+        @Override
+        protected void done(){
+            if(isCancelled() && started.compareAndSet(false, true)){
+                runningTasks--; // It will never run
+            }
+            if(dialogTimer != null){
+                dialogTimer.stop();
+            }
+            if(dialog != null){
+                dialog.dispose();
+            }
+
+            if(isCancelled()){
+                return;
+            }
+
+            T result;
+            try {
+                result = get();
+            } catch(ExecutionException e){
+                Throwable cause = e.getCause();
+                onFailure.accept(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+                return;
+            } catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                return;
+            }
+            onSuccess.accept(result);
+        }
+    }
+}
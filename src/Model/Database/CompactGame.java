@@ -0,0 +1,195 @@
+package Model.Database;
+
+import Model.*;
+import Model.IOs.*;
+
+import java.util.*;
+
+/**
+ * A finished game in as few bytes as possible, for holding millions of them in memory.
+ *
+ * Instead of a Board, Players and Move objects, it keeps the headers used for searching
+ * (strings as StringDictionary ids, the date, ECO and Elos as numbers) and the moves
+ * as a short[] of move codes (see MoveCodes): about 50 bytes plus 2 per ply on the heap.
+ * The full GameState is only built when it's asked for, by replaying the moves.
+ *
+ * A game set up from a position (the "FEN" tag) keeps the FEN as one more dictionary id
+ * and is replayed from it. For even less memory, CompactGameStore keeps them off the heap.
+ */
+public final class CompactGame{
+    public static final int STANDARD_START = -1; // The start FEN id of a game from the initial position
+
+    private final StringDictionary dictionary;
+    private final int white;
+    private final int black;
+    private final int event;
+    private final int date;
+    private final short whiteElo;
+    private final short blackElo;
+    private final short eco;
+    private final byte result;
+    private final int startFen;
+    private final short[] moves;
+
+    CompactGame(StringDictionary dictionary, int white, int black, int event, int date,
+                int whiteElo, int blackElo, int eco, int result, int startFen, short[] moves){
+        this.dictionary = dictionary;
+        this.white = white;
+        this.black = black;
+        this.event = event;
+        this.date = date;
+        this.whiteElo = (short) whiteElo;
+        this.blackElo = (short) blackElo;
+        this.eco = (short) eco;
+        this.result = (byte) result;
+        this.startFen = startFen;
+        this.moves = moves;
+    }
+
+    /**
+     * Packs a game from its PGN tags and the move codes of its main line.
+     * Missing tags become "?" (strings) or 0 (numbers); without a "FEN" tag
+     * (or with the standard one) the game starts from the initial position.
+     */
+    public static CompactGame of(Map<String, String> tags, short[] moves, StringDictionary dictionary){
+        return new CompactGame(dictionary,
+                dictionary.idOf(tags.getOrDefault("White", "?")),
+                dictionary.idOf(tags.getOrDefault("Black", "?")),
+                dictionary.idOf(tags.getOrDefault("Event", "?")),
+                HeaderCodes.date(tags.get("Date")),
+                HeaderCodes.elo(tags.get("WhiteElo")),
+                HeaderCodes.elo(tags.get("BlackElo")),
+                HeaderCodes.eco(tags.get("ECO")),
+                HeaderCodes.result(tags.get("Result")),
+                startFenId(tags.get("FEN"), dictionary),
+                moves);
+    }
+
+    /**
+     * Packs the main line and the tags of an analysed game.
+     */
+    public static CompactGame of(GameTree tree, StringDictionary dictionary){
+        int[] mainLine = tree.mainLine();
+        short[] moves = new short[mainLine.length];
+        for(int i = 0; i < mainLine.length; i++){
+            moves[i] = (short) tree.getMoveCode(mainLine[i]);
+        }
+        Map<String, String> tags = new HashMap<>(tree.getTags());
+        tags.putIfAbsent("Result", tree.getResult());
+        return of(tags, moves, dictionary);
+    }
+
+    private static int startFenId(String fen, StringDictionary dictionary){
+        return fen == null || fen.equals(FENParser.START_FEN) ? STANDARD_START : dictionary.idOf(fen);
+    }
+
+    /**
+     * Packs a played game: its players and moves.
+     *
+     * @throws IllegalArgumentException if the game didn't start from the initial position
+     *         (a GameState doesn't remember a set-up start; pack its GameTree instead).
+     */
+    public static CompactGame of(GameState state, StringDictionary dictionary){
+        Map<String, String> tags = new HashMap<>();
+        if(state.getWhitePlayer() != null){
+            tags.put("White", state.getWhitePlayer().getName());
+            tags.put("WhiteElo", String.valueOf(state.getWhitePlayer().getElo()));
+        }
+        if(state.getBlackPlayer() != null){
+            tags.put("Black", state.getBlackPlayer().getName());
+            tags.put("BlackElo", String.valueOf(state.getBlackPlayer().getElo()));
+        }
+        List<Move> history = state.getMoveHistory();
+        short[] moves = new short[history.size()];
+        for(int i = 0; i < moves.length; i++){
+            moves[i] = (short) MoveCodes.encode(history.get(i));
+        }
+        CompactGame game = of(tags, moves, dictionary);
+        try{
+            if(Zobrist.hash(game.toGameState()) == Zobrist.hash(state)){
+                return game;
+            }
+        }catch(IllegalStateException e){
+            // A move that's illegal from the initial position: set up from another one
+        }
+        throw new IllegalArgumentException("The game doesn't start from the initial position");
+    }
+
+    public String getWhite(){ return dictionary.valueOf(white); }
+    public String getBlack(){ return dictionary.valueOf(black); }
+    public String getEvent(){ return dictionary.valueOf(event); }
+    public int getWhiteId(){ return white; }
+    public int getBlackId(){ return black; }
+    public int getEventId(){ return event; }
+    public int getDate(){ return date; }
+    public int getWhiteElo(){ return whiteElo; }
+    public int getBlackElo(){ return blackElo; }
+    public int getEco(){ return eco; }
+    public int getResult(){ return result; }
+    public int getStartFenId(){ return startFen; }
+    public int getPlyCount(){ return moves.length; }
+    public int getMoveCode(int ply){ return moves[ply] & 0xFFFF; }
+    public StringDictionary getDictionary(){ return dictionary; }
+
+    /**
+     * @return The FEN the game starts from, or null for the initial position.
+     */
+    public String getStartFen(){
+        return startFen == STANDARD_START ? null : dictionary.valueOf(startFen);
+    }
+
+    /**
+     * The move codes (a copy).
+     */
+    public short[] getMoves(){
+        return moves.clone();
+    }
+
+    /**
+     * Replays the game into a new GameState, with the players set.
+     *
+     * @param plies The number of moves to play (up to getPlyCount()).
+     * @throws IllegalStateException if a stored move turns out to be illegal.
+     * @throws IllegalArgumentException if the start FEN is malformed.
+     */
+    public GameState toGameState(int plies){
+        GameState state = startFen == STANDARD_START ? new GameState() : new FENParser().parse(getStartFen());
+        state.setPlayers(new Player(getWhite(), whiteElo), new Player(getBlack(), blackElo));
+        RuleEngine ruleEngine = new RuleEngine();
+        for(int i = 0; i < plies; i++){
+            Move move = MoveCodes.decode(state, ruleEngine, getMoveCode(i));
+            if(move == null){
+                throw new IllegalStateException("Illegal move " + MoveCodes.toUci(getMoveCode(i)) + " at ply " + i);
+            }
+            state.makeMove(move);
+        }
+        return state;
+    }
+
+    public GameState toGameState(){
+        return toGameState(moves.length);
+    }
+
+    @Override
+    public boolean equals(Object o){
+        if(!(o instanceof CompactGame other)){
+            return false;
+        }
+        // Ids only compare within one dictionary
+        return dictionary == other.dictionary && white == other.white && black == other.black
+                && event == other.event && date == other.date && whiteElo == other.whiteElo
+                && blackElo == other.blackElo && eco == other.eco && result == other.result
+                && startFen == other.startFen && Arrays.equals(moves, other.moves);
+    }
+
+    @Override
+    public int hashCode(){
+        return Objects.hash(white, black, event, date, result) * 31 + Arrays.hashCode(moves);
+    }
+
+    @Override
+    public String toString(){
+        return getWhite() + " - " + getBlack() + ", " + getEvent() + " " + HeaderCodes.dateString(date)
+                + " " + HeaderCodes.resultString(result) + " (" + moves.length + " plies)";
+    }
+}
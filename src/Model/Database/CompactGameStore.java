@@ -0,0 +1,220 @@
+package Model.Database;
+
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * A collection of CompactGames kept off the heap, in direct ByteBuffers.
+ *
+ * Every game is one variable-length record in a chunk of memory the garbage collector never
+ * scans, plus a 4-byte entry in the index. A record is a 22-byte header followed by the moves
+ * packed into 12 bits each (the from and to squares; a promotion takes an extra 12-bit word),
+ * so an average 80-ply game needs about 22 + 120 + 4 = 146 bytes. A game set up from a FEN
+ * has the top bit of its result byte set and the FEN's dictionary id in 3 bytes after the header.
+ *
+ * Games are added by one thread at a time, and may be read by any number of threads meanwhile.
+ */
+public class CompactGameStore{
+    // Header: white (3), black (3), event (3), date (4), white Elo (2), black Elo (2), ECO (2), result (1), plies (2)
+    static final int HEADER_BYTES = 22;
+    private static final int FEN_FLAG = 0x80; // In the result byte: a start FEN id follows the header
+    private static final int CHUNK_BITS = 24;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS; // 16MB, the index has room for 256 of them
+
+    private final StringDictionary dictionary;
+    private final ReentrantLock addLock = new ReentrantLock();
+
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private volatile int[] index = new int[1024]; // chunk << CHUNK_BITS | offset, for every game
+    private volatile int size = 0;
+    private long recordBytes = 0;
+    private int chunkPosition = CHUNK_SIZE;        // Where the next record goes in the last chunk
+
+    public CompactGameStore(StringDictionary dictionary){
+        this.dictionary = dictionary;
+    }
+
+    public StringDictionary getDictionary(){
+        return dictionary;
+    }
+
+    /**
+     * Copies the game into the store.
+     *
+     * @return The game's id, its index in the store.
+     * @throws IllegalArgumentException if the game was made with another dictionary.
+     */
+    public int add(CompactGame game){
+        if(game.getDictionary() != dictionary){
+            throw new IllegalArgumentException("The game belongs to another dictionary");
+        }
+        byte[] moveBytes = packMoves(game);
+        boolean setUp = game.getStartFenId() != CompactGame.STANDARD_START;
+        int movesOffset = HEADER_BYTES + (setUp ? 3 : 0);
+        int length = movesOffset + moveBytes.length;
+
+        addLock.lock();
+        try{
+            if(chunkPosition + length > CHUNK_SIZE){
+                if(chunks.length == 256){
+                    throw new IllegalStateException("Game store is full");
+                }
+                ByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+                grown[chunks.length] = ByteBuffer.allocateDirect(CHUNK_SIZE);
+                chunks = grown;
+                chunkPosition = 0;
+            }
+            int chunk = chunks.length - 1;
+            ByteBuffer buffer = chunks[chunk];
+            int offset = chunkPosition;
+
+            putInt3(buffer, offset, game.getWhiteId());
+            putInt3(buffer, offset + 3, game.getBlackId());
+            putInt3(buffer, offset + 6, game.getEventId());
+            buffer.putInt(offset + 9, game.getDate());
+            buffer.putShort(offset + 13, (short) game.getWhiteElo());
+            buffer.putShort(offset + 15, (short) game.getBlackElo());
+            buffer.putShort(offset + 17, (short) game.getEco());
+            buffer.put(offset + 19, (byte) (game.getResult() | (setUp ? FEN_FLAG : 0)));
+            buffer.putShort(offset + 20, (short) game.getPlyCount());
+            if(setUp){
+                putInt3(buffer, offset + HEADER_BYTES, game.getStartFenId());
+            }
+            buffer.put(offset + movesOffset, moveBytes);
+            chunkPosition += length;
+            recordBytes += length;
+
+            int id = size;
+            if(id == index.length){
+                index = Arrays.copyOf(index, id * 2);
+            }
+            index[id] = chunk << CHUNK_BITS | offset;
+            size = id + 1; // Publishes the record to the readers
+            return id;
+        }finally{
+            addLock.unlock();
+        }
+    }
+
+    public int size(){
+        return size;
+    }
+
+    /**
+     * @return The bytes taken by the games: their records plus their index entries.
+     */
+    public long bytesUsed(){
+        return recordBytes + 4L * size;
+    }
+
+    public double bytesPerGame(){
+        return size == 0 ? 0 : (double) bytesUsed() / size;
+    }
+
+    /**
+     * Unpacks a game back onto the heap.
+     */
+    public CompactGame get(int id){
+        ByteBuffer buffer = chunkOf(id);
+        int offset = offsetOf(id);
+        int plies = buffer.getShort(offset + 20) & 0xFFFF;
+        int result = buffer.get(offset + 19) & 0xFF;
+        boolean setUp = (result & FEN_FLAG) != 0;
+        return new CompactGame(dictionary,
+                getInt3(buffer, offset), getInt3(buffer, offset + 3), getInt3(buffer, offset + 6),
+                buffer.getInt(offset + 9), buffer.getShort(offset + 13), buffer.getShort(offset + 15),
+                buffer.getShort(offset + 17), result & ~FEN_FLAG,
+                setUp ? getInt3(buffer, offset + HEADER_BYTES) : CompactGame.STANDARD_START,
+                unpackMoves(buffer, offset + HEADER_BYTES + (setUp ? 3 : 0), plies));
+    }
+
+    // Header fields, read straight from the record
+
+    public int getWhiteId(int id){ return getInt3(chunkOf(id), offsetOf(id)); }
+    public int getBlackId(int id){ return getInt3(chunkOf(id), offsetOf(id) + 3); }
+    public int getDate(int id){ return chunkOf(id).getInt(offsetOf(id) + 9); }
+    public int getResult(int id){ return chunkOf(id).get(offsetOf(id) + 19) & 0xFF & ~FEN_FLAG; }
+    public int getPlyCount(int id){ return chunkOf(id).getShort(offsetOf(id) + 20) & 0xFFFF; }
+
+    private ByteBuffer chunkOf(int id){
+        if(id < 0 || id >= size){
+            throw new IndexOutOfBoundsException("No game with id " + id);
+        }
+        return chunks[index[id] >>> CHUNK_BITS];
+    }
+
+    private int offsetOf(int id){
+        return index[id] & (CHUNK_SIZE - 1);
+    }
+
+    // --- Move packing ---
+
+    /**
+     * Packs the moves into 12-bit words: from | to << 6. A promotion is preceded by an
+     * escape word with from == to == the promotion index (1-4), which no real move can be.
+     */
+    static byte[] packMoves(CompactGame game){
+        int plies = game.getPlyCount();
+        int[] words = new int[plies * 2];
+        int wordCount = 0;
+        for(int i = 0; i < plies; i++){
+            int code = game.getMoveCode(i);
+            int promotion = code >>> 12;
+            if(promotion != 0){
+                words[wordCount++] = promotion | promotion << 6;
+            }
+            words[wordCount++] = code & 0xFFF;
+        }
+
+        byte[] bytes = new byte[(wordCount * 12 + 7) / 8];
+        long bits = 0;
+        int bitCount = 0;
+        int position = 0;
+        for(int i = 0; i < wordCount; i++){
+            bits = bits << 12 | words[i];
+            bitCount += 12;
+            while(bitCount >= 8){
+                bitCount -= 8;
+                bytes[position++] = (byte) (bits >>> bitCount);
+            }
+        }
+        if(bitCount > 0){
+            bytes[position] = (byte) (bits << (8 - bitCount));
+        }
+        return bytes;
+    }
+
+    static short[] unpackMoves(ByteBuffer buffer, int offset, int plies){
+        short[] moves = new short[plies];
+        long bits = 0;
+        int bitCount = 0;
+        int position = offset;
+        int promotion = 0;
+        for(int ply = 0; ply < plies; ){
+            while(bitCount < 12){
+                bits = bits << 8 | (buffer.get(position++) & 0xFF);
+                bitCount += 8;
+            }
+            bitCount -= 12;
+            int word = (int) (bits >>> bitCount) & 0xFFF;
+            if((word & 63) == (word >>> 6)){
+                promotion = word & 63; // Escape: the next word is a promotion
+                continue;
+            }
+            moves[ply++] = (short) (word | promotion << 12);
+            promotion = 0;
+        }
+        return moves;
+    }
+
+    private static void putInt3(ByteBuffer buffer, int offset, int value){
+        buffer.put(offset, (byte) (value >>> 16));
+        buffer.put(offset + 1, (byte) (value >>> 8));
+        buffer.put(offset + 2, (byte) value);
+    }
+
+    private static int getInt3(ByteBuffer buffer, int offset){
+        return (buffer.get(offset) & 0xFF) << 16 | (buffer.get(offset + 1) & 0xFF) << 8 | (buffer.get(offset + 2) & 0xFF);
+    }
+}
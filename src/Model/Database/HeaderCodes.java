@@ -0,0 +1,104 @@
+package Model.Database;
+
+/**
+ * Packs PGN header values into small numbers, for compact and fast-to-compare storage.
+ *
+ * Dates become yyyymmdd ints (unknown parts are 0, so "2024.??.??" is 20240000 and sorts
+ * before every known day of 2024), ECO codes a number 1-500 ("A00" is 1), results a byte.
+ * 0 always means "unknown".
+ */
+public final class HeaderCodes{
+    public static final byte RESULT_UNKNOWN = 0;
+    public static final byte RESULT_WHITE_WINS = 1;
+    public static final byte RESULT_BLACK_WINS = 2;
+    public static final byte RESULT_DRAW = 3;
+
+    private static final String[] RESULTS = {"*", "1-0", "0-1", "1/2-1/2"};
+
+    private HeaderCodes(){}
+
+    public static byte result(String result){
+        if(result != null){
+            for(byte i = 1; i < RESULTS.length; i++){
+                if(RESULTS[i].equals(result)){
+                    return i;
+                }
+            }
+        }
+        return RESULT_UNKNOWN;
+    }
+
+    public static String resultString(int code){
+        return code > 0 && code < RESULTS.length ? RESULTS[code] : RESULTS[0];
+    }
+
+    /**
+     * @param date A PGN date ("2024.03.15", "2024.??.??").
+     * @return yyyymmdd, 0 if even the year is unknown.
+     */
+    public static int date(String date){
+        if(date == null || date.length() < 4){
+            return 0;
+        }
+        int year = number(date, 0, 4);
+        if(year <= 0){
+            return 0;
+        }
+        int month = date.length() >= 7 ? Math.max(0, number(date, 5, 7)) : 0;
+        int day = date.length() >= 10 ? Math.max(0, number(date, 8, 10)) : 0;
+        return year * 10000 + month * 100 + day;
+    }
+
+    public static String dateString(int date){
+        if(date == 0){
+            return "????.??.??";
+        }
+        int month = date / 100 % 100;
+        int day = date % 100;
+        return String.format("%04d.%s.%s", date / 10000,
+                month == 0 ? "??" : String.format("%02d", month),
+                day == 0 ? "??" : String.format("%02d", day));
+    }
+
+    /**
+     * @param eco An ECO code ("B90").
+     * @return 1-500, 0 if missing or malformed.
+     */
+    public static int eco(String eco){
+        if(eco == null || eco.length() != 3 || eco.charAt(0) < 'A' || eco.charAt(0) > 'E'){
+            return 0;
+        }
+        int number = number(eco, 1, 3);
+        return number < 0 ? 0 : (eco.charAt(0) - 'A') * 100 + number + 1;
+    }
+
+    public static String ecoString(int code){
+        if(code <= 0){
+            return "?";
+        }
+        return (char) ('A' + (code - 1) / 100) + String.format("%02d", (code - 1) % 100);
+    }
+
+    /**
+     * @return The rating, 0 if missing or malformed.
+     */
+    public static int elo(String elo){
+        if(elo == null || elo.isEmpty() || elo.length() > 4){
+            return 0;
+        }
+        return Math.max(0, number(elo, 0, elo.length()));
+    }
+
+    // The decimal number in text[from, to), or -1 if it isn't all digits
+    private static int number(String text, int from, int to){
+        int value = 0;
+        for(int i = from; i < to; i++){
+            char c = text.charAt(i);
+            if(c < '0' || c > '9'){
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
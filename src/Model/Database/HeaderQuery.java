@@ -0,0 +1,96 @@
+package Model.Database;
+
+/**
+ * The conditions of a header search (see HeaderStore.find()). Every condition set must hold;
+ * a new query matches every game.
+ *
+ * Example: games of Carlsen with black, both players over 2700, in 2015-2019, in the Sicilian:
+ *   new HeaderQuery().black("Carlsen").minElo(2700).dateBetween(20150000, 20191231).ecoBetween("B20", "B99")
+ */
+public class HeaderQuery{
+    String player;
+    String white;
+    String black;
+    String event;
+    int minWhiteElo = Integer.MIN_VALUE;
+    int maxWhiteElo = Integer.MAX_VALUE;
+    int minBlackElo = Integer.MIN_VALUE;
+    int maxBlackElo = Integer.MAX_VALUE;
+    int dateFrom = Integer.MIN_VALUE;
+    int dateTo = Integer.MAX_VALUE;
+    int ecoFrom = Integer.MIN_VALUE;
+    int ecoTo = Integer.MAX_VALUE;
+    int result = -1;
+
+    /**
+     * The player had either colour.
+     */
+    public HeaderQuery player(String name){
+        this.player = name;
+        return this;
+    }
+
+    public HeaderQuery white(String name){
+        this.white = name;
+        return this;
+    }
+
+    public HeaderQuery black(String name){
+        this.black = name;
+        return this;
+    }
+
+    public HeaderQuery event(String event){
+        this.event = event;
+        return this;
+    }
+
+    public HeaderQuery whiteElo(int min, int max){
+        this.minWhiteElo = min;
+        this.maxWhiteElo = max;
+        return this;
+    }
+
+    public HeaderQuery blackElo(int min, int max){
+        this.minBlackElo = min;
+        this.maxBlackElo = max;
+        return this;
+    }
+
+    /**
+     * Both players are rated at least this much.
+     */
+    public HeaderQuery minElo(int min){
+        this.minWhiteElo = Math.max(minWhiteElo, min);
+        this.minBlackElo = Math.max(minBlackElo, min);
+        return this;
+    }
+
+    /**
+     * @param from yyyymmdd, inclusive (see HeaderCodes.date()).
+     * @param to yyyymmdd, inclusive.
+     */
+    public HeaderQuery dateBetween(int from, int to){
+        this.dateFrom = from;
+        this.dateTo = to;
+        return this;
+    }
+
+    /**
+     * @param from An ECO code ("B20"), inclusive.
+     * @param to An ECO code ("B99"), inclusive.
+     */
+    public HeaderQuery ecoBetween(String from, String to){
+        this.ecoFrom = HeaderCodes.eco(from);
+        this.ecoTo = HeaderCodes.eco(to);
+        return this;
+    }
+
+    /**
+     * @param result One of the HeaderCodes.RESULT_* codes.
+     */
+    public HeaderQuery result(int result){
+        this.result = result;
+        return this;
+    }
+}
@@ -0,0 +1,257 @@
+package Model.Database;
+
+import Model.IOs.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * The headers of a game database, stored by column for fast searching.
+ *
+ * Every header is one primitive array indexed by game id: strings as StringDictionary ids,
+ * dates, Elos and ECO codes as numbers, results as bytes (see HeaderCodes). A search scans
+ * only the columns it filters on, one tight branch-free loop per condition, and narrows a
+ * bitmap of the games still matching. The games are split into blocks of 64k scanned in parallel.
+ *
+ * Games are added by one thread; searches may run on several threads once the adding is done.
+ */
+public class HeaderStore{
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    private final StringDictionary dictionary;
+    private int[] white = new int[1024];
+    private int[] black = new int[1024];
+    private int[] event = new int[1024];
+    private int[] site = new int[1024];
+    private int[] date = new int[1024];
+    private short[] whiteElo = new short[1024];
+    private short[] blackElo = new short[1024];
+    private short[] eco = new short[1024];
+    private byte[] result = new byte[1024];
+    private int size = 0;
+
+    public HeaderStore(StringDictionary dictionary){
+        this.dictionary = dictionary;
+    }
+
+    public StringDictionary getDictionary(){
+        return dictionary;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Adds a game by its PGN tag pairs. Other tags than the stored ones are ignored.
+     *
+     * @return The game's id.
+     */
+    public int add(Map<String, String> tags){
+        if(size == white.length){
+            grow(size * 2);
+        }
+        int id = size;
+        white[id] = dictionary.idOf(tags.getOrDefault("White", "?"));
+        black[id] = dictionary.idOf(tags.getOrDefault("Black", "?"));
+        event[id] = dictionary.idOf(tags.getOrDefault("Event", "?"));
+        site[id] = dictionary.idOf(tags.getOrDefault("Site", "?"));
+        date[id] = HeaderCodes.date(tags.get("Date"));
+        whiteElo[id] = (short) HeaderCodes.elo(tags.get("WhiteElo"));
+        blackElo[id] = (short) HeaderCodes.elo(tags.get("BlackElo"));
+        eco[id] = (short) HeaderCodes.eco(tags.get("ECO"));
+        result[id] = HeaderCodes.result(tags.get("Result"));
+        size++;
+        return id;
+    }
+
+    /**
+     * Adds every game of a PGN file, reading each one's tags in a single pass.
+     *
+     * @return The number of games added. Their ids follow each other, in file order.
+     */
+    public int ingest(Path pgnFile) throws IOException {
+        try(PGNGameReader reader = PGNGameReader.open(pgnFile)){
+            return ingest(reader);
+        }
+    }
+
+    public int ingest(PGNGameReader reader) throws IOException {
+        int added = 0;
+        while(reader.next()){
+            add(reader.getTags());
+            added++;
+        }
+        return added;
+    }
+
+    // --- Columns of one game ---
+
+    public String getWhite(int id){ return dictionary.valueOf(white[check(id)]); }
+    public String getBlack(int id){ return dictionary.valueOf(black[check(id)]); }
+    public String getEvent(int id){ return dictionary.valueOf(event[check(id)]); }
+    public String getSite(int id){ return dictionary.valueOf(site[check(id)]); }
+    public int getDate(int id){ return date[check(id)]; }
+    public int getWhiteElo(int id){ return whiteElo[check(id)]; }
+    public int getBlackElo(int id){ return blackElo[check(id)]; }
+    public int getEco(int id){ return eco[check(id)]; }
+    public int getResult(int id){ return result[check(id)]; }
+
+    // --- Searching ---
+
+    /**
+     * @return The ids of the matching games, in increasing order.
+     */
+    public int[] find(HeaderQuery query){
+        int[] playerIds = resolve(query);
+        if(playerIds == null){
+            return new int[0]; // A name that was never added matches nothing
+        }
+        int count = size;
+        int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        return IntStream.range(0, blocks).parallel()
+                .mapToObj(block -> scanBlock(query, playerIds, block * BLOCK_SIZE, Math.min(count, (block + 1) * BLOCK_SIZE)))
+                .flatMapToInt(IntStream::of)
+                .toArray();
+    }
+
+    public int count(HeaderQuery query){
+        return find(query).length;
+    }
+
+    // The dictionary ids of the query's names (player, white, black, event), -2 for "any", or null if one is unknown
+    private int[] resolve(HeaderQuery query){
+        String[] names = {query.player, query.white, query.black, query.event};
+        int[] ids = new int[names.length];
+        for(int i = 0; i < names.length; i++){
+            ids[i] = names[i] == null ? -2 : dictionary.find(names[i]);
+            if(ids[i] == -1){
+                return null;
+            }
+        }
+        return ids;
+    }
+
+    private int[] scanBlock(HeaderQuery query, int[] ids, int from, int to){
+        int rows = to - from;
+        long[] mask = new long[(rows + 63) / 64];
+        Arrays.fill(mask, -1L);
+        if(rows % 64 != 0){
+            mask[mask.length - 1] = (1L << (rows % 64)) - 1;
+        }
+
+        // 1. Narrow the bitmap one column at a time
+        if(ids[0] != -2) filterPlayer(ids[0], from, rows, mask);
+        if(ids[1] != -2) filterRange(white, ids[1], ids[1], from, rows, mask);
+        if(ids[2] != -2) filterRange(black, ids[2], ids[2], from, rows, mask);
+        if(ids[3] != -2) filterRange(event, ids[3], ids[3], from, rows, mask);
+        if(query.dateFrom != Integer.MIN_VALUE || query.dateTo != Integer.MAX_VALUE){
+            filterRange(date, query.dateFrom, query.dateTo, from, rows, mask);
+        }
+        if(query.minWhiteElo != Integer.MIN_VALUE || query.maxWhiteElo != Integer.MAX_VALUE){
+            filterRange(whiteElo, query.minWhiteElo, query.maxWhiteElo, from, rows, mask);
+        }
+        if(query.minBlackElo != Integer.MIN_VALUE || query.maxBlackElo != Integer.MAX_VALUE){
+            filterRange(blackElo, query.minBlackElo, query.maxBlackElo, from, rows, mask);
+        }
+        if(query.ecoFrom != Integer.MIN_VALUE || query.ecoTo != Integer.MAX_VALUE){
+            filterRange(eco, query.ecoFrom, query.ecoTo, from, rows, mask);
+        }
+        if(query.result >= 0){
+            filterResult(query.result, from, rows, mask);
+        }
+
+        // 2. Turn the remaining bits into ids
+        int matches = 0;
+        for(long word : mask){
+            matches += Long.bitCount(word);
+        }
+        int[] found = new int[matches];
+        int n = 0;
+        for(int w = 0; w < mask.length; w++){
+            long word = mask[w];
+            while(word != 0){
+                found[n++] = from + w * 64 + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return found;
+    }
+
+    // Each filter builds the bits of 64 rows without branching, and skips words already empty
+
+    private static void filterRange(int[] column, int min, int max, int from, int rows, long[] mask){
+        for(int w = 0; w < mask.length; w++){
+            if(mask[w] == 0) continue;
+            int base = from + w * 64;
+            int n = Math.min(64, rows - w * 64);
+            long bits = 0;
+            for(int b = 0; b < n; b++){
+                int value = column[base + b];
+                bits |= (value >= min & value <= max ? 1L : 0L) << b;
+            }
+            mask[w] &= bits;
+        }
+    }
+
+    private static void filterRange(short[] column, int min, int max, int from, int rows, long[] mask){
+        for(int w = 0; w < mask.length; w++){
+            if(mask[w] == 0) continue;
+            int base = from + w * 64;
+            int n = Math.min(64, rows - w * 64);
+            long bits = 0;
+            for(int b = 0; b < n; b++){
+                int value = column[base + b];
+                bits |= (value >= min & value <= max ? 1L : 0L) << b;
+            }
+            mask[w] &= bits;
+        }
+    }
+
+    private void filterPlayer(int id, int from, int rows, long[] mask){
+        for(int w = 0; w < mask.length; w++){
+            if(mask[w] == 0) continue;
+            int base = from + w * 64;
+            int n = Math.min(64, rows - w * 64);
+            long bits = 0;
+            for(int b = 0; b < n; b++){
+                bits |= (white[base + b] == id | black[base + b] == id ? 1L : 0L) << b;
+            }
+            mask[w] &= bits;
+        }
+    }
+
+    private void filterResult(int code, int from, int rows, long[] mask){
+        for(int w = 0; w < mask.length; w++){
+            if(mask[w] == 0) continue;
+            int base = from + w * 64;
+            int n = Math.min(64, rows - w * 64);
+            long bits = 0;
+            for(int b = 0; b < n; b++){
+                bits |= (result[base + b] == code ? 1L : 0L) << b;
+            }
+            mask[w] &= bits;
+        }
+    }
+
+    private int check(int id){
+        if(id < 0 || id >= size){
+            throw new IndexOutOfBoundsException("No game with id " + id);
+        }
+        return id;
+    }
+
+    private void grow(int capacity){
+        white = Arrays.copyOf(white, capacity);
+        black = Arrays.copyOf(black, capacity);
+        event = Arrays.copyOf(event, capacity);
+        site = Arrays.copyOf(site, capacity);
+        date = Arrays.copyOf(date, capacity);
+        whiteElo = Arrays.copyOf(whiteElo, capacity);
+        blackElo = Arrays.copyOf(blackElo, capacity);
+        eco = Arrays.copyOf(eco, capacity);
+        result = Arrays.copyOf(result, capacity);
+    }
+}
@@ -0,0 +1,72 @@
+package Model.Database;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * Maps the strings of a game collection (player names, events, ...) to small int ids,
+ * so every game stores 3-byte ids instead of its own String copies.
+ *
+ * Ids are handed out in order from 0 and never change. Lookups in both directions
+ * may run on any number of threads while new strings are added.
+ */
+public class StringDictionary{
+    public static final int MAX_SIZE = 1 << 24; // Ids are stored in 3 bytes
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final ReentrantLock addLock = new ReentrantLock();
+    private volatile String[] values = new String[64];
+    private volatile int size = 0;
+
+    /**
+     * @return The id of the string, adding it if it's new.
+     * @throws IllegalStateException if the dictionary is full.
+     */
+    public int idOf(String value){
+        Integer id = ids.get(value);
+        if(id != null){
+            return id;
+        }
+        addLock.lock();
+        try{
+            id = ids.get(value);
+            if(id != null){
+                return id;
+            }
+            if(size == MAX_SIZE){
+                throw new IllegalStateException("String dictionary is full");
+            }
+            if(size == values.length){
+                values = Arrays.copyOf(values, size * 2);
+            }
+            // The string is readable by its id before find() can hand the id out
+            int added = size;
+            values[added] = value;
+            size = added + 1;
+            ids.put(value, added);
+            return added;
+        }finally{
+            addLock.unlock();
+        }
+    }
+
+    /**
+     * @return The id of the string, or -1 if it was never added (nothing can match it).
+     */
+    public int find(String value){
+        Integer id = ids.get(value);
+        return id != null ? id : -1;
+    }
+
+    public String valueOf(int id){
+        if(id < 0 || id >= size){
+            throw new IndexOutOfBoundsException("No string with id " + id);
+        }
+        return values[id];
+    }
+
+    public int size(){
+        return size;
+    }
+}
@@ -0,0 +1,80 @@
+package Model.Engine;
+
+import Model.*;
+
+/**
+ * The hand-written evaluation: material and piece-square tables,
+ * tapered between the middlegame and the endgame tables by the game phase,
+ * plus the pawn structure (see PawnStructure).
+ *
+ * The Board keeps the sums of the tables up to date as pieces move, so that part costs
+ * the same whatever is on the board. With assertions on (-ea), every evaluation checks
+ * them against a recount of the board. The pawn structure comes from a PawnCache, which
+ * makes an instance unsafe to share between threads: the search uses forThread().
+ */
+public class ClassicalEvaluator implements Evaluator{
+    // A passed pawn with nothing on its stop square, by advancement (endgame only)
+    private static final int[] FREE_PASSER = {0, 0, 5, 10, 20, 35};
+
+    private final PawnCache pawnCache;
+
+    public ClassicalEvaluator(){
+        this(PawnCache.DEFAULT_SIZE);
+    }
+
+    /**
+     * @param pawnCacheSize Entries of the pawn cache.
+     */
+    public ClassicalEvaluator(int pawnCacheSize){
+        this.pawnCache = new PawnCache(pawnCacheSize);
+    }
+
+    public PawnCache getPawnCache(){
+        return pawnCache;
+    }
+
+    @Override
+    public Evaluator forThread(){
+        return new ClassicalEvaluator(pawnCache.size());
+    }
+
+    @Override
+    public int evaluate(GameState state){
+        Board board = state.getBoard();
+        assert board.termsMatchGrid() : "Incremental evaluation terms out of date";
+        int middleGame = board.getMiddleGameScore();
+        int endGame = board.getEndGameScore();
+
+        // 1. Pawn structure: only analysed when the pawns are new to the cache
+        long pawnKey = board.getPawnKey();
+        int entry = pawnCache.probe(pawnKey);
+        if(entry < 0){
+            entry = PawnStructure.analyse(board, pawnKey, pawnCache);
+        }
+        middleGame += pawnCache.middleGame(entry);
+        endGame += pawnCache.endGame(entry);
+        middleGame += PawnStructure.shield(pawnCache.pawns(entry, true), board.getKingSquare(true), true)
+                - PawnStructure.shield(pawnCache.pawns(entry, false), board.getKingSquare(false), false);
+        endGame += freePassers(board, pawnCache.passedPawns(entry, true), true)
+                - freePassers(board, pawnCache.passedPawns(entry, false), false);
+
+        // 2. Blend: all pieces on the board means pure middlegame, none means pure endgame
+        int phase = Math.min(board.getPhase(), PieceSquareTables.MAX_PHASE);
+        int score = (middleGame * phase + endGame * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+
+        return state.isWhiteTurn() ? score : -score;
+    }
+
+    // Whether a passer's way is blocked depends on the pieces, so this part isn't cached
+    private static int freePassers(Board board, long passed, boolean white){
+        int score = 0;
+        for(; passed != 0; passed &= passed - 1){
+            int square = Long.numberOfTrailingZeros(passed);
+            int stop = white ? square - 8 : square + 8;
+            if(board.getPieceAt(MoveCodes.position(stop)) == null){
+                score += FREE_PASSER[PawnStructure.advancement(square / 8, white)];
+            }
+        }
+        return score;
+    }
+}
@@ -0,0 +1,23 @@
+package Model.Engine;
+
+import Model.*;
+
+/**
+ * Static evaluation of a position, used at the leaves of the search.
+ */
+public interface Evaluator{
+    /**
+     * @param state The position to evaluate.
+     * @return The score in centipawns, from the point of view of the side to move
+     *         (positive means the side to move is better).
+     */
+    int evaluate(GameState state);
+
+    /**
+     * The evaluator one search thread should use. An evaluator with caches returns a copy
+     * with caches of its own; a stateless one (the default) can share itself.
+     */
+    default Evaluator forThread(){
+        return this;
+    }
+}
@@ -0,0 +1,67 @@
+package Model.Engine;
+
+import Model.*;
+
+/**
+ * What one search thread has learned about which quiet moves cause cutoffs, for MovePicker.
+ *
+ * - Killers: the last two quiet moves that cut off at each ply.
+ * - History: a "butterfly" table of scores by side, from and to square, raised for quiet moves
+ *   that cut off and lowered for the ones tried before them.
+ * - Counter-moves: the quiet move that last refuted a move, by side and that move's squares.
+ *
+ * All tables are primitive arrays indexed by move codes. Every search thread has its own,
+ * made fresh for each search, so nothing is shared.
+ */
+final class MoveOrdering{
+    static final int HISTORY_MAX = 1 << 14;
+
+    private final int[] killers = new int[(Search.MAX_PLY + 1) * 2];
+    private final int[] history = new int[2 * 64 * 64];
+    private final int[] counterMoves = new int[2 * 64 * 64];
+
+    int killer(int ply, int slot){
+        return killers[ply * 2 + slot];
+    }
+
+    int history(boolean white, int moveCode){
+        return history[butterfly(white, moveCode)];
+    }
+
+    /**
+     * The quiet move that last refuted the opponent's previous move, or MoveCodes.NONE.
+     */
+    int counterMove(boolean white, int previousMove){
+        return previousMove == MoveCodes.NONE ? MoveCodes.NONE : counterMoves[butterfly(!white, previousMove)];
+    }
+
+    /**
+     * A quiet move cut off: it becomes a killer and a counter-move, and its history goes up
+     * while the quiet moves tried before it (which didn't cut off) go down.
+     */
+    void recordCutoff(boolean white, int ply, int moveCode, int previousMove, int depth, int[] triedQuiets, int triedCount){
+        if(killers[ply * 2] != moveCode){
+            killers[ply * 2 + 1] = killers[ply * 2];
+            killers[ply * 2] = moveCode;
+        }
+        if(previousMove != MoveCodes.NONE){
+            counterMoves[butterfly(!white, previousMove)] = moveCode;
+        }
+        int bonus = Math.min(depth * depth, 400);
+        updateHistory(butterfly(white, moveCode), bonus);
+        for(int i = 0; i < triedCount; i++){
+            if(triedQuiets[i] != moveCode){
+                updateHistory(butterfly(white, triedQuiets[i]), -bonus);
+            }
+        }
+    }
+
+    // The bonus shrinks as the score nears the limit, so scores stay within +-HISTORY_MAX
+    private void updateHistory(int index, int bonus){
+        history[index] += bonus - history[index] * Math.abs(bonus) / HISTORY_MAX;
+    }
+
+    private static int butterfly(boolean white, int moveCode){
+        return (white ? 0 : 4096) + (moveCode & 0xFFF);
+    }
+}
@@ -0,0 +1,243 @@
+package Model.Engine;
+
+import Model.*;
+import Model.Pieces.*;
+
+import java.util.*;
+
+/**
+ * Hands out the moves of a position one at a time, most promising first, in stages:
+ *
+ * 1. the hash move;
+ * 2. the good captures and queen promotions (those not losing material by SEE), by SEE and then MVV-LVA;
+ * 3. the two killer moves of the ply;
+ * 4. the counter-move of the opponent's last move;
+ * 5. the other quiet moves, by history score;
+ * 6. the bad captures and under-promotions.
+ *
+ * Every stage is generated only when it is reached, so a cutoff on the hash move
+ * or a capture never pays for the quiet moves. Within a stage the best remaining move is
+ * picked each time instead of sorting all of them. The moves handed out are legal.
+ */
+final class MovePicker{
+    private static final int HASH = 0;
+    private static final int GENERATE_CAPTURES = 1;
+    private static final int GOOD_CAPTURES = 2;
+    private static final int KILLER_1 = 3;
+    private static final int KILLER_2 = 4;
+    private static final int COUNTER_MOVE = 5;
+    private static final int GENERATE_QUIETS = 6;
+    private static final int QUIETS = 7;
+    private static final int BAD_CAPTURES = 8;
+    private static final int DONE = 9;
+
+    private final GameState state;
+    private final RuleEngine ruleEngine;
+    private final MoveOrdering ordering;
+    private final int hashMove;
+    private final int ply;
+    private final int previousMove;
+    private final boolean capturesOnly;
+    private int stage = HASH;
+
+    // The moves handed out by the single-move stages, not to be repeated later
+    private final int[] picked = new int[4];
+    private int pickedCount = 0;
+
+    // The current list stage, with a score per move; badMoves/badScores wait for stage 6
+    private List<Move> moves = List.of();
+    private int[] scores = new int[0];
+    private int next = 0;
+    private final List<Move> badMoves = new ArrayList<>();
+    private int[] badScores = new int[8];
+
+    /**
+     * @param previousMove The opponent's move that led here, for the counter-move (MoveCodes.NONE at the root).
+     * @param capturesOnly Only the good captures (for the quiescence search): no killers, quiets or bad captures.
+     */
+    MovePicker(GameState state, RuleEngine ruleEngine, MoveOrdering ordering, int hashMove, int ply, int previousMove, boolean capturesOnly){
+        this.state = state;
+        this.ruleEngine = ruleEngine;
+        this.ordering = ordering;
+        this.hashMove = hashMove;
+        this.ply = ply;
+        this.previousMove = previousMove;
+        this.capturesOnly = capturesOnly;
+    }
+
+    /**
+     * @return The next move, or null when there are no more.
+     */
+    Move next(){
+        while(true){
+            switch(stage){
+                case HASH: {
+                    stage = GENERATE_CAPTURES;
+                    Move move = capturesOnly ? null : validate(hashMove, false);
+                    if(move != null){
+                        picked[pickedCount++] = hashMove;
+                        return move;
+                    }
+                    break;
+                }
+                case GENERATE_CAPTURES:
+                    scoreCaptures(ruleEngine.getLegalCaptures(state));
+                    stage = GOOD_CAPTURES;
+                    break;
+                case GOOD_CAPTURES: {
+                    Move move = pickBest();
+                    if(move != null){
+                        return move;
+                    }
+                    stage = capturesOnly ? DONE : KILLER_1;
+                    break;
+                }
+                case KILLER_1:
+                case KILLER_2:
+                case COUNTER_MOVE: {
+                    int code = stage == COUNTER_MOVE
+                            ? ordering.counterMove(state.isWhiteTurn(), previousMove)
+                            : ordering.killer(ply, stage - KILLER_1);
+                    stage++;
+                    Move move = isPicked(code) ? null : validate(code, true);
+                    if(move != null){
+                        picked[pickedCount++] = code;
+                        return move;
+                    }
+                    break;
+                }
+                case GENERATE_QUIETS:
+                    scoreQuiets(ruleEngine.getLegalQuietMoves(state));
+                    stage = QUIETS;
+                    break;
+                case QUIETS: {
+                    Move move = pickBest();
+                    if(move != null){
+                        return move;
+                    }
+                    moves = badMoves;
+                    scores = badScores;
+                    next = 0;
+                    stage = BAD_CAPTURES;
+                    break;
+                }
+                case BAD_CAPTURES: {
+                    Move move = pickBest();
+                    if(move == null){
+                        stage = DONE;
+                    }
+                    return move;
+                }
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * Was the move handed out by a quiet stage (killer, counter-move or history)?
+     * Only those feed the killer, counter-move and history tables.
+     */
+    boolean isQuiet(Move move){
+        return !move.isPromotion() && !move.isEnPassant() && state.getBoard().getPieceAt(move.getTo()) == null;
+    }
+
+    // Good captures score by SEE, then by victim and attacker; bad ones wait for the last stage
+    private void scoreCaptures(List<Move> captures){
+        moves = new ArrayList<>(captures.size());
+        scores = new int[captures.size()];
+        Board board = state.getBoard();
+        for(Move move : captures){
+            int code = MoveCodes.encode(move);
+            if(isPicked(code)){
+                continue;
+            }
+            Piece victim = move.isEnPassant() ? move.getPieceMoved() : board.getPieceAt(move.getTo());
+            int victimValue = victim == null ? 0 : PieceSquareTables.MATERIAL[victim.getType().ordinal()];
+            int attackerValue = PieceSquareTables.MATERIAL[move.getPieceMoved().getType().ordinal()];
+            int mvvLva = victimValue * 8 - attackerValue / 100;
+            if(move.isPromotion() && move.getPromotionPiece().getType() != PieceType.QUEEN){
+                addBad(move, -100_000 + mvvLva);
+                continue;
+            }
+            // Taking something worth at least the taker can't lose material; only the others need the SEE
+            int exchange = victim != null && victimValue >= attackerValue && !move.isPromotion()
+                    ? victimValue - attackerValue
+                    : ruleEngine.staticExchange(board, move);
+            if(exchange < 0){
+                addBad(move, exchange * 16 + mvvLva);
+            }else{
+                scores[moves.size()] = exchange * 16 + mvvLva;
+                moves.add(move);
+            }
+        }
+        next = 0;
+    }
+
+    private void scoreQuiets(List<Move> quiets){
+        moves = new ArrayList<>(quiets.size());
+        scores = new int[quiets.size()];
+        boolean white = state.isWhiteTurn();
+        for(Move move : quiets){
+            int code = MoveCodes.encode(move);
+            if(!isPicked(code)){
+                scores[moves.size()] = ordering.history(white, code);
+                moves.add(move);
+            }
+        }
+        next = 0;
+    }
+
+    private void addBad(Move move, int score){
+        if(badMoves.size() == badScores.length){
+            badScores = Arrays.copyOf(badScores, badScores.length * 2);
+        }
+        badScores[badMoves.size()] = score;
+        badMoves.add(move);
+    }
+
+    // Selection: swaps the best remaining move to the front of the rest
+    private Move pickBest(){
+        if(next >= moves.size()){
+            return null;
+        }
+        int best = next;
+        for(int i = next + 1; i < moves.size(); i++){
+            if(scores[i] > scores[best]){
+                best = i;
+            }
+        }
+        Move move = moves.get(best);
+        moves.set(best, moves.get(next));
+        moves.set(next, move);
+        int score = scores[best];
+        scores[best] = scores[next];
+        scores[next] = score;
+        next++;
+        return move;
+    }
+
+    private boolean isPicked(int code){
+        for(int i = 0; i < pickedCount; i++){
+            if(picked[i] == code){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The legal move of a remembered code, or null. Killers and counter-moves come from
+     * other positions, so they must also still be quiet here.
+     */
+    private Move validate(int code, boolean mustBeQuiet){
+        if(code == MoveCodes.NONE){
+            return null;
+        }
+        Move move = ruleEngine.getLegalMove(state, MoveCodes.from(code), MoveCodes.to(code), MoveCodes.promotion(code));
+        if(move != null && mustBeQuiet && !isQuiet(move)){
+            return null;
+        }
+        return move;
+    }
+}
@@ -0,0 +1,66 @@
+package Model.Engine;
+
+import Model.*;
+
+import java.util.Arrays;
+
+/**
+ * Evaluates with an NnueNetwork.
+ *
+ * The two accumulators (White's and Black's perspective) are kept from one evaluation to
+ * the next, together with the pieces they were computed for. Positions evaluated one after
+ * the other in a search differ by a few moves at most, so bringing them up to date only
+ * adds and removes the rows of the few pieces that changed, instead of summing all of them.
+ *
+ * That state makes an instance unsafe to share between threads: the search uses forThread().
+ */
+public class NnueEvaluator implements Evaluator{
+    private static final int EMPTY = -1;
+
+    private final NnueNetwork network;
+    private final short[] whiteAccumulator;
+    private final short[] blackAccumulator;
+    // What the accumulators were computed for: PieceType ordinal (+6 for Black) per square, or EMPTY
+    private final int[] pieceCodes = new int[64];
+
+    public NnueEvaluator(NnueNetwork network){
+        this.network = network;
+        this.whiteAccumulator = new short[network.getHiddenSize()];
+        this.blackAccumulator = new short[network.getHiddenSize()];
+        network.reset(whiteAccumulator);
+        network.reset(blackAccumulator);
+        Arrays.fill(pieceCodes, EMPTY);
+    }
+
+    public NnueNetwork getNetwork(){
+        return network;
+    }
+
+    @Override
+    public Evaluator forThread(){
+        return new NnueEvaluator(network);
+    }
+
+    @Override
+    public int evaluate(GameState state){
+        Board board = state.getBoard();
+        for(int square = 0; square < 64; square++){
+            int code = board.getPieceCode(square);
+            int old = pieceCodes[square];
+            if(code != old){
+                if(old != EMPTY){
+                    network.removeFeature(whiteAccumulator, NnueNetwork.feature(true, old, square));
+                    network.removeFeature(blackAccumulator, NnueNetwork.feature(false, old, square));
+                }
+                if(code != EMPTY){
+                    network.addFeature(whiteAccumulator, NnueNetwork.feature(true, code, square));
+                    network.addFeature(blackAccumulator, NnueNetwork.feature(false, code, square));
+                }
+                pieceCodes[square] = code;
+            }
+        }
+        return state.isWhiteTurn()
+                ? network.output(whiteAccumulator, blackAccumulator)
+                : network.output(blackAccumulator, whiteAccumulator);
+    }
+}
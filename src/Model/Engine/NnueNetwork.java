@@ -0,0 +1,202 @@
+package Model.Engine;
+
+import Model.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/**
+ * The weights of an efficiently updatable neural network ("NNUE") evaluation.
+ *
+ * Architecture: 768 -> 2 x hidden -> 1, with perspective.
+ * - Inputs: one per (piece colour relative to the perspective, piece type, square seen from
+ *   the perspective), 2 * 6 * 64 = 768, of which only the pieces on the board are on.
+ * - Feature transformer: int16 weights and biases into an int16 accumulator of "hidden"
+ *   values per perspective (White's and Black's). A piece appearing or disappearing
+ *   only adds or subtracts one row of weights, which is what makes it cheap to update.
+ * - Output: both accumulators, the side to move's first, clipped to [0, clip], times int16
+ *   weights, plus the bias, divided by the divisor: the score in centipawns for the side to move.
+ *
+ * File format, little-endian: "NNUE", version (int 1), hidden size, clip, divisor (ints),
+ * then the feature weights (768 * hidden shorts, feature-major), the feature biases
+ * (hidden shorts), the output weights (2 * hidden shorts) and the output bias (int).
+ *
+ * The loops over the hidden values are plain counted loops over primitive arrays,
+ * which HotSpot compiles to SIMD instructions (SSE/AVX) where the CPU has them.
+ * A network is immutable once built and can be shared by any number of threads.
+ */
+public final class NnueNetwork{
+    public static final int INPUTS = 768;
+    public static final int MAX_HIDDEN = 128; // Keeps the output sum within an int
+    private static final int MAGIC = 0x45554E4E; // "NNUE" read little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 20;
+
+    private final int hidden;
+    private final int clip;
+    private final int divisor;
+    private final short[] featureWeights;
+    private final short[] featureBiases;
+    private final short[] outputWeights;
+    private final int outputBias;
+
+    private NnueNetwork(int hidden, int clip, int divisor, short[] featureWeights, short[] featureBiases,
+                        short[] outputWeights, int outputBias){
+        this.hidden = hidden;
+        this.clip = clip;
+        this.divisor = divisor;
+        this.featureWeights = featureWeights;
+        this.featureBiases = featureBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    /**
+     * Memory-maps a network file and reads the weights out of it.
+     *
+     * @throws IOException if it can't be read, or isn't a network of this format.
+     */
+    public static NnueNetwork load(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            long size = channel.size();
+            if(size < HEADER_BYTES || size > Integer.MAX_VALUE){
+                throw new IOException("Not a network file: " + path);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+            if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION){
+                throw new IOException("Not a network file (or another version): " + path);
+            }
+            int hidden = buffer.getInt();
+            int clip = buffer.getInt();
+            int divisor = buffer.getInt();
+            if(hidden <= 0 || hidden > MAX_HIDDEN || hidden % 16 != 0 || clip <= 0 || clip > 255 || divisor <= 0
+                    || size != HEADER_BYTES + 2L * (INPUTS * hidden + hidden + 2 * hidden) + 4){
+                throw new IOException("Damaged network file: " + path);
+            }
+            short[] featureWeights = new short[INPUTS * hidden];
+            short[] featureBiases = new short[hidden];
+            short[] outputWeights = new short[2 * hidden];
+            ShortBuffer shorts = buffer.asShortBuffer();
+            shorts.get(featureWeights).get(featureBiases).get(outputWeights);
+            buffer.position(buffer.position() + 2 * shorts.position());
+            int outputBias = buffer.getInt();
+            return new NnueNetwork(hidden, clip, divisor, featureWeights, featureBiases, outputWeights, outputBias);
+        }
+    }
+
+    public void save(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 2 * (featureWeights.length + hidden + 2 * hidden) + 4)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(hidden).putInt(clip).putInt(divisor);
+        for(short weight : featureWeights) buffer.putShort(weight);
+        for(short bias : featureBiases) buffer.putShort(bias);
+        for(short weight : outputWeights) buffer.putShort(weight);
+        buffer.putInt(outputBias);
+        buffer.flip();
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)){
+            while(buffer.hasRemaining()){
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * A starting network that plays like the middlegame piece-square tables: the side to
+     * move's accumulator holds its material and table score minus the opponent's, spread
+     * over the first half of the hidden values (each kept well inside [0, clip] around
+     * the middle), and the output adds them up. Trained weights should replace it.
+     */
+    public static NnueNetwork fromPieceSquareTables(){
+        int hidden = MAX_HIDDEN;
+        int used = hidden / 2;
+        int middle = 128;
+        short[] featureWeights = new short[INPUTS * hidden];
+        short[] featureBiases = new short[hidden];
+        short[] outputWeights = new short[2 * hidden];
+        for(int feature = 0; feature < INPUTS; feature++){
+            boolean own = feature < INPUTS / 2;
+            PieceType type = PieceType.values()[feature / 64 % 6];
+            int square = feature % 64;
+            // Seen from the perspective, its own pieces are White
+            int value = PieceSquareTables.middleGame(type, own, square / 8, square % 8) * (own ? 1 : -1);
+            for(int i = 0; i < used; i++){
+                // These parts add up to the value exactly
+                featureWeights[feature * hidden + i] = (short) Math.floorDiv(value + i, used);
+            }
+        }
+        for(int i = 0; i < used; i++){
+            featureBiases[i] = (short) middle;
+            outputWeights[i] = 1;
+        }
+        return new NnueNetwork(hidden, 255, 1, featureWeights, featureBiases, outputWeights, -used * middle);
+    }
+
+    /**
+     * "nnue <network.nnue>": writes the starting network from the command line.
+     */
+    public static void runFromCommandLine(String[] args) throws IOException {
+        if(args.length < 2){
+            System.err.println("Usage: nnue <network.nnue>");
+            return;
+        }
+        fromPieceSquareTables().save(Paths.get(args[1]));
+    }
+
+    public int getHiddenSize(){
+        return hidden;
+    }
+
+    /**
+     * The input of a piece on a square, from White's or Black's perspective.
+     *
+     * @param pieceCode PieceType ordinal, plus 6 for a black piece.
+     */
+    static int feature(boolean whitePerspective, int pieceCode, int square){
+        boolean white = pieceCode < 6;
+        int relativeColour = white == whitePerspective ? 0 : 1;
+        int relativeSquare = whitePerspective ? square : square ^ 56; // Black sees the board turned
+        return (relativeColour * 6 + pieceCode % 6) * 64 + relativeSquare;
+    }
+
+    /**
+     * Starts an accumulator from the biases.
+     */
+    void reset(short[] accumulator){
+        System.arraycopy(featureBiases, 0, accumulator, 0, hidden);
+    }
+
+    void addFeature(short[] accumulator, int feature){
+        int offset = feature * hidden;
+        for(int i = 0; i < hidden; i++){
+            accumulator[i] += featureWeights[offset + i];
+        }
+    }
+
+    void removeFeature(short[] accumulator, int feature){
+        int offset = feature * hidden;
+        for(int i = 0; i < hidden; i++){
+            accumulator[i] -= featureWeights[offset + i];
+        }
+    }
+
+    /**
+     * @return The score in centipawns for the side to move.
+     */
+    int output(short[] sideToMove, short[] opponent){
+        int sum = dot(sideToMove, 0) + dot(opponent, hidden);
+        return (sum + outputBias) / divisor;
+    }
+
+    // Clipped ReLU of the accumulator, times one half of the output weights
+    private int dot(short[] accumulator, int offset){
+        int sum = 0;
+        for(int i = 0; i < hidden; i++){
+            int value = Math.min(Math.max(accumulator[i], 0), clip);
+            sum += value * outputWeights[offset + i];
+        }
+        return sum;
+    }
+}
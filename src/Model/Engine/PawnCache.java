@@ -0,0 +1,108 @@
+package Model.Engine;
+
+/**
+ * A small hash table of pawn-structure evaluations, keyed by the Board's pawn key.
+ *
+ * The pawns change on few moves, so almost every evaluation finds its pawn structure
+ * here and skips the analysis. Entries are parallel primitive arrays, always replaced.
+ * Not thread-safe: every search thread has its own (see Evaluator.forThread()).
+ *
+ * The probe and hit counters run for the lifetime of the cache.
+ */
+public final class PawnCache{
+    public static final int DEFAULT_SIZE = 1 << 14;
+
+    private final long[] keys;
+    private final int[] middleGame;
+    private final int[] endGame;
+    private final long[] whitePassed;
+    private final long[] blackPassed;
+    private final long[] whitePawns;
+    private final long[] blackPawns;
+    private final int mask;
+
+    private long probes = 0;
+    private long hits = 0;
+
+    /**
+     * @param size The number of entries (rounded down to a power of two).
+     */
+    public PawnCache(int size){
+        size = Integer.highestOneBit(Math.max(size, 16));
+        this.keys = new long[size];
+        this.middleGame = new int[size];
+        this.endGame = new int[size];
+        this.whitePassed = new long[size];
+        this.blackPassed = new long[size];
+        this.whitePawns = new long[size];
+        this.blackPawns = new long[size];
+        this.mask = size - 1;
+    }
+
+    public int size(){
+        return keys.length;
+    }
+
+    /**
+     * @return The index of the entry of the key, or -1 if it isn't cached.
+     */
+    int probe(long pawnKey){
+        probes++;
+        int index = (int) pawnKey & mask;
+        if(keys[index] == pawnKey){
+            hits++;
+            return index;
+        }
+        return -1;
+    }
+
+    /**
+     * @return The index of the stored entry.
+     */
+    int store(long pawnKey, int middleGameScore, int endGameScore, long whitePawnSquares, long blackPawnSquares,
+              long whitePassedPawns, long blackPassedPawns){
+        int index = (int) pawnKey & mask;
+        keys[index] = pawnKey;
+        middleGame[index] = middleGameScore;
+        endGame[index] = endGameScore;
+        whitePassed[index] = whitePassedPawns;
+        blackPassed[index] = blackPassedPawns;
+        whitePawns[index] = whitePawnSquares;
+        blackPawns[index] = blackPawnSquares;
+        return index;
+    }
+
+    int middleGame(int index){ return middleGame[index]; }
+
+    int endGame(int index){ return endGame[index]; }
+
+    /**
+     * The squares (bit row * 8 + column) of one side's pawns.
+     */
+    long pawns(int index, boolean white){
+        return white ? whitePawns[index] : blackPawns[index];
+    }
+
+    /**
+     * The squares of one side's passed pawns.
+     */
+    long passedPawns(int index, boolean white){
+        return white ? whitePassed[index] : blackPassed[index];
+    }
+
+    public long getProbes(){ return probes; }
+
+    public long getHits(){ return hits; }
+
+    /**
+     * @return The share of probes that hit, between 0 and 1 (0 before the first probe).
+     */
+    public double getHitRate(){
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    public void resetCounters(){
+        probes = 0;
+        hits = 0;
+    }
+}
@@ -0,0 +1,169 @@
+package Model.Engine;
+
+import Model.*;
+import Model.Pieces.*;
+
+/**
+ * The pawn-structure terms of the classical evaluation: passed, isolated, doubled and
+ * backward pawns, and the pawn shield in front of each king. All but the shield depend
+ * only on where the pawns stand, so their result is kept in a PawnCache; the shield is
+ * worked out from the cached pawns, as the kings move too often to be in the key.
+ *
+ * Works on bitboards of the pawns (bit row * 8 + column, row 0 being rank 8).
+ * Scores are White minus Black, as in the Board's evaluation terms.
+ */
+final class PawnStructure{
+    // By how far a passed pawn has come from its starting row (0-5)
+    private static final int[] PASSED_MIDDLE_GAME = {0, 5, 10, 20, 35, 60};
+    private static final int[] PASSED_END_GAME = {0, 10, 20, 40, 70, 120};
+    private static final int ISOLATED_MIDDLE_GAME = -10;
+    private static final int ISOLATED_END_GAME = -15;
+    private static final int DOUBLED_MIDDLE_GAME = -10;
+    private static final int DOUBLED_END_GAME = -20;
+    private static final int BACKWARD_MIDDLE_GAME = -8;
+    private static final int BACKWARD_END_GAME = -10;
+    private static final int SHIELD_NEAR = 12; // A pawn right in front of the king (middlegame only)
+    private static final int SHIELD_FAR = 6;   // Two rows in front
+
+    private static final long[] FILES = new long[8];
+    private static final long[] ADJACENT_FILES = new long[8];
+    // The squares that must be free of enemy pawns for a pawn to be passed
+    private static final long[] WHITE_PASSED_MASKS = new long[64];
+    private static final long[] BLACK_PASSED_MASKS = new long[64];
+
+    static{
+        for(int column = 0; column < 8; column++){
+            FILES[column] = 0x0101010101010101L << column;
+        }
+        for(int column = 0; column < 8; column++){
+            ADJACENT_FILES[column] = (column > 0 ? FILES[column - 1] : 0) | (column < 7 ? FILES[column + 1] : 0);
+        }
+        for(int square = 0; square < 64; square++){
+            int row = square / 8;
+            long span = FILES[square % 8] | ADJACENT_FILES[square % 8];
+            WHITE_PASSED_MASKS[square] = span & rowsBefore(row);
+            BLACK_PASSED_MASKS[square] = span & ~rowsBefore(row + 1);
+        }
+    }
+
+    private PawnStructure(){}
+
+    /**
+     * Analyses the pawn structure of the board and stores it in the cache.
+     *
+     * @return The index of the new entry.
+     */
+    static int analyse(Board board, long pawnKey, PawnCache cache){
+        long whitePawns = 0;
+        long blackPawns = 0;
+        for(int square = 0; square < 64; square++){
+            Piece piece = board.getPieceAt(MoveCodes.position(square));
+            if(piece != null && piece.getType() == PieceType.PAWN){
+                if(piece.isWhite()){
+                    whitePawns |= 1L << square;
+                }else{
+                    blackPawns |= 1L << square;
+                }
+            }
+        }
+
+        int[] scores = new int[2]; // Middlegame, endgame
+        long whitePassed = evaluateSide(whitePawns, blackPawns, true, scores);
+        long blackPassed = evaluateSide(blackPawns, whitePawns, false, scores);
+        return cache.store(pawnKey, scores[0], scores[1], whitePawns, blackPawns, whitePassed, blackPassed);
+    }
+
+    /**
+     * How far a pawn on the row has come from its starting row (0-5).
+     */
+    static int advancement(int row, boolean white){
+        return white ? 6 - row : row - 1;
+    }
+
+    /**
+     * Adds one side's terms to scores (with its sign).
+     *
+     * @return The side's passed pawns.
+     */
+    private static long evaluateSide(long own, long enemy, boolean white, int[] scores){
+        int sign = white ? 1 : -1;
+        int middleGame = 0;
+        int endGame = 0;
+        long passed = 0;
+
+        for(int column = 0; column < 8; column++){
+            int onFile = Long.bitCount(own & FILES[column]);
+            if(onFile > 1){
+                middleGame += (onFile - 1) * DOUBLED_MIDDLE_GAME;
+                endGame += (onFile - 1) * DOUBLED_END_GAME;
+            }
+        }
+
+        for(long pawns = own; pawns != 0; pawns &= pawns - 1){
+            int square = Long.numberOfTrailingZeros(pawns);
+            int row = square / 8;
+            int column = square % 8;
+
+            // 1. Passed: no enemy pawn in front, on its own or the adjacent files
+            long passedMask = white ? WHITE_PASSED_MASKS[square] : BLACK_PASSED_MASKS[square];
+            if((enemy & passedMask) == 0 && (own & FILES[column] & passedMask) == 0){
+                passed |= 1L << square;
+                int advancement = advancement(row, white);
+                middleGame += PASSED_MIDDLE_GAME[advancement];
+                endGame += PASSED_END_GAME[advancement];
+            }
+
+            // 2. Isolated: no friendly pawn on the adjacent files
+            if((own & ADJACENT_FILES[column]) == 0){
+                middleGame += ISOLATED_MIDDLE_GAME;
+                endGame += ISOLATED_END_GAME;
+                continue;
+            }
+
+            // 3. Backward: no friendly pawn beside or behind it, and its stop square is attacked by an enemy pawn
+            long besideOrBehind = white ? ~rowsBefore(row) : rowsBefore(row + 1);
+            if((own & ADJACENT_FILES[column] & besideOrBehind) == 0){
+                int attackerRow = white ? row - 2 : row + 2;
+                if(attackerRow >= 0 && attackerRow < 8 && (enemy & ADJACENT_FILES[column] & rowMask(attackerRow)) != 0){
+                    middleGame += BACKWARD_MIDDLE_GAME;
+                    endGame += BACKWARD_END_GAME;
+                }
+            }
+        }
+
+        scores[0] += sign * middleGame;
+        scores[1] += sign * endGame;
+        return passed;
+    }
+
+    /**
+     * The middlegame bonus for own pawns on the king's file and the files beside it,
+     * one or two rows in front of it.
+     */
+    static int shield(long own, int king, boolean white){
+        if(king < 0){
+            return 0;
+        }
+        int row = king / 8;
+        long files = FILES[king % 8] | ADJACENT_FILES[king % 8];
+        int near = white ? row - 1 : row + 1;
+        int far = white ? row - 2 : row + 2;
+        int score = 0;
+        if(near >= 0 && near < 8){
+            score += SHIELD_NEAR * Long.bitCount(own & files & rowMask(near));
+        }
+        if(far >= 0 && far < 8){
+            score += SHIELD_FAR * Long.bitCount(own & files & rowMask(far));
+        }
+        return score;
+    }
+
+    private static long rowMask(int row){
+        return 0xFFL << (row * 8);
+    }
+
+    // The rows 0 .. row-1 (all of them for row 8)
+    private static long rowsBefore(int row){
+        return row >= 8 ? -1L : (1L << (row * 8)) - 1;
+    }
+}
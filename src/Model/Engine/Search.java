@@ -0,0 +1,192 @@
+package Model.Engine;
+
+import Model.*;
+import Model.Tablebase.*;
+
+import java.util.*;
+
+/**
+ * Iterative deepening alpha-beta search over the RuleEngine's moves.
+ *
+ * With more than one thread, every thread searches the same root and they share
+ * the transposition table ("Lazy SMP"): the helpers fill the table with results
+ * that the main thread picks up. Only the main thread reports and decides.
+ *
+ * The search is selective (see SearchFeature): principal variation search in aspiration
+ * windows, with null-move pruning, late-move reductions, futility pruning and check extensions.
+ * For analysis it can report the best few lines instead of one (setMultiPv()).
+ *
+ * A search is started with search() (which blocks until it is finished),
+ * and can be stopped from any other thread with stop().
+ */
+public class Search{
+    public static final int MATE = 30000;
+    public static final int INFINITY = 32000;
+    public static final int MAX_PLY = 128;
+
+    private Evaluator evaluator;
+    // One per thread (by worker id), kept from search to search so their caches stay warm
+    private final List<Evaluator> threadEvaluators = new ArrayList<>();
+    private final TranspositionTable transpositionTable;
+    private int threadCount = 1;
+    private volatile int multiPv = 1;
+    private volatile TablebaseProber tablebases = null;
+    private final Set<SearchFeature> features = Collections.synchronizedSet(EnumSet.allOf(SearchFeature.class));
+
+    // Set by stop(), or by the main thread when a limit is hit; read by every worker
+    private volatile boolean stopped = false;
+
+    public Search(Evaluator evaluator, TranspositionTable transpositionTable){
+        this.evaluator = evaluator;
+        this.transpositionTable = transpositionTable;
+    }
+
+    public void setThreadCount(int threadCount){
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * The number of best lines to find ("MultiPV"): the 2nd best is searched without the best root
+     * move, the 3rd without both, and so on, every iteration. Takes effect from the next search.
+     */
+    public void setMultiPv(int multiPv){
+        this.multiPv = Math.max(1, multiPv);
+    }
+
+    public int getMultiPv(){
+        return multiPv;
+    }
+
+    public TranspositionTable getTranspositionTable(){
+        return transpositionTable;
+    }
+
+    public synchronized Evaluator getEvaluator(){
+        return evaluator;
+    }
+
+    /**
+     * Replaces the evaluation (e.g. the classical one by a network). Must not be called during a search.
+     */
+    public synchronized void setEvaluator(Evaluator evaluator){
+        this.evaluator = evaluator;
+        threadEvaluators.clear();
+    }
+
+    /**
+     * The evaluators of the threads used so far (the main thread's first), for their statistics.
+     */
+    public synchronized List<Evaluator> getThreadEvaluators(){
+        return new ArrayList<>(threadEvaluators);
+    }
+
+    // The evaluator of the worker with the id (0 = main thread)
+    synchronized Evaluator threadEvaluator(int id){
+        while(threadEvaluators.size() <= id){
+            threadEvaluators.add(evaluator.forThread());
+        }
+        return threadEvaluators.get(id);
+    }
+
+    /**
+     * Endgame tablebases probed inside the search, or null for none.
+     */
+    public void setTablebases(TablebaseProber tablebases){
+        this.tablebases = tablebases;
+    }
+
+    public TablebaseProber getTablebases(){
+        return tablebases;
+    }
+
+    /**
+     * Switches a part of the selective search on or off (all are on by default).
+     * Takes effect from the next search.
+     */
+    public void setEnabled(SearchFeature feature, boolean enabled){
+        if(enabled){
+            features.add(feature);
+        }else{
+            features.remove(feature);
+        }
+    }
+
+    public boolean isEnabled(SearchFeature feature){
+        return features.contains(feature);
+    }
+
+    /**
+     * Stops the running search as soon as possible. Safe to call from any thread.
+     */
+    public void stop(){
+        stopped = true;
+    }
+
+    boolean isStopped(){
+        return stopped;
+    }
+
+    /**
+     * Searches the position until a limit is reached or stop() is called.
+     *
+     * @param root The position (it is copied, the caller may keep changing its own).
+     * @param history Zobrist keys of the game's earlier positions, for repetition detection.
+     * @param limits When to stop.
+     * @param listener Receives the progress, may be null.
+     * @return The best move found.
+     */
+    public SearchResult search(GameState root, List<Long> history, SearchLimits limits, SearchListener listener){
+        stopped = false;
+        transpositionTable.newSearch();
+
+        long startNanos = System.nanoTime();
+        long budgetMs = limits.timeBudgetMs(root.isWhiteTurn());
+        long deadline = budgetMs > 0 ? startNanos + budgetMs * 1_000_000L : Long.MAX_VALUE;
+        int maxDepth = limits.getDepth() > 0 ? Math.min(limits.getDepth(), MAX_PLY - 1) : MAX_PLY - 1;
+
+        // Lazy SMP helpers, searching with their own copy of the root
+        List<SearchWorker> helpers = new ArrayList<>();
+        List<Thread> helperThreads = new ArrayList<>();
+        for(int i = 1; i < threadCount; i++){
+            SearchWorker helper = new SearchWorker(this, i, new GameState(root), history, null);
+            helpers.add(helper);
+            Thread t = new Thread(() -> helper.iterate(maxDepth, Long.MAX_VALUE, 0, startNanos), "search-helper-" + i);
+            t.setDaemon(true);
+            helperThreads.add(t);
+            t.start();
+        }
+
+        SearchWorker main = new SearchWorker(this, 0, new GameState(root), history, listener);
+        main.setHelpers(helpers);
+        main.iterate(maxDepth, deadline, limits.getNodes(), startNanos);
+
+        // The main thread is done, so are the helpers
+        stopped = true;
+        for(Thread t : helperThreads){
+            try {
+                t.join();
+            } catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        long timeMs = (System.nanoTime() - startNanos) / 1_000_000L;
+        return new SearchResult(main.getBestMove(), main.getPonderMove(), main.getBestScore(),
+                main.getCompletedDepth(), main.totalNodes(), timeMs);
+    }
+
+    /**
+     * Mate scores are stored in the table relative to the node, not to the root.
+     */
+    static int scoreToTable(int score, int ply){
+        if(score >= MATE - MAX_PLY) return score + ply;
+        if(score <= -MATE + MAX_PLY) return score - ply;
+        return score;
+    }
+
+    static int scoreFromTable(int score, int ply){
+        if(score >= MATE - MAX_PLY) return score - ply;
+        if(score <= -MATE + MAX_PLY) return score + ply;
+        return score;
+    }
+}
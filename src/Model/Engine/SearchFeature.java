@@ -0,0 +1,35 @@
+package Model.Engine;
+
+/**
+ * The selective parts of the search, each of which can be switched off (Search.setEnabled(),
+ * or the UCI option of the same name) to measure what it is worth.
+ */
+public enum SearchFeature{
+    /** Principal variation search: the moves after the first are only proven worse, with a null window. */
+    PVS("PVS"),
+    /** Each iteration starts with a narrow window around the previous score. */
+    ASPIRATION_WINDOWS("AspirationWindows"),
+    /** Giving the opponent a free move: if that still fails high, the node does too. */
+    NULL_MOVE("NullMove"),
+    /** Quiet moves late in the ordering are searched less deep, unless they turn out good. */
+    LATE_MOVE_REDUCTIONS("LMR"),
+    /** Near the leaves, quiet moves that can't bring the score up to alpha are skipped. */
+    FUTILITY("Futility"),
+    /** Near the leaves, a node whose evaluation is far above beta fails high without a search. */
+    REVERSE_FUTILITY("ReverseFutility"),
+    /** Positions in check are searched one ply deeper. */
+    CHECK_EXTENSIONS("CheckExtensions");
+
+    private final String optionName;
+
+    SearchFeature(String optionName){
+        this.optionName = optionName;
+    }
+
+    /**
+     * The name of its UCI option.
+     */
+    public String getOptionName(){
+        return optionName;
+    }
+}
@@ -0,0 +1,45 @@
+package Model.Engine;
+
+import Model.*;
+
+import java.util.*;
+
+/**
+ * Progress report of a running search, e.g. after each completed iteration.
+ *
+ * @param depth The completed depth.
+ * @param selDepth The deepest ply reached.
+ * @param score The score in centipawns from the side to move's view (mate scores are near Search.MATE).
+ * @param nodes Nodes searched so far (all threads).
+ * @param timeMs Time elapsed since the start of the search.
+ * @param pv The principal variation, as move codes.
+ * @param hashfull Transposition table usage, per mille.
+ * @param multiPv Which of the best lines this is, from 1 (see Search.setMultiPv()).
+ */
+public record SearchInfo(int depth, int selDepth, int score, long nodes, long timeMs, int[] pv, int hashfull, int multiPv){
+    public long nps(){
+        return timeMs > 0 ? nodes * 1000 / timeMs : nodes;
+    }
+
+    public boolean isMateScore(){
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    /**
+     * Moves to mate (positive: we mate, negative: we get mated), for "score mate N".
+     */
+    public int mateIn(){
+        return score > 0 ? (Search.MATE - score + 1) / 2 : -(Search.MATE + score) / 2;
+    }
+
+    /**
+     * @return The line in UCI notation, e.g. "e2e4 e7e5 g1f3".
+     */
+    public String pvString(){
+        StringJoiner joiner = new StringJoiner(" ");
+        for(int code : pv){
+            joiner.add(MoveCodes.toUci(code));
+        }
+        return joiner.toString();
+    }
+}
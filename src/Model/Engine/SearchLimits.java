@@ -0,0 +1,69 @@
+package Model.Engine;
+
+/**
+ * When the search has to stop: the parameters of a UCI "go" command.
+ * A value of 0 means "no limit" for depth, nodes and movetime.
+ */
+public class SearchLimits{
+    private int depth = 0;
+    private long nodes = 0;
+    private long moveTimeMs = 0;
+    private long whiteTimeMs = 0;
+    private long blackTimeMs = 0;
+    private long whiteIncrementMs = 0;
+    private long blackIncrementMs = 0;
+    private int movesToGo = 0;
+    private boolean infinite = false;
+
+    public static SearchLimits depth(int depth){
+        SearchLimits limits = new SearchLimits();
+        limits.setDepth(depth);
+        return limits;
+    }
+
+    public int getDepth(){ return depth; }
+    public void setDepth(int depth){ this.depth = depth; }
+
+    public long getNodes(){ return nodes; }
+    public void setNodes(long nodes){ this.nodes = nodes; }
+
+    public long getMoveTimeMs(){ return moveTimeMs; }
+    public void setMoveTimeMs(long moveTimeMs){ this.moveTimeMs = moveTimeMs; }
+
+    public long getWhiteTimeMs(){ return whiteTimeMs; }
+    public void setWhiteTimeMs(long whiteTimeMs){ this.whiteTimeMs = whiteTimeMs; }
+
+    public long getBlackTimeMs(){ return blackTimeMs; }
+    public void setBlackTimeMs(long blackTimeMs){ this.blackTimeMs = blackTimeMs; }
+
+    public long getWhiteIncrementMs(){ return whiteIncrementMs; }
+    public void setWhiteIncrementMs(long whiteIncrementMs){ this.whiteIncrementMs = whiteIncrementMs; }
+
+    public long getBlackIncrementMs(){ return blackIncrementMs; }
+    public void setBlackIncrementMs(long blackIncrementMs){ this.blackIncrementMs = blackIncrementMs; }
+
+    public int getMovesToGo(){ return movesToGo; }
+    public void setMovesToGo(int movesToGo){ this.movesToGo = movesToGo; }
+
+    public boolean isInfinite(){ return infinite; }
+    public void setInfinite(boolean infinite){ this.infinite = infinite; }
+
+    /**
+     * The time we may spend on this move, in milliseconds (0 = unlimited).
+     * With a clock: a share of the remaining time plus most of the increment,
+     * never more than half of what is left.
+     */
+    public long timeBudgetMs(boolean isWhiteTurn){
+        if(moveTimeMs > 0){
+            return moveTimeMs;
+        }
+        long timeLeft = isWhiteTurn ? whiteTimeMs : blackTimeMs;
+        if(timeLeft <= 0 || infinite){
+            return 0;
+        }
+        long increment = isWhiteTurn ? whiteIncrementMs : blackIncrementMs;
+        int movesLeft = movesToGo > 0 ? movesToGo : 30;
+        long budget = timeLeft / movesLeft + increment * 3 / 4;
+        return Math.max(1, Math.min(budget, timeLeft / 2));
+    }
+}
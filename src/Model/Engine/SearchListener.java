@@ -0,0 +1,17 @@
+package Model.Engine;
+
+/**
+ * Receives the progress of a search. Called on the search thread,
+ * so implementations must hand the data over and return quickly.
+ */
+public interface SearchListener{
+    /**
+     * Called after every completed iteration, once per line with MultiPV (see Search.setMultiPv()).
+     */
+    void onIteration(SearchInfo info);
+
+    /**
+     * Called about once a second with the current node count (for nps reports).
+     */
+    default void onProgress(long nodes, long timeMs){}
+}
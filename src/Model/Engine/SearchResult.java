@@ -0,0 +1,14 @@
+package Model.Engine;
+
+/**
+ * The outcome of a finished search.
+ *
+ * @param bestMove The move to play, as a move code (MoveCodes.NONE if there is no legal move).
+ * @param ponderMove The expected reply, or MoveCodes.NONE.
+ * @param score The score of the best move in centipawns, from the side to move's view.
+ * @param depth The last completed depth.
+ * @param nodes Nodes searched by all threads.
+ * @param timeMs Time spent.
+ */
+public record SearchResult(int bestMove, int ponderMove, int score, int depth, long nodes, long timeMs){
+}
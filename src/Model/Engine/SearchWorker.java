@@ -0,0 +1,527 @@
+package Model.Engine;
+
+import Model.*;
+import Model.Tablebase.*;
+
+import java.util.*;
+
+/**
+ * One search thread: iterative deepening with a selective alpha-beta negamax
+ * (see SearchFeature), and a quiescence search of the captures at its leaves.
+ *
+ * Positions are searched make/undo style: each worker plays its moves on its own copy
+ * of the root and takes them back (GameState.undoMove()), and the Zobrist key of a child
+ * is updated from its parent's with the squares the move changes.
+ */
+class SearchWorker{
+    private static final int ASPIRATION_WINDOW = 25;
+    private static final int REVERSE_FUTILITY_MARGIN = 90;
+    private static final int[] FUTILITY_MARGINS = {0, 150, 300, 450};
+
+    // Late-move reductions by depth and move number: they grow with both, slowly
+    private static final int[][] LMR_TABLE = new int[64][64];
+
+    static{
+        for(int depth = 1; depth < 64; depth++){
+            for(int moveNumber = 1; moveNumber < 64; moveNumber++){
+                LMR_TABLE[depth][moveNumber] = (int) (0.75 + Math.log(depth) * Math.log(moveNumber) / 2.25);
+            }
+        }
+    }
+
+    private final Search search;
+    private final int id;
+    private final GameState root;
+    private final RuleEngine ruleEngine;
+    private final Evaluator evaluator;
+    private final TranspositionTable transpositionTable;
+    private final TablebaseProber tablebases;
+    private final SearchListener listener;
+    private final boolean pvs;
+    private final boolean aspirationWindows;
+    private final boolean nullMove;
+    private final boolean lateMoveReductions;
+    private final boolean futility;
+    private final boolean reverseFutility;
+    private final boolean checkExtensions;
+    private List<SearchWorker> helpers = List.of();
+
+    // MultiPV: the lines searched per iteration, and the root moves of the lines already found in it
+    private final int multiPv;
+    private final int[] excludedRootMoves;
+    private int excludedCount = 0;
+
+    // Keys of the game's earlier positions followed by the current search path (repetitions)
+    private final long[] keyStack;
+    private int keyCount;
+
+    // Triangular principal variation table
+    private final int[][] pvTable = new int[Search.MAX_PLY + 1][Search.MAX_PLY + 1];
+    private final int[] pvLength = new int[Search.MAX_PLY + 1];
+
+    // Move ordering tables, the move made at each ply (for counter-moves) and the quiet moves tried
+    private final MoveOrdering ordering = new MoveOrdering();
+    private final int[] movesMade = new int[Search.MAX_PLY + 1];
+    private final int[][] triedQuiets = new int[Search.MAX_PLY + 1][64];
+
+    // Written by this thread only, read by the main thread for reports
+    private volatile long nodes = 0;
+    private int selDepth = 0;
+
+    private int bestMove = MoveCodes.NONE;
+    private int ponderMove = MoveCodes.NONE;
+    private int bestScore = 0;
+    private int completedDepth = 0;
+
+    // Limits, only checked by the main thread (id 0)
+    private long deadline = Long.MAX_VALUE;
+    private long nodeLimit = 0;
+    private long startNanos;
+    private long nextProgressNanos;
+
+    SearchWorker(Search search, int id, GameState root, List<Long> history, SearchListener listener){
+        this.search = search;
+        this.id = id;
+        this.root = root;
+        this.ruleEngine = new RuleEngine();
+        this.evaluator = search.threadEvaluator(id);
+        this.transpositionTable = search.getTranspositionTable();
+        this.tablebases = search.getTablebases();
+        this.listener = listener;
+        this.pvs = search.isEnabled(SearchFeature.PVS);
+        this.aspirationWindows = search.isEnabled(SearchFeature.ASPIRATION_WINDOWS);
+        this.nullMove = search.isEnabled(SearchFeature.NULL_MOVE);
+        this.lateMoveReductions = search.isEnabled(SearchFeature.LATE_MOVE_REDUCTIONS);
+        this.futility = search.isEnabled(SearchFeature.FUTILITY);
+        this.reverseFutility = search.isEnabled(SearchFeature.REVERSE_FUTILITY);
+        this.checkExtensions = search.isEnabled(SearchFeature.CHECK_EXTENSIONS);
+        // Only the main thread reports, the helpers just fill the table
+        this.multiPv = id == 0 ? search.getMultiPv() : 1;
+        this.excludedRootMoves = new int[multiPv];
+
+        this.keyStack = new long[history.size() + Search.MAX_PLY + 1];
+        for(long key : history){
+            keyStack[keyCount++] = key;
+        }
+    }
+
+    void setHelpers(List<SearchWorker> helpers){
+        this.helpers = helpers;
+    }
+
+    int getBestMove(){ return bestMove; }
+    int getPonderMove(){ return ponderMove; }
+    int getBestScore(){ return bestScore; }
+    int getCompletedDepth(){ return completedDepth; }
+
+    /**
+     * Nodes of this thread and its helpers.
+     */
+    long totalNodes(){
+        long total = nodes;
+        for(SearchWorker helper : helpers){
+            total += helper.nodes;
+        }
+        return total;
+    }
+
+    /**
+     * Iterative deepening: searches depth 1, 2, 3... until a limit is hit.
+     */
+    void iterate(int maxDepth, long deadline, long nodeLimit, long startNanos){
+        this.deadline = deadline;
+        this.nodeLimit = nodeLimit;
+        this.startNanos = startNanos;
+        this.nextProgressNanos = startNanos + 1_000_000_000L;
+
+        // Never leave without a move, even if stopped during the first iteration
+        List<Move> rootMoves = ruleEngine.getAllLegalMoves(root);
+        if(rootMoves.isEmpty()){
+            return;
+        }
+        bestMove = MoveCodes.encode(rootMoves.get(0));
+
+        long rootKey = Zobrist.hash(root);
+        // Every second helper starts one ply deeper, spreading the threads over the depths
+        int startDepth = 1 + (id % 2);
+        boolean rootInCheck = ruleEngine.isKingInCheck(root, root.isWhiteTurn());
+        int lines = Math.min(multiPv, rootMoves.size());
+        for(int depth = startDepth; depth <= maxDepth; depth++){
+            selDepth = 0;
+            excludedCount = 0;
+            for(int line = 0; line < lines; line++){
+                // The best line in an aspiration window, the next ones with the earlier lines' moves left out
+                int score = line == 0
+                        ? aspirationSearch(rootKey, depth, rootInCheck)
+                        : negamax(root, rootKey, depth, 0, -Search.INFINITY, Search.INFINITY, rootInCheck, false);
+
+                if(search.isStopped()){
+                    // An unfinished iteration is only trusted for its first move, if we have nothing better
+                    if(line == 0 && completedDepth == 0 && pvLength[0] > 0){
+                        bestMove = pvTable[0][0];
+                    }
+                    break;
+                }
+
+                if(line == 0){
+                    completedDepth = depth;
+                    bestScore = score;
+                    bestMove = pvTable[0][0];
+                    ponderMove = pvLength[0] > 1 ? pvTable[0][1] : MoveCodes.NONE;
+                }
+                excludedRootMoves[excludedCount++] = pvTable[0][0];
+
+                if(listener != null){
+                    long timeMs = (System.nanoTime() - startNanos) / 1_000_000L;
+                    listener.onIteration(new SearchInfo(depth, selDepth, score, totalNodes(), timeMs,
+                            Arrays.copyOf(pvTable[0], pvLength[0]), transpositionTable.hashfull(), line + 1));
+                }
+            }
+            if(search.isStopped()){
+                break;
+            }
+
+            // Don't start an iteration that can't be finished in time
+            if(deadline != Long.MAX_VALUE && System.nanoTime() - startNanos > (deadline - startNanos) / 2){
+                break;
+            }
+        }
+    }
+
+    /**
+     * Searches the root in a narrow window around the last iteration's score, widening it
+     * on the side that failed until the score falls inside.
+     */
+    private int aspirationSearch(long rootKey, int depth, boolean rootInCheck){
+        if(!aspirationWindows || depth < 4 || Math.abs(bestScore) >= Search.MATE - Search.MAX_PLY){
+            return negamax(root, rootKey, depth, 0, -Search.INFINITY, Search.INFINITY, rootInCheck, false);
+        }
+        int window = ASPIRATION_WINDOW;
+        int alpha = Math.max(-Search.INFINITY, bestScore - window);
+        int beta = Math.min(Search.INFINITY, bestScore + window);
+        while(true){
+            int score = negamax(root, rootKey, depth, 0, alpha, beta, rootInCheck, false);
+            if(search.isStopped()){
+                return score;
+            }
+            window *= 2;
+            if(score <= alpha){
+                alpha = Math.max(-Search.INFINITY, score - window);
+            }else if(score >= beta){
+                beta = Math.min(Search.INFINITY, score + window);
+            }else{
+                return score;
+            }
+        }
+    }
+
+    /**
+     * @param inCheck Whether the side to move is in check (known by the parent, which tested its move for it).
+     * @param allowNull Whether a null move may be tried (not twice in a row).
+     */
+    private int negamax(GameState state, long key, int depth, int ply, int alpha, int beta, boolean inCheck, boolean allowNull){
+        pvLength[ply] = 0;
+        if(ply > selDepth){
+            selDepth = ply;
+        }
+        nodes++;
+        if(id == 0 && (nodes & 127) == 0){
+            checkLimits();
+        }
+        if(search.isStopped()){
+            return 0;
+        }
+
+        if(ply > 0){
+            // Draw by the fifty-move rule or repetition
+            if(state.getHalfMoveClock() >= 100 || isRepetition(key, state.getHalfMoveClock())){
+                return 0;
+            }
+            if(ply >= Search.MAX_PLY - 1){
+                return evaluator.evaluate(state);
+            }
+            // A tablebase knows the exact result: mate in its distance, or a draw. The piece
+            // count rules out nearly every node before the prober has to look at the board.
+            if(tablebases != null && state.getBoard().getPieceCount() <= TablebaseProber.MAX_MEN){
+                TablebaseResult result = tablebases.probe(state);
+                if(result != null){
+                    int mateScore = Search.MATE - Math.min(ply + result.pliesToMate(), Search.MAX_PLY - 1);
+                    return result.isWin() ? mateScore : result.isLoss() ? -mateScore : 0;
+                }
+            }
+        }
+
+        // Transposition table: a deep enough result may answer this node right away
+        long entry = transpositionTable.probe(key);
+        int hashMove = MoveCodes.NONE;
+        if(entry != 0){
+            hashMove = TranspositionTable.moveOf(entry);
+            if(ply > 0 && TranspositionTable.depthOf(entry) >= depth){
+                int hashScore = Search.scoreFromTable(TranspositionTable.scoreOf(entry), ply);
+                int bound = TranspositionTable.boundOf(entry);
+                if(bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && hashScore >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && hashScore <= alpha)){
+                    return hashScore;
+                }
+            }
+        }
+
+        // A check is searched one ply deeper, so it is never the last move before the quiescence search
+        if(inCheck && checkExtensions && ply > 0){
+            depth++;
+        }
+        if(depth <= 0){
+            return quiescence(state, ply, alpha, beta);
+        }
+
+        boolean pvNode = beta - alpha > 1;
+        boolean white = state.isWhiteTurn();
+        int staticEval = inCheck ? -Search.INFINITY : evaluator.evaluate(state);
+        boolean pruning = !pvNode && !inCheck && ply > 0 && Math.abs(beta) < Search.MATE - Search.MAX_PLY;
+
+        // 1. Reverse futility: so far above beta near the leaves that no reply will bring it back
+        if(pruning && reverseFutility && depth <= 6 && staticEval - REVERSE_FUTILITY_MARGIN * depth >= beta){
+            return staticEval - REVERSE_FUTILITY_MARGIN * depth;
+        }
+
+        // 2. Null move: if passing still fails high, a real move would too. Not with only pawns
+        //    left, where passing may be the only good "move" (zugzwang) and the test would lie.
+        if(pruning && nullMove && allowNull && depth >= 3 && staticEval >= beta && hasPieces(state.getBoard(), white)){
+            int reduction = 3 + depth / 6;
+            Position enPassant = state.getEnPassantTargetSquare();
+            int halfMoveClock = state.getHalfMoveClock();
+            long nullKey = key ^ Zobrist.stateKey(state);
+            state.setWhiteTurn(!white);
+            state.setEnPassantTargetSquare(null);
+            state.setHalfMoveClock(0); // No repetition across a null move
+            nullKey ^= Zobrist.stateKey(state);
+            movesMade[ply] = MoveCodes.NONE;
+            keyStack[keyCount++] = key;
+            int score = -negamax(state, nullKey, depth - 1 - reduction, ply + 1, -beta, -beta + 1, false, false);
+            keyCount--;
+            state.setWhiteTurn(white);
+            state.setEnPassantTargetSquare(enPassant);
+            state.setHalfMoveClock(halfMoveClock);
+            if(search.isStopped()){
+                return 0;
+            }
+            if(score >= beta){
+                return score >= Search.MATE - Search.MAX_PLY ? beta : score; // Don't trust a mate found by passing
+            }
+        }
+
+        // 3. Futility: near the leaves, quiet moves can't make up a big deficit
+        int futilityValue = depth < FUTILITY_MARGINS.length ? staticEval + FUTILITY_MARGINS[depth] : Search.INFINITY;
+        boolean futile = pruning && futility && futilityValue <= alpha;
+
+        int originalAlpha = alpha;
+        int best = -Search.INFINITY;
+        int bestCode = MoveCodes.NONE;
+        int previousMove = ply > 0 ? movesMade[ply - 1] : MoveCodes.NONE;
+        MovePicker picker = new MovePicker(state, ruleEngine, ordering, hashMove, ply, previousMove, false);
+        int moveCount = 0;
+        int quietCount = 0;
+
+        keyStack[keyCount++] = key;
+        Move move;
+        while((move = picker.next()) != null){
+            int code = MoveCodes.encode(move);
+            if(ply == 0 && isExcluded(code)){
+                continue;
+            }
+            boolean isQuiet = picker.isQuiet(move);
+            moveCount++;
+            boolean givesCheck = ruleEngine.givesCheck(state.getBoard(), move);
+
+            // A pruned move was never searched, so it stays out of triedQuiets: its history
+            // shouldn't pay for a static evaluation that was too low to search it at all
+            if(futile && isQuiet && !givesCheck && moveCount > 1){
+                best = Math.max(best, futilityValue);
+                continue;
+            }
+
+            movesMade[ply] = code;
+            long childKey = key ^ Zobrist.stateKey(state);
+            state.makeMove(move);
+            childKey ^= Zobrist.moveKey(move) ^ Zobrist.stateKey(state);
+
+            // 4. Late quiet moves are searched shallower first (less so if they have a good history)
+            int reduction = 0;
+            if(lateMoveReductions && depth >= 3 && moveCount > (pvNode ? 3 : 2) && isQuiet && !inCheck && !givesCheck){
+                reduction = LMR_TABLE[Math.min(depth, 63)][Math.min(moveCount, 63)];
+                reduction -= ordering.history(white, code) / (MoveOrdering.HISTORY_MAX / 2);
+                if(pvNode){
+                    reduction--;
+                }
+                reduction = Math.max(0, Math.min(reduction, depth - 2));
+            }
+
+            // 5. PVS: after the first move, only prove with a null window that a move is no better
+            boolean nullWindow = pvs && moveCount > 1;
+            int childAlpha = nullWindow ? -alpha - 1 : -beta;
+            int score = -negamax(state, childKey, depth - 1 - reduction, ply + 1, childAlpha, -alpha, givesCheck, true);
+            if(reduction > 0 && score > alpha && !search.isStopped()){
+                score = -negamax(state, childKey, depth - 1, ply + 1, childAlpha, -alpha, givesCheck, true);
+            }
+            if(nullWindow && score > alpha && score < beta && !search.isStopped()){
+                score = -negamax(state, childKey, depth - 1, ply + 1, -beta, -alpha, givesCheck, true);
+            }
+            state.undoMove();
+
+            if(search.isStopped()){
+                keyCount--;
+                return 0;
+            }
+
+            if(score > best){
+                best = score;
+                bestCode = code;
+
+                if(score > alpha){
+                    alpha = score;
+                    updatePv(ply, bestCode);
+                    if(alpha >= beta){
+                        // Beta cutoff: remember the quiet move that caused it
+                        if(isQuiet){
+                            ordering.recordCutoff(white, ply, code, previousMove, depth, triedQuiets[ply], quietCount);
+                        }
+                        break;
+                    }
+                }
+            }
+            if(isQuiet && quietCount < triedQuiets[ply].length){
+                triedQuiets[ply][quietCount++] = code;
+            }
+        }
+        keyCount--;
+
+        if(moveCount == 0){
+            // Checkmate (the sooner the better) or stalemate
+            return inCheck ? -Search.MATE + ply : 0;
+        }
+
+        // A root searched without some of its moves has no true score to store
+        if(ply > 0 || excludedCount == 0){
+            int bound = best >= beta ? TranspositionTable.BOUND_LOWER
+                    : best > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+            transpositionTable.store(key, bestCode, Search.scoreToTable(best, ply), depth, bound);
+        }
+        return best;
+    }
+
+    private boolean isExcluded(int code){
+        for(int i = 0; i < excludedCount; i++){
+            if(excludedRootMoves[i] == code){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Does the side have a piece besides its king and pawns?
+     */
+    private static boolean hasPieces(Board board, boolean white){
+        return board.getPieceCount(PieceType.KNIGHT, white) + board.getPieceCount(PieceType.BISHOP, white)
+                + board.getPieceCount(PieceType.ROOK, white) + board.getPieceCount(PieceType.QUEEN, white) > 0;
+    }
+
+    /**
+     * Searches the captures (and queen promotions) until the position is quiet, so a leaf is
+     * never judged in the middle of an exchange. The side to move may always "stand pat" on
+     * the static evaluation instead, unless it is in check: then every evasion is searched.
+     * Captures are tried best exchange first, and those losing material (by SEE) are skipped.
+     */
+    private int quiescence(GameState state, int ply, int alpha, int beta){
+        pvLength[ply] = 0;
+        if(ply > selDepth){
+            selDepth = ply;
+        }
+        nodes++;
+        if(id == 0 && (nodes & 127) == 0){
+            checkLimits();
+        }
+        if(search.isStopped()){
+            return 0;
+        }
+        if(ply >= Search.MAX_PLY - 1){
+            return evaluator.evaluate(state);
+        }
+
+        boolean inCheck = ruleEngine.isKingInCheck(state, state.isWhiteTurn());
+        int best = -Search.INFINITY;
+        if(!inCheck){
+            best = evaluator.evaluate(state);
+            if(best >= beta){
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+        }
+
+        // In check every evasion is searched, otherwise only the good captures
+        MovePicker picker = new MovePicker(state, ruleEngine, ordering, MoveCodes.NONE, ply, MoveCodes.NONE, !inCheck);
+        Move move;
+        while((move = picker.next()) != null){
+            movesMade[ply] = MoveCodes.encode(move);
+            state.makeMove(move);
+            int score = -quiescence(state, ply + 1, -beta, -alpha);
+            state.undoMove();
+            if(search.isStopped()){
+                return 0;
+            }
+            if(score > best){
+                best = score;
+                if(score > alpha){
+                    alpha = score;
+                    if(alpha >= beta){
+                        break;
+                    }
+                }
+            }
+        }
+        if(inCheck && best == -Search.INFINITY){
+            return -Search.MATE + ply; // No evasion
+        }
+        return best;
+    }
+
+    /**
+     * The line of this node is the move followed by the child's line.
+     */
+    private void updatePv(int ply, int moveCode){
+        pvTable[ply][0] = moveCode;
+        int childLength = pvLength[ply + 1];
+        System.arraycopy(pvTable[ply + 1], 0, pvTable[ply], 1, childLength);
+        pvLength[ply] = childLength + 1;
+    }
+
+    /**
+     * Has this position occurred before with the same side to move,
+     * since the last capture or pawn move?
+     */
+    private boolean isRepetition(long key, int halfMoveClock){
+        int oldest = Math.max(0, keyCount - halfMoveClock);
+        for(int i = keyCount - 2; i >= oldest; i -= 2){
+            if(keyStack[i] == key){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Main thread only: stops the search when the time or node budget is used up,
+     * and reports the progress about once a second.
+     */
+    private void checkLimits(){
+        long now = System.nanoTime();
+        if(now >= deadline || (nodeLimit > 0 && totalNodes() >= nodeLimit)){
+            search.stop();
+        }
+        if(listener != null && now >= nextProgressNanos){
+            nextProgressNanos = now + 1_000_000_000L;
+            listener.onProgress(totalNodes(), (now - startNanos) / 1_000_000L);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package Model.Engine;
+
+import java.util.*;
+
+/**
+ * A shared hash table of search results, keyed by the Zobrist key of the position.
+ *
+ * Entries live in two parallel long arrays (no objects): the key and the packed data.
+ * The key is stored XOR-ed with the data, so an entry torn by two threads writing
+ * at the same time simply fails to match on probe (lockless hashing), and the
+ * table can be shared by all search threads without synchronisation.
+ *
+ * Data layout: bits 0-15 move code, 16-31 score (signed), 32-39 depth,
+ * 40-41 bound type, 42-47 generation.
+ */
+public class TranspositionTable{
+    public static final int BOUND_NONE = 0;
+    public static final int BOUND_EXACT = 1;
+    public static final int BOUND_LOWER = 2; // fail high: score >= stored
+    public static final int BOUND_UPPER = 3; // fail low: score <= stored
+
+    private static final int ENTRY_BYTES = 16;
+
+    private long[] keys;
+    private long[] data;
+    private int mask;
+    private int generation = 0;
+
+    /**
+     * @param sizeMb The memory to use, in megabytes (rounded down to a power of two entries).
+     */
+    public TranspositionTable(int sizeMb){
+        resize(sizeMb);
+    }
+
+    /**
+     * Reallocates the table, all entries are lost. Must not be called during a search.
+     */
+    public void resize(int sizeMb){
+        long entries = Math.max(1024L, (long) sizeMb * 1024 * 1024 / ENTRY_BYTES);
+        int size = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        this.keys = new long[size];
+        this.data = new long[size];
+        this.mask = size - 1;
+    }
+
+    public void clear(){
+        Arrays.fill(keys, 0L);
+        Arrays.fill(data, 0L);
+        generation = 0;
+    }
+
+    /**
+     * Called at the start of every search, so old entries are replaced first.
+     */
+    public void newSearch(){
+        generation = (generation + 1) & 63;
+    }
+
+    /**
+     * @return The packed data of the entry, or 0 if the position is not in the table.
+     */
+    public long probe(long key){
+        int index = (int) key & mask;
+        long entryData = data[index];
+        if((keys[index] ^ entryData) == key && entryData != 0){
+            return entryData;
+        }
+        return 0L;
+    }
+
+    /**
+     * Stores a result. Deeper results of the current search are kept,
+     * results of older searches are always replaced.
+     */
+    public void store(long key, int moveCode, int score, int depth, int bound){
+        int index = (int) key & mask;
+        long oldData = data[index];
+        boolean samePosition = (keys[index] ^ oldData) == key;
+
+        if(oldData != 0 && generationOf(oldData) == generation && depthOf(oldData) > depth && !samePosition){
+            return;
+        }
+        // Keep the old best move if we have none to offer
+        if(moveCode == 0 && samePosition){
+            moveCode = moveOf(oldData);
+        }
+
+        long newData = (moveCode & 0xFFFFL)
+                | ((score & 0xFFFFL) << 16)
+                | ((long) (Math.max(0, depth) & 0xFF) << 32)
+                | ((long) bound << 40)
+                | ((long) generation << 42);
+        data[index] = newData;
+        keys[index] = key ^ newData;
+    }
+
+    public static int moveOf(long entryData){
+        return (int) (entryData & 0xFFFF);
+    }
+
+    public static int scoreOf(long entryData){
+        return (short) ((entryData >>> 16) & 0xFFFF);
+    }
+
+    public static int depthOf(long entryData){
+        return (int) ((entryData >>> 32) & 0xFF);
+    }
+
+    public static int boundOf(long entryData){
+        return (int) ((entryData >>> 40) & 3);
+    }
+
+    private static int generationOf(long entryData){
+        return (int) ((entryData >>> 42) & 63);
+    }
+
+    /**
+     * Per mille of the first 1000 entries used in the current search (for UCI "hashfull").
+     */
+    public int hashfull(){
+        int used = 0;
+        int sample = Math.min(1000, data.length);
+        for(int i = 0; i < sample; i++){
+            if(data[i] != 0 && generationOf(data[i]) == generation){
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+}
@@ -0,0 +1,433 @@
+package Model.Engine;
+
+import Model.*;
+import Model.Book.*;
+import Model.IOs.*;
+import Model.Tablebase.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Headless engine speaking the UCI protocol, for tournament managers, other GUIs and scripts.
+ *
+ * The calling thread only reads and parses the input; searches run on their own
+ * "uci-search" thread, so commands like "stop" and "isready" are answered while
+ * a search is running.
+ *
+ * "position" is applied incrementally: when the new move list extends the previous one
+ * (as it does every move of a game), only the new moves are played.
+ */
+public class UciEngine{
+    public static final String NAME = "Chess";
+    public static final String AUTHOR = "Chess developers";
+
+    private static final int DEFAULT_HASH_MB = 16;
+    private static final int MAX_HASH_MB = 4096;
+    private static final int MAX_THREADS = 256;
+    private static final int MAX_MULTI_PV = 64;
+
+    private final BufferedReader in;
+    private final PrintStream out;
+
+    private final RuleEngine ruleEngine = new RuleEngine();
+    private final FENParser fenParser = new FENParser();
+    private final TranspositionTable transpositionTable = new TranspositionTable(DEFAULT_HASH_MB);
+    private final Search search = new Search(new ClassicalEvaluator(), transpositionTable);
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "uci-search");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // The current position: where it started, the moves played since, and the keys of the earlier positions
+    private String baseFen = FENParser.START_FEN;
+    private final List<String> appliedMoves = new ArrayList<>();
+    private final List<Long> historyKeys = new ArrayList<>();
+    private GameState position;
+
+    // Opening book, used (when OwnBook is on) to answer "go" without searching
+    private PolyglotBook book = null;
+    private boolean useBook = false;
+    private final Random bookRandom = new Random();
+
+    // The running search, and the "stop" signal an infinite search waits for before answering
+    private Future<?> searchTask;
+    private volatile CountDownLatch stopSignal = new CountDownLatch(0);
+
+    public UciEngine(InputStream in, OutputStream out){
+        this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.out = new PrintStream(out, true, StandardCharsets.UTF_8);
+        this.position = fenParser.parse(FENParser.START_FEN);
+    }
+
+    /**
+     * Reads and executes commands until "quit" or the end of the input.
+     */
+    public void run() throws IOException {
+        try {
+            String line;
+            while((line = in.readLine()) != null){
+                if(!handleCommand(line.trim())){
+                    break;
+                }
+            }
+        } finally {
+            stopSearch();
+            searchExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return false if the engine should quit.
+     */
+    boolean handleCommand(String line){
+        if(line.isEmpty()){
+            return true;
+        }
+        String[] tokens = line.split("\\s+");
+
+        switch(tokens[0]){
+            case "uci":
+                send("id name " + NAME);
+                send("id author " + AUTHOR);
+                send("option name Hash type spin default " + DEFAULT_HASH_MB + " min 1 max " + MAX_HASH_MB);
+                send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                send("option name MultiPV type spin default 1 min 1 max " + MAX_MULTI_PV);
+                send("option name OwnBook type check default false");
+                send("option name BookFile type string default <empty>");
+                send("option name TablebasePath type string default <empty>");
+                send("option name EvalFile type string default <empty>");
+                for(SearchFeature feature : SearchFeature.values()){
+                    send("option name " + feature.getOptionName() + " type check default true");
+                }
+                send("uciok");
+                break;
+            case "isready":
+                send("readyok");
+                break;
+            case "setoption":
+                stopSearch();
+                handleSetOption(tokens);
+                break;
+            case "ucinewgame":
+                stopSearch();
+                transpositionTable.clear();
+                break;
+            case "position":
+                stopSearch();
+                handlePosition(tokens);
+                break;
+            case "go":
+                stopSearch();
+                handleGo(tokens);
+                break;
+            case "stop":
+                stopSearch();
+                break;
+            case "bench":
+                // Not UCI, but what engine testers expect: "bench [depth]" with the current options
+                stopSearch();
+                handleBench(tokens);
+                break;
+            case "quit":
+                return false;
+            default:
+                // Unknown commands are ignored, as the protocol asks
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * "setoption name Hash value 64", "setoption name Threads value 4".
+     */
+    private void handleSetOption(String[] tokens){
+        int nameIndex = indexOf(tokens, "name");
+        int valueIndex = indexOf(tokens, "value");
+        if(nameIndex < 0 || valueIndex < 0 || valueIndex + 1 >= tokens.length){
+            return;
+        }
+        String name = String.join(" ", Arrays.copyOfRange(tokens, nameIndex + 1, valueIndex));
+        String text = String.join(" ", Arrays.copyOfRange(tokens, valueIndex + 1, tokens.length));
+        if(name.equalsIgnoreCase("OwnBook")){
+            useBook = text.equalsIgnoreCase("true");
+            return;
+        }
+        if(name.equalsIgnoreCase("BookFile")){
+            openBook(text);
+            return;
+        }
+        if(name.equalsIgnoreCase("TablebasePath")){
+            openTablebases(text);
+            return;
+        }
+        if(name.equalsIgnoreCase("EvalFile")){
+            openNetwork(text);
+            return;
+        }
+        for(SearchFeature feature : SearchFeature.values()){
+            if(name.equalsIgnoreCase(feature.getOptionName())){
+                search.setEnabled(feature, text.equalsIgnoreCase("true"));
+                return;
+            }
+        }
+        try {
+            int value = Integer.parseInt(tokens[valueIndex + 1]);
+            if(name.equalsIgnoreCase("Hash")){
+                transpositionTable.resize(Math.clamp(value, 1, MAX_HASH_MB));
+            }else if(name.equalsIgnoreCase("Threads")){
+                search.setThreadCount(Math.clamp(value, 1, MAX_THREADS));
+            }else if(name.equalsIgnoreCase("MultiPV")){
+                search.setMultiPv(Math.clamp(value, 1, MAX_MULTI_PV));
+            }
+        } catch(NumberFormatException e){
+            send("info string invalid value for " + name);
+        }
+    }
+
+    private void openBook(String path){
+        try {
+            if(book != null){
+                book.close();
+            }
+            book = null;
+            if(!path.isEmpty() && !path.equals("<empty>")){
+                book = PolyglotBook.open(Paths.get(path));
+                send("info string book " + path + " with " + book.size() + " entries");
+            }
+        } catch(IOException e){
+            send("info string cannot open book: " + e.getMessage());
+        }
+    }
+
+    // A network file switches to the NNUE evaluation, an empty path back to the classical one
+    private void openNetwork(String path){
+        if(path.isEmpty() || path.equals("<empty>")){
+            search.setEvaluator(new ClassicalEvaluator());
+            return;
+        }
+        try {
+            NnueNetwork network = NnueNetwork.load(Paths.get(path));
+            search.setEvaluator(new NnueEvaluator(network));
+            send("info string network " + path + " with " + network.getHiddenSize() + " hidden values");
+        } catch(IOException e){
+            send("info string cannot open network: " + e.getMessage());
+        }
+    }
+
+    private void openTablebases(String path){
+        TablebaseProber previous = search.getTablebases();
+        search.setTablebases(null);
+        if(previous != null){
+            try {
+                previous.close();
+            } catch(IOException e){
+                send("info string cannot close tablebases: " + e.getMessage());
+            }
+        }
+        if(!path.isEmpty() && !path.equals("<empty>")){
+            TablebaseProber tablebases = TablebaseProber.openDirectory(Paths.get(path));
+            if(tablebases.isEmpty()){
+                send("info string no tablebases found in " + path);
+            }else{
+                search.setTablebases(tablebases);
+                send("info string tablebases " + tablebases.getMaterials());
+            }
+        }
+    }
+
+    /**
+     * "position startpos moves e2e4 e7e5" or "position fen <fen> moves ...".
+     */
+    private void handlePosition(String[] tokens){
+        if(tokens.length < 2){
+            return;
+        }
+        int movesIndex = indexOf(tokens, "moves");
+        int fenEnd = movesIndex < 0 ? tokens.length : movesIndex;
+
+        String fen;
+        if(tokens[1].equals("startpos")){
+            fen = FENParser.START_FEN;
+        }else if(tokens[1].equals("fen")){
+            fen = String.join(" ", Arrays.copyOfRange(tokens, 2, fenEnd));
+        }else{
+            return;
+        }
+        List<String> moves = movesIndex < 0
+                ? List.of()
+                : Arrays.asList(tokens).subList(movesIndex + 1, tokens.length);
+
+        // Only replay from the start when this isn't a continuation of the current game
+        boolean isContinuation = fen.equals(baseFen)
+                && moves.size() >= appliedMoves.size()
+                && moves.subList(0, appliedMoves.size()).equals(appliedMoves);
+        if(!isContinuation){
+            GameState start;
+            try {
+                start = fenParser.parse(fen);
+            } catch(IllegalArgumentException e){
+                send("info string invalid fen: " + e.getMessage());
+                return;
+            }
+            baseFen = fen;
+            position = start;
+            appliedMoves.clear();
+            historyKeys.clear();
+        }
+
+        for(String uci : moves.subList(appliedMoves.size(), moves.size())){
+            int code = MoveCodes.fromUci(uci);
+            Move move = code == MoveCodes.NONE ? null : MoveCodes.decode(position, ruleEngine, code);
+            if(move == null){
+                send("info string illegal move: " + uci);
+                return;
+            }
+            historyKeys.add(Zobrist.hash(position));
+            position.makeMove(move);
+            appliedMoves.add(uci);
+        }
+    }
+
+    /**
+     * "go depth 8", "go movetime 1000", "go wtime 60000 btime 60000 winc 1000 binc 1000", "go infinite"...
+     */
+    private void handleGo(String[] tokens){
+        SearchLimits limits = new SearchLimits();
+        try {
+            for(int i = 1; i < tokens.length; i++){
+                switch(tokens[i]){
+                    case "depth": limits.setDepth(Integer.parseInt(tokens[++i])); break;
+                    case "nodes": limits.setNodes(Long.parseLong(tokens[++i])); break;
+                    case "movetime": limits.setMoveTimeMs(Long.parseLong(tokens[++i])); break;
+                    case "wtime": limits.setWhiteTimeMs(Long.parseLong(tokens[++i])); break;
+                    case "btime": limits.setBlackTimeMs(Long.parseLong(tokens[++i])); break;
+                    case "winc": limits.setWhiteIncrementMs(Long.parseLong(tokens[++i])); break;
+                    case "binc": limits.setBlackIncrementMs(Long.parseLong(tokens[++i])); break;
+                    case "movestogo": limits.setMovesToGo(Integer.parseInt(tokens[++i])); break;
+                    case "infinite": limits.setInfinite(true); break;
+                    default: break;
+                }
+            }
+        } catch(NumberFormatException | ArrayIndexOutOfBoundsException e){
+            send("info string invalid go command");
+            return;
+        }
+
+        // A book move is played at once (an infinite search is analysis, not play)
+        if(useBook && book != null && !limits.isInfinite()){
+            int bookMove = book.pickMove(position, bookRandom);
+            if(bookMove != MoveCodes.NONE){
+                send("info string book move");
+                send("bestmove " + MoveCodes.toUci(bookMove));
+                return;
+            }
+        }
+
+        // The search gets its own copies, this thread keeps parsing input
+        GameState root = new GameState(position);
+        List<Long> history = List.copyOf(historyKeys);
+        CountDownLatch signal = new CountDownLatch(limits.isInfinite() ? 1 : 0);
+        stopSignal = signal;
+
+        searchTask = searchExecutor.submit(() -> {
+            SearchResult result = search.search(root, history, limits, new InfoPrinter());
+            // An infinite search answers only after "stop", even if it has nothing left to search
+            try {
+                signal.await();
+            } catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+            sendBestMove(result);
+        });
+    }
+
+    private void handleBench(String[] tokens){
+        int depth = Bench.DEFAULT_DEPTH;
+        if(tokens.length > 1){
+            try {
+                depth = Math.clamp(Integer.parseInt(tokens[1]), 1, Search.MAX_PLY - 1);
+            } catch(NumberFormatException e){
+                send("info string invalid depth: " + tokens[1]);
+                return;
+            }
+        }
+        Bench.run(search, depth, out);
+    }
+
+    /**
+     * Stops a running search and waits for its "bestmove".
+     *
+     * The stop is repeated until the task is done: a search that had not begun yet
+     * when the first stop() came would otherwise clear it and run on.
+     */
+    private void stopSearch(){
+        if(searchTask == null){
+            return;
+        }
+        stopSignal.countDown();
+        try {
+            while(true){
+                search.stop();
+                try {
+                    searchTask.get(10, TimeUnit.MILLISECONDS);
+                    break;
+                } catch(TimeoutException e){
+                    // Not finished yet, stop again
+                }
+            }
+        } catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        } catch(ExecutionException e){
+            send("info string search failed: " + e.getCause());
+        }
+        searchTask = null;
+    }
+
+    private void sendBestMove(SearchResult result){
+        if(result.bestMove() == MoveCodes.NONE){
+            send("bestmove 0000");
+        }else if(result.ponderMove() != MoveCodes.NONE){
+            send("bestmove " + MoveCodes.toUci(result.bestMove()) + " ponder " + MoveCodes.toUci(result.ponderMove()));
+        }else{
+            send("bestmove " + MoveCodes.toUci(result.bestMove()));
+        }
+    }
+
+    /**
+     * Streams the search progress as "info" lines.
+     */
+    private class InfoPrinter implements SearchListener{
+        @Override
+        public void onIteration(SearchInfo info){
+            String score = info.isMateScore() ? "mate " + info.mateIn() : "cp " + info.score();
+            send("info depth " + info.depth() + " seldepth " + info.selDepth() + " multipv " + info.multiPv() + " score " + score
+                    + " nodes " + info.nodes() + " nps " + info.nps() + " time " + info.timeMs()
+                    + " hashfull " + info.hashfull() + " pv " + info.pvString());
+        }
+
+        @Override
+        public void onProgress(long nodes, long timeMs){
+            long nps = timeMs > 0 ? nodes * 1000 / timeMs : nodes;
+            send("info nodes " + nodes + " nps " + nps + " time " + timeMs);
+        }
+    }
+
+    // Both the input and the search thread write
+    private synchronized void send(String line){
+        out.println(line);
+    }
+
+    private static int indexOf(String[] tokens, String token){
+        for(int i = 0; i < tokens.length; i++){
+            if(tokens[i].equals(token)){
+                return i;
+            }
+        }
+        return -1;
+    }
+}
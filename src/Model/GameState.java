@@ -16,6 +16,12 @@ public class GameState{
     // State for RuleEngine
     private CastlingRights castlingRights;
     private Position enPassantTargetSquare; // The square a pawn can *move to*
+    private int halfMoveClock; // Plies since the last capture or pawn move (fifty-move rule)
+
+    // What undoMove() can't work out from the Move itself: the state before each move.
+    // They belong to the last undoRecords.size() moves of the history (not saved: a loaded game starts with none).
+    private record UndoRecord(CastlingRights castlingRights, Position enPassantTargetSquare, int halfMoveClock){}
+    private transient List<UndoRecord> undoRecords = new ArrayList<>();
 
     /**
      * Default constructor for a new game.
@@ -40,6 +46,25 @@ public class GameState{
         this.isWhiteTurn = isWhiteTurn;
     }
 
+    /**
+     * Copy constructor for background work (move hints, analysis).
+     * The board and castling rights are copied, so the copy can be read on another
+     * thread while the original keeps changing on the EDT.
+     */
+    public GameState(GameState other){
+        this.board = other.board.deepCopy();
+        this.whitePlayer = other.whitePlayer;
+        this.blackPlayer = other.blackPlayer;
+        this.isWhiteTurn = other.isWhiteTurn;
+        this.moveHistory = new ArrayList<>(other.moveHistory);
+        this.canWhiteOfferDraw = other.canWhiteOfferDraw;
+        this.canBlackOfferDraw = other.canBlackOfferDraw;
+
+        this.castlingRights = new CastlingRights(other.castlingRights);
+        this.enPassantTargetSquare = other.enPassantTargetSquare;
+        this.halfMoveClock = other.halfMoveClock;
+    }
+
     // Getters
     public Board getBoard(){ return board; }
     public boolean isWhiteTurn(){ return isWhiteTurn; }
@@ -48,6 +73,13 @@ public class GameState{
     public Position getEnPassantTargetSquare(){ return enPassantTargetSquare; }
     public Player getWhitePlayer(){ return whitePlayer; }
     public Player getBlackPlayer(){ return blackPlayer; }
+    public int getHalfMoveClock(){ return halfMoveClock; }
+
+    // Setters for positions set up from FEN
+    public void setWhiteTurn(boolean isWhiteTurn){ this.isWhiteTurn = isWhiteTurn; }
+    public void setCastlingRights(CastlingRights castlingRights){ this.castlingRights = castlingRights; }
+    public void setEnPassantTargetSquare(Position square){ this.enPassantTargetSquare = square; }
+    public void setHalfMoveClock(int halfMoveClock){ this.halfMoveClock = halfMoveClock; }
 
     public void setPlayers(Player white, Player black){
         this.whitePlayer = white;
@@ -61,6 +93,12 @@ public class GameState{
         Piece pieceMoved = move.getPieceMoved();
         Position from = move.getFrom();
 
+        // 0. Remember what the move is going to overwrite, for undoMove()
+        if(undoRecords == null){
+            undoRecords = new ArrayList<>();
+        }
+        undoRecords.add(new UndoRecord(new CastlingRights(castlingRights), enPassantTargetSquare, halfMoveClock));
+
         // 1. Clear previous en passant square *before* the move
         this.enPassantTargetSquare = null;
 
@@ -81,6 +119,12 @@ public class GameState{
             if(from.equals(new Position(0, 0))) castlingRights.blackCastleQueenSide = false;
             if(from.equals(new Position(0, 7))) castlingRights.blackCastleKingSide = false;
         }
+        // A rook captured on its corner can't castle either
+        Position to = move.getTo();
+        if(to.equals(new Position(7, 0))) castlingRights.whiteCastleQueenSide = false;
+        if(to.equals(new Position(7, 7))) castlingRights.whiteCastleKingSide = false;
+        if(to.equals(new Position(0, 0))) castlingRights.blackCastleQueenSide = false;
+        if(to.equals(new Position(0, 7))) castlingRights.blackCastleKingSide = false;
 
         // 3. Apply the move to the board
         board.applyMove(move); // This now handles castling/en passant logic
@@ -94,7 +138,14 @@ public class GameState{
             }
         }
 
-        // 5. Update history and turn
+        // 5. Fifty-move rule counter
+        if(pieceMoved.getType() == PieceType.PAWN || move.getPieceCaptured() != null){
+            halfMoveClock = 0;
+        }else{
+            halfMoveClock++;
+        }
+
+        // 6. Update history and turn
         moveHistory.add(move);
         isWhiteTurn = !isWhiteTurn;
 
@@ -106,6 +157,35 @@ public class GameState{
         }
     }
 
+    /**
+     * Can the last move be taken back with undoMove()?
+     * Not for the moves of a loaded game, whose undo records weren't saved.
+     */
+    public boolean canUndo(){
+        return undoRecords != null && !undoRecords.isEmpty();
+    }
+
+    /**
+     * Takes back the last move, restoring the exact state before it.
+     *
+     * @return The move taken back.
+     * @throws IllegalStateException if canUndo() is false.
+     */
+    public Move undoMove(){
+        if(!canUndo()){
+            throw new IllegalStateException("No move to take back");
+        }
+        Move move = moveHistory.remove(moveHistory.size() - 1);
+        UndoRecord record = undoRecords.remove(undoRecords.size() - 1);
+
+        board.undoMove(move);
+        castlingRights = record.castlingRights();
+        enPassantTargetSquare = record.enPassantTargetSquare();
+        halfMoveClock = record.halfMoveClock();
+        isWhiteTurn = !isWhiteTurn;
+        return move;
+    }
+
     // Draw-offer logic (unchanged)
     public boolean canCurrentPlayerOfferDraw(){
         return isWhiteTurn ? canWhiteOfferDraw : canBlackOfferDraw;
@@ -0,0 +1,493 @@
+package Model;
+
+import java.util.*;
+
+/**
+ * A game with all its variations, for analysis.
+ *
+ * The nodes are stored in parallel primitive arrays instead of node objects, so a tree
+ * of 100k moves takes a few megabytes and is walked without chasing pointers.
+ * Node 0 is the root (the starting position, no move); every other node is one move.
+ * A node's first child is the main continuation, its other children (linked through
+ * nextSibling) are the variations, in order.
+ *
+ * Deleted nodes are only unlinked; compact() reclaims their slots.
+ */
+public class GameTree{
+    public static final int ROOT = 0;
+    public static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private short[] moveCodes;
+    private int[] parents;
+    private int[] firstChildren;
+    private int[] nextSiblings;
+    private int[] comments;     // Index into commentTexts of the comment after the move, or NONE
+    private int[] preComments;  // Comment before the move (e.g. at the start of a variation), or NONE
+    private int[] nags;         // Up to four Numeric Annotation Glyphs (e.g. $1 = "!"), one per byte
+    private int size;
+
+    private final List<String> commentTexts = new ArrayList<>();
+    private final Map<String, String> tags = new LinkedHashMap<>();
+    private String result = "*";
+
+    public GameTree(){
+        moveCodes = new short[INITIAL_CAPACITY];
+        parents = new int[INITIAL_CAPACITY];
+        firstChildren = new int[INITIAL_CAPACITY];
+        nextSiblings = new int[INITIAL_CAPACITY];
+        comments = new int[INITIAL_CAPACITY];
+        preComments = new int[INITIAL_CAPACITY];
+        nags = new int[INITIAL_CAPACITY];
+        newNode(NONE, MoveCodes.NONE); // The root
+    }
+
+    // --- Structure ---
+
+    public int size(){ return size; }
+    public int getMoveCode(int node){ return moveCodes[node] & 0xFFFF; }
+    public int getParent(int node){ return parents[node]; }
+    public int getFirstChild(int node){ return firstChildren[node]; }
+    public int getNextSibling(int node){ return nextSiblings[node]; }
+
+    public int getChildCount(int node){
+        int count = 0;
+        for(int child = firstChildren[node]; child != NONE; child = nextSiblings[child]){
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return The child of the node with this move, or NONE.
+     */
+    public int findChild(int node, int moveCode){
+        for(int child = firstChildren[node]; child != NONE; child = nextSiblings[child]){
+            if(getMoveCode(child) == moveCode){
+                return child;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Adds a move after the node: as the main continuation if it has none,
+     * otherwise as its last variation. An existing child with the same move is reused.
+     *
+     * @return The node of the move.
+     */
+    public int addMove(int parent, int moveCode){
+        int existing = findChild(parent, moveCode);
+        if(existing != NONE){
+            return existing;
+        }
+        int node = newNode(parent, moveCode);
+        if(firstChildren[parent] == NONE){
+            firstChildren[parent] = node;
+        }else{
+            int last = firstChildren[parent];
+            while(nextSiblings[last] != NONE){
+                last = nextSiblings[last];
+            }
+            nextSiblings[last] = node;
+        }
+        return node;
+    }
+
+    /**
+     * The moves from the root to the node.
+     */
+    public int[] pathTo(int node){
+        int depth = depthOf(node);
+        int[] path = new int[depth];
+        for(int n = node; n != ROOT; n = parents[n]){
+            path[--depth] = n;
+        }
+        return path;
+    }
+
+    public int depthOf(int node){
+        int depth = 0;
+        for(int n = node; n != ROOT; n = parents[n]){
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * The nodes of the main line, following the first children from the root.
+     */
+    public int[] mainLine(){
+        int count = 0;
+        for(int n = firstChildren[ROOT]; n != NONE; n = firstChildren[n]){
+            count++;
+        }
+        int[] line = new int[count];
+        int i = 0;
+        for(int n = firstChildren[ROOT]; n != NONE; n = firstChildren[n]){
+            line[i++] = n;
+        }
+        return line;
+    }
+
+    public boolean isMainLine(int node){
+        for(int n = node; n != ROOT; n = parents[n]){
+            if(firstChildren[parents[n]] != n){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // --- Editing ---
+
+    /**
+     * Moves the variation holding the node one place up among its siblings
+     * (a first variation becomes the main continuation).
+     *
+     * @return false if the node is already on the main line.
+     */
+    public boolean promoteVariation(int node){
+        int branch = branchStartOf(node);
+        if(branch == NONE){
+            return false;
+        }
+        int parent = parents[branch];
+
+        // Find the sibling before the branch, and the one before that
+        int beforePrevious = NONE;
+        int previous = firstChildren[parent];
+        while(nextSiblings[previous] != branch){
+            beforePrevious = previous;
+            previous = nextSiblings[previous];
+        }
+
+        // Swap the branch with its previous sibling
+        nextSiblings[previous] = nextSiblings[branch];
+        nextSiblings[branch] = previous;
+        if(beforePrevious == NONE){
+            firstChildren[parent] = branch;
+        }else{
+            nextSiblings[beforePrevious] = branch;
+        }
+        return true;
+    }
+
+    /**
+     * Promotes the node's line until it is the main line.
+     */
+    public void makeMainLine(int node){
+        while(promoteVariation(node)){
+            // One step at a time
+        }
+    }
+
+    /**
+     * Removes the node and everything after it (the node's variation, if it starts it).
+     * Deleting the root clears the whole game.
+     */
+    public void delete(int node){
+        if(node == ROOT){
+            firstChildren[ROOT] = NONE;
+            return;
+        }
+        int parent = parents[node];
+        if(firstChildren[parent] == node){
+            firstChildren[parent] = nextSiblings[node];
+        }else{
+            int previous = firstChildren[parent];
+            while(nextSiblings[previous] != node){
+                previous = nextSiblings[previous];
+            }
+            nextSiblings[previous] = nextSiblings[node];
+        }
+        nextSiblings[node] = NONE;
+        parents[node] = NONE;
+    }
+
+    /**
+     * Drops the slots of deleted nodes, renumbering the rest in depth-first order.
+     *
+     * @return The new index of every old node (NONE for deleted ones).
+     */
+    public int[] compact(){
+        int[] newIndex = new int[size];
+        Arrays.fill(newIndex, NONE);
+        int[] order = depthFirstOrder();
+        for(int i = 0; i < order.length; i++){
+            newIndex[order[i]] = i;
+        }
+
+        short[] newMoves = new short[Math.max(order.length, INITIAL_CAPACITY)];
+        int[] newParents = new int[newMoves.length];
+        int[] newFirstChildren = new int[newMoves.length];
+        int[] newNextSiblings = new int[newMoves.length];
+        int[] newComments = new int[newMoves.length];
+        int[] newPreComments = new int[newMoves.length];
+        int[] newNags = new int[newMoves.length];
+        List<String> newCommentTexts = new ArrayList<>();
+
+        for(int i = 0; i < order.length; i++){
+            int old = order[i];
+            newMoves[i] = moveCodes[old];
+            newParents[i] = parents[old] == NONE ? NONE : newIndex[parents[old]];
+            newFirstChildren[i] = firstChildren[old] == NONE ? NONE : newIndex[firstChildren[old]];
+            newNextSiblings[i] = nextSiblings[old] == NONE ? NONE : newIndex[nextSiblings[old]];
+            newComments[i] = copyComment(comments[old], newCommentTexts);
+            newPreComments[i] = copyComment(preComments[old], newCommentTexts);
+            newNags[i] = nags[old];
+        }
+
+        moveCodes = newMoves;
+        parents = newParents;
+        firstChildren = newFirstChildren;
+        nextSiblings = newNextSiblings;
+        comments = newComments;
+        preComments = newPreComments;
+        nags = newNags;
+        size = order.length;
+        commentTexts.clear();
+        commentTexts.addAll(newCommentTexts);
+        return newIndex;
+    }
+
+    /**
+     * Every node reachable from the root, in depth-first (PGN) order, without recursion.
+     */
+    public int[] depthFirstOrder(){
+        int[] order = new int[size];
+        int count = 0;
+        int[] stack = new int[size];
+        int top = 0;
+        stack[top++] = ROOT;
+        while(top > 0){
+            int node = stack[--top];
+            order[count++] = node;
+            // Push the children in reverse, so the first child is visited first
+            int childCount = 0;
+            for(int child = firstChildren[node]; child != NONE; child = nextSiblings[child]){
+                stack[top++] = child;
+                childCount++;
+            }
+            for(int i = top - childCount, j = top - 1; i < j; i++, j--){
+                int swap = stack[i];
+                stack[i] = stack[j];
+                stack[j] = swap;
+            }
+        }
+        return Arrays.copyOf(order, count);
+    }
+
+    // --- Annotations ---
+
+    public String getComment(int node){
+        return comments[node] == NONE ? null : commentTexts.get(comments[node]);
+    }
+
+    public void setComment(int node, String comment){
+        comments[node] = storeComment(comments[node], comment);
+    }
+
+    public String getPreComment(int node){
+        return preComments[node] == NONE ? null : commentTexts.get(preComments[node]);
+    }
+
+    public void setPreComment(int node, String comment){
+        preComments[node] = storeComment(preComments[node], comment);
+    }
+
+    /**
+     * @return The node's NAGs (e.g. 1 for "!", 4 for "??"), in order.
+     */
+    public int[] getNags(int node){
+        int packed = nags[node];
+        int count = 0;
+        while(count < 4 && ((packed >>> (8 * count)) & 0xFF) != 0){
+            count++;
+        }
+        int[] result = new int[count];
+        for(int i = 0; i < count; i++){
+            result[i] = (packed >>> (8 * i)) & 0xFF;
+        }
+        return result;
+    }
+
+    /**
+     * Adds a NAG (1-255) to the node. A node holds at most four, further ones are ignored.
+     */
+    public void addNag(int node, int nag){
+        if(nag < 1 || nag > 255){
+            throw new IllegalArgumentException("Invalid NAG: " + nag);
+        }
+        for(int i = 0; i < 4; i++){
+            if(((nags[node] >>> (8 * i)) & 0xFF) == 0){
+                nags[node] |= nag << (8 * i);
+                return;
+            }
+        }
+    }
+
+    // --- Game data ---
+
+    /**
+     * The PGN tag pairs, in their original order.
+     */
+    public Map<String, String> getTags(){ return tags; }
+
+    public String getResult(){ return result; }
+    public void setResult(String result){ this.result = result; }
+
+    // --- Navigation ---
+
+    /**
+     * A cursor starting at the root, on the given starting position.
+     * Moving it plays and takes back the moves on its own GameState.
+     */
+    public Cursor cursor(GameState start){
+        return new Cursor(start);
+    }
+
+    /**
+     * A position in the tree together with the GameState at it.
+     * Going forward plays one move, going back takes one back (GameState.undoMove),
+     * so walking the tree never replays from the start.
+     */
+    public class Cursor{
+        private final RuleEngine ruleEngine = new RuleEngine();
+        private final GameState state;
+        private int node = ROOT;
+
+        private Cursor(GameState start){
+            this.state = start;
+        }
+
+        public int getNode(){ return node; }
+
+        /**
+         * The position at the cursor. Owned by the cursor: copy it to keep it.
+         */
+        public GameState getState(){ return state; }
+
+        /**
+         * Plays the move on the board, adding it to the tree if it's new.
+         *
+         * @return false (and nothing changes) if the move is illegal here.
+         */
+        public boolean play(int moveCode){
+            Move move = MoveCodes.decode(state, ruleEngine, moveCode);
+            if(move == null){
+                return false;
+            }
+            state.makeMove(move);
+            node = addMove(node, moveCode);
+            return true;
+        }
+
+        public boolean forward(){
+            return firstChildren[node] != NONE && toChild(firstChildren[node]);
+        }
+
+        public boolean back(){
+            if(node == ROOT){
+                return false;
+            }
+            state.undoMove();
+            node = parents[node];
+            return true;
+        }
+
+        /**
+         * Moves to the next variation of the current move (the next sibling).
+         */
+        public boolean nextVariation(){
+            int sibling = nextSiblings[node];
+            return sibling != NONE && back() && toChild(sibling);
+        }
+
+        /**
+         * Moves to any node, through the nearest common ancestor.
+         */
+        public void moveTo(int target){
+            int[] path = pathTo(target);
+            // Back up until the cursor is on the target's path
+            int depth = depthOf(node);
+            while(depth > path.length || (depth > 0 && path[depth - 1] != node)){
+                back();
+                depth--;
+            }
+            for(int i = depth; i < path.length; i++){
+                if(!toChild(path[i])){
+                    throw new IllegalStateException("Illegal move in the tree at node " + path[i]);
+                }
+            }
+        }
+
+        private boolean toChild(int child){
+            Move move = MoveCodes.decode(state, ruleEngine, getMoveCode(child));
+            if(move == null){
+                return false;
+            }
+            state.makeMove(move);
+            node = child;
+            return true;
+        }
+    }
+
+    // --- Storage ---
+
+    private int newNode(int parent, int moveCode){
+        if(size == moveCodes.length){
+            int capacity = size * 2;
+            moveCodes = Arrays.copyOf(moveCodes, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            comments = Arrays.copyOf(comments, capacity);
+            preComments = Arrays.copyOf(preComments, capacity);
+            nags = Arrays.copyOf(nags, capacity);
+        }
+        int node = size++;
+        moveCodes[node] = (short) moveCode;
+        parents[node] = parent;
+        firstChildren[node] = NONE;
+        nextSiblings[node] = NONE;
+        comments[node] = NONE;
+        preComments[node] = NONE;
+        nags[node] = 0;
+        return node;
+    }
+
+    /**
+     * The first node of the variation holding this node, or NONE if it is on the main line.
+     * (The nearest ancestor-or-self that isn't its parent's first child.)
+     */
+    private int branchStartOf(int node){
+        for(int n = node; n != ROOT; n = parents[n]){
+            if(firstChildren[parents[n]] != n){
+                return n;
+            }
+        }
+        return NONE;
+    }
+
+    private int storeComment(int index, String comment){
+        if(comment == null || comment.isEmpty()){
+            return NONE;
+        }
+        if(index != NONE){
+            commentTexts.set(index, comment);
+            return index;
+        }
+        commentTexts.add(comment);
+        return commentTexts.size() - 1;
+    }
+
+    private int copyComment(int index, List<String> target){
+        if(index == NONE){
+            return NONE;
+        }
+        target.add(commentTexts.get(index));
+        return target.size() - 1;
+    }
+}
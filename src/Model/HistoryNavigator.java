@@ -0,0 +1,139 @@
+package Model;
+
+import Model.Pieces.*;
+
+import java.util.*;
+
+/**
+ * Random access to every position of a game, for takeback, review and the move log.
+ *
+ * A checkpoint (a copy of the board grid plus the state makeMove() can't recompute) is kept
+ * every `interval` plies. The position after any ply is the nearest checkpoint before it plus
+ * at most interval - 1 moves of the history, replayed without validation: they are known to be legal.
+ */
+public class HistoryNavigator{
+    public static final int DEFAULT_INTERVAL = 16;
+
+    private record Checkpoint(Board board, boolean isWhiteTurn, CastlingRights castlingRights,
+                              Position enPassantTargetSquare, int halfMoveClock){}
+
+    private final int interval;
+    // Checkpoint i is the position after ply i * interval
+    private final List<Checkpoint> checkpoints = new ArrayList<>();
+    private final List<Move> moves = new ArrayList<>();
+    private Player whitePlayer;
+    private Player blackPlayer;
+
+    public HistoryNavigator(){
+        this(DEFAULT_INTERVAL);
+    }
+
+    public HistoryNavigator(int interval){
+        this.interval = interval;
+    }
+
+    /**
+     * Starts over with the given game (a new, loaded or imported one).
+     *
+     * The starting position is found by taking back every move on a copy of the board.
+     * Its castling rights are assumed from the kings and rooks on their home squares.
+     */
+    public void reset(GameState game){
+        List<Move> history = game.getMoveHistory();
+        moves.clear();
+        checkpoints.clear();
+        whitePlayer = game.getWhitePlayer();
+        blackPlayer = game.getBlackPlayer();
+
+        Board startBoard = new Board(game.getBoard());
+        for(int i = history.size() - 1; i >= 0; i--){
+            startBoard.undoMove(history.get(i));
+        }
+        boolean isWhiteToStart = game.isWhiteTurn() == (history.size() % 2 == 0);
+
+        GameState replay = new GameState(startBoard, isWhiteToStart);
+        replay.setCastlingRights(castlingRightsOf(startBoard));
+        checkpoints.add(checkpointOf(replay));
+        for(Move move : history){
+            replay.makeMove(move);
+            moves.add(move);
+            if(moves.size() % interval == 0){
+                checkpoints.add(checkpointOf(replay));
+            }
+        }
+    }
+
+    /**
+     * Records the move just played in the game. O(1), plus a board copy every interval plies.
+     */
+    public void push(GameState gameAfterMove){
+        List<Move> history = gameAfterMove.getMoveHistory();
+        moves.add(history.get(history.size() - 1));
+        if(moves.size() % interval == 0){
+            checkpoints.add(checkpointOf(gameAfterMove));
+        }
+    }
+
+    /**
+     * Forgets the moves after the given ply (after a takeback).
+     */
+    public void truncate(int ply){
+        if(ply < moves.size()){
+            moves.subList(ply, moves.size()).clear();
+            checkpoints.subList(ply / interval + 1, checkpoints.size()).clear();
+        }
+    }
+
+    /**
+     * @return The number of plies of the game.
+     */
+    public int size(){
+        return moves.size();
+    }
+
+    /**
+     * Rebuilds the game as it was after the given ply, applying at most interval - 1 moves.
+     *
+     * @param ply 0 for the starting position, up to size().
+     * @return A new GameState, with the history up to that ply.
+     */
+    public GameState positionAt(int ply){
+        if(ply < 0 || ply > moves.size()){
+            throw new IndexOutOfBoundsException("Ply " + ply + " of " + moves.size());
+        }
+        int checkpointPly = (ply / interval) * interval;
+        Checkpoint checkpoint = checkpoints.get(ply / interval);
+
+        GameState state = new GameState(new Board(checkpoint.board()), checkpoint.isWhiteTurn());
+        state.setPlayers(whitePlayer, blackPlayer);
+        state.setCastlingRights(new CastlingRights(checkpoint.castlingRights()));
+        state.setEnPassantTargetSquare(checkpoint.enPassantTargetSquare());
+        state.setHalfMoveClock(checkpoint.halfMoveClock());
+        state.getMoveHistory().addAll(moves.subList(0, checkpointPly));
+
+        for(int i = checkpointPly; i < ply; i++){
+            state.makeMove(moves.get(i));
+        }
+        return state;
+    }
+
+    private static Checkpoint checkpointOf(GameState state){
+        return new Checkpoint(new Board(state.getBoard()), state.isWhiteTurn(),
+                new CastlingRights(state.getCastlingRights()), state.getEnPassantTargetSquare(), state.getHalfMoveClock());
+    }
+
+    private static CastlingRights castlingRightsOf(Board board){
+        boolean whiteKing = isAt(board, 7, 4, PieceType.KING, true);
+        boolean blackKing = isAt(board, 0, 4, PieceType.KING, false);
+        return new CastlingRights(
+                whiteKing && isAt(board, 7, 7, PieceType.ROOK, true),
+                whiteKing && isAt(board, 7, 0, PieceType.ROOK, true),
+                blackKing && isAt(board, 0, 7, PieceType.ROOK, false),
+                blackKing && isAt(board, 0, 0, PieceType.ROOK, false));
+    }
+
+    private static boolean isAt(Board board, int row, int col, PieceType type, boolean isWhite){
+        Piece piece = board.getPieceAt(new Position(row, col));
+        return piece != null && piece.getType() == type && piece.isWhite() == isWhite;
+    }
+}
@@ -0,0 +1,67 @@
+package Model.IOs;
+
+import Model.*;
+import Model.Pieces.*;
+
+/**
+ * Writes a GameState as a FEN string, the counterpart of FENParser.
+ */
+public class FENFormatter{
+    private static final String PIECE_CHARS = "prnbqk"; // In PieceType order
+
+    public String format(GameState state){
+        StringBuilder sb = new StringBuilder(90);
+        Board board = state.getBoard();
+
+        // 1. Piece placement, rank 8 first
+        for(int row = 0; row < 8; row++){
+            int empty = 0;
+            for(int col = 0; col < 8; col++){
+                Piece piece = board.getPieceAt(new Position(row, col));
+                if(piece == null){
+                    empty++;
+                    continue;
+                }
+                if(empty > 0){
+                    sb.append(empty);
+                    empty = 0;
+                }
+                char ch = PIECE_CHARS.charAt(piece.getType().ordinal());
+                sb.append(piece.isWhite() ? Character.toUpperCase(ch) : ch);
+            }
+            if(empty > 0){
+                sb.append(empty);
+            }
+            if(row < 7){
+                sb.append('/');
+            }
+        }
+
+        // 2. Side to move
+        sb.append(state.isWhiteTurn() ? " w " : " b ");
+
+        // 3. Castling rights
+        CastlingRights rights = state.getCastlingRights();
+        int length = sb.length();
+        if(rights.canWhiteCastleKingSide()) sb.append('K');
+        if(rights.canWhiteCastleQueenSide()) sb.append('Q');
+        if(rights.canBlackCastleKingSide()) sb.append('k');
+        if(rights.canBlackCastleQueenSide()) sb.append('q');
+        if(sb.length() == length){
+            sb.append('-');
+        }
+
+        // 4. En passant target square
+        Position ep = state.getEnPassantTargetSquare();
+        if(ep == null){
+            sb.append(" -");
+        }else{
+            sb.append(' ').append((char) ('a' + ep.column())).append((char) ('8' - ep.row()));
+        }
+
+        // 5. Halfmove clock and fullmove number (counted from the start of the move history)
+        sb.append(' ').append(state.getHalfMoveClock());
+        sb.append(' ').append(1 + state.getMoveHistory().size() / 2);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package Model.IOs;
+
+import Model.*;
+import Model.Pieces.*;
+
+/**
+ * Sets up a GameState from a FEN (Forsyth-Edwards Notation) string,
+ * e.g. "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1".
+ *
+ * The six fields are: piece placement (from rank 8 down to rank 1),
+ * side to move, castling rights, en passant target square,
+ * halfmove clock and fullmove number. The last two are optional.
+ */
+public class FENParser{
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    /**
+     * @param fen The FEN string.
+     * @return A new GameState with an empty move history.
+     * @throws IllegalArgumentException if the FEN is malformed.
+     */
+    public GameState parse(String fen){
+        String[] fields = fen.trim().split("\\s+");
+        if(fields.length < 4){
+            throw new IllegalArgumentException("Invalid FEN (needs at least 4 fields): " + fen);
+        }
+
+        // 1. Piece placement, row 0 of the Board is rank 8, just like in FEN
+        Board board = new Board();
+        board.setupEmpty();
+        String[] ranks = fields[0].split("/");
+        if(ranks.length != 8){
+            throw new IllegalArgumentException("Invalid FEN (needs 8 ranks): " + fen);
+        }
+        for(int row = 0; row < 8; row++){
+            int col = 0;
+            for(char ch : ranks[row].toCharArray()){
+                if(Character.isDigit(ch)){
+                    col += ch - '0';
+                }else{
+                    if(col > 7){
+                        throw new IllegalArgumentException("Invalid FEN (rank too long): " + fen);
+                    }
+                    board.setPieceAt(new Position(row, col), createPiece(ch));
+                    col++;
+                }
+            }
+            if(col != 8){
+                throw new IllegalArgumentException("Invalid FEN (rank " + (8 - row) + " has " + col + " squares): " + fen);
+            }
+        }
+
+        // 2. Side to move
+        boolean isWhiteTurn;
+        switch(fields[1]){
+            case "w": isWhiteTurn = true; break;
+            case "b": isWhiteTurn = false; break;
+            default: throw new IllegalArgumentException("Invalid FEN (side to move): " + fen);
+        }
+        GameState state = new GameState(board, isWhiteTurn);
+
+        // 3. Castling rights
+        String castling = fields[2];
+        state.setCastlingRights(new CastlingRights(
+                castling.indexOf('K') >= 0, castling.indexOf('Q') >= 0,
+                castling.indexOf('k') >= 0, castling.indexOf('q') >= 0));
+
+        // 4. En passant target square
+        if(!fields[3].equals("-")){
+            state.setEnPassantTargetSquare(notationToPosition(fields[3]));
+        }
+
+        // 5. Halfmove clock (optional)
+        if(fields.length > 4){
+            state.setHalfMoveClock(Integer.parseInt(fields[4]));
+        }
+
+        return state;
+    }
+
+    private Piece createPiece(char ch){
+        boolean isWhite = Character.isUpperCase(ch);
+        switch(Character.toLowerCase(ch)){
+            case 'p': return new Pawn(isWhite);
+            case 'n': return new Knight(isWhite);
+            case 'b': return new Bishop(isWhite);
+            case 'r': return new Rook(isWhite);
+            case 'q': return new Queen(isWhite);
+            case 'k': return new King(isWhite);
+            default: throw new IllegalArgumentException("Invalid FEN piece: " + ch);
+        }
+    }
+
+    // Helper method
+    private Position notationToPosition(String notation){
+        if(notation.length() != 2){
+            throw new IllegalArgumentException("Invalid square: " + notation);
+        }
+        int col = notation.charAt(0) - 'a';
+        int row = '8' - notation.charAt(1);
+        Position pos = new Position(row, col);
+        if(!pos.isOnBoard()){
+            throw new IllegalArgumentException("Invalid square: " + notation);
+        }
+        return pos;
+    }
+}
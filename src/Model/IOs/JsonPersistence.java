@@ -6,6 +6,8 @@ import Model.Pieces.*;
 import com.google.gson.*;
 import java.io.*;
 import java.lang.reflect.Type;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 
 public class JsonPersistence{
@@ -50,14 +52,32 @@ public class JsonPersistence{
     /**
      * Serialises the entire GameState object to a JSON file.
      *
+     * The file is replaced atomically: the JSON is written and synced to a temporary
+     * file next to it, which is then renamed over the old one. A crash while saving
+     * leaves either the old or the new save, never half of one.
+     *
      * @param state The current GameState to save.
      * @param filePath The path to the file where the game will be saved.
      * @throws IOException if an error occurs during writing.
      */
     public void saveGame(GameState state, String filePath) throws IOException {
-        // Use try-with-resources to ensure the writer is closed automatically.
-        try(Writer writer = new FileWriter(filePath)){
-            gson.toJson(state, writer);
+        Path target = Paths.get(filePath).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            // Use try-with-resources to ensure the channel is closed automatically.
+            try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)){
+                Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+                gson.toJson(state, writer);
+                writer.flush();
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch(AtomicMoveNotSupportedException e){
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
         }
     }
 
@@ -71,8 +91,13 @@ public class JsonPersistence{
     public GameState loadGame(String filePath) throws IOException {
         // Use try-with-resources to ensure the reader is closed.
         try(Reader reader = Files.newBufferedReader(Paths.get(filePath))){
-            // Gson handles the reconstruction of the entire object graph.
-            return gson.fromJson(reader, GameState.class);
+            // Gson handles the reconstruction of the entire object graph,
+            // except for the board's evaluation terms, which aren't saved
+            GameState state = gson.fromJson(reader, GameState.class);
+            if(state != null && state.getBoard() != null){
+                state.getBoard().recomputeTerms();
+            }
+            return state;
         }
     }
 }
\ No newline at end of file
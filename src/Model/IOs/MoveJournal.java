@@ -0,0 +1,196 @@
+package Model.IOs;
+
+import Model.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.zip.*;
+
+/**
+ * Crash-safe autosave: a JSON snapshot plus an append-only journal of the moves played since.
+ *
+ * Saving a move appends one fixed-size record to "game.json.journal", which costs the same
+ * at ply 3 and at ply 300. Records are fsynced in batches (every syncEvery records, or when
+ * syncIntervalMs has passed since the last sync). Every compactEvery records the whole game
+ * is written to "game.json" (atomically, see JsonPersistence.saveGame) and the journal starts over.
+ *
+ * Loading replays the journal onto the snapshot. Records carry their ply, so ones already in
+ * the snapshot (a crash between the snapshot and the journal reset) are skipped, and a torn
+ * record at the end (a crash while appending) is detected by its checksum and dropped.
+ *
+ * The journal keeps its own copy of the game and plays the moves on it, so it must be used
+ * by one thread at a time, off the EDT.
+ */
+public class MoveJournal implements Closeable{
+    public static final int RECORD_BYTES = 8;
+    private static final int HEADER_BYTES = 8;
+    private static final int MAGIC = 0x434A4E4C; // "CJNL"
+    private static final int VERSION = 1;
+
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private final JsonPersistence jsonPersistence;
+    private final RuleEngine ruleEngine = new RuleEngine();
+    private final GameState state;
+
+    private final int syncEvery;
+    private final long syncIntervalMs;
+    private final int compactEvery;
+
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+    private FileChannel channel;
+    private int recordCount = 0;
+    private int unsyncedCount = 0;
+    private long lastSyncMillis;
+
+    /**
+     * @param snapshotPath The JSON save, the journal lives next to it.
+     * @param jsonPersistence Writes the snapshots.
+     * @param state The game to journal. The journal takes it over, pass a copy.
+     */
+    public MoveJournal(Path snapshotPath, JsonPersistence jsonPersistence, GameState state){
+        this(snapshotPath, jsonPersistence, state, 16, 1000, 128);
+    }
+
+    public MoveJournal(Path snapshotPath, JsonPersistence jsonPersistence, GameState state,
+                       int syncEvery, long syncIntervalMs, int compactEvery){
+        this.snapshotPath = snapshotPath;
+        this.journalPath = journalPathOf(snapshotPath);
+        this.jsonPersistence = jsonPersistence;
+        this.state = state;
+        this.syncEvery = syncEvery;
+        this.syncIntervalMs = syncIntervalMs;
+        this.compactEvery = compactEvery;
+    }
+
+    public static Path journalPathOf(Path snapshotPath){
+        return snapshotPath.resolveSibling(snapshotPath.getFileName() + ".journal");
+    }
+
+    /**
+     * Writes the starting snapshot and an empty journal.
+     */
+    public void open() throws IOException {
+        channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        compact();
+    }
+
+    /**
+     * Journals a move of the game.
+     *
+     * @param moveCode The move, see MoveCodes.
+     * @throws IOException if writing fails, or if the move isn't legal in the journaled game.
+     */
+    public void append(int moveCode) throws IOException {
+        Move move = MoveCodes.decode(state, ruleEngine, moveCode);
+        if(move == null){
+            throw new IOException("Move " + MoveCodes.toUci(moveCode) + " doesn't fit the journaled game");
+        }
+
+        encodeRecord(record, state.getMoveHistory().size(), moveCode);
+        while(record.hasRemaining()){
+            channel.write(record);
+        }
+        state.makeMove(move);
+        recordCount++;
+        unsyncedCount++;
+
+        if(recordCount >= compactEvery){
+            compact();
+        }else if(unsyncedCount >= syncEvery || System.currentTimeMillis() - lastSyncMillis >= syncIntervalMs){
+            sync();
+        }
+    }
+
+    /**
+     * Forces the appended records to the disk.
+     */
+    public void sync() throws IOException {
+        if(unsyncedCount > 0){
+            channel.force(false);
+            unsyncedCount = 0;
+        }
+        lastSyncMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Writes the whole game as the new snapshot and starts the journal over.
+     */
+    public void compact() throws IOException {
+        jsonPersistence.saveGame(state, snapshotPath.toString());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+        channel.truncate(0);
+        channel.position(0);
+        while(header.hasRemaining()){
+            channel.write(header);
+        }
+        channel.force(false);
+        recordCount = 0;
+        unsyncedCount = 0;
+        lastSyncMillis = System.currentTimeMillis();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(channel != null && channel.isOpen()){
+            sync();
+            channel.close();
+        }
+    }
+
+    /**
+     * Loads a game saved with a journal: the snapshot, plus the moves journaled after it.
+     * Without a journal file this is a plain JsonPersistence.loadGame().
+     */
+    public static GameState load(Path snapshotPath, JsonPersistence jsonPersistence) throws IOException {
+        GameState state = jsonPersistence.loadGame(snapshotPath.toString());
+        Path journalPath = journalPathOf(snapshotPath);
+        if(!Files.exists(journalPath)){
+            return state;
+        }
+
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(journalPath));
+        if(data.remaining() < HEADER_BYTES || data.getInt() != MAGIC || data.getInt() != VERSION){
+            return state; // Empty or not a journal: the snapshot is all there is
+        }
+
+        RuleEngine ruleEngine = new RuleEngine();
+        while(data.remaining() >= RECORD_BYTES){
+            int ply = data.getInt();
+            int moveCode = data.getShort() & 0xFFFF;
+            int checksum = data.getShort() & 0xFFFF;
+            if(checksum != checksumOf(ply, moveCode)){
+                break; // Torn write at the end
+            }
+            int played = state.getMoveHistory().size();
+            if(ply < played){
+                continue; // Already in the snapshot
+            }
+            if(ply > played){
+                break; // A gap, the rest can't be trusted
+            }
+            Move move = MoveCodes.decode(state, ruleEngine, moveCode);
+            if(move == null){
+                break;
+            }
+            state.makeMove(move);
+        }
+        return state;
+    }
+
+    // Record layout: ply (4), move code (2), checksum (2)
+    private static void encodeRecord(ByteBuffer buffer, int ply, int moveCode){
+        buffer.clear();
+        buffer.putInt(ply).putShort((short) moveCode).putShort((short) checksumOf(ply, moveCode));
+        buffer.flip();
+    }
+
+    private static int checksumOf(int ply, int moveCode){
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(6).putInt(ply).putShort((short) moveCode).flip());
+        return (int) crc.getValue() & 0xFFFF;
+    }
+}
@@ -18,18 +18,25 @@ import java.util.*;
  * (e.g., determining "Nbd2" vs. "Nfd2").
  */
 public class PGNFormatter{
-    // A local board used for re-simulating the game to check for ambiguities
-    private Board simulationBoard;
-
     // We need a RuleEngine to check moves for other pieces during simulation
-    private RuleEngine ambiguityEngine;
+    private final RuleEngine ambiguityEngine;
 
     public PGNFormatter(){
-        this.simulationBoard = new Board();
         // RuleEngine is initialised without arguments
         this.ambiguityEngine = new RuleEngine();
     }
 
+    /**
+     * Converts a single move into SAN (e.g. "Nbd2", "exd5", "O-O", "e8=Q#").
+     * Used by the move log, which computes every move's SAN only once.
+     *
+     * @param boardBeforeMove The board the move is played on (it is not modified).
+     * @param move The move (assumed to be tagged with check/mate etc.)
+     */
+    public String toSan(Board boardBeforeMove, Move move){
+        return generateSanForMove(boardBeforeMove, move);
+    }
+
     /**
      * Main public method to format a game.
      * @param state The GameState to format.
@@ -66,6 +73,100 @@ public class PGNFormatter{
         return sb.toString();
     }
 
+    /**
+     * Formats a game with its variations, comments and NAGs (see PGNParser.parseTree()).
+     * Parsing the output gives back the same tree.
+     *
+     * The main line is written in a loop and only variations recurse,
+     * so a long game doesn't need a deep stack.
+     */
+    public String formatTree(GameTree tree){
+        StringBuilder sb = new StringBuilder();
+
+        // 1. Tag pairs, as they were read
+        for(Map.Entry<String, String> tag : tree.getTags().entrySet()){
+            appendTag(sb, tag.getKey(), tag.getValue().replace("\\", "\\\\").replace("\"", "\\\""));
+        }
+        if(!tree.getTags().isEmpty()){
+            sb.append("\n");
+        }
+
+        // 2. The game comment, then the moves
+        GameState state = PGNParser.startStateOf(tree);
+        int plyOffset = state.isWhiteTurn() ? 0 : 1;
+        appendComment(sb, tree.getComment(GameTree.ROOT));
+        appendLine(sb, tree, state, GameTree.ROOT, plyOffset, false);
+
+        // 3. Result
+        sb.append(tree.getResult());
+        return sb.toString();
+    }
+
+    /**
+     * Appends the line after the parent node: its main continuation, with the variations
+     * of every move in parentheses. The state is given back unchanged.
+     */
+    private void appendLine(StringBuilder sb, GameTree tree, GameState state, int parent, int plyOffset, boolean needNumber){
+        int played = 0;
+        for(int node = tree.getFirstChild(parent); node != GameTree.NONE; node = tree.getFirstChild(node)){
+            Move move = appendTreeMove(sb, tree, state, node, plyOffset, needNumber);
+            needNumber = tree.getComment(node) != null;
+
+            // The alternatives to this move start from the same position
+            for(int variation = tree.getNextSibling(node); variation != GameTree.NONE; variation = tree.getNextSibling(variation)){
+                sb.append("(");
+                state.makeMove(appendTreeMove(sb, tree, state, variation, plyOffset, true));
+                appendLine(sb, tree, state, variation, plyOffset, tree.getComment(variation) != null);
+                state.undoMove();
+                sb.setLength(sb.length() - 1); // The space after the last move
+                sb.append(") ");
+                needNumber = true;
+            }
+
+            state.makeMove(move);
+            played++;
+        }
+        for(int i = 0; i < played; i++){
+            state.undoMove();
+        }
+    }
+
+    /**
+     * Appends one move of the tree with its number, NAGs and comments.
+     *
+     * @return The move, not yet played on the state.
+     */
+    private Move appendTreeMove(StringBuilder sb, GameTree tree, GameState state, int node, int plyOffset, boolean needNumber){
+        Move move = MoveCodes.decode(state, ambiguityEngine, tree.getMoveCode(node));
+        if(move == null){
+            throw new IllegalStateException("Illegal move in the tree: " + MoveCodes.toUci(tree.getMoveCode(node)));
+        }
+
+        String preComment = tree.getPreComment(node);
+        appendComment(sb, preComment);
+
+        int ply = state.getMoveHistory().size() + plyOffset;
+        if(state.isWhiteTurn()){
+            sb.append(ply / 2 + 1).append(". ");
+        }else if(needNumber || preComment != null){
+            sb.append(ply / 2 + 1).append("... ");
+        }
+
+        sb.append(generateSanForMove(state.getBoard(), move)).append(" ");
+        for(int nag : tree.getNags(node)){
+            sb.append("$").append(nag).append(" ");
+        }
+        appendComment(sb, tree.getComment(node));
+        return move;
+    }
+
+    private void appendComment(StringBuilder sb, String comment){
+        if(comment != null){
+            // A '}' would end the comment early
+            sb.append("{").append(comment.replace("}", ")")).append("} ");
+        }
+    }
+
     /**
      * Appends the PGN tag pairs (e.g., [White "Name"]).
      */
@@ -104,7 +205,8 @@ public class PGNFormatter{
      */
     private void appendMoveText(StringBuilder sb, GameState state){
         // We must re-simulate the game move by move to check for ambiguities
-        this.ambiguityEngine = new RuleEngine();
+        // A local board, starting from the initial position for every game
+        Board simulationBoard = new Board();
 
         int moveNumber = 1;
 
@@ -118,21 +220,22 @@ public class PGNFormatter{
             }
 
             // 2. Generate the Standard Algebraic Notation (SAN) for this move
-            String san = generateSanForMove(move);
+            String san = generateSanForMove(simulationBoard, move);
             sb.append(san).append(" ");
 
             // 3. Apply this move to our local simulation board
             // This is crucial for the *next* move's ambiguity check.
-            this.simulationBoard.applyMove(move);
+            simulationBoard.applyMove(move);
         }
     }
 
     /**
      * This is the core logic. Converts a Move object into a SAN string.
+     * @param board The board before the move.
      * @param move The Move object (assumed to be tagged with check/mate etc.)
      * @return A string like "Nf3", "exd5", "O-O", "e8=Q#"
      */
-    private String generateSanForMove(Move move){
+    private String generateSanForMove(Board board, Move move){
         Piece piece = move.getPieceMoved();
 
         //1. Handle Castling (Special Case)
@@ -151,7 +254,8 @@ public class PGNFormatter{
         san.append(pieceSymbol);
 
         //3. Handle Captures (e.g., "x")
-        boolean isCapture =(move.getPieceCaptured() != null);
+        // (the board is checked as well, as the move may not have been applied yet)
+        boolean isCapture =(move.getPieceCaptured() != null || board.isOccupied(move.getTo()) || move.isEnPassant());
 
         if(isCapture && piece.getType() == PieceType.PAWN){
             // Pawn captures include the departure file (e.g., "exd5")
@@ -162,7 +266,7 @@ public class PGNFormatter{
         // If it's not a pawn, we check if another identical piece
         // could have moved to the same square.
         if(piece.getType() != PieceType.PAWN){
-            String disambiguation = findDisambiguation(move);
+            String disambiguation = findDisambiguation(board, move);
             san.append(disambiguation);
         }
 
@@ -188,15 +292,22 @@ public class PGNFormatter{
     /**
      * Checks if another piece of the same type could have moved to the
      * same target square.
+     * @param board The board before the move.
      * @param move The move being made.
      * @return A disambiguation string (e.g., "b", "1", "b1") or "" if clear.
      */
-    private String findDisambiguation(Move move){
+    private String findDisambiguation(Board board, Move move){
         Piece movingPiece = move.getPieceMoved();
         Position target = move.getTo();
+        Position from = move.getFrom();
         boolean isWhite = movingPiece.isWhite();
 
-        Position ambiguitySource = null; // Position of the *other* piece in question
+        // A temporary GameState representing the current simulation step.
+        GameState tempState = null;
+
+        boolean isAmbiguous = false;
+        boolean sharesFile = false;
+        boolean sharesRank = false;
 
         // Iterate over the whole (simulation) board
         for(int r = 0; r < 8; r++){
@@ -204,56 +315,51 @@ public class PGNFormatter{
                 Position currentPos = new Position(r, c);
 
                 // Skip the piece that is actually moving
-                if(currentPos.equals(move.getFrom())) continue;
+                if(currentPos.equals(from)) continue;
 
-                Piece otherPiece = this.simulationBoard.getPieceAt(currentPos);
+                Piece otherPiece = board.getPieceAt(currentPos);
 
-                // Check if we can fund a piece of the same type and color
+                // Check if we can find a piece of the same type and color
                 if(otherPiece != null &&
                         otherPiece.isWhite() == isWhite &&
                         otherPiece.getType() == movingPiece.getType()){
                     // Found another piece of the same type and colour.
                     // Can it also LEGALLY move to the target square?
-
-                    // 1. Create a temporary GameState representing the current simulation step.
-                    //    we have added this constructor already.
-                    GameState tempState = new GameState(this.simulationBoard, isWhite);
-
-                    // 2. Ask the RuleEngine for valid moves for this 'otherPiece'.
-                    //    This checks for checks, pins, etc.
+                    // The RuleEngine checks for checks, pins, etc.
+                    if(tempState == null){
+                        tempState = new GameState(board, isWhite);
+                    }
                     Set<Position> legalMoves = ambiguityEngine.getValidMovesForPiece(tempState, currentPos);
 
                     if(legalMoves.contains(target)){
-                        // AMBIGUITY FOUND: Another piece can legally move to the same square.
-                        ambiguitySource = currentPos;
-                        break; // We found at least one ambiguity, that's enough to require disambiguation logic
+                        // AMBIGUITY FOUND: every such piece matters for choosing file and/or rank
+                        isAmbiguous = true;
+                        sharesFile |= (c == from.column());
+                        sharesRank |= (r == from.row());
                     }
                 }
             }
-            if(ambiguitySource != null){
-                break;
-            }
         }
 
-        if(ambiguitySource == null){
+        if(!isAmbiguous){
             return ""; // No ambiguity
         }
 
         //If ambiguity exists, resolve it
 
-        // 1. If files (columns) are different, use the file (e.g., "Nbd2")
-        if(move.getFrom().column() != ambiguitySource.column()){
-            return getFileChar(move.getFrom().column());
+        // 1. If the file identifies the piece, use the file (e.g., "Nbd2")
+        if(!sharesFile){
+            return getFileChar(from.column());
         }
 
-        // 2. If files are same, use the rank (row) (e.g., "R1e2")
-        if(move.getFrom().row() != ambiguitySource.row()){
-            return getRankChar(move.getFrom().row());
+        // 2. Otherwise, if the rank does, use the rank (e.g., "R1e2")
+        if(!sharesRank){
+            return getRankChar(from.row());
         }
 
-        // 3. If file AND rank are same (e.g., promoted pawns), use full coordinates (e.g. "Qe1e5")
+        // 3. If neither is enough alone (e.g., promoted pieces), use full coordinates (e.g. "Qe1e5")
         // This is rare but possible.
-        return positionToNotation(move.getFrom());
+        return positionToNotation(from);
     }
 
 
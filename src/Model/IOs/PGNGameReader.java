@@ -0,0 +1,111 @@
+package Model.IOs;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Reads the games of a multi-game PGN file (a database export) one at a time,
+ * without loading the whole file.
+ *
+ * Each call to next() moves to the following game. Its tag pairs are parsed in one pass
+ * (see PGNParser.readTags), its move text is kept as it is: parse it with PGNParser.parseTree()
+ * only for the games that need it.
+ */
+public class PGNGameReader implements Closeable{
+    private final BufferedReader reader;
+    private final Map<String, String> tags = new LinkedHashMap<>();
+    private final StringBuilder text = new StringBuilder();
+    private int moveTextStart;
+    private String pendingLine; // The first line of the next game, already read
+    private int gameCount = 0;
+
+    public PGNGameReader(Reader reader){
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 1 << 16);
+    }
+
+    public static PGNGameReader open(Path path) throws IOException {
+        return new PGNGameReader(Files.newBufferedReader(path));
+    }
+
+    /**
+     * Moves to the next game.
+     *
+     * @return false at the end of the file.
+     */
+    public boolean next() throws IOException {
+        tags.clear();
+        text.setLength(0);
+
+        String line = pendingLine != null ? pendingLine : reader.readLine();
+        pendingLine = null;
+        while(line != null && isSkipped(line)){
+            line = reader.readLine();
+        }
+        if(line == null){
+            return false;
+        }
+
+        // 1. The tag section
+        while(line != null && line.startsWith("[")){
+            try{
+                PGNParser.readTags(line, 0, tags);
+            }catch(IllegalArgumentException e){
+                // A malformed tag is dropped, the game is still read
+            }
+            text.append(line).append('\n');
+            line = reader.readLine();
+        }
+        while(line != null && isSkipped(line)){
+            line = reader.readLine();
+        }
+        text.append('\n');
+        moveTextStart = text.length();
+
+        // 2. The move text, up to the next game's tags
+        while(line != null && !line.startsWith("[")){
+            if(!line.startsWith("%")){
+                text.append(line).append('\n');
+            }
+            line = reader.readLine();
+        }
+        pendingLine = line;
+        gameCount++;
+        return true;
+    }
+
+    /**
+     * The tag pairs of the current game, in order. Reused for the next game: copy to keep them.
+     */
+    public Map<String, String> getTags(){
+        return tags;
+    }
+
+    public String getMoveText(){
+        return text.substring(moveTextStart);
+    }
+
+    /**
+     * The whole current game (tags and moves), as PGNParser.parseTree() takes it.
+     */
+    public String getGameText(){
+        return text.toString();
+    }
+
+    /**
+     * @return The number of games read so far.
+     */
+    public int getGameCount(){
+        return gameCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // Blank lines and "%" escape lines
+    private static boolean isSkipped(String line){
+        return line.isBlank() || line.startsWith("%");
+    }
+}
@@ -4,7 +4,7 @@ import Model.*;
 import Model.Pieces.*;
 
 import java.io.*;
-import java.util.regex.*;
+import java.util.*;
 import java.nio.file.*;
 
 /**
@@ -19,6 +19,13 @@ import java.nio.file.*;
  * that understands the current board state to interpret moves like "e4" or "Nf3".
  */
 public class PGNParser{
+    /**
+     * Receives the progress of a long import (number of tokens processed so far).
+     */
+    public interface ProgressListener{
+        void progress(int done, int total);
+    }
+
     /**
      * Exports the game to PGN format.
      * This method delegates the complex task of formatting (disambiguation, headers, etc.)
@@ -42,12 +49,25 @@ public class PGNParser{
     /**
      * Imports a PGN file.
      * This implementation is a basic parser that handles SAN moves (e.g. "e4", "Nf3").
-     * It does NOT support recursive variations or comments ({}).
+     * It does NOT support recursive variations or comments ({}), see importTree() for those.
      *
      * @param filePath The path to the .pgn file.
      * @return A new GameState object with the played moves.
      */
     public GameState importGame(String filePath) throws IOException {
+        return importGame(filePath, (done, total) -> {});
+    }
+
+    /**
+     * Imports a PGN file, reporting the progress to the listener.
+     * The import can be cancelled by interrupting the importing thread.
+     *
+     * @param filePath The path to the .pgn file.
+     * @param listener Receives the progress after every token.
+     * @return A new GameState object with the played moves.
+     * @throws InterruptedIOException if the thread was interrupted (import cancelled).
+     */
+    public GameState importGame(String filePath, ProgressListener listener) throws IOException {
         GameState newState = new GameState();
         RuleEngine ruleEngine = new RuleEngine(); // We need logic to disambiguate SAN
 
@@ -66,7 +86,12 @@ public class PGNParser{
         // Split by spaces
         String[] tokens = moveText.trim().split("\\s+");
 
-        for(String token : tokens){
+        for(int i = 0; i < tokens.length; i++){
+            String token = tokens[i];
+            if(Thread.currentThread().isInterrupted()){
+                throw new InterruptedIOException("PGN import cancelled");
+            }
+            listener.progress(i, tokens.length);
             if(token.isEmpty()) continue;
 
             // Try to perform the move
@@ -77,25 +102,200 @@ public class PGNParser{
                 System.err.println("Skipping unparseable token: " + token);
             }
         }
+        listener.progress(tokens.length, tokens.length);
 
         return newState;
     }
 
-    private void parseTags(String content, GameState state){
-        Player white = new Player("White", 0);
-        Player black = new Player("Black", 0);
+    /**
+     * Imports a PGN file with all its variations, comments and NAGs, for analysis.
+     * Only the first game of the file is read.
+     */
+    public GameTree importTree(String filePath) throws IOException {
+        return parseTree(Files.readString(Paths.get(filePath)));
+    }
 
-        Matcher mWhite = Pattern.compile("\\[White \"(.*?)\"]").matcher(content);
-        if(mWhite.find()) white.setName(mWhite.group(1));
+    /**
+     * Parses the PGN text of one game into a GameTree, keeping everything the
+     * tree can hold: tag pairs in order, variations ( ), comments { } and ;,
+     * NAGs ($n and the !, ?, !!, ??, !?, ?! suffixes), and the result.
+     * PGNFormatter.formatTree() writes it back.
+     *
+     * @throws IllegalArgumentException on an illegal move or unbalanced variations.
+     */
+    public GameTree parseTree(String pgn){
+        GameTree tree = new GameTree();
+        int i = readTags(pgn, 0, tree.getTags());
+
+        GameTree.Cursor cursor = tree.cursor(startStateOf(tree));
+        RuleEngine ruleEngine = new RuleEngine();
+        // The node each open variation returns to
+        Deque<Integer> variationStack = new ArrayDeque<>();
+        String pendingPreComment = null;
+        boolean afterMove = false; // A comment after a move belongs to it, before one to the next
+
+        while(i < pgn.length()){
+            char c = pgn.charAt(i);
+            if(Character.isWhitespace(c)){
+                i++;
+            }else if(c == '{' || c == ';'){
+                int end = c == '{' ? pgn.indexOf('}', i) : pgn.indexOf('\n', i);
+                if(end < 0) end = pgn.length();
+                String comment = pgn.substring(i + 1, end).trim();
+                i = end + 1;
+                if(afterMove || cursor.getNode() == GameTree.ROOT && tree.getFirstChild(GameTree.ROOT) == GameTree.NONE){
+                    tree.setComment(cursor.getNode(), joinComments(tree.getComment(cursor.getNode()), comment));
+                }else{
+                    pendingPreComment = joinComments(pendingPreComment, comment);
+                }
+            }else if(c == '('){
+                if(cursor.getNode() == GameTree.ROOT){
+                    throw new IllegalArgumentException("Variation before the first move");
+                }
+                variationStack.push(cursor.getNode());
+                cursor.back();
+                afterMove = false;
+                i++;
+            }else if(c == ')'){
+                if(variationStack.isEmpty()){
+                    throw new IllegalArgumentException("Unbalanced ')' in the PGN");
+                }
+                cursor.moveTo(variationStack.pop());
+                afterMove = true;
+                i++;
+            }else if(c == '$'){
+                int end = i + 1;
+                while(end < pgn.length() && Character.isDigit(pgn.charAt(end))) end++;
+                tree.addNag(cursor.getNode(), Integer.parseInt(pgn.substring(i + 1, end)));
+                i = end;
+            }else if(c == '['){
+                break; // The next game's tags
+            }else{
+                int end = i;
+                while(end < pgn.length() && !Character.isWhitespace(pgn.charAt(end)) && "{}();$[".indexOf(pgn.charAt(end)) < 0) end++;
+                String token = pgn.substring(i, end);
+                i = end;
+
+                if(token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2") || token.equals("*")){
+                    tree.setResult(token);
+                    break;
+                }
+                // Move numbers ("12." or "12...") may be glued to the move ("12.e4")
+                token = token.replaceFirst("^\\d*\\.+", "");
+                if(token.isEmpty()){
+                    continue;
+                }
 
-        Matcher mBlack = Pattern.compile("\\[Black \"(.*?)\"]").matcher(content);
-        if(mBlack.find()) black.setName(mBlack.group(1));
+                // Annotation suffixes become NAGs
+                int suffix = token.length();
+                while(suffix > 0 && (token.charAt(suffix - 1) == '!' || token.charAt(suffix - 1) == '?')) suffix--;
+                int nag = nagOfSuffix(token.substring(suffix));
+                String san = token.substring(0, suffix);
 
-        Matcher mWhiteElo = Pattern.compile("\\[WhiteElo \"(\\d+)\"]").matcher(content);
-        if(mWhiteElo.find()) white.setElo(Integer.parseInt(mWhiteElo.group(1)));
+                Move move = parseSanMove(cursor.getState(), ruleEngine, san);
+                if(move == null || !cursor.play(MoveCodes.encode(move))){
+                    throw new IllegalArgumentException("Illegal move in the PGN: " + token);
+                }
+                if(nag != 0){
+                    tree.addNag(cursor.getNode(), nag);
+                }
+                if(pendingPreComment != null){
+                    tree.setPreComment(cursor.getNode(), pendingPreComment);
+                    pendingPreComment = null;
+                }
+                afterMove = true;
+            }
+        }
+        if(!variationStack.isEmpty()){
+            throw new IllegalArgumentException("Unclosed variation in the PGN");
+        }
+        return tree;
+    }
+
+    // "!" is $1, "?" $2, "!!" $3, "??" $4, "!?" $5, "?!" $6
+    private static int nagOfSuffix(String suffix){
+        switch(suffix){
+            case "!": return 1;
+            case "?": return 2;
+            case "!!": return 3;
+            case "??": return 4;
+            case "!?": return 5;
+            case "?!": return 6;
+            default: return 0;
+        }
+    }
+
+    private static String joinComments(String first, String second){
+        return first == null ? second : first + " " + second;
+    }
+
+    /**
+     * Reads the [Name "Value"] pairs starting at the given index, in one pass over the text.
+     * Escaped quotes and backslashes in the values are unescaped.
+     *
+     * @param tags Receives the pairs, in order.
+     * @return The index after the last pair (where the move text starts).
+     */
+    public static int readTags(CharSequence pgn, int start, Map<String, String> tags){
+        int i = start;
+        while(true){
+            while(i < pgn.length() && Character.isWhitespace(pgn.charAt(i))) i++;
+            if(i >= pgn.length() || pgn.charAt(i) != '['){
+                return i;
+            }
+            int nameEnd = i + 1;
+            while(nameEnd < pgn.length() && !Character.isWhitespace(pgn.charAt(nameEnd))) nameEnd++;
+            String name = pgn.subSequence(i + 1, nameEnd).toString();
+
+            int quote = indexOf(pgn, '"', nameEnd);
+            if(quote < 0){
+                throw new IllegalArgumentException("Malformed tag: " + name);
+            }
+            StringBuilder value = new StringBuilder();
+            int j = quote + 1;
+            for(; j < pgn.length() && pgn.charAt(j) != '"'; j++){
+                char c = pgn.charAt(j);
+                if(c == '\\' && j + 1 < pgn.length()){
+                    c = pgn.charAt(++j);
+                }
+                value.append(c);
+            }
+            int close = indexOf(pgn, ']', j);
+            tags.put(name, value.toString());
+            i = close < 0 ? pgn.length() : close + 1;
+        }
+    }
+
+    private static int indexOf(CharSequence text, char c, int from){
+        for(int i = from; i < text.length(); i++){
+            if(text.charAt(i) == c){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The starting position of a tree: the FEN tag's position, or the standard one.
+     */
+    static GameState startStateOf(GameTree tree){
+        String fen = tree.getTags().get("FEN");
+        return fen != null ? new FENParser().parse(fen) : new GameState();
+    }
+
+    private void parseTags(String content, GameState state){
+        // One pass over the tag section, instead of a regex scan of the whole file per tag
+        Map<String, String> tags = new HashMap<>();
+        try{
+            readTags(content, 0, tags);
+        }catch(IllegalArgumentException e){
+            // A malformed tag: keep the ones before it, the moves may still be fine
+        }
 
-        Matcher mBlackElo = Pattern.compile("\\[BlackElo \"(\\d+)\"]").matcher(content);
-        if(mBlackElo.find()) black.setElo(Integer.parseInt(mBlackElo.group(1)));
+        Player white = new Player(tags.getOrDefault("White", "White"), 0);
+        Player black = new Player(tags.getOrDefault("Black", "Black"), 0);
+        if(tags.getOrDefault("WhiteElo", "").matches("\\d+")) white.setElo(Integer.parseInt(tags.get("WhiteElo")));
+        if(tags.getOrDefault("BlackElo", "").matches("\\d+")) black.setElo(Integer.parseInt(tags.get("BlackElo")));
 
         state.setPlayers(white, black);
     }
@@ -0,0 +1,105 @@
+package Model.Match;
+
+import Model.Engine.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * One side of a match: a name and the engine options it plays with.
+ *
+ * The options are the UCI engine's: "Hash" (MB), "EvalFile" (an NNUE network, the classical
+ * evaluation without it) and the SearchFeature switches ("NullMove", "LMR"...). Every game
+ * slot builds its own Search from the config; a network is loaded once and shared.
+ *
+ * On the command line a config is written "name,Option=value,Option=value".
+ */
+public class EngineConfig{
+    private static final int DEFAULT_HASH_MB = 16;
+
+    private final String name;
+    private final Map<String, String> options;
+    private NnueNetwork network = null;
+
+    public EngineConfig(String name, Map<String, String> options){
+        this.name = name;
+        this.options = new LinkedHashMap<>(options);
+        for(String option : this.options.keySet()){
+            if(!option.equalsIgnoreCase("Hash") && !option.equalsIgnoreCase("EvalFile") && feature(option) == null){
+                throw new IllegalArgumentException("Unknown engine option: " + option);
+            }
+        }
+    }
+
+    /**
+     * "name,Option=value,...", e.g. "noNull,NullMove=false".
+     */
+    public static EngineConfig parse(String text){
+        String[] parts = text.split(",");
+        Map<String, String> options = new LinkedHashMap<>();
+        for(int i = 1; i < parts.length; i++){
+            int equals = parts[i].indexOf('=');
+            if(equals < 0){
+                throw new IllegalArgumentException("Engine option without a value: " + parts[i]);
+            }
+            options.put(parts[i].substring(0, equals).trim(), parts[i].substring(equals + 1).trim());
+        }
+        return new EngineConfig(parts[0].trim(), options);
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    public Map<String, String> getOptions(){
+        return Collections.unmodifiableMap(options);
+    }
+
+    /**
+     * A new, single-threaded Search with these options, for one game slot.
+     *
+     * @throws IOException if the network file can't be read.
+     */
+    public Search createSearch() throws IOException {
+        int hashMb = DEFAULT_HASH_MB;
+        Evaluator evaluator = new ClassicalEvaluator();
+        for(Map.Entry<String, String> option : options.entrySet()){
+            if(option.getKey().equalsIgnoreCase("Hash")){
+                hashMb = Integer.parseInt(option.getValue());
+            }else if(option.getKey().equalsIgnoreCase("EvalFile")){
+                evaluator = new NnueEvaluator(network(option.getValue()));
+            }
+        }
+        Search search = new Search(evaluator, new TranspositionTable(Math.max(1, hashMb)));
+        for(Map.Entry<String, String> option : options.entrySet()){
+            SearchFeature feature = feature(option.getKey());
+            if(feature != null){
+                search.setEnabled(feature, option.getValue().equalsIgnoreCase("true"));
+            }
+        }
+        return search;
+    }
+
+    // Loaded by the first slot that needs it, the others share it (a network is immutable)
+    private synchronized NnueNetwork network(String path) throws IOException {
+        if(network == null){
+            network = NnueNetwork.load(Paths.get(path));
+        }
+        return network;
+    }
+
+    private static SearchFeature feature(String option){
+        for(SearchFeature feature : SearchFeature.values()){
+            if(feature.getOptionName().equalsIgnoreCase(option)){
+                return feature;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString(){
+        return options.isEmpty() ? name : name + " " + options;
+    }
+}
@@ -0,0 +1,405 @@
+package Model.Match;
+
+import Model.*;
+import Model.Engine.*;
+import Model.IOs.*;
+import Model.Tablebase.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Plays two engine configurations against each other, to tell whether a change is an improvement.
+ *
+ * The games are played on a number of slots (one per core by default), each a worker thread
+ * with its own two single-threaded Searches, which take the next game number until the match
+ * is over. Game i plays opening i / 2 (the openings in an order given by the seed), with
+ * the first engine White when i is even, so every opening is played with both colours.
+ *
+ * A game ends by checkmate, stalemate, the fifty-move rule, threefold repetition, insufficient
+ * material, a tablebase result (when tablebases are given) or a clock running out.
+ * Each finished game is appended to the PGN output at once, so a long match can be followed
+ * (and isn't lost if stopped); they come in the order they end, the Round tag gives their number.
+ *
+ * With an Sprt, no new games are started once it has decided; the ones being played are finished.
+ */
+public class MatchRunner{
+    /**
+     * The match from the first engine's point of view.
+     *
+     * @param llr The SPRT's log-likelihood ratio (0 without an SPRT).
+     * @param decision What the SPRT decided (CONTINUE also when there is none).
+     */
+    public record Result(int wins, int draws, int losses, double llr, Sprt.Decision decision, long elapsedMs){
+        public int games(){
+            return wins + draws + losses;
+        }
+
+        public double score(){
+            return games() > 0 ? (wins + draws / 2.0) / games() : 0.5;
+        }
+
+        @Override
+        public String toString(){
+            return String.format("%d games: +%d =%d -%d, score %.3f, Elo %+.1f, LLR %.2f (%s) in %d ms",
+                    games(), wins, draws, losses, score(), Sprt.elo(score()), llr, decision, elapsedMs);
+        }
+    }
+
+    private static final int WIN = 2;
+    private static final int DRAW = 1;
+    private static final int LOSS = 0;
+
+    private final EngineConfig first;
+    private final EngineConfig second;
+    private final OpeningSuite openings;
+    private int games;
+    private int concurrency = Runtime.getRuntime().availableProcessors();
+    private TimeControl timeControl = TimeControl.parse("10+0.1");
+    private long seed = 0;
+    private TablebaseProber tablebases = null;
+    private Sprt sprt = null;
+    private Writer pgnOutput = null;
+    private PrintStream log = null;
+
+    // The running match
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private volatile boolean stopped = false;
+    private int wins, draws, losses; // Guarded by this
+    private Sprt.Decision decision = Sprt.Decision.CONTINUE;
+
+    public MatchRunner(EngineConfig first, EngineConfig second, OpeningSuite openings){
+        if(openings.size() == 0){
+            throw new IllegalArgumentException("No openings");
+        }
+        this.first = first;
+        this.second = second;
+        this.openings = openings;
+        this.games = 2 * openings.size();
+    }
+
+    /** Games to play at most (each opening twice by default). */
+    public void setGames(int games){ this.games = games; }
+
+    /** Games played at the same time. */
+    public void setConcurrency(int concurrency){ this.concurrency = Math.max(1, concurrency); }
+
+    public void setTimeControl(TimeControl timeControl){ this.timeControl = timeControl; }
+
+    /** Decides the order of the openings. */
+    public void setSeed(long seed){ this.seed = seed; }
+
+    /** Adjudicates the positions they cover. */
+    public void setTablebases(TablebaseProber tablebases){ this.tablebases = tablebases; }
+
+    public void setSprt(Sprt sprt){ this.sprt = sprt; }
+
+    /** Receives every game as PGN, as soon as it is over. */
+    public void setPgnOutput(Writer pgnOutput){ this.pgnOutput = pgnOutput; }
+
+    /** Receives a line per game with the score so far. */
+    public void setLog(PrintStream log){ this.log = log; }
+
+    /**
+     * No new games are started; the running ones are finished. Safe to call from any thread.
+     */
+    public void stop(){
+        stopped = true;
+    }
+
+    /**
+     * Plays the match and waits for its end.
+     *
+     * @throws IOException if an engine can't be built (e.g. its network file is missing) or the PGN can't be written.
+     */
+    public Result run() throws IOException, InterruptedException {
+        stopped = false;
+        nextGame.set(0);
+        synchronized(this){
+            wins = draws = losses = 0;
+            decision = Sprt.Decision.CONTINUE;
+        }
+        int[] order = openingOrder();
+
+        long start = System.nanoTime();
+        int slots = Math.min(concurrency, Math.max(1, games));
+        ExecutorService executor = Executors.newFixedThreadPool(slots, new ThreadFactory(){
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r){
+                Thread t = new Thread(r, "match-slot-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for(int i = 0; i < slots; i++){
+                results.add(executor.submit(() -> {
+                    runSlot(order);
+                    return null;
+                }));
+            }
+            for(Future<?> result : results){
+                result.get();
+            }
+        } catch(ExecutionException e){
+            stopped = true;
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+
+        synchronized(this){
+            double llr = sprt != null ? sprt.llr(wins, draws, losses) : 0;
+            return new Result(wins, draws, losses, llr, decision, elapsedMs);
+        }
+    }
+
+    // The openings in a shuffled order that only depends on the seed
+    private int[] openingOrder(){
+        int[] order = new int[openings.size()];
+        for(int i = 0; i < order.length; i++){
+            order[i] = i;
+        }
+        Random random = new Random(seed);
+        for(int i = order.length - 1; i > 0; i--){
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return order;
+    }
+
+    // One slot: its own engines, game after game
+    private void runSlot(int[] order) throws IOException {
+        Search firstEngine = first.createSearch();
+        Search secondEngine = second.createSearch();
+        int index;
+        while(!stopped && (index = nextGame.getAndIncrement()) < games){
+            OpeningSuite.Opening opening = openings.get(order[(index / 2) % order.length]);
+            boolean firstIsWhite = index % 2 == 0;
+            GameTree game = playGame(opening, firstIsWhite ? firstEngine : secondEngine, firstIsWhite ? secondEngine : firstEngine);
+            game.getTags().put("Round", String.valueOf(index + 1));
+            game.getTags().put("White", (firstIsWhite ? first : second).getName());
+            game.getTags().put("Black", (firstIsWhite ? second : first).getName());
+            recordResult(index, game, firstIsWhite);
+        }
+    }
+
+    /**
+     * Plays one game from the opening.
+     *
+     * @return The game, with its result, the reason it ended (the comment of its last move)
+     *         and the engines' scores (the comments of their moves, e.g. "+0.35/9").
+     */
+    GameTree playGame(OpeningSuite.Opening opening, Search white, Search black){
+        white.getTranspositionTable().clear();
+        black.getTranspositionTable().clear();
+        RuleEngine ruleEngine = new RuleEngine();
+
+        GameTree tree = new GameTree();
+        Map<String, String> tags = tree.getTags();
+        tags.put("Event", first.getName() + " vs " + second.getName());
+        tags.put("Site", "?");
+        tags.put("Date", LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd")));
+        tags.put("Round", "?");
+        tags.put("White", "?");
+        tags.put("Black", "?");
+        tags.put("Result", "*");
+        if(!opening.fen().equals(FENParser.START_FEN)){
+            tags.put("FEN", opening.fen());
+            tags.put("SetUp", "1");
+        }
+        tags.put("TimeControl", timeControl.pgnTag());
+
+        // 1. The opening, with the keys of its positions for the repetitions
+        GameTree.Cursor cursor = tree.cursor(new FENParser().parse(opening.fen()));
+        List<Long> keys = new ArrayList<>();
+        for(int code : opening.moveCodes()){
+            keys.add(Zobrist.hash(cursor.getState()));
+            cursor.play(code);
+        }
+
+        // 2. The engines' moves, until the game is over
+        long whiteClock = timeControl.baseMs();
+        long blackClock = timeControl.baseMs();
+        String result = null;
+        String reason = null;
+        while(result == null){
+            GameState state = cursor.getState();
+            boolean whiteToMove = state.isWhiteTurn();
+            String winner = whiteToMove ? "0-1" : "1-0"; // If the side to move loses
+            String loser = whiteToMove ? "1-0" : "0-1";
+            String side = whiteToMove ? "White" : "Black";
+            long key = Zobrist.hash(state);
+
+            if(ruleEngine.getAllLegalMoves(state).isEmpty()){
+                boolean mated = ruleEngine.isKingInCheck(state, whiteToMove);
+                result = mated ? winner : "1/2-1/2";
+                reason = mated ? (whiteToMove ? "Black" : "White") + " mates" : "Stalemate";
+                break;
+            }
+            if(state.getHalfMoveClock() >= 100){
+                result = "1/2-1/2";
+                reason = "Fifty-move rule";
+                break;
+            }
+            if(Collections.frequency(keys, key) >= 2){
+                result = "1/2-1/2";
+                reason = "Threefold repetition";
+                break;
+            }
+            if(isInsufficientMaterial(state.getBoard())){
+                result = "1/2-1/2";
+                reason = "Insufficient material";
+                break;
+            }
+            TablebaseResult known = tablebases != null ? tablebases.probe(state) : null;
+            if(known != null){
+                result = known.isDraw() ? "1/2-1/2" : known.isWin() ? loser : winner;
+                reason = "Tablebase " + (known.isDraw() ? "draw" : (known.isWin() == whiteToMove ? "White" : "Black") + " wins");
+                break;
+            }
+
+            Search engine = whiteToMove ? white : black;
+            long startNanos = System.nanoTime();
+            SearchResult move = engine.search(state, keys, timeControl.limits(whiteClock, blackClock), null);
+            long usedMs = (System.nanoTime() - startNanos) / 1_000_000L;
+            if(timeControl.hasClock()){
+                long clock = (whiteToMove ? whiteClock : blackClock) - usedMs;
+                if(clock < 0){
+                    result = winner;
+                    reason = side + " loses on time";
+                    break;
+                }
+                clock += timeControl.incrementMs();
+                if(whiteToMove){
+                    whiteClock = clock;
+                }else{
+                    blackClock = clock;
+                }
+            }
+
+            keys.add(key);
+            if(move.bestMove() == MoveCodes.NONE || !cursor.play(move.bestMove())){
+                result = winner;
+                reason = side + " makes an illegal move";
+                break;
+            }
+            tree.setComment(cursor.getNode(), formatScore(move.score(), move.depth()));
+        }
+
+        tags.put("Result", result);
+        tree.setResult(result);
+        String comment = tree.getComment(cursor.getNode());
+        tree.setComment(cursor.getNode(), comment == null ? reason : comment + ", " + reason);
+        return tree;
+    }
+
+    // Neither side can mate: kings alone, or with a single knight or bishop between them
+    private static boolean isInsufficientMaterial(Board board){
+        int minors = 0;
+        for(boolean white : new boolean[]{true, false}){
+            if(board.getPieceCount(PieceType.PAWN, white) + board.getPieceCount(PieceType.ROOK, white)
+                    + board.getPieceCount(PieceType.QUEEN, white) > 0){
+                return false;
+            }
+            minors += board.getPieceCount(PieceType.KNIGHT, white) + board.getPieceCount(PieceType.BISHOP, white);
+        }
+        return minors <= 1;
+    }
+
+    // "+0.35/9" like the usual engine match tools, "+M3/6" for a mate
+    private static String formatScore(int score, int depth){
+        String text;
+        if(Math.abs(score) >= Search.MATE - Search.MAX_PLY){
+            int moves = (Search.MATE - Math.abs(score) + 1) / 2;
+            text = (score > 0 ? "+M" : "-M") + moves;
+        }else{
+            text = String.format(Locale.ROOT, "%+.2f", score / 100.0);
+        }
+        return text + "/" + depth;
+    }
+
+    // Counts the game, writes it out and asks the SPRT
+    private void recordResult(int index, GameTree game, boolean firstIsWhite) throws IOException {
+        String result = game.getResult();
+        int outcome = result.equals("1/2-1/2") ? DRAW : result.equals("1-0") == firstIsWhite ? WIN : LOSS;
+        String summary;
+        synchronized(this){
+            switch(outcome){
+                case WIN: wins++; break;
+                case DRAW: draws++; break;
+                default: losses++; break;
+            }
+            summary = String.format("Score of %s vs %s: %d - %d - %d [%.3f] %d", first.getName(), second.getName(),
+                    wins, losses, draws, (wins + draws / 2.0) / (wins + draws + losses), wins + draws + losses);
+            if(sprt != null){
+                summary += String.format(", LLR %.2f [%.2f, %.2f]", sprt.llr(wins, draws, losses),
+                        sprt.getLowerBound(), sprt.getUpperBound());
+                if(decision == Sprt.Decision.CONTINUE){
+                    decision = sprt.decide(wins, draws, losses);
+                    if(decision != Sprt.Decision.CONTINUE){
+                        stopped = true;
+                        summary += ", " + (decision == Sprt.Decision.ACCEPT_H1 ? "H1" : "H0") + " accepted";
+                    }
+                }
+            }
+        }
+
+        if(pgnOutput != null){
+            String pgn = new PGNFormatter().formatTree(game);
+            synchronized(pgnOutput){
+                pgnOutput.write(pgn);
+                pgnOutput.write("\n\n");
+                pgnOutput.flush();
+            }
+        }
+        if(log != null){
+            log.println("Game " + (index + 1) + " " + game.getTags().get("White") + " - " + game.getTags().get("Black")
+                    + ": " + result + ". " + summary);
+        }
+    }
+
+    /**
+     * "match <openings.epd|pgn> <games.pgn> <engine> <engine> [games] [tc] [concurrency] [seed]
+     * [tablebase directory]" from the command line, an engine being "name,Option=value,...",
+     * the time control "10+0.1" or "nodes=5000". Always with an SPRT of 0 against 5 Elo,
+     * at 5% error rates.
+     */
+    public static void runFromCommandLine(String[] args) throws IOException, InterruptedException {
+        if(args.length < 5){
+            System.err.println("Usage: match <openings.epd|pgn> <games.pgn> <name,Option=value,...> <name,Option=value,...> "
+                    + "[games] [tc, e.g. 10+0.1 or nodes=5000] [concurrency] [seed] [tablebases]");
+            return;
+        }
+        MatchRunner runner = new MatchRunner(EngineConfig.parse(args[3]), EngineConfig.parse(args[4]),
+                OpeningSuite.load(Paths.get(args[1])));
+        if(args.length > 5) runner.setGames(Integer.parseInt(args[5]));
+        if(args.length > 6) runner.setTimeControl(TimeControl.parse(args[6]));
+        if(args.length > 7) runner.setConcurrency(Integer.parseInt(args[7]));
+        if(args.length > 8) runner.setSeed(Long.parseLong(args[8]));
+        TablebaseProber tablebases = args.length > 9 ? TablebaseProber.openDirectory(Paths.get(args[9])) : null;
+        runner.setTablebases(tablebases);
+        runner.setSprt(new Sprt(0, 5, 0.05, 0.05));
+        runner.setLog(System.out);
+        try(Writer out = Files.newBufferedWriter(Paths.get(args[2]), StandardCharsets.UTF_8)){
+            runner.setPgnOutput(out);
+            System.out.println(runner.run());
+        } finally {
+            if(tablebases != null){
+                tablebases.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package Model.Match;
+
+import Model.*;
+import Model.IOs.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * The start positions of a match: each one is played twice, once with either engine as White,
+ * so an unbalanced opening doesn't favour anybody.
+ *
+ * Loaded from an EPD file (one position per line: the first four FEN fields, opcodes ignored)
+ * or from a PGN file (the main line of every game, from its FEN tag or the start position).
+ * The moves of a PGN opening are kept so they appear in the games written out.
+ */
+public class OpeningSuite{
+    /**
+     * @param fen Where the opening starts.
+     * @param moveCodes The opening's moves from there (none for an EPD position).
+     */
+    public record Opening(String fen, int[] moveCodes){
+        /**
+         * The position after the opening, or null if one of its moves is illegal.
+         */
+        public GameState play(){
+            GameState state = new FENParser().parse(fen);
+            RuleEngine ruleEngine = new RuleEngine();
+            for(int code : moveCodes){
+                Move move = MoveCodes.decode(state, ruleEngine, code);
+                if(move == null){
+                    return null;
+                }
+                state.makeMove(move);
+            }
+            return state;
+        }
+    }
+
+    private final List<Opening> openings = new ArrayList<>();
+
+    /**
+     * Reads a ".pgn" file as PGN, anything else as EPD. Entries that don't parse, or whose moves
+     * aren't legal, are skipped.
+     */
+    public static OpeningSuite load(Path file) throws IOException {
+        OpeningSuite suite = new OpeningSuite();
+        if(file.getFileName().toString().toLowerCase().endsWith(".pgn")){
+            suite.addPgn(file);
+        }else{
+            suite.addEpd(file);
+        }
+        return suite;
+    }
+
+    /**
+     * Only the start position, for a quick match without an opening file.
+     */
+    public static OpeningSuite startPosition(){
+        OpeningSuite suite = new OpeningSuite();
+        suite.add(new Opening(FENParser.START_FEN, new int[0]));
+        return suite;
+    }
+
+    public void add(Opening opening){
+        openings.add(opening);
+    }
+
+    private void addEpd(Path file) throws IOException {
+        FENParser parser = new FENParser();
+        for(String line : Files.readAllLines(file)){
+            String[] fields = line.trim().split("\\s+");
+            if(fields.length < 4 || line.startsWith("#")){
+                continue;
+            }
+            String fen = String.join(" ", Arrays.copyOf(fields, 4)) + " 0 1";
+            try {
+                parser.parse(fen);
+            } catch(IllegalArgumentException e){
+                continue;
+            }
+            add(new Opening(fen, new int[0]));
+        }
+    }
+
+    private void addPgn(Path file) throws IOException {
+        PGNParser parser = new PGNParser();
+        try(PGNGameReader reader = PGNGameReader.open(file)){
+            while(reader.next()){
+                GameTree tree;
+                try {
+                    tree = parser.parseTree(reader.getGameText());
+                } catch(IllegalArgumentException e){
+                    continue;
+                }
+                int[] mainLine = tree.mainLine();
+                int[] codes = new int[mainLine.length];
+                for(int i = 0; i < codes.length; i++){
+                    codes[i] = tree.getMoveCode(mainLine[i]);
+                }
+                Opening opening = new Opening(tree.getTags().getOrDefault("FEN", FENParser.START_FEN), codes);
+                if(opening.play() != null){
+                    add(opening);
+                }
+            }
+        }
+    }
+
+    public int size(){
+        return openings.size();
+    }
+
+    public Opening get(int index){
+        return openings.get(index);
+    }
+}
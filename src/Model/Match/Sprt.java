@@ -0,0 +1,89 @@
+package Model.Match;
+
+/**
+ * The sequential probability ratio test that stops a match as soon as its result is decided.
+ *
+ * The hypotheses are two Elo differences of the first engine over the second: H0 "elo0"
+ * (usually 0, no gain) and H1 "elo1" (the gain we hope for). After every game the log-likelihood
+ * ratio (LLR) of H1 against H0 is compared with two bounds given by the error rates:
+ * below ln(beta / (1 - alpha)) H0 is accepted, above ln((1 - beta) / alpha) H1 is.
+ *
+ * The LLR is the generalised SPRT's normal approximation on the game results (wins, draws,
+ * losses), with logistic Elo: LLR = N * (s1 - s0) * (2s - s0 - s1) / (2 * variance),
+ * s being the mean score per game and s0, s1 the scores the two Elo differences give.
+ */
+public class Sprt{
+    public enum Decision{ CONTINUE, ACCEPT_H0, ACCEPT_H1 }
+
+    private final double elo0;
+    private final double elo1;
+    private final double lowerBound;
+    private final double upperBound;
+
+    public Sprt(double elo0, double elo1, double alpha, double beta){
+        if(elo1 <= elo0 || alpha <= 0 || alpha >= 1 || beta <= 0 || beta >= 1){
+            throw new IllegalArgumentException("Invalid SPRT: elo0 " + elo0 + ", elo1 " + elo1 + ", alpha " + alpha + ", beta " + beta);
+        }
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.lowerBound = Math.log(beta / (1 - alpha));
+        this.upperBound = Math.log((1 - beta) / alpha);
+    }
+
+    public double getLowerBound(){ return lowerBound; }
+    public double getUpperBound(){ return upperBound; }
+
+    /**
+     * The log-likelihood ratio of H1 against H0 after these results (0 while it can't be told yet:
+     * no games, or every game with the same result).
+     */
+    public double llr(int wins, int draws, int losses){
+        int games = wins + draws + losses;
+        if(games == 0){
+            return 0;
+        }
+        double winRate = wins / (double) games;
+        double drawRate = draws / (double) games;
+        double score = winRate + drawRate / 2;
+        double variance = winRate + drawRate / 4 - score * score;
+        if(variance <= 0){
+            return 0;
+        }
+        double s0 = expectedScore(elo0);
+        double s1 = expectedScore(elo1);
+        return games * (s1 - s0) * (2 * score - s0 - s1) / (2 * variance);
+    }
+
+    public Decision decide(int wins, int draws, int losses){
+        double llr = llr(wins, draws, losses);
+        if(llr >= upperBound){
+            return Decision.ACCEPT_H1;
+        }
+        if(llr <= lowerBound){
+            return Decision.ACCEPT_H0;
+        }
+        return Decision.CONTINUE;
+    }
+
+    /**
+     * The mean score per game of a side that is this many Elo stronger.
+     */
+    public static double expectedScore(double elo){
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    /**
+     * The Elo difference a mean score per game stands for.
+     */
+    public static double elo(double score){
+        if(score <= 0 || score >= 1){
+            return score <= 0 ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    @Override
+    public String toString(){
+        return String.format("SPRT elo0 %.1f elo1 %.1f, bounds [%.2f, %.2f]", elo0, elo1, lowerBound, upperBound);
+    }
+}
@@ -0,0 +1,76 @@
+package Model.Match;
+
+import Model.Engine.*;
+
+/**
+ * How long the engines of a match may think: a clock (base time plus an increment per move),
+ * or a fixed number of nodes per move.
+ *
+ * Only the node limit makes a match deterministic: the same seed plays the same games,
+ * whatever the machine and its load. A clock is what real play is like.
+ *
+ * @param baseMs Time on each clock at the start (0 with a node limit).
+ * @param incrementMs Added to the clock after each move.
+ * @param nodesPerMove Node limit of every search (0 = play on the clock).
+ */
+public record TimeControl(long baseMs, long incrementMs, long nodesPerMove){
+    /**
+     * "10+0.1" (seconds, the increment optional) or "nodes=5000".
+     */
+    public static TimeControl parse(String text){
+        try {
+            if(text.startsWith("nodes=")){
+                return nodes(Long.parseLong(text.substring("nodes=".length())));
+            }
+            int plus = text.indexOf('+');
+            double base = Double.parseDouble(plus < 0 ? text : text.substring(0, plus));
+            double increment = plus < 0 ? 0 : Double.parseDouble(text.substring(plus + 1));
+            return new TimeControl(Math.round(base * 1000), Math.round(increment * 1000), 0);
+        } catch(NumberFormatException e){
+            throw new IllegalArgumentException("Invalid time control: " + text);
+        }
+    }
+
+    public static TimeControl nodes(long nodesPerMove){
+        return new TimeControl(0, 0, nodesPerMove);
+    }
+
+    public boolean hasClock(){
+        return nodesPerMove <= 0;
+    }
+
+    /**
+     * The limits of a search, with the clocks as they are now.
+     */
+    SearchLimits limits(long whiteClockMs, long blackClockMs){
+        SearchLimits limits = new SearchLimits();
+        if(hasClock()){
+            limits.setWhiteTimeMs(Math.max(1, whiteClockMs));
+            limits.setBlackTimeMs(Math.max(1, blackClockMs));
+            limits.setWhiteIncrementMs(incrementMs);
+            limits.setBlackIncrementMs(incrementMs);
+        }else{
+            limits.setNodes(nodesPerMove);
+        }
+        return limits;
+    }
+
+    /**
+     * The PGN TimeControl tag: "40+0.4", or "-" (no clock) for a node limit.
+     */
+    public String pgnTag(){
+        if(!hasClock()){
+            return "-";
+        }
+        return incrementMs > 0 ? seconds(baseMs) + "+" + seconds(incrementMs) : seconds(baseMs);
+    }
+
+    private static String seconds(long ms){
+        return ms % 1000 == 0 ? String.valueOf(ms / 1000) : String.valueOf(ms / 1000.0);
+    }
+
+    @Override
+    public String toString(){
+        return hasClock() ? pgnTag() : "nodes=" + nodesPerMove;
+    }
+}
@@ -0,0 +1,146 @@
+package Model;
+
+import Model.Pieces.*;
+
+/**
+ * Packs a move into a 16-bit code, for compact storage (hash tables, files, network).
+ *
+ * Layout: bits 0-5 the 'from' square, bits 6-11 the 'to' square,
+ * bits 12-14 the promotion piece (0 none, 1 knight, 2 bishop, 3 rook, 4 queen).
+ * A square's index is row * 8 + column (so a8 is 0 and h1 is 63).
+ * The code 0 (a8-a8) is never a real move, it stands for "no move".
+ *
+ * Codes also convert to and from UCI coordinate notation (e.g. "e2e4", "e7e8q").
+ */
+public final class MoveCodes{
+    public static final int NONE = 0;
+
+    private static final String PROMOTION_CHARS = " nbrq";
+
+    private MoveCodes(){}
+
+    public static int encode(Move move){
+        return encode(move.getFrom(), move.getTo(), move.isPromotion() ? move.getPromotionPiece().getType() : null);
+    }
+
+    public static int encode(Position from, Position to, PieceType promotion){
+        return square(from) | (square(to) << 6) | (promotionIndex(promotion) << 12);
+    }
+
+    public static int square(Position pos){
+        return pos.row() * 8 + pos.column();
+    }
+
+    public static Position position(int square){
+        return new Position(square >>> 3, square & 7);
+    }
+
+    public static Position from(int code){
+        return position(code & 63);
+    }
+
+    public static Position to(int code){
+        return position((code >>> 6) & 63);
+    }
+
+    /**
+     * @return The promotion piece type, or null if the move is not a promotion.
+     */
+    public static PieceType promotion(int code){
+        switch((code >>> 12) & 7){
+            case 1: return PieceType.KNIGHT;
+            case 2: return PieceType.BISHOP;
+            case 3: return PieceType.ROOK;
+            case 4: return PieceType.QUEEN;
+            default: return null;
+        }
+    }
+
+    private static int promotionIndex(PieceType type){
+        if(type == null) return 0;
+        switch(type){
+            case KNIGHT: return 1;
+            case BISHOP: return 2;
+            case ROOK: return 3;
+            case QUEEN: return 4;
+            default: throw new IllegalArgumentException("Invalid promotion piece: " + type);
+        }
+    }
+
+    /**
+     * Turns a code back into a full, validated (and check-tagged) Move in the given position.
+     *
+     * @return The Move, or null if the code is not a legal move in this position.
+     */
+    public static Move decode(GameState state, RuleEngine ruleEngine, int code){
+        Move move = ruleEngine.generateMove(state, from(code), to(code));
+        if(move == null){
+            return null;
+        }
+        PieceType promotion = promotion(code);
+        if(move.isPromotion() != (promotion != null)){
+            return null;
+        }
+        if(promotion != null && promotion != PieceType.QUEEN){
+            move.setPromotionPiece(createPiece(promotion, state.isWhiteTurn()));
+        }
+        return move;
+    }
+
+    public static Piece createPiece(PieceType type, boolean isWhite){
+        switch(type){
+            case KNIGHT: return new Knight(isWhite);
+            case BISHOP: return new Bishop(isWhite);
+            case ROOK: return new Rook(isWhite);
+            case QUEEN: return new Queen(isWhite);
+            case KING: return new King(isWhite);
+            case PAWN:
+            default: return new Pawn(isWhite);
+        }
+    }
+
+    /**
+     * @return The move in UCI notation, e.g. "e2e4" or "e7e8q".
+     */
+    public static String toUci(int code){
+        StringBuilder sb = new StringBuilder(5);
+        appendSquare(sb, from(code));
+        appendSquare(sb, to(code));
+        int promotion = (code >>> 12) & 7;
+        if(promotion != 0){
+            sb.append(PROMOTION_CHARS.charAt(promotion));
+        }
+        return sb.toString();
+    }
+
+    private static void appendSquare(StringBuilder sb, Position pos){
+        sb.append((char) ('a' + pos.column())).append((char) ('8' - pos.row()));
+    }
+
+    /**
+     * Parses UCI notation (e.g. "g1f3", "a2a1r").
+     *
+     * @return The code, or NONE if the text is not a well-formed move.
+     */
+    public static int fromUci(String uci){
+        if(uci.length() != 4 && uci.length() != 5){
+            return NONE;
+        }
+        int fromCol = uci.charAt(0) - 'a', fromRow = '8' - uci.charAt(1);
+        int toCol = uci.charAt(2) - 'a', toRow = '8' - uci.charAt(3);
+        Position from = new Position(fromRow, fromCol);
+        Position to = new Position(toRow, toCol);
+        if(!from.isOnBoard() || !to.isOnBoard()){
+            return NONE;
+        }
+
+        int promotion = 0;
+        if(uci.length() == 5){
+            promotion = PROMOTION_CHARS.indexOf(Character.toLowerCase(uci.charAt(4)));
+            if(promotion <= 0){
+                return NONE;
+            }
+        }
+        return square(from) | (square(to) << 6) | (promotion << 12);
+    }
+}
@@ -0,0 +1,118 @@
+package Model;
+
+/**
+ * Material values and piece-square tables of the classical evaluation
+ * (based on Tomasz Michniewski's "Simplified Evaluation Function").
+ *
+ * The tables are written from White's point of view, the first line being rank 8,
+ * so they are indexed exactly like the Board: [row][column].
+ * For Black, the row is mirrored (7 - row). They live beside the Board, which keeps its
+ * running totals with them; the engine only reads them.
+ */
+public final class PieceSquareTables{
+    // In the order of PieceType: PAWN, ROOK, KNIGHT, BISHOP, QUEEN, KING
+    public static final int[] MATERIAL = {100, 500, 320, 330, 900, 0};
+
+    // Game phase weight of each piece type (24 = all minor and major pieces on the board)
+    public static final int[] PHASE_WEIGHT = {0, 2, 1, 1, 4, 0};
+    public static final int MAX_PHASE = 24;
+
+    private static final int[][] PAWN = {
+            {  0,  0,  0,  0,  0,  0,  0,  0},
+            { 50, 50, 50, 50, 50, 50, 50, 50},
+            { 10, 10, 20, 30, 30, 20, 10, 10},
+            {  5,  5, 10, 25, 25, 10,  5,  5},
+            {  0,  0,  0, 20, 20,  0,  0,  0},
+            {  5, -5,-10,  0,  0,-10, -5,  5},
+            {  5, 10, 10,-20,-20, 10, 10,  5},
+            {  0,  0,  0,  0,  0,  0,  0,  0}};
+
+    private static final int[][] KNIGHT = {
+            {-50,-40,-30,-30,-30,-30,-40,-50},
+            {-40,-20,  0,  0,  0,  0,-20,-40},
+            {-30,  0, 10, 15, 15, 10,  0,-30},
+            {-30,  5, 15, 20, 20, 15,  5,-30},
+            {-30,  0, 15, 20, 20, 15,  0,-30},
+            {-30,  5, 10, 15, 15, 10,  5,-30},
+            {-40,-20,  0,  5,  5,  0,-20,-40},
+            {-50,-40,-30,-30,-30,-30,-40,-50}};
+
+    private static final int[][] BISHOP = {
+            {-20,-10,-10,-10,-10,-10,-10,-20},
+            {-10,  0,  0,  0,  0,  0,  0,-10},
+            {-10,  0,  5, 10, 10,  5,  0,-10},
+            {-10,  5,  5, 10, 10,  5,  5,-10},
+            {-10,  0, 10, 10, 10, 10,  0,-10},
+            {-10, 10, 10, 10, 10, 10, 10,-10},
+            {-10,  5,  0,  0,  0,  0,  5,-10},
+            {-20,-10,-10,-10,-10,-10,-10,-20}};
+
+    private static final int[][] ROOK = {
+            {  0,  0,  0,  0,  0,  0,  0,  0},
+            {  5, 10, 10, 10, 10, 10, 10,  5},
+            { -5,  0,  0,  0,  0,  0,  0, -5},
+            { -5,  0,  0,  0,  0,  0,  0, -5},
+            { -5,  0,  0,  0,  0,  0,  0, -5},
+            { -5,  0,  0,  0,  0,  0,  0, -5},
+            { -5,  0,  0,  0,  0,  0,  0, -5},
+            {  0,  0,  0,  5,  5,  0,  0,  0}};
+
+    private static final int[][] QUEEN = {
+            {-20,-10,-10, -5, -5,-10,-10,-20},
+            {-10,  0,  0,  0,  0,  0,  0,-10},
+            {-10,  0,  5,  5,  5,  5,  0,-10},
+            { -5,  0,  5,  5,  5,  5,  0, -5},
+            {  0,  0,  5,  5,  5,  5,  0, -5},
+            {-10,  5,  5,  5,  5,  5,  0,-10},
+            {-10,  0,  5,  0,  0,  0,  0,-10},
+            {-20,-10,-10, -5, -5,-10,-10,-20}};
+
+    private static final int[][] KING_MIDDLE_GAME = {
+            {-30,-40,-40,-50,-50,-40,-40,-30},
+            {-30,-40,-40,-50,-50,-40,-40,-30},
+            {-30,-40,-40,-50,-50,-40,-40,-30},
+            {-30,-40,-40,-50,-50,-40,-40,-30},
+            {-20,-30,-30,-40,-40,-30,-30,-20},
+            {-10,-20,-20,-20,-20,-20,-20,-10},
+            { 20, 20,  0,  0,  0,  0, 20, 20},
+            { 20, 30, 10,  0,  0, 10, 30, 20}};
+
+    private static final int[][] KING_END_GAME = {
+            {-50,-40,-30,-20,-20,-30,-40,-50},
+            {-30,-20,-10,  0,  0,-10,-20,-30},
+            {-30,-10, 20, 30, 30, 20,-10,-30},
+            {-30,-10, 30, 40, 40, 30,-10,-30},
+            {-30,-10, 30, 40, 40, 30,-10,-30},
+            {-30,-10, 20, 30, 30, 20,-10,-30},
+            {-30,-30,  0,  0,  0,  0,-30,-30},
+            {-50,-30,-30,-30,-30,-30,-30,-50}};
+
+    private PieceSquareTables(){}
+
+    /**
+     * Middlegame value (material + square) of a piece of the given colour on (row, column).
+     */
+    public static int middleGame(PieceType type, boolean isWhite, int row, int column){
+        int r = isWhite ? row : 7 - row;
+        return MATERIAL[type.ordinal()] + (type == PieceType.KING ? KING_MIDDLE_GAME[r][column] : table(type)[r][column]);
+    }
+
+    /**
+     * Endgame value (material + square) of a piece of the given colour on (row, column).
+     */
+    public static int endGame(PieceType type, boolean isWhite, int row, int column){
+        int r = isWhite ? row : 7 - row;
+        return MATERIAL[type.ordinal()] + (type == PieceType.KING ? KING_END_GAME[r][column] : table(type)[r][column]);
+    }
+
+    private static int[][] table(PieceType type){
+        switch(type){
+            case PAWN: return PAWN;
+            case KNIGHT: return KNIGHT;
+            case BISHOP: return BISHOP;
+            case ROOK: return ROOK;
+            case QUEEN: return QUEEN;
+            default: return KING_MIDDLE_GAME;
+        }
+    }
+}
@@ -82,6 +82,155 @@ public class RuleEngine{
         return legalToPositions;
     }
 
+    /**
+     * Gets the valid target squares of every piece of the side to move,
+     * indexed by the square the piece stands on. Pieces without a legal move are left out.
+     * This is used to precompute the GUI's move dots once per turn.
+     */
+    public Map<Position, Set<Position>> getAllValidMoves(GameState state){
+        Map<Position, Set<Position>> movesBySquare = new HashMap<>();
+        for(int r = 0; r < 8; r++){
+            for(int c = 0; c < 8; c++){
+                Position pos = new Position(r, c);
+                Piece p = state.getBoard().getPieceAt(pos);
+                if(p != null && p.isWhite() == state.isWhiteTurn()){
+                    Set<Position> targets = getValidMovesForPiece(state, pos);
+                    if(!targets.isEmpty()){
+                        movesBySquare.put(pos, targets);
+                    }
+                }
+            }
+        }
+        return movesBySquare;
+    }
+
+    /**
+     * Gets every legal move of the side to move, for the engine.
+     * Promotions are expanded into one move per promotion piece (Queen first).
+     * Unlike generateMove(), the moves are NOT tagged with check/mate (that would be too slow).
+     */
+    public List<Move> getAllLegalMoves(GameState state){
+        List<Move> allMoves = new ArrayList<>();
+        addLegalMoves(state, true, true, allMoves);
+        return allMoves;
+    }
+
+    /**
+     * Gets the legal captures (en passant included) and promotions of the side to move,
+     * like getAllLegalMoves(). The quiet moves are not even checked for legality,
+     * so a search that only needs the captures pays only for those.
+     */
+    public List<Move> getLegalCaptures(GameState state){
+        List<Move> captures = new ArrayList<>();
+        addLegalMoves(state, true, false, captures);
+        return captures;
+    }
+
+    /**
+     * Gets the legal moves that are neither captures nor promotions (castling included).
+     * Together with getLegalCaptures() these are exactly the moves of getAllLegalMoves().
+     */
+    public List<Move> getLegalQuietMoves(GameState state){
+        List<Move> quiets = new ArrayList<>();
+        addLegalMoves(state, false, true, quiets);
+        return quiets;
+    }
+
+    /**
+     * Finds one legal move, like getAllLegalMoves() would return it (not tagged with check).
+     *
+     * @param promotion The promotion piece type, null if the move is not a promotion.
+     * @return The move, or null if it is not legal in this position.
+     */
+    public Move getLegalMove(GameState state, Position from, Position to, PieceType promotion){
+        Piece piece = state.getBoard().getPieceAt(from);
+        if(piece == null || piece.isWhite() != state.isWhiteTurn()){
+            return null;
+        }
+        boolean promotes = piece.getType() == PieceType.PAWN && to.row() == (piece.isWhite() ? 0 : 7);
+        if(promotes != (promotion != null) || promotion == PieceType.PAWN || promotion == PieceType.KING){
+            return null;
+        }
+        for(Move move : getLegalMovesForPiece(state, from)){
+            if(move.getTo().equals(to)){
+                if(promotes){
+                    Move promotionMove = new Move(from, to, piece);
+                    promotionMove.setPromotionPiece(MoveCodes.createPiece(promotion, piece.isWhite()));
+                    return promotionMove;
+                }
+                return move;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Collects the legal moves of the wanted kinds. A target is sorted into its kind
+     * before the (expensive) self-check test, so unwanted moves cost almost nothing.
+     */
+    private void addLegalMoves(GameState state, boolean wantCaptures, boolean wantQuiets, List<Move> out){
+        Board board = state.getBoard();
+        boolean isWhite = state.isWhiteTurn();
+        int endRow = isWhite ? 0 : 7;
+        for(int r = 0; r < 8; r++){
+            for(int c = 0; c < 8; c++){
+                Position pos = new Position(r, c);
+                Piece p = board.getPieceAt(pos);
+                if(p == null || p.isWhite() != isWhite){
+                    continue;
+                }
+                boolean isPawn = p.getType() == PieceType.PAWN;
+                for(Position target : getTargets(state, p, pos)){
+                    boolean isCapture = board.isOccupied(target) || (isPawn && target.column() != c);
+                    boolean isTactical = isCapture || (isPawn && target.row() == endRow);
+                    if(isTactical ? !wantCaptures : !wantQuiets){
+                        continue;
+                    }
+                    Move move = new Move(pos, target, p);
+                    if(isPawn && target.column() != c && !board.isOccupied(target)){
+                        move.setEnPassant(true);
+                    }
+                    if(!isMoveSafe(state, move)){
+                        continue;
+                    }
+                    if(isPawn && target.row() == endRow){
+                        for(Piece promotionPiece : new Piece[]{new Queen(isWhite), new Rook(isWhite), new Bishop(isWhite), new Knight(isWhite)}){
+                            Move promotion = new Move(pos, target, p);
+                            promotion.setPromotionPiece(promotionPiece);
+                            out.add(promotion);
+                        }
+                    }else{
+                        out.add(move);
+                    }
+                }
+                if(wantQuiets && p.getType() == PieceType.KING){
+                    // Straight into the list: a HashSet of Moves (identity hashes) would order them differently every run
+                    addCastlingMoves(state, pos, out);
+                }
+            }
+        }
+    }
+
+    /**
+     * The squares a piece may move to ignoring self-check: its own moves,
+     * plus the en passant capture (the pieces only see the board, not the game).
+     */
+    private Set<Position> getTargets(GameState state, Piece piece, Position piecePos){
+        Set<Position> targets = piece.getPossiblyLegalMoves(state.getBoard(), piecePos);
+        Position enPassant = state.getEnPassantTargetSquare();
+        if(enPassant != null && piece.getType() == PieceType.PAWN
+                && enPassant.row() == piecePos.row() + (piece.isWhite() ? -1 : 1)
+                && Math.abs(enPassant.column() - piecePos.column()) == 1
+                && !state.getBoard().isOccupied(enPassant)){
+            Piece victim = state.getBoard().getPieceAt(new Position(piecePos.row(), enPassant.column()));
+            if(victim != null && victim.getType() == PieceType.PAWN && victim.isWhite() != piece.isWhite()){
+                targets = new HashSet<>(targets);
+                targets.add(enPassant);
+            }
+        }
+        return targets;
+    }
+
     /**
      * PRIVATE: Gets a Set of all *fully legal* Move objects for a piece.
      */
@@ -94,7 +243,7 @@ public class RuleEngine{
         }
 
         // 1. Get all possibly-legal moves (ignoring check)
-        Set<Position> targets = piece.getPossiblyLegalMoves(state.getBoard(), piecePos);
+        Set<Position> targets = getTargets(state, piece, piecePos);
 
         // 2. Filter for self-check
         for(Position targetPos : targets){
@@ -151,6 +300,87 @@ public class RuleEngine{
         return isKingInCheck(state.getBoard(), isWhiteKing);
     }
 
+    /**
+     * Does the move check the opponent's king? Worked out on the board as it is, without
+     * making the move, so the search can decide on pruning first. Castling, promotions and
+     * en passant (rare, and moving more than one piece) are played on a copy instead.
+     */
+    public boolean givesCheck(Board board, Move move){
+        Position from = move.getFrom();
+        Position to = move.getTo();
+        Piece moved = board.getPieceAt(from);
+        if(moved == null){
+            return false;
+        }
+        if(move.isCastling() || move.isPromotion() || move.isEnPassant()){
+            return isKingInCheck(simulateMove(board, move), !moved.isWhite());
+        }
+        int king = board.getKingSquare(!moved.isWhite());
+        if(king < 0){
+            return false;
+        }
+
+        // 1. Direct check by the piece from its new square
+        int dr = king / 8 - to.row();
+        int dc = king % 8 - to.column();
+        switch(moved.getType()){
+            case PAWN:
+                if(dr == (moved.isWhite() ? -1 : 1) && Math.abs(dc) == 1) return true;
+                break;
+            case KNIGHT:
+                if(Math.abs(dr * dc) == 2) return true;
+                break;
+            case KING:
+                break;
+            default:
+                if(slidesAlong(moved.getType(), dr, dc)
+                        && firstPieceAlong(board, MoveCodes.square(to), Integer.signum(dr), Integer.signum(dc), from, null) == king){
+                    return true;
+                }
+        }
+
+        // 2. Discovered check: the piece leaves the line between the king and a slider
+        int fr = from.row() - king / 8;
+        int fc = from.column() - king % 8;
+        if(fr != 0 && fc != 0 && Math.abs(fr) != Math.abs(fc)){
+            return false;
+        }
+        int behind = firstPieceAlong(board, king, Integer.signum(fr), Integer.signum(fc), from, to);
+        if(behind < 0 || behind == MoveCodes.square(to)){
+            return false;
+        }
+        Piece slider = board.getPieceAt(MoveCodes.position(behind));
+        return slider.isWhite() == moved.isWhite() && slidesAlong(slider.getType(), fr, fc);
+    }
+
+    // Can a piece of this type attack along the direction (dr, dc)?
+    private static boolean slidesAlong(PieceType type, int dr, int dc){
+        if(dr == 0 && dc == 0){
+            return false;
+        }
+        if(dr == 0 || dc == 0){
+            return type == PieceType.ROOK || type == PieceType.QUEEN;
+        }
+        return Math.abs(dr) == Math.abs(dc) && (type == PieceType.BISHOP || type == PieceType.QUEEN);
+    }
+
+    // The first occupied square past the start in a direction, taking one square as empty and another as taken, or -1
+    private static int firstPieceAlong(Board board, int start, int stepRow, int stepCol, Position empty, Position taken){
+        int row = start / 8 + stepRow;
+        int col = start % 8 + stepCol;
+        while(row >= 0 && row < 8 && col >= 0 && col < 8){
+            int square = row * 8 + col;
+            boolean isEmpty = row == empty.row() && col == empty.column();
+            boolean isTaken = taken != null && row == taken.row() && col == taken.column();
+            if(isTaken || !isEmpty && board.getPieceCode(square) >= 0){
+                return square;
+            }
+            row += stepRow;
+            col += stepCol;
+        }
+        return -1;
+    }
+
     /**
      * Checks if a specific square is attacked by any piece of the 'attacker' colour.
      */
@@ -190,7 +420,7 @@ public class RuleEngine{
     /**
      * Checks for and adds Castling moves to the list.
      */
-    private void addCastlingMoves(GameState state, Position kingPos, Set<Move> legalMoves){
+    private void addCastlingMoves(GameState state, Position kingPos, Collection<Move> legalMoves){
         boolean isWhite = state.isWhiteTurn();
         CastlingRights rights = state.getCastlingRights();
         Board board = state.getBoard();
@@ -269,6 +499,138 @@ public class RuleEngine{
         }
         return true; // No legal moves found
     }
+
+    // --- Static exchange evaluation ---
+
+    // Piece values of the exchange, by PieceType ordinal (the king can't be won, so it's worth more than everything)
+    private static final int[] EXCHANGE_VALUES = {100, 500, 320, 330, 900, 20000};
+    private static final int[][] DIAGONALS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+    private static final int[][] LINES = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+    private static final int[][] KNIGHT_JUMPS = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+
+    /**
+     * Static exchange evaluation: the material the side to move wins (or loses, if negative)
+     * by making the move and then letting both sides recapture on its target square,
+     * always with their least valuable piece, as long as it pays.
+     *
+     * Nothing is moved on the board: the capturers are taken off a bitmask, so the pieces
+     * lined up behind them (a rook behind a rook, a bishop behind a queen) join in.
+     * Pins are not looked at. A quiet move scores 0 or less (the loss if the piece is taken).
+     */
+    public int staticExchange(Board board, Move move){
+        Position target = move.getTo();
+        Piece moved = board.getPieceAt(move.getFrom());
+        if(moved == null){
+            return 0;
+        }
+        Piece captured = move.isEnPassant() ? null : board.getPieceAt(target);
+        int[] gains = new int[32];
+        gains[0] = captured != null ? EXCHANGE_VALUES[captured.getType().ordinal()] : move.isEnPassant() ? EXCHANGE_VALUES[0] : 0;
+        int onSquare = EXCHANGE_VALUES[moved.getType().ordinal()];
+        if(move.isPromotion()){
+            int promoted = EXCHANGE_VALUES[move.getPromotionPiece().getType().ordinal()];
+            gains[0] += promoted - EXCHANGE_VALUES[0];
+            onSquare = promoted;
+        }
+
+        // 1. Both sides recapture in turn, each with its least valuable attacker
+        long used = 1L << MoveCodes.square(move.getFrom());
+        if(move.isEnPassant()){
+            used |= 1L << MoveCodes.square(new Position(move.getFrom().row(), target.column()));
+        }
+        boolean white = !moved.isWhite();
+        int depth = 0;
+        while(depth + 1 < gains.length){
+            int attacker = leastValuableAttacker(board, target, white, used);
+            if(attacker < 0){
+                break;
+            }
+            Piece piece = board.getPieceAt(MoveCodes.position(attacker));
+            if(piece.getType() == PieceType.KING && leastValuableAttacker(board, target, !white, used | 1L << attacker) >= 0){
+                break; // The king can't take a defended piece
+            }
+            depth++;
+            gains[depth] = onSquare - gains[depth - 1];
+            onSquare = EXCHANGE_VALUES[piece.getType().ordinal()];
+            used |= 1L << attacker;
+            white = !white;
+        }
+
+        // 2. Going back, each side may also stop taking when that is better for it
+        while(depth > 0){
+            gains[depth - 1] = -Math.max(-gains[depth - 1], gains[depth]);
+            depth--;
+        }
+        return gains[0];
+    }
+
+    /**
+     * The square (see MoveCodes.square()) of the least valuable piece of a colour attacking the
+     * target, looking through the pieces already used, or -1 if there is none.
+     */
+    private int leastValuableAttacker(Board board, Position target, boolean white, long used){
+        int best = -1;
+        int bestValue = Integer.MAX_VALUE;
+
+        // Pawns attack diagonally forwards, so they stand diagonally behind the target
+        int pawnRow = target.row() + (white ? 1 : -1);
+        for(int dc = -1; dc <= 1; dc += 2){
+            int square = squareIfOwn(board, pawnRow, target.column() + dc, white, used, PieceType.PAWN);
+            if(square >= 0){
+                return square;
+            }
+        }
+        for(int[] jump : KNIGHT_JUMPS){
+            int square = squareIfOwn(board, target.row() + jump[0], target.column() + jump[1], white, used, PieceType.KNIGHT);
+            if(square >= 0){
+                return square;
+            }
+        }
+        for(int[][] directions : new int[][][]{DIAGONALS, LINES}){
+            for(int[] direction : directions){
+                // The first piece along the ray, skipping the used ones
+                int row = target.row() + direction[0];
+                int col = target.column() + direction[1];
+                while(row >= 0 && row < 8 && col >= 0 && col < 8){
+                    int square = row * 8 + col;
+                    Piece piece = (used & 1L << square) != 0 ? null : board.getPieceAt(new Position(row, col));
+                    if(piece != null){
+                        PieceType type = piece.getType();
+                        boolean slides = type == PieceType.QUEEN || type == (directions == DIAGONALS ? PieceType.BISHOP : PieceType.ROOK);
+                        if(piece.isWhite() == white && slides && EXCHANGE_VALUES[type.ordinal()] < bestValue){
+                            best = square;
+                            bestValue = EXCHANGE_VALUES[type.ordinal()];
+                        }
+                        break;
+                    }
+                    row += direction[0];
+                    col += direction[1];
+                }
+            }
+        }
+        if(best >= 0){
+            return best;
+        }
+        for(int dr = -1; dr <= 1; dr++){
+            for(int dc = -1; dc <= 1; dc++){
+                int square = (dr == 0 && dc == 0) ? -1 : squareIfOwn(board, target.row() + dr, target.column() + dc, white, used, PieceType.KING);
+                if(square >= 0){
+                    return square;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // The square, if a piece of this colour and type stands on it and hasn't been used
+    private int squareIfOwn(Board board, int row, int col, boolean white, long used, PieceType type){
+        if(row < 0 || row > 7 || col < 0 || col > 7 || (used & 1L << (row * 8 + col)) != 0){
+            return -1;
+        }
+        Piece piece = board.getPieceAt(new Position(row, col));
+        return piece != null && piece.isWhite() == white && piece.getType() == type ? row * 8 + col : -1;
+    }
+
     /**
      * Checkmate detector, for signaling the end of the game.
      */
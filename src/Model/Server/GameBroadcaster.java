@@ -0,0 +1,167 @@
+package Model.Server;
+
+import Model.*;
+import Model.IOs.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * Fans the moves of one game out to its spectators.
+ *
+ * Each move is encoded once (see SpectatorProtocol) into a ring of the last
+ * few hundred messages. Every spectator reads the shared, read-only buffers
+ * at its own pace from its own thread, so publishing never waits for a
+ * spectator and costs the same for 10 or 10,000 of them.
+ *
+ * The ring is the bound on what a slow spectator may lag behind. A spectator
+ * that falls out of it skips the missed deltas and continues from the latest
+ * full snapshot. A snapshot is taken every snapshotInterval moves, which is
+ * less than the ring size, so a snapshot is always newer than the oldest
+ * message still in the ring.
+ */
+public class GameBroadcaster{
+    public static final int DEFAULT_CAPACITY = 256;
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 64;
+
+    private final ByteBuffer[] ring;
+    private final int snapshotInterval;
+    private final FENFormatter fenFormatter = new FENFormatter();
+
+    // Writes to the ring and the snapshot happen before the write of lastSeq that publishes them
+    private volatile int lastSeq = 0;
+    private volatile ByteBuffer snapshot;
+    private volatile boolean closed = false;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+
+    private final AtomicInteger spectatorCount = new AtomicInteger();
+    private final LongAdder resyncCount = new LongAdder();
+
+    public GameBroadcaster(GameState start){
+        this(start, DEFAULT_CAPACITY, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    public GameBroadcaster(GameState start, int capacity, int snapshotInterval){
+        if(snapshotInterval < 1 || snapshotInterval >= capacity){
+            throw new IllegalArgumentException("The snapshot interval must be between 1 and the capacity");
+        }
+        this.ring = new ByteBuffer[capacity];
+        this.snapshotInterval = snapshotInterval;
+        this.snapshot = encodeSnapshot(0, start);
+    }
+
+    public int getSpectatorCount(){ return spectatorCount.get(); }
+    public long getResyncCount(){ return resyncCount.sum(); }
+    public int getLastSeq(){ return lastSeq; }
+
+    /**
+     * Publishes a move. Must be called by one thread at a time, right after the move was made.
+     *
+     * @param after The position after the move.
+     * @param moveCode The move, see MoveCodes.
+     */
+    public void publish(GameState after, int moveCode){
+        int seq = lastSeq + 1;
+        ring[seq % ring.length] = SpectatorProtocol.encodeDelta(seq, moveCode, Zobrist.hash(after),
+                after.getMoveHistory().size(), after.getHalfMoveClock());
+        if(seq % snapshotInterval == 0){
+            snapshot = encodeSnapshot(seq, after);
+        }
+        lastSeq = seq;
+        signalSpectators();
+    }
+
+    /**
+     * Ends every spectator's stream (the game is gone).
+     */
+    public void close(){
+        closed = true;
+        signalSpectators();
+    }
+
+    /**
+     * Streams the game to one spectator until the game is closed: first the latest snapshot,
+     * then every move. Runs on the spectator's own thread; a blocked write only holds up this spectator.
+     */
+    public void stream(WritableByteChannel out) throws IOException, InterruptedException {
+        spectatorCount.incrementAndGet();
+        try {
+            int next = writeSnapshot(out) + 1;
+            while(true){
+                int last = awaitNewerThan(next - 1);
+                if(last < 0){
+                    return; // Closed
+                }
+                // The oldest message still in the ring is last - capacity + 1
+                if(last - next >= ring.length - 1){
+                    resyncCount.increment();
+                    next = writeSnapshot(out) + 1;
+                    continue;
+                }
+                for(; next <= last; next++){
+                    ByteBuffer message = ring[next % ring.length].duplicate();
+                    if(SpectatorProtocol.seqOf(message) != next){
+                        break; // Overwritten while we were writing, resync on the next round
+                    }
+                    writeFully(out, message);
+                }
+            }
+        } finally {
+            spectatorCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return The sequence number of the snapshot written.
+     */
+    private int writeSnapshot(WritableByteChannel out) throws IOException {
+        ByteBuffer message = snapshot.duplicate();
+        int seq = SpectatorProtocol.seqOf(message);
+        writeFully(out, message);
+        return seq;
+    }
+
+    /**
+     * @return The latest sequence number once it is newer than seq, or -1 if the game
+     *         was closed and nothing newer is left (the last moves still go out after a close).
+     */
+    private int awaitNewerThan(int seq) throws InterruptedException {
+        int last = lastSeq;
+        if(last > seq){
+            return last; // No need to lock while there is something to send
+        }
+        lock.lock();
+        try {
+            while(lastSeq <= seq && !closed){
+                published.await();
+            }
+            return lastSeq > seq ? lastSeq : -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signalSpectators(){
+        lock.lock();
+        try {
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ByteBuffer encodeSnapshot(int seq, GameState state){
+        return SpectatorProtocol.encodeSnapshot(seq, Zobrist.hash(state), fenFormatter.format(state));
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer message) throws IOException {
+        while(message.hasRemaining()){
+            out.write(message);
+        }
+    }
+}
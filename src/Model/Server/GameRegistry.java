@@ -0,0 +1,41 @@
+package Model.Server;
+
+import Model.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * All games hosted by the server, by id.
+ */
+public class GameRegistry{
+    private final ConcurrentHashMap<Long, GameSession> games = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    public GameSession create(GameState start){
+        GameSession session = new GameSession(nextId.getAndIncrement(), start);
+        games.put(session.getId(), session);
+        return session;
+    }
+
+    public Optional<GameSession> get(long id){
+        return Optional.ofNullable(games.get(id));
+    }
+
+    /**
+     * Removes the game and ends its spectators' streams.
+     */
+    public boolean remove(long id){
+        GameSession session = games.remove(id);
+        if(session == null){
+            return false;
+        }
+        session.getBroadcaster().close();
+        return true;
+    }
+
+    public int size(){
+        return games.size();
+    }
+}
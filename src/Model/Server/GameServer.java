@@ -0,0 +1,208 @@
+package Model.Server;
+
+import Model.*;
+import Model.IOs.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Headless multi-game server: hosts any number of games and validates their moves.
+ *
+ * Every connection is served by its own virtual thread, so thousands of mostly idle
+ * clients cost little more than their sockets. The protocol is line based:
+ *
+ *   NEW [fen]         -> GAME <id>
+ *   MOVE <id> <uci>   -> OK <status> | ILLEGAL | ERROR <reason>
+ *   CLOSE <id>        -> OK | ERROR <reason>
+ *   WATCH <id>        -> WATCHING <id>, then binary SpectatorProtocol messages until the game is closed
+ *   STATS             -> STATS games=<n> validation n=.. p50=..us p99=..us max=..us
+ *   QUIT              (closes the connection)
+ *
+ * The time spent validating and playing each move is recorded, see getValidationLatency().
+ */
+public class GameServer implements Closeable{
+    private static final int BACKLOG = 4096;
+
+    private final InetSocketAddress address;
+    private final GameRegistry registry = new GameRegistry();
+    private final RuleEngine ruleEngine = new RuleEngine();
+    private final FENParser fenParser = new FENParser();
+    private final LatencyHistogram validationLatency = new LatencyHistogram();
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+
+    private ServerSocket serverSocket;
+    private volatile boolean closed = false;
+
+    /**
+     * @param bindAddress The interface to listen on.
+     * @param port The port, or 0 for any free port (see getPort()).
+     */
+    public GameServer(InetAddress bindAddress, int port){
+        this.address = new InetSocketAddress(bindAddress, port);
+    }
+
+    /**
+     * A server only reachable from this machine, on a free port. Used by the tests.
+     */
+    public static GameServer loopback(){
+        return new GameServer(InetAddress.getLoopbackAddress(), 0);
+    }
+
+    public void start() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(address, BACKLOG);
+        Thread.ofVirtual().name("game-server-accept").start(this::acceptConnections);
+    }
+
+    public int getPort(){
+        return serverSocket.getLocalPort();
+    }
+
+    public GameRegistry getRegistry(){
+        return registry;
+    }
+
+    public LatencyHistogram getValidationLatency(){
+        return validationLatency;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if(serverSocket != null){
+            serverSocket.close();
+        }
+        for(Socket socket : openSockets){
+            socket.close();
+        }
+        connections.shutdownNow();
+    }
+
+    private void acceptConnections(){
+        while(!closed){
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                openSockets.add(socket);
+                connections.submit(() -> serve(socket));
+            } catch(IOException e){
+                if(!closed){
+                    System.err.println("Accept failed: " + e.getMessage());
+                }
+            } catch(RejectedExecutionException e){
+                return; // Closed while accepting
+            }
+        }
+    }
+
+    private void serve(Socket socket){
+        try(socket;
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))){
+            String line;
+            while((line = in.readLine()) != null){
+                line = line.trim();
+                if(line.toUpperCase().startsWith("WATCH ")){
+                    // The connection now belongs to the spectator stream
+                    watch(line.substring(6).trim(), out, socket.getOutputStream());
+                    break;
+                }
+                String reply = handle(line);
+                if(reply == null){
+                    break; // QUIT
+                }
+                out.write(reply);
+                out.write('\n');
+                out.flush();
+            }
+        } catch(IOException e){
+            // The client went away, nothing to clean up but the socket
+        } catch(InterruptedException e){
+            Thread.currentThread().interrupt(); // Server shutting down
+        } finally {
+            openSockets.remove(socket);
+        }
+    }
+
+    private void watch(String id, BufferedWriter out, OutputStream rawOut) throws IOException, InterruptedException {
+        Optional<GameSession> game;
+        try {
+            game = registry.get(Long.parseLong(id));
+        } catch(NumberFormatException e){
+            game = Optional.empty();
+        }
+        if(game.isEmpty()){
+            out.write("ERROR unknown game " + id + "\n");
+            out.flush();
+            return;
+        }
+        out.write("WATCHING " + id + "\n");
+        out.flush();
+        game.get().getBroadcaster().stream(Channels.newChannel(rawOut));
+    }
+
+    /**
+     * @return The reply line, or null to close the connection.
+     */
+    String handle(String line){
+        String[] tokens = line.split("\\s+");
+        try {
+            switch(tokens[0].toUpperCase()){
+                case "NEW": {
+                    GameState start = tokens.length > 1
+                            ? fenParser.parse(line.substring(line.indexOf(' ') + 1).trim())
+                            : new GameState();
+                    return "GAME " + registry.create(start).getId();
+                }
+                case "MOVE": {
+                    if(tokens.length != 3){
+                        return "ERROR usage: MOVE <id> <uci>";
+                    }
+                    Optional<GameSession> game = registry.get(Long.parseLong(tokens[1]));
+                    if(game.isEmpty()){
+                        return "ERROR unknown game " + tokens[1];
+                    }
+                    int code = MoveCodes.fromUci(tokens[2]);
+                    if(code == MoveCodes.NONE){
+                        return "ILLEGAL";
+                    }
+                    long start = System.nanoTime();
+                    GameSession.Status status = game.get().tryMove(ruleEngine, code);
+                    validationLatency.record(System.nanoTime() - start);
+                    return status == GameSession.Status.ILLEGAL ? "ILLEGAL" : "OK " + status;
+                }
+                case "CLOSE":
+                    return registry.remove(Long.parseLong(tokens[1])) ? "OK" : "ERROR unknown game " + tokens[1];
+                case "STATS":
+                    return "STATS games=" + registry.size() + " validation " + validationLatency.summary();
+                case "QUIT":
+                    return null;
+                default:
+                    return "ERROR unknown command " + tokens[0];
+            }
+        } catch(IllegalArgumentException | IndexOutOfBoundsException e){
+            return "ERROR " + e.getMessage();
+        }
+    }
+
+    /**
+     * "java Main server [port]": runs until killed, printing the statistics every 10 seconds.
+     */
+    public static void runFromCommandLine(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7878;
+        GameServer server = new GameServer(null, port); // null: all interfaces
+        server.start();
+        System.out.println("Game server listening on port " + server.getPort());
+        while(true){
+            Thread.sleep(10_000);
+            System.out.println("games=" + server.registry.size() + " validation " + server.validationLatency.summary());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package Model.Server;
+
+import Model.*;
+
+import java.util.concurrent.locks.*;
+
+/**
+ * One game hosted by the server.
+ *
+ * Any connection may send moves for any game, so the state is guarded by a lock.
+ * It's a ReentrantLock rather than synchronized: a virtual thread blocked on a
+ * monitor pins its carrier thread, one waiting on a j.u.c. lock doesn't.
+ *
+ * Every move played is published to the game's spectators, see GameBroadcaster.
+ */
+public class GameSession{
+    /**
+     * The outcome of a move, as sent back to the client.
+     */
+    public enum Status{ ILLEGAL, ONGOING, CHECK, CHECKMATE, STALEMATE, FIFTY_MOVE_DRAW }
+
+    private final long id;
+    private final GameState state;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final GameBroadcaster broadcaster;
+    private Status status = Status.ONGOING;
+
+    public GameSession(long id, GameState state){
+        this.id = id;
+        this.state = state;
+        this.broadcaster = new GameBroadcaster(state);
+    }
+
+    public long getId(){ return id; }
+    public GameBroadcaster getBroadcaster(){ return broadcaster; }
+
+    public boolean isOver(){
+        lock.lock();
+        try {
+            return status != Status.ONGOING && status != Status.CHECK;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Validates the move with the RuleEngine and plays it if it is legal.
+     *
+     * @param moveCode The move, see MoveCodes.
+     * @return ILLEGAL if the move was rejected, otherwise the game's status after it.
+     */
+    public Status tryMove(RuleEngine ruleEngine, int moveCode){
+        lock.lock();
+        try {
+            if(status != Status.ONGOING && status != Status.CHECK){
+                return Status.ILLEGAL; // The game is over
+            }
+            Move move = MoveCodes.decode(state, ruleEngine, moveCode);
+            if(move == null){
+                return Status.ILLEGAL;
+            }
+            state.makeMove(move);
+            // Published under the lock, so the spectators get the moves in order
+            broadcaster.publish(state, moveCode);
+
+            if(ruleEngine.isCheckmate(state)){
+                status = Status.CHECKMATE;
+            }else if(ruleEngine.isStalemate(state)){
+                status = Status.STALEMATE;
+            }else if(state.getHalfMoveClock() >= 100){
+                status = Status.FIFTY_MOVE_DRAW;
+            }else if(ruleEngine.isKingInCheck(state, state.isWhiteTurn())){
+                status = Status.CHECK;
+            }else{
+                status = Status.ONGOING;
+            }
+            return status;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
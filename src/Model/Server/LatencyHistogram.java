@@ -0,0 +1,92 @@
+package Model.Server;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * A lock-free latency histogram, recorded into from many threads at once.
+ *
+ * Values (nanoseconds) fall into log-linear buckets: every power of two is split
+ * into 16 sub-buckets, so a reported percentile is within about 6% of the true value.
+ */
+public class LatencyHistogram{
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAGNITUDES = 64 - SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(MAGNITUDES * SUB_BUCKETS);
+    private final LongAdder totalCount = new LongAdder();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    public void record(long nanos){
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        totalCount.increment();
+        maxValue.accumulateAndGet(value, Math::max);
+    }
+
+    public long count(){
+        return totalCount.sum();
+    }
+
+    public long max(){
+        return maxValue.get();
+    }
+
+    /**
+     * @param percentile E.g. 99.0 for the p99.
+     * @return The upper bound of the bucket holding that percentile, in nanoseconds (0 if empty).
+     */
+    public long percentile(double percentile){
+        long total = count();
+        if(total == 0){
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for(int i = 0; i < counts.length(); i++){
+            seen += counts.get(i);
+            if(seen >= Math.max(1, rank)){
+                return Math.min(upperBoundOf(i), max());
+            }
+        }
+        return max();
+    }
+
+    public void reset(){
+        for(int i = 0; i < counts.length(); i++){
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        maxValue.set(0);
+    }
+
+    /**
+     * E.g. "n=1200 p50=35us p99=180us max=2100us".
+     */
+    public String summary(){
+        return "n=" + count()
+                + " p50=" + percentile(50) / 1000 + "us"
+                + " p99=" + percentile(99) / 1000 + "us"
+                + " max=" + max() / 1000 + "us";
+    }
+
+    // Values below 16 get their own buckets, above that the top 4 bits after the leading one decide
+    private static int bucketOf(long value){
+        if(value < SUB_BUCKETS){
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        int subBucket = (int) (value >>> (magnitude - 1)) & (SUB_BUCKETS - 1);
+        return magnitude * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int bucket){
+        int magnitude = bucket / SUB_BUCKETS;
+        long subBucket = bucket % SUB_BUCKETS;
+        if(magnitude == 0){
+            return subBucket;
+        }
+        long base = 1L << (magnitude + SUB_BUCKET_BITS - 1);
+        return base + ((subBucket + 1) << (magnitude - 1)) - 1;
+    }
+}
@@ -0,0 +1,195 @@
+package Model.Server;
+
+import Model.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Drives a GameServer with random legal games, each on its own connection and virtual thread.
+ *
+ * Every client keeps its own copy of the game to pick legal moves from, so the server
+ * sees the same traffic as from real players. Optionally every game is followed by
+ * a number of SpectatorClients, checking the server's fan-out.
+ *
+ * Thousands of games need as many sockets: raise the open file limit (ulimit -n) on both sides.
+ */
+public class LoadGenerator{
+    private static final Set<String> FINAL_STATUSES = Set.of("CHECKMATE", "STALEMATE", "FIFTY_MOVE_DRAW");
+
+    /**
+     * @param games Games played.
+     * @param moves Moves accepted by the server.
+     * @param rejected Moves the server refused (should be 0: every move sent is legal).
+     * @param elapsedMs Wall time of the run.
+     * @param roundTrip Client-side latency of every MOVE request.
+     * @param spectatorMessages Messages received by all spectators.
+     * @param spectatorMismatches Deltas that didn't lead to the position the server announced (should be 0).
+     * @param serverStats The server's STATS line after the run.
+     */
+    public record Report(int games, long moves, long rejected, long elapsedMs, LatencyHistogram roundTrip,
+                         long spectatorMessages, long spectatorMismatches, String serverStats){
+        @Override
+        public String toString(){
+            long movesPerSecond = elapsedMs > 0 ? moves * 1000 / elapsedMs : moves;
+            return games + " games, " + moves + " moves (" + movesPerSecond + "/s), " + rejected + " rejected\n"
+                    + "round trip " + roundTrip.summary() + "\n"
+                    + "spectators received " + spectatorMessages + " messages, " + spectatorMismatches + " mismatches\n"
+                    + "server " + serverStats;
+        }
+    }
+
+    private final String host;
+    private final int port;
+    private final RuleEngine ruleEngine = new RuleEngine();
+
+    public LoadGenerator(String host, int port){
+        this.host = host;
+        this.port = port;
+    }
+
+    public Report run(int games, int maxPlies, long seed) throws IOException, InterruptedException {
+        return run(games, 0, maxPlies, seed);
+    }
+
+    /**
+     * Plays the games concurrently and waits for all of them.
+     *
+     * @param games Number of concurrent games.
+     * @param spectatorsPerGame Spectators following each game.
+     * @param maxPlies A game is abandoned after this many plies (random games rarely end by themselves).
+     * @param seed Seed of the move choices, game i uses seed + i.
+     */
+    public Report run(int games, int spectatorsPerGame, int maxPlies, long seed) throws IOException, InterruptedException {
+        LatencyHistogram roundTrip = new LatencyHistogram();
+        LongAdder moves = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        LongAdder spectatorMessages = new LongAdder();
+        LongAdder spectatorMismatches = new LongAdder();
+
+        long start = System.nanoTime();
+        try(ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()){
+            Queue<Future<?>> results = new ConcurrentLinkedQueue<>();
+            for(int i = 0; i < games; i++){
+                long gameSeed = seed + i;
+                results.add(executor.submit(() -> {
+                    playGame(gameSeed, maxPlies, roundTrip, moves, rejected, id -> {
+                        // Subscribed before the first move, followed on a thread of its own
+                        for(int s = 0; s < spectatorsPerGame; s++){
+                            SpectatorClient spectator = new SpectatorClient(host, port, id);
+                            results.add(executor.submit(() -> {
+                                try(spectator){
+                                    spectator.run();
+                                }
+                                spectatorMessages.add(spectator.getMessageCount());
+                                spectatorMismatches.add(spectator.getMismatchCount());
+                                return null;
+                            }));
+                        }
+                    });
+                    return null;
+                }));
+            }
+            Future<?> result;
+            while((result = results.poll()) != null){
+                result.get();
+            }
+        } catch(ExecutionException e){
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+
+        String serverStats;
+        try(Connection connection = new Connection(host, port)){
+            serverStats = connection.request("STATS");
+        }
+        return new Report(games, moves.sum(), rejected.sum(), elapsedMs, roundTrip,
+                spectatorMessages.sum(), spectatorMismatches.sum(), serverStats);
+    }
+
+    private interface GameCreated{
+        void accept(long id) throws IOException;
+    }
+
+    private void playGame(long seed, int maxPlies, LatencyHistogram roundTrip, LongAdder moves, LongAdder rejected,
+                          GameCreated onCreated) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        GameState local = new GameState();
+
+        try(Connection connection = new Connection(host, port)){
+            String id = connection.request("NEW").substring("GAME ".length());
+            onCreated.accept(Long.parseLong(id));
+
+            for(int ply = 0; ply < maxPlies; ply++){
+                List<Move> legalMoves = ruleEngine.getAllLegalMoves(local);
+                if(legalMoves.isEmpty()){
+                    break;
+                }
+                Move move = legalMoves.get(random.nextInt(legalMoves.size()));
+
+                long sent = System.nanoTime();
+                String reply = connection.request("MOVE " + id + " " + MoveCodes.toUci(MoveCodes.encode(move)));
+                roundTrip.record(System.nanoTime() - sent);
+
+                if(!reply.startsWith("OK")){
+                    rejected.increment();
+                    break;
+                }
+                moves.increment();
+                local.makeMove(move);
+                if(FINAL_STATUSES.contains(reply.substring(3))){
+                    break;
+                }
+            }
+            connection.request("CLOSE " + id);
+        }
+    }
+
+    /**
+     * One client socket, request/reply.
+     */
+    private static class Connection implements Closeable{
+        private final Socket socket;
+        private final BufferedReader in;
+        private final BufferedWriter out;
+
+        Connection(String host, int port) throws IOException {
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        String request(String line) throws IOException {
+            out.write(line);
+            out.write('\n');
+            out.flush();
+            String reply = in.readLine();
+            if(reply == null){
+                throw new EOFException("Server closed the connection");
+            }
+            return reply;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    /**
+     * "java Main loadgen [host] [port] [games] [plies] [spectators per game]".
+     */
+    public static void runFromCommandLine(String[] args) throws IOException, InterruptedException {
+        String host = args.length > 1 ? args[1] : "localhost";
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 7878;
+        int games = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        int plies = args.length > 4 ? Integer.parseInt(args[4]) : 200;
+        int spectators = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+        System.out.println(new LoadGenerator(host, port).run(games, spectators, plies, System.nanoTime()));
+    }
+}
@@ -0,0 +1,103 @@
+package Model.Server;
+
+import Model.*;
+import Model.IOs.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Watches one game on a GameServer and keeps a copy of it up to date from the deltas.
+ *
+ * Each delta's key is checked against the copy. After a gap in the sequence numbers
+ * (or a mismatch) the deltas are ignored until the next snapshot.
+ */
+public class SpectatorClient implements Closeable{
+    private final Socket socket;
+    private final DataInputStream in;
+    private final RuleEngine ruleEngine = new RuleEngine();
+    private final FENParser fenParser = new FENParser();
+
+    private GameState state;
+    private int lastSeq = -1;
+    private boolean inSync = false;
+    private long messageCount = 0;
+    private long snapshotCount = 0;
+    private long mismatchCount = 0;
+
+    public SpectatorClient(String host, int port, long gameId) throws IOException {
+        socket = new Socket(host, port);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        OutputStream out = socket.getOutputStream();
+        out.write(("WATCH " + gameId + "\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+
+        String reply = readLine();
+        if(!reply.startsWith("WATCHING")){
+            socket.close();
+            throw new IOException("Can't watch game " + gameId + ": " + reply);
+        }
+    }
+
+    /**
+     * Follows the game until the server ends the stream.
+     */
+    public void run() throws IOException {
+        try {
+            while(true){
+                apply(SpectatorProtocol.read(in));
+            }
+        } catch(EOFException e){
+            // The game was closed
+        }
+    }
+
+    public GameState getState(){ return state; }
+    public int getLastSeq(){ return lastSeq; }
+    public long getMessageCount(){ return messageCount; }
+    public long getSnapshotCount(){ return snapshotCount; }
+    public long getMismatchCount(){ return mismatchCount; }
+
+    private void apply(SpectatorProtocol.Message message){
+        messageCount++;
+        if(message.type() == SpectatorProtocol.SNAPSHOT){
+            snapshotCount++;
+            state = fenParser.parse(message.fen());
+            inSync = Zobrist.hash(state) == message.hash();
+            lastSeq = message.seq();
+            return;
+        }
+
+        if(!inSync || message.seq() != lastSeq + 1){
+            inSync = false; // Wait for a snapshot
+            return;
+        }
+        Move move = MoveCodes.decode(state, ruleEngine, message.moveCode());
+        if(move != null){
+            state.makeMove(move);
+        }
+        if(move == null || Zobrist.hash(state) != message.hash()){
+            mismatchCount++;
+            inSync = false;
+        }
+        lastSeq = message.seq();
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int b;
+        while((b = in.read()) != '\n'){
+            if(b < 0){
+                throw new EOFException("Server closed the connection");
+            }
+            sb.append((char) b);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,79 @@
+package Model.Server;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The binary messages sent to spectators (big endian).
+ *
+ * Every message starts with the same 16-byte header:
+ *   type (1), reserved (1), move code or FEN length (2), sequence number (4), Zobrist key (8)
+ *
+ * DELTA (20 bytes): the header, then the ply (2) and halfmove clock (2) after the move.
+ *   The app has no game clocks, so the "clock" of a position is its ply and fifty-move counter.
+ * SNAPSHOT (16 + n bytes): the header, then the position as n bytes of FEN.
+ *
+ * A spectator applies the deltas to its copy of the game and compares the keys;
+ * on a gap in the sequence numbers it waits for the next snapshot.
+ */
+public final class SpectatorProtocol{
+    public static final byte DELTA = 1;
+    public static final byte SNAPSHOT = 2;
+
+    public static final int HEADER_BYTES = 16;
+    public static final int DELTA_BYTES = 20;
+
+    /**
+     * A decoded message. For a DELTA fen is null, for a SNAPSHOT moveCode, ply and halfMoveClock are 0.
+     */
+    public record Message(byte type, int seq, int moveCode, long hash, int ply, int halfMoveClock, String fen){
+    }
+
+    private SpectatorProtocol(){}
+
+    public static ByteBuffer encodeDelta(int seq, int moveCode, long hash, int ply, int halfMoveClock){
+        ByteBuffer buffer = ByteBuffer.allocate(DELTA_BYTES);
+        buffer.put(DELTA).put((byte) 0).putShort((short) moveCode).putInt(seq).putLong(hash);
+        buffer.putShort((short) ply).putShort((short) halfMoveClock);
+        return buffer.flip().asReadOnlyBuffer();
+    }
+
+    public static ByteBuffer encodeSnapshot(int seq, long hash, String fen){
+        byte[] fenBytes = fen.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + fenBytes.length);
+        buffer.put(SNAPSHOT).put((byte) 0).putShort((short) fenBytes.length).putInt(seq).putLong(hash);
+        buffer.put(fenBytes);
+        return buffer.flip().asReadOnlyBuffer();
+    }
+
+    /**
+     * The sequence number of an encoded message.
+     */
+    public static int seqOf(ByteBuffer message){
+        return message.getInt(message.position() + 4);
+    }
+
+    /**
+     * Reads the next message from a spectator's stream.
+     *
+     * @throws EOFException at the end of the stream.
+     */
+    public static Message read(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        in.readByte();
+        int moveCodeOrLength = in.readUnsignedShort();
+        int seq = in.readInt();
+        long hash = in.readLong();
+        switch(type){
+            case DELTA:
+                return new Message(type, seq, moveCodeOrLength, hash, in.readUnsignedShort(), in.readUnsignedShort(), null);
+            case SNAPSHOT:
+                byte[] fen = new byte[moveCodeOrLength];
+                in.readFully(fen);
+                return new Message(type, seq, 0, hash, 0, 0, new String(fen, StandardCharsets.US_ASCII));
+            default:
+                throw new IOException("Unknown spectator message type: " + type);
+        }
+    }
+}
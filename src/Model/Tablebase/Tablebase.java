@@ -0,0 +1,105 @@
+package Model.Tablebase;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/**
+ * The table of one ending (see TablebaseMaterial for the index).
+ *
+ * One byte per position: 0 for a draw (or an impossible position), otherwise the plies to
+ * mate + 1, from the strong side's point of view: with White to move it wins in that many
+ * plies, with Black to move it is mated in that many. Files are memory-mapped, so a probe
+ * is one byte read and opening a table costs nothing until its pages are touched.
+ *
+ * File layout: magic "CTBL" (4), version (4), material ordinal (4), reserved (4), the bytes.
+ */
+public class Tablebase implements Closeable{
+    private static final int MAGIC = 0x4354424C;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private final TablebaseMaterial material;
+    private final ByteBuffer values;
+    private final FileChannel channel; // null for a table generated in memory
+
+    private Tablebase(TablebaseMaterial material, ByteBuffer values, FileChannel channel){
+        this.material = material;
+        this.values = values;
+        this.channel = channel;
+    }
+
+    static Tablebase inMemory(TablebaseMaterial material, byte[] values){
+        return new Tablebase(material, ByteBuffer.wrap(values), null);
+    }
+
+    /**
+     * Maps a table file.
+     *
+     * @throws IOException if it can't be read or isn't a complete table.
+     */
+    public static Tablebase open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while(header.hasRemaining() && channel.read(header) >= 0){
+                // Read the whole header
+            }
+            header.flip();
+            if(header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION){
+                throw new IOException("Not a tablebase file: " + file);
+            }
+            int ordinal = header.getInt();
+            if(ordinal < 0 || ordinal >= TablebaseMaterial.values().length){
+                throw new IOException("Unknown tablebase material in " + file);
+            }
+            TablebaseMaterial material = TablebaseMaterial.values()[ordinal];
+            long size = 2L * material.halfSize();
+            if(channel.size() != HEADER_BYTES + size){
+                throw new IOException("Truncated tablebase file: " + file);
+            }
+            return new Tablebase(material, channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, size), channel);
+        } catch(IOException e){
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the table (to a temporary file first, so a crash never leaves half a table).
+     */
+    public void write(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try(FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).putInt(material.ordinal()).putInt(0).flip();
+            ByteBuffer body = values.duplicate().clear();
+            while(header.hasRemaining()){
+                out.write(header);
+            }
+            while(body.hasRemaining()){
+                out.write(body);
+            }
+            out.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public TablebaseMaterial getMaterial(){
+        return material;
+    }
+
+    /**
+     * @return The stored byte of a position (see the class comment).
+     */
+    public int valueAt(int index){
+        return values.get(index) & 0xFF;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(channel != null){
+            channel.close();
+        }
+    }
+}
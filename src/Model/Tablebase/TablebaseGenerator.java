@@ -0,0 +1,504 @@
+package Model.Tablebase;
+
+import Model.*;
+
+import java.io.*;
+import java.lang.invoke.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Builds a tablebase by retrograde analysis.
+ *
+ * 1. A scan over every index finds the mates (Black to move, no legal move, in check) and
+ *    counts Black's legal moves in every other position. In KPK it also finds the promotions
+ *    that win, from the KQK and KRK tables.
+ * 2. Then, one ply at a time, the positions found in the last round are taken back:
+ *    - a White move into a lost Black position makes the position before it a win;
+ *    - a Black king move into a won White position takes one escape from the position before it,
+ *      and a position with no escape left is lost.
+ *    Black escapes by capturing are never taken, as the ending is then a draw.
+ *
+ * Every position is handled in the round of its own distance to mate, so that is what gets stored.
+ * The scan is split over the threads by index ranges, the rounds by slices of the last round's
+ * positions; the shared tables are updated with atomic byte operations.
+ *
+ * Moves are generated on square numbers here rather than with the RuleEngine: the same rules
+ * (the tests compare the two), but a KBNK table has 33 million positions to go through.
+ */
+public class TablebaseGenerator{
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final long[] KING_STEPS = new long[64];
+    private static final long[] KNIGHT_JUMPS = new long[64];
+    private static final int[][] STRAIGHT = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+    private static final int[][] DIAGONAL = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+    private static final int[][] KNIGHT = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+
+    static{
+        for(int square = 0; square < 64; square++){
+            int row = square >> 3;
+            int col = square & 7;
+            for(int dr = -1; dr <= 1; dr++){
+                for(int dc = -1; dc <= 1; dc++){
+                    if((dr != 0 || dc != 0) && onBoard(row + dr, col + dc)){
+                        KING_STEPS[square] |= 1L << ((row + dr) * 8 + col + dc);
+                    }
+                }
+            }
+            for(int[] jump : KNIGHT){
+                if(onBoard(row + jump[0], col + jump[1])){
+                    KNIGHT_JUMPS[square] |= 1L << ((row + jump[0]) * 8 + col + jump[1]);
+                }
+            }
+        }
+    }
+
+    private final TablebaseMaterial material;
+    private final PieceType[] types; // The white king, the black king, then the pieces
+    private final int half;
+    private final int threads;
+    private final Map<TablebaseMaterial, Tablebase> subTables;
+    private final byte[] values;
+    private final byte[] remaining; // Black to move: legal moves not known to lose yet
+    private int longestMate = 0;
+
+    /**
+     * @param subTables The tables a promotion can lead to (KQK and KRK for KPK).
+     */
+    public TablebaseGenerator(TablebaseMaterial material, int threads, Map<TablebaseMaterial, Tablebase> subTables){
+        this.material = material;
+        this.types = new PieceType[2 + material.pieceCount()];
+        types[0] = PieceType.KING;
+        types[1] = PieceType.KING;
+        System.arraycopy(material.getPieces(), 0, types, 2, material.pieceCount());
+        this.half = material.halfSize();
+        this.threads = Math.max(1, threads);
+        this.subTables = subTables;
+        this.values = new byte[2 * half];
+        this.remaining = new byte[half];
+    }
+
+    /**
+     * Runs the analysis.
+     *
+     * @throws IllegalStateException if a table a promotion needs is missing.
+     */
+    public Tablebase generate() throws InterruptedException {
+        for(PieceType type : types){
+            if(type == PieceType.PAWN && (!subTables.containsKey(TablebaseMaterial.KQK) || !subTables.containsKey(TablebaseMaterial.KRK))){
+                throw new IllegalStateException(material + " needs the KQK and KRK tables");
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // 1. Mates, Black's move counts and winning promotions, by index ranges
+            List<Callable<ScanResult>> scans = new ArrayList<>();
+            int chunk = Math.max(1 << 12, 2 * half / (threads * 8));
+            for(int from = 0; from < 2 * half; from += chunk){
+                int start = from;
+                int end = Math.min(2 * half, from + chunk);
+                scans.add(() -> scan(start, end));
+            }
+            IntList frontier = new IntList();
+            IntList[] seeds = new IntList[256]; // Winning promotions, by plies to mate
+            for(Future<ScanResult> future : executor.invokeAll(scans)){
+                ScanResult result = get(future);
+                frontier.addAll(result.mates);
+                for(int i = 0; i < result.seedIndexes.size; i++){
+                    int plies = result.seedPlies.values[i];
+                    if(seeds[plies] == null) seeds[plies] = new IntList();
+                    seeds[plies].add(result.seedIndexes.values[i]);
+                }
+            }
+
+            // 2. Retrograde rounds, one ply at a time
+            int plies = 0;
+            while(frontier.size > 0 || hasSeedsAfter(seeds, plies)){
+                if(plies + 2 > 255){
+                    throw new IllegalStateException("Mate too long to store in " + material);
+                }
+                if(frontier.size > 0){
+                    longestMate = plies;
+                }
+                List<Callable<IntList>> rounds = new ArrayList<>();
+                int slice = Math.max(1024, frontier.size / (threads * 4) + 1);
+                for(int from = 0; from < frontier.size; from += slice){
+                    int start = from;
+                    int end = Math.min(frontier.size, from + slice);
+                    IntList positions = frontier;
+                    int ply = plies;
+                    rounds.add(() -> expand(positions, start, end, ply));
+                }
+                IntList next = new IntList();
+                for(Future<IntList> future : executor.invokeAll(rounds)){
+                    next.addAll(get(future));
+                }
+                // Promotions that mate in exactly this many plies, unless something mates sooner
+                IntList due = plies + 1 < seeds.length ? seeds[plies + 1] : null;
+                if(due != null){
+                    for(int i = 0; i < due.size; i++){
+                        if(BYTES.compareAndSet(values, due.values[i], (byte) 0, (byte) (plies + 2))){
+                            next.add(due.values[i]);
+                        }
+                    }
+                }
+                frontier = next;
+                plies++;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return Tablebase.inMemory(material, values);
+    }
+
+    /**
+     * The longest forced mate found, in plies.
+     */
+    public int getLongestMate(){
+        return longestMate;
+    }
+
+    /**
+     * Generates every table into the directory, KPK after the KQK and KRK it promotes into.
+     */
+    public static Map<TablebaseMaterial, Tablebase> generateAll(Path directory, int threads, PrintStream log)
+            throws IOException, InterruptedException {
+        Files.createDirectories(directory);
+        Map<TablebaseMaterial, Tablebase> tables = new EnumMap<>(TablebaseMaterial.class);
+        for(TablebaseMaterial material : List.of(TablebaseMaterial.KQK, TablebaseMaterial.KRK, TablebaseMaterial.KBNK, TablebaseMaterial.KPK)){
+            long start = System.currentTimeMillis();
+            TablebaseGenerator generator = new TablebaseGenerator(material, threads, tables);
+            Tablebase table = generator.generate();
+            table.write(directory.resolve(material.fileName()));
+            tables.put(material, table);
+            if(log != null){
+                log.println(material + ": longest mate " + generator.getLongestMate() + " plies, "
+                        + (System.currentTimeMillis() - start) + " ms");
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * "tablebases <directory> [threads]": generates every table from the command line.
+     */
+    public static void runFromCommandLine(String[] args) throws IOException, InterruptedException {
+        if(args.length < 2){
+            System.err.println("Usage: tablebases <directory> [threads]");
+            return;
+        }
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        generateAll(Paths.get(args[1]), threads, System.out);
+    }
+
+    // --- 1. The scan ---
+
+    private record ScanResult(IntList mates, IntList seedIndexes, IntList seedPlies){}
+
+    private ScanResult scan(int from, int to){
+        ScanResult result = new ScanResult(new IntList(), new IntList(), new IntList());
+        int[] squares = new int[types.length];
+        for(int index = from; index < to; index++){
+            boolean whiteToMove = index < half;
+            decode(whiteToMove ? index : index - half, squares);
+            if(!isValid(squares)){
+                continue;
+            }
+            long occupied = occupancy(squares);
+            if(whiteToMove){
+                if(!attackedByWhite(squares[1], occupied, squares, -1)){
+                    int plies = bestPromotion(squares, occupied);
+                    if(plies > 0){
+                        result.seedIndexes.add(index);
+                        result.seedPlies.add(plies);
+                    }
+                }
+            }else{
+                int moves = countBlackMoves(squares, occupied);
+                remaining[index - half] = (byte) moves;
+                if(moves == 0 && attackedByWhite(squares[1], occupied, squares, -1)){
+                    values[index] = 1; // Mated: 0 plies
+                    result.mates.add(index);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The plies to mate after the fastest winning promotion, or 0 if none wins.
+     */
+    private int bestPromotion(int[] squares, long occupied){
+        int best = 0;
+        for(int i = 2; i < types.length; i++){
+            if(types[i] != PieceType.PAWN || squares[i] >> 3 != 1 || (occupied & 1L << (squares[i] - 8)) != 0){
+                continue;
+            }
+            for(TablebaseMaterial promoted : List.of(TablebaseMaterial.KQK, TablebaseMaterial.KRK)){
+                Tablebase table = subTables.get(promoted);
+                int value = table.valueAt(promoted.index(false, new int[]{squares[0], squares[1], squares[i] - 8}));
+                if(value > 0 && (best == 0 || value < best)){
+                    best = value; // Black is mated value - 1 plies after the promotion
+                }
+            }
+        }
+        return best;
+    }
+
+    private int countBlackMoves(int[] squares, long occupied){
+        int blackKing = squares[1];
+        long withoutKing = occupied & ~(1L << blackKing);
+        int moves = 0;
+        for(long targets = KING_STEPS[blackKing] & ~KING_STEPS[squares[0]]; targets != 0; targets &= targets - 1){
+            int target = Long.numberOfTrailingZeros(targets);
+            int captured = pieceAt(squares, target);
+            if(!attackedByWhite(target, withoutKing, squares, captured)){
+                moves++;
+            }
+        }
+        return moves;
+    }
+
+    // --- 2. The retrograde rounds ---
+
+    private IntList expand(IntList frontier, int from, int to, int plies){
+        IntList found = new IntList();
+        int[] squares = new int[types.length];
+        byte value = (byte) (plies + 2);
+        for(int i = from; i < to; i++){
+            int index = frontier.values[i];
+            if(index < half){
+                decode(index, squares);
+                unmoveBlackKing(squares, value, found);
+            }else{
+                decode(index - half, squares);
+                unmoveWhite(squares, value, found);
+            }
+        }
+        return found;
+    }
+
+    // White (to move) wins: every Black king move that led here loses one escape
+    private void unmoveBlackKing(int[] squares, byte value, IntList found){
+        long occupied = occupancy(squares);
+        int blackKing = squares[1];
+        for(long origins = KING_STEPS[blackKing] & ~occupied & ~KING_STEPS[squares[0]]; origins != 0; origins &= origins - 1){
+            squares[1] = Long.numberOfTrailingZeros(origins);
+            int previous = material.index(false, squares);
+            if(takeEscape(previous - half)){
+                values[previous] = value;
+                found.add(previous);
+            }
+        }
+        squares[1] = blackKing;
+    }
+
+    /**
+     * Takes one escape from a Black position.
+     *
+     * @return true for the thread that took its last one.
+     */
+    private boolean takeEscape(int index){
+        while(true){
+            byte escapes = (byte) BYTES.getVolatile(remaining, index);
+            if(escapes <= 0){
+                return false; // Mated or stalemated, it has no escapes to take
+            }
+            if(BYTES.compareAndSet(remaining, index, escapes, (byte) (escapes - 1))){
+                return escapes == 1;
+            }
+        }
+    }
+
+    // Black (to move) is lost: every White move that led here wins
+    private void unmoveWhite(int[] squares, byte value, IntList found){
+        long occupied = occupancy(squares);
+        for(int i = 0; i < types.length; i++){
+            if(i == 1) continue;
+            int square = squares[i];
+            long origins = originsOf(types[i], square, occupied);
+            if(i == 0){
+                origins &= ~KING_STEPS[squares[1]];
+            }
+            for(; origins != 0; origins &= origins - 1){
+                int origin = Long.numberOfTrailingZeros(origins);
+                squares[i] = origin;
+                long before = occupied & ~(1L << square) | 1L << origin;
+                if(!attackedByWhite(squares[1], before, squares, -1)){
+                    int previous = material.index(true, squares);
+                    if(BYTES.compareAndSet(values, previous, (byte) 0, value)){
+                        found.add(previous);
+                    }
+                }
+            }
+            squares[i] = square;
+        }
+    }
+
+    /**
+     * The empty squares a white piece can have come from to reach the square with a quiet move.
+     */
+    private static long originsOf(PieceType type, int square, long occupied){
+        switch(type){
+            case KING: return KING_STEPS[square] & ~occupied;
+            case KNIGHT: return KNIGHT_JUMPS[square] & ~occupied;
+            case BISHOP: return rays(square, occupied, DIAGONAL);
+            case ROOK: return rays(square, occupied, STRAIGHT);
+            case QUEEN: return rays(square, occupied, DIAGONAL) | rays(square, occupied, STRAIGHT);
+            case PAWN:
+                // White pawns move up (to lower rows), and never stand on row 7 (rank 1)
+                int row = square >> 3;
+                long origins = 0;
+                if(row + 1 <= 6 && (occupied & 1L << (square + 8)) == 0){
+                    origins |= 1L << (square + 8);
+                    if(row == 4 && (occupied & 1L << (square + 16)) == 0){
+                        origins |= 1L << (square + 16);
+                    }
+                }
+                return origins;
+            default: throw new IllegalArgumentException("Unknown piece type: " + type);
+        }
+    }
+
+    // The empty squares along the directions, up to the first piece
+    private static long rays(int square, long occupied, int[][] directions){
+        long squares = 0;
+        for(int[] direction : directions){
+            int row = (square >> 3) + direction[0];
+            int col = (square & 7) + direction[1];
+            while(onBoard(row, col) && (occupied & 1L << (row * 8 + col)) == 0){
+                squares |= 1L << (row * 8 + col);
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return squares;
+    }
+
+    // --- Positions ---
+
+    private void decode(int index, int[] squares){
+        for(int i = squares.length - 1; i >= 0; i--){
+            squares[i] = index & 63;
+            index >>>= 6;
+        }
+    }
+
+    /**
+     * No two pieces on a square, kings apart, pawns off the first and last ranks.
+     */
+    private boolean isValid(int[] squares){
+        long seen = 0;
+        for(int i = 0; i < squares.length; i++){
+            long bit = 1L << squares[i];
+            if((seen & bit) != 0){
+                return false;
+            }
+            seen |= bit;
+            if(types[i] == PieceType.PAWN && (squares[i] >> 3 == 0 || squares[i] >> 3 == 7)){
+                return false;
+            }
+        }
+        return (KING_STEPS[squares[0]] & 1L << squares[1]) == 0;
+    }
+
+    private static long occupancy(int[] squares){
+        long occupied = 0;
+        for(int square : squares){
+            occupied |= 1L << square;
+        }
+        return occupied;
+    }
+
+    // The index of the white piece on the square (2 and up), or -1
+    private static int pieceAt(int[] squares, int square){
+        for(int i = 2; i < squares.length; i++){
+            if(squares[i] == square){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Is the square attacked by a white piece (the king included), apart from the skipped one?
+     */
+    private boolean attackedByWhite(int target, long occupied, int[] squares, int skip){
+        for(int i = 0; i < squares.length; i++){
+            if(i == 1 || i == skip) continue;
+            if(attacks(types[i], squares[i], target, occupied)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean attacks(PieceType type, int from, int target, long occupied){
+        int dr = (target >> 3) - (from >> 3);
+        int dc = (target & 7) - (from & 7);
+        switch(type){
+            case KING: return (KING_STEPS[from] & 1L << target) != 0;
+            case KNIGHT: return (KNIGHT_JUMPS[from] & 1L << target) != 0;
+            case PAWN: return dr == -1 && Math.abs(dc) == 1;
+            case BISHOP: return Math.abs(dr) == Math.abs(dc) && dr != 0 && isPathClear(from, target, occupied);
+            case ROOK: return (dr == 0) != (dc == 0) && isPathClear(from, target, occupied);
+            case QUEEN: return (Math.abs(dr) == Math.abs(dc) && dr != 0 || (dr == 0) != (dc == 0)) && isPathClear(from, target, occupied);
+            default: throw new IllegalArgumentException("Unknown piece type: " + type);
+        }
+    }
+
+    private static boolean isPathClear(int from, int target, long occupied){
+        int step = Integer.signum((target >> 3) - (from >> 3)) * 8 + Integer.signum((target & 7) - (from & 7));
+        for(int square = from + step; square != target; square += step){
+            if((occupied & 1L << square) != 0){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean onBoard(int row, int col){
+        return row >= 0 && row < 8 && col >= 0 && col < 8;
+    }
+
+    private static <T> T get(Future<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch(ExecutionException e){
+            throw new IllegalStateException("Tablebase generation failed", e.getCause());
+        }
+    }
+
+    private static boolean hasSeedsAfter(IntList[] seeds, int plies){
+        for(int i = plies + 1; i < seeds.length; i++){
+            if(seeds[i] != null && seeds[i].size > 0){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A growable int array, so millions of positions don't need millions of Integers.
+     */
+    private static final class IntList{
+        int[] values = new int[64];
+        int size = 0;
+
+        void add(int value){
+            if(size == values.length){
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(IntList other){
+            if(size + other.size > values.length){
+                values = Arrays.copyOf(values, Math.max(size * 2, size + other.size));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+    }
+}
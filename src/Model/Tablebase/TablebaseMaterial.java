@@ -0,0 +1,70 @@
+package Model.Tablebase;
+
+import Model.*;
+
+import java.util.*;
+
+/**
+ * The endings with a tablebase: the strong side's pieces besides its king, against a lone king.
+ *
+ * A position's index is the side to move (white is always the strong side here), then the
+ * squares (0-63, see MoveCodes.square()) of the white king, the black king and the pieces
+ * in the order listed, 6 bits each:
+ *   index = blackToMove * halfSize + wk << 6(n+1) | bk << 6n | piece0 << 6(n-1) | ... | piece(n-1)
+ */
+public enum TablebaseMaterial{
+    KQK(PieceType.QUEEN),
+    KRK(PieceType.ROOK),
+    KPK(PieceType.PAWN),
+    KBNK(PieceType.BISHOP, PieceType.KNIGHT);
+
+    private final PieceType[] pieces;
+
+    TablebaseMaterial(PieceType... pieces){
+        this.pieces = pieces;
+    }
+
+    public PieceType[] getPieces(){
+        return pieces.clone();
+    }
+
+    public int pieceCount(){
+        return pieces.length;
+    }
+
+    /**
+     * The number of positions with one side to move.
+     */
+    public int halfSize(){
+        return 1 << (6 * (2 + pieces.length));
+    }
+
+    public String fileName(){
+        return name() + ".tb";
+    }
+
+    /**
+     * @param whiteToMove Whether the strong side is to move.
+     * @param squares The white king, the black king, then the pieces in getPieces() order.
+     */
+    public int index(boolean whiteToMove, int[] squares){
+        int index = 0;
+        for(int square : squares){
+            index = index << 6 | square;
+        }
+        return whiteToMove ? index : index + halfSize();
+    }
+
+    /**
+     * The material with exactly these pieces (in any order), or null.
+     */
+    public static TablebaseMaterial of(List<PieceType> pieces){
+        for(TablebaseMaterial material : values()){
+            List<PieceType> own = new ArrayList<>(Arrays.asList(material.pieces));
+            if(own.size() == pieces.size() && own.containsAll(pieces) && pieces.containsAll(own)){
+                return material;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,159 @@
+package Model.Tablebase;
+
+import Model.*;
+import Model.Pieces.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Looks positions up in the loaded tablebases.
+ *
+ * The tables are generated with White as the strong side; a position where Black has the
+ * pieces is mirrored (rows flipped, colours swapped) before the lookup. Bare kings and a lone
+ * minor piece are draws without a table. Probing may run on any number of threads.
+ */
+public class TablebaseProber implements Closeable{
+    /**
+     * The most men, kings included, that any table covers.
+     */
+    public static final int MAX_MEN = 4;
+
+    private final Map<TablebaseMaterial, Tablebase> tables = new EnumMap<>(TablebaseMaterial.class);
+
+    /**
+     * Opens every table file (NAME.tb) found in the directory. A missing or damaged
+     * file only leaves its ending without a table.
+     */
+    public static TablebaseProber openDirectory(Path directory){
+        TablebaseProber prober = new TablebaseProber();
+        for(TablebaseMaterial material : TablebaseMaterial.values()){
+            Path file = directory.resolve(material.fileName());
+            if(Files.isRegularFile(file)){
+                try {
+                    prober.add(Tablebase.open(file));
+                } catch(IOException e){
+                    System.err.println("Could not open tablebase " + file + ": " + e.getMessage());
+                }
+            }
+        }
+        return prober;
+    }
+
+    public void add(Tablebase table){
+        tables.put(table.getMaterial(), table);
+    }
+
+    public Set<TablebaseMaterial> getMaterials(){
+        return Collections.unmodifiableSet(tables.keySet());
+    }
+
+    public boolean isEmpty(){
+        return tables.isEmpty();
+    }
+
+    /**
+     * @return The result for the side to move, or null if no table covers the position.
+     */
+    public TablebaseResult probe(GameState state){
+        Board board = state.getBoard();
+        if(board.getPieceCount() > MAX_MEN){
+            return null;
+        }
+        int[] kings = {-1, -1};
+        List<PieceType> whitePieces = new ArrayList<>(2);
+        List<PieceType> blackPieces = new ArrayList<>(2);
+        int[][] pieceSquares = new int[2][2];
+
+        // 1. Collect the material, giving up as soon as there is too much
+        for(int square = 0; square < 64; square++){
+            Piece piece = board.getPieceAt(MoveCodes.position(square));
+            if(piece == null) continue;
+            int side = piece.isWhite() ? 0 : 1;
+            if(piece.getType() == PieceType.KING){
+                kings[side] = square;
+                continue;
+            }
+            List<PieceType> pieces = side == 0 ? whitePieces : blackPieces;
+            if(whitePieces.size() + blackPieces.size() == 2){
+                return null;
+            }
+            pieceSquares[side][pieces.size()] = square;
+            pieces.add(piece.getType());
+        }
+        if(kings[0] < 0 || kings[1] < 0){
+            return null;
+        }
+        if(whitePieces.size() + blackPieces.size() <= 1 && isInsufficient(whitePieces) && isInsufficient(blackPieces)){
+            return TablebaseResult.DRAW;
+        }
+        if(!whitePieces.isEmpty() && !blackPieces.isEmpty()){
+            return null;
+        }
+
+        // 2. The strong side becomes White
+        boolean strongIsWhite = !whitePieces.isEmpty();
+        int strong = strongIsWhite ? 0 : 1;
+        List<PieceType> pieces = strongIsWhite ? whitePieces : blackPieces;
+        TablebaseMaterial material = TablebaseMaterial.of(pieces);
+        Tablebase table = material == null ? null : tables.get(material);
+        if(table == null || canCastle(state, board, strongIsWhite)){
+            return null;
+        }
+        int flip = strongIsWhite ? 0 : 56; // Mirrors the row of a square
+        int[] squares = new int[2 + pieces.size()];
+        squares[0] = kings[strong] ^ flip;
+        squares[1] = kings[1 - strong] ^ flip;
+        PieceType[] order = material.getPieces();
+        boolean[] used = new boolean[pieces.size()];
+        for(int i = 0; i < order.length; i++){
+            for(int j = 0; j < pieces.size(); j++){
+                if(!used[j] && pieces.get(j) == order[i]){
+                    used[j] = true;
+                    squares[2 + i] = pieceSquares[strong][j] ^ flip;
+                    break;
+                }
+            }
+        }
+
+        // 3. The stored value is from the strong side's point of view
+        boolean strongToMove = state.isWhiteTurn() == strongIsWhite;
+        int value = table.valueAt(material.index(strongToMove, squares));
+        if(value == 0){
+            return TablebaseResult.DRAW;
+        }
+        return new TablebaseResult(strongToMove ? 1 : -1, value - 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for(Tablebase table : tables.values()){
+            table.close();
+        }
+        tables.clear();
+    }
+
+    // A lone king, or a king with one bishop or knight, can't mate
+    private static boolean isInsufficient(List<PieceType> pieces){
+        return pieces.isEmpty()
+                || (pieces.size() == 1 && (pieces.get(0) == PieceType.BISHOP || pieces.get(0) == PieceType.KNIGHT));
+    }
+
+    // The tables know nothing of castling: a rook and king still able to castle are left to the search
+    private static boolean canCastle(GameState state, Board board, boolean white){
+        CastlingRights rights = state.getCastlingRights();
+        if(rights == null){
+            return false;
+        }
+        boolean kingSide = white ? rights.canWhiteCastleKingSide() : rights.canBlackCastleKingSide();
+        boolean queenSide = white ? rights.canWhiteCastleQueenSide() : rights.canBlackCastleQueenSide();
+        int row = white ? 7 : 0;
+        return (kingSide && isRookAt(board, row, 7, white)) || (queenSide && isRookAt(board, row, 0, white));
+    }
+
+    private static boolean isRookAt(Board board, int row, int col, boolean white){
+        Piece piece = board.getPieceAt(new Position(row, col));
+        return piece != null && piece.getType() == PieceType.ROOK && piece.isWhite() == white;
+    }
+}
@@ -0,0 +1,15 @@
+package Model.Tablebase;
+
+/**
+ * What a tablebase knows about a position, for the side to move.
+ *
+ * @param wdl 1 the side to move wins, 0 draw, -1 it loses.
+ * @param pliesToMate With perfect play, the number of plies until mate (0 if drawn, or already mated).
+ */
+public record TablebaseResult(int wdl, int pliesToMate){
+    public static final TablebaseResult DRAW = new TablebaseResult(0, 0);
+
+    public boolean isWin(){ return wdl > 0; }
+    public boolean isDraw(){ return wdl == 0; }
+    public boolean isLoss(){ return wdl < 0; }
+}
@@ -0,0 +1,248 @@
+package Model.Tuning;
+
+import Model.*;
+import Model.Engine.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Tunes the piece-square tables (with the material folded in) of the classical evaluation
+ * on labelled positions, the "Texel" way.
+ *
+ * The evaluation is mapped to an expected result with a sigmoid, 1 / (1 + 10^(-K * score / 400)),
+ * and the mean squared difference to the real results is minimised with gradient descent (Adam).
+ * K is fitted first, so the current tables start with their lowest error.
+ *
+ * Each epoch computes the gradient of all positions in parallel: a fork-join task splits the
+ * positions into batches, each batch sums its gradient into an array of its own, and the
+ * arrays are added up on the way back.
+ *
+ * Parameters: the middlegame values of the 6 * 64 (piece type, square) pairs as White sees
+ * them, then the endgame values, 768 in all, starting from PieceSquareTables.
+ */
+public class TexelTuner{
+    public static final int PARAMETERS = 768;
+    private static final int BATCH = 1 << 14;
+    private static final double LEARNING_RATE = 1.0;
+    private static final double BETA1 = 0.9;
+    private static final double BETA2 = 0.999;
+
+    private final TuningPositions positions;
+    private final ForkJoinPool pool;
+    private final double[] parameters = new double[PARAMETERS];
+    private double scale = 1.0; // K
+    private int epochs = 0;
+
+    // Adam's moving averages of the gradient and of its square
+    private final double[] momentum = new double[PARAMETERS];
+    private final double[] velocity = new double[PARAMETERS];
+
+    public TexelTuner(TuningPositions positions, int threads){
+        this.positions = positions;
+        this.pool = new ForkJoinPool(Math.max(1, threads));
+        for(PieceType type : PieceType.values()){
+            for(int square = 0; square < 64; square++){
+                int index = type.ordinal() * 64 + square;
+                parameters[index] = PieceSquareTables.middleGame(type, true, square / 8, square % 8);
+                parameters[PARAMETERS / 2 + index] = PieceSquareTables.endGame(type, true, square / 8, square % 8);
+            }
+        }
+    }
+
+    public double[] getParameters(){
+        return parameters.clone();
+    }
+
+    public double getScale(){
+        return scale;
+    }
+
+    /**
+     * Finds the K that gives the current parameters their lowest error (a ternary search,
+     * the error being convex in K).
+     */
+    public double fitScale(){
+        double low = 0.1;
+        double high = 5.0;
+        while(high - low > 0.001){
+            double a = low + (high - low) / 3;
+            double b = high - (high - low) / 3;
+            scale = a;
+            double errorA = error();
+            scale = b;
+            double errorB = error();
+            if(errorA < errorB){
+                high = b;
+            }else{
+                low = a;
+            }
+        }
+        scale = (low + high) / 2;
+        return scale;
+    }
+
+    /**
+     * The mean squared error of the expected results, with the current parameters.
+     */
+    public double error(){
+        if(positions.size() == 0){
+            return 0;
+        }
+        return pool.invoke(new GradientTask(0, positions.size(), false))[PARAMETERS] / positions.size();
+    }
+
+    /**
+     * One step of gradient descent over all positions.
+     *
+     * @return The error before the step.
+     */
+    public double epoch(){
+        if(positions.size() == 0){
+            return 0;
+        }
+        double[] gradient = pool.invoke(new GradientTask(0, positions.size(), true));
+        epochs++;
+        double correction1 = 1 - Math.pow(BETA1, epochs);
+        double correction2 = 1 - Math.pow(BETA2, epochs);
+        for(int i = 0; i < PARAMETERS; i++){
+            double g = gradient[i] / positions.size();
+            momentum[i] = BETA1 * momentum[i] + (1 - BETA1) * g;
+            velocity[i] = BETA2 * velocity[i] + (1 - BETA2) * g * g;
+            parameters[i] -= LEARNING_RATE * (momentum[i] / correction1) / (Math.sqrt(velocity[i] / correction2) + 1e-12);
+        }
+        return gradient[PARAMETERS] / positions.size();
+    }
+
+    /**
+     * Fits K, then runs the epochs, reporting the error every few of them.
+     */
+    public void tune(int epochCount, PrintStream log){
+        log.printf("%d positions, K = %.3f%n", positions.size(), fitScale());
+        for(int i = 1; i <= epochCount; i++){
+            double error = epoch();
+            if(i == 1 || i % 10 == 0 || i == epochCount){
+                log.printf("epoch %d: error %.6f%n", i, error);
+            }
+        }
+    }
+
+    /**
+     * Writes the tuned tables as Java arrays, in PieceSquareTables' layout (first line rank 8),
+     * material included.
+     */
+    public void writeTables(Path file) throws IOException {
+        try(PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))){
+            out.printf("// Tuned on %d positions, K = %.3f, %d epochs (material included)%n", positions.size(), scale, epochs);
+            for(int half = 0; half < 2; half++){
+                for(PieceType type : PieceType.values()){
+                    out.println("private static final int[][] " + type + (half == 0 ? "_MIDDLE_GAME" : "_END_GAME") + " = {");
+                    for(int row = 0; row < 8; row++){
+                        StringBuilder line = new StringBuilder("        {");
+                        for(int column = 0; column < 8; column++){
+                            int value = (int) Math.round(parameters[half * PARAMETERS / 2 + type.ordinal() * 64 + row * 8 + column]);
+                            line.append(String.format("%4d", value)).append(column < 7 ? "," : "");
+                        }
+                        out.println(line.append(row < 7 ? "}," : "}};"));
+                    }
+                }
+            }
+        }
+    }
+
+    public void close(){
+        pool.shutdown();
+    }
+
+    /**
+     * "tune <games.pgn> <tables.txt> [epochs] [threads]": tunes from the command line.
+     */
+    public static void runFromCommandLine(String[] args) throws IOException {
+        if(args.length < 3){
+            System.err.println("Usage: tune <games.pgn> <tables.txt> [epochs] [threads]");
+            return;
+        }
+        int epochCount = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        long start = System.currentTimeMillis();
+        TuningPositions positions = new TuningPositions();
+        int games = positions.addPgn(Paths.get(args[1]));
+        System.out.println(games + " games read in " + (System.currentTimeMillis() - start) + " ms");
+        TexelTuner tuner = new TexelTuner(positions, threads);
+        try {
+            start = System.currentTimeMillis();
+            tuner.tune(epochCount, System.out);
+            System.out.println("Tuned in " + (System.currentTimeMillis() - start) + " ms");
+            tuner.writeTables(Paths.get(args[2]));
+        } finally {
+            tuner.close();
+        }
+    }
+
+    /**
+     * The summed gradient (and, in the last element, the summed squared error) of a range of positions.
+     */
+    private class GradientTask extends RecursiveTask<double[]>{
+        private final int from;
+        private final int to;
+        private final boolean withGradient;
+
+        GradientTask(int from, int to, boolean withGradient){
+            this.from = from;
+            this.to = to;
+            this.withGradient = withGradient;
+        }
+
+        @Override
+        protected double[] compute(){
+            if(to - from > BATCH){
+                int middle = (from + to) >>> 1;
+                GradientTask left = new GradientTask(from, middle, withGradient);
+                left.fork();
+                double[] right = new GradientTask(middle, to, withGradient).compute();
+                double[] sum = left.join();
+                for(int i = 0; i < sum.length; i++){
+                    sum[i] += right[i];
+                }
+                return sum;
+            }
+
+            double[] sum = new double[PARAMETERS + 1];
+            double k = scale * Math.log(10) / 400;
+            int endGameOffset = PARAMETERS / 2;
+            for(int position = from; position < to; position++){
+                double middleGameWeight = positions.phase(position) / (double) PieceSquareTables.MAX_PHASE;
+                double endGameWeight = 1 - middleGameWeight;
+                int start = positions.pieceStart(position);
+                int end = positions.pieceEnd(position);
+
+                // 1. The evaluation, from White's point of view
+                double score = positions.fixedScore(position);
+                for(int i = start; i < end; i++){
+                    int piece = positions.piece(i);
+                    int parameter = Math.abs(piece) - 1;
+                    double value = parameters[parameter] * middleGameWeight + parameters[endGameOffset + parameter] * endGameWeight;
+                    score += piece > 0 ? value : -value;
+                }
+
+                // 2. Its error, and how the error changes with each parameter
+                double expected = 1 / (1 + Math.exp(-k * score));
+                double difference = expected - positions.result(position);
+                sum[PARAMETERS] += difference * difference;
+                if(withGradient){
+                    double slope = 2 * difference * expected * (1 - expected) * k;
+                    for(int i = start; i < end; i++){
+                        int piece = positions.piece(i);
+                        int parameter = Math.abs(piece) - 1;
+                        double signed = piece > 0 ? slope : -slope;
+                        sum[parameter] += signed * middleGameWeight;
+                        sum[endGameOffset + parameter] += signed * endGameWeight;
+                    }
+                }
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package Model.Tuning;
+
+import Model.*;
+import Model.Engine.*;
+import Model.IOs.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Positions labelled with the result of the game they were played in, for the TexelTuner.
+ *
+ * Only what the tuned evaluation needs is kept, in flat primitive arrays:
+ * - per position: the game phase, the result (0, 1 or 2 half points for White), where its
+ *   pieces start in the piece array, and the part of the evaluation that isn't tuned
+ *   (the pawn structure), from White's point of view;
+ * - per piece: its piece-square parameter (PieceType ordinal * 64 + square as White sees it),
+ *   plus one and negated for a black piece.
+ * That is 2 bytes per piece and 8 per position, so ten million positions fit in well under a gigabyte.
+ */
+public class TuningPositions{
+    private static final int SKIPPED_PLIES = 8; // The opening is the book's business
+
+    private short[] pieces = new short[1 << 16];
+    private int[] pieceStarts = new int[1 << 12];
+    private byte[] phases = new byte[1 << 12];
+    private byte[] results = new byte[1 << 12];
+    private short[] fixedScores = new short[1 << 12];
+    private int size = 0;
+    private int pieceCount = 0;
+
+    private final ClassicalEvaluator evaluator = new ClassicalEvaluator();
+    private final RuleEngine ruleEngine = new RuleEngine();
+
+    /**
+     * Adds the quiet positions of every finished game of a PGN file. Games that don't parse are skipped.
+     *
+     * @return The number of games used.
+     */
+    public int addPgn(Path pgnFile) throws IOException {
+        int games = 0;
+        PGNParser parser = new PGNParser();
+        FENParser fenParser = new FENParser();
+        try(PGNGameReader reader = PGNGameReader.open(pgnFile)){
+            while(reader.next()){
+                GameTree tree;
+                GameState state;
+                try {
+                    tree = parser.parseTree(reader.getGameText());
+                    String fen = tree.getTags().get("FEN");
+                    state = fen != null ? fenParser.parse(fen) : new GameState();
+                } catch(IllegalArgumentException e){
+                    continue;
+                }
+                int[] mainLine = tree.mainLine();
+                int[] codes = new int[mainLine.length];
+                for(int i = 0; i < codes.length; i++){
+                    codes[i] = tree.getMoveCode(mainLine[i]);
+                }
+                if(addGame(state, codes, tree.getResult())){
+                    games++;
+                }
+            }
+        }
+        return games;
+    }
+
+    /**
+     * Adds the positions of one game, after the opening, that are quiet: the side to move
+     * isn't in check and the last move wasn't a capture or promotion.
+     *
+     * @param result "1-0", "0-1" or "1/2-1/2"; other results add nothing.
+     * @return Whether the game was used.
+     */
+    public boolean addGame(GameState state, int[] moveCodes, String result){
+        int halfPoints;
+        switch(result){
+            case "1-0": halfPoints = 2; break;
+            case "1/2-1/2": halfPoints = 1; break;
+            case "0-1": halfPoints = 0; break;
+            default: return false;
+        }
+        boolean quiet = true;
+        for(int ply = 0; ply < moveCodes.length; ply++){
+            if(ply >= SKIPPED_PLIES && quiet && !ruleEngine.isKingInCheck(state, state.isWhiteTurn())){
+                add(state, halfPoints);
+            }
+            Move move = MoveCodes.decode(state, ruleEngine, moveCodes[ply]);
+            if(move == null){
+                break;
+            }
+            quiet = !move.isPromotion() && !move.isEnPassant() && state.getBoard().getPieceAt(move.getTo()) == null;
+            state.makeMove(move);
+        }
+        return true;
+    }
+
+    /**
+     * Adds one position.
+     *
+     * @param halfPoints White's result: 2 for a win, 1 for a draw, 0 for a loss.
+     */
+    public void add(GameState state, int halfPoints){
+        Board board = state.getBoard();
+        ensureCapacity();
+        pieceStarts[size] = pieceCount;
+        for(int square = 0; square < 64; square++){
+            int code = board.getPieceCode(square);
+            if(code < 0) continue;
+            boolean white = code < 6;
+            int row = white ? square / 8 : 7 - square / 8;
+            int parameter = (code % 6) * 64 + row * 8 + square % 8;
+            pieces[pieceCount++] = (short) (white ? parameter + 1 : -(parameter + 1));
+        }
+        int phase = Math.min(board.getPhase(), PieceSquareTables.MAX_PHASE);
+        int score = evaluator.evaluate(state) * (state.isWhiteTurn() ? 1 : -1);
+        // What the tables don't explain is the pawn structure, which isn't tuned
+        int tables = (board.getMiddleGameScore() * phase + board.getEndGameScore() * (PieceSquareTables.MAX_PHASE - phase))
+                / PieceSquareTables.MAX_PHASE;
+        phases[size] = (byte) phase;
+        results[size] = (byte) halfPoints;
+        fixedScores[size] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, score - tables));
+        size++;
+        pieceStarts[size] = pieceCount;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    // --- For the tuner ---
+
+    int pieceStart(int position){ return pieceStarts[position]; }
+
+    int pieceEnd(int position){ return pieceStarts[position + 1]; }
+
+    /**
+     * The parameter of a piece (0-383) plus one, negated for Black.
+     */
+    short piece(int index){ return pieces[index]; }
+
+    int phase(int position){ return phases[position]; }
+
+    /**
+     * White's result: 0, 0.5 or 1.
+     */
+    double result(int position){ return results[position] / 2.0; }
+
+    int fixedScore(int position){ return fixedScores[position]; }
+
+    private void ensureCapacity(){
+        if(size + 2 > pieceStarts.length){
+            int capacity = pieceStarts.length * 2;
+            pieceStarts = Arrays.copyOf(pieceStarts, capacity);
+            phases = Arrays.copyOf(phases, capacity);
+            results = Arrays.copyOf(results, capacity);
+            fixedScores = Arrays.copyOf(fixedScores, capacity);
+        }
+        if(pieceCount + 64 > pieces.length){
+            pieces = Arrays.copyOf(pieces, pieces.length * 2);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package Model.View;
+
+import javax.swing.*;
+import javax.swing.border.*;
+import javax.swing.table.*;
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+import java.util.function.*;
+
+/**
+ * Shows the engine's best lines for the current position, next to the SidePanel.
+ *
+ * The lines arrive from the analysis thread, several times per iteration and many times
+ * a second at low depths. post() only stores the newest version of each line, and a
+ * Swing Timer moves them into the table at most UPDATES_PER_SECOND times a second,
+ * so a fast search can't flood the EDT.
+ */
+public class AnalysisPanel extends JPanel{
+    private static final int UPDATES_PER_SECOND = 10;
+    private static final int MAX_LINES = 5;
+
+    /**
+     * One line of the analysis, ready to show.
+     *
+     * @param number Its rank among the lines, from 1.
+     * @param score From White's point of view, e.g. "+0.35" or "#-3".
+     * @param moves The line in SAN.
+     * @param nps Speed of the search when it was found (nodes per second).
+     */
+    public record Line(int number, int depth, String score, String moves, long nodes, long nps){}
+
+    private final LineTableModel lineModel = new LineTableModel();
+    private final JToggleButton analyseButton;
+    private final JSpinner lineSpinner;
+    private final JLabel statusLabel;
+
+    // Written by the analysis thread, read by the timer on the EDT (guarded by itself)
+    private final Map<Integer, Line> pendingLines = new TreeMap<>();
+    private final javax.swing.Timer updateTimer;
+
+    public AnalysisPanel(){
+        this.setLayout(new BorderLayout());
+        this.setPreferredSize(new Dimension(360, 8 * BoardPanel.TILE_SIZE));
+        this.setBorder(new EmptyBorder(10, 0, 10, 10));
+
+        // 1. Controls: start/stop and the number of lines
+        this.analyseButton = new JToggleButton("Elemzés");
+        this.lineSpinner = new JSpinner(new SpinnerNumberModel(3, 1, MAX_LINES, 1));
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controls.add(analyseButton);
+        controls.add(new JLabel("Változatok:"));
+        controls.add(lineSpinner);
+
+        // 2. The lines
+        JTable lineTable = new JTable(lineModel);
+        lineTable.setFillsViewportHeight(true);
+        TableColumnModel columns = lineTable.getColumnModel();
+        columns.getColumn(0).setMaxWidth(30);
+        columns.getColumn(1).setMaxWidth(70);
+        columns.getColumn(2).setMaxWidth(60);
+        JScrollPane scrollPane = new JScrollPane(lineTable);
+        scrollPane.setBorder(BorderFactory.createTitledBorder("Elemzés"));
+
+        // 3. Depth and speed of the search
+        this.statusLabel = new JLabel(" ");
+
+        this.add(controls, BorderLayout.NORTH);
+        this.add(scrollPane, BorderLayout.CENTER);
+        this.add(statusLabel, BorderLayout.SOUTH);
+
+        this.updateTimer = new javax.swing.Timer(1000 / UPDATES_PER_SECOND, e -> applyPendingLines());
+    }
+
+    /**
+     * The button turning the analysis on and off.
+     */
+    public void setAnalysisListener(Consumer<Boolean> listener){
+        analyseButton.addActionListener(e -> listener.accept(analyseButton.isSelected()));
+    }
+
+    /**
+     * Changing the number of lines reports the new count.
+     */
+    public void setLineCountListener(IntConsumer listener){
+        lineSpinner.addChangeListener(e -> listener.accept(getLineCount()));
+    }
+
+    public int getLineCount(){
+        return (Integer) lineSpinner.getValue();
+    }
+
+    /**
+     * Called by GameController when the analysis starts or stops (on the EDT).
+     */
+    public void setRunning(boolean running){
+        analyseButton.setSelected(running);
+        if(running){
+            updateTimer.start();
+        }else{
+            updateTimer.stop();
+            applyPendingLines();
+        }
+    }
+
+    /**
+     * Empties the table, for a new position. Lines posted before are dropped.
+     */
+    public void clear(){
+        synchronized(pendingLines){
+            pendingLines.clear();
+        }
+        lineModel.clear();
+        statusLabel.setText(" ");
+    }
+
+    /**
+     * Hands over a line found by the search. Safe to call from any thread: the table
+     * is updated by the next timer tick, with the newest line of each rank.
+     */
+    public void post(Line line){
+        synchronized(pendingLines){
+            pendingLines.put(line.number(), line);
+        }
+    }
+
+    // On the EDT, by the timer
+    private void applyPendingLines(){
+        List<Line> lines;
+        synchronized(pendingLines){
+            if(pendingLines.isEmpty()){
+                return;
+            }
+            lines = new ArrayList<>(pendingLines.values());
+            pendingLines.clear();
+        }
+        Line last = null;
+        for(Line line : lines){
+            lineModel.setLine(line);
+            if(last == null || line.nodes() > last.nodes()){
+                last = line;
+            }
+        }
+        statusLabel.setText(String.format("Mélység: %d   Csomópontok: %,d   (%,d/s)", last.depth(), last.nodes(), last.nps()));
+    }
+
+    /**
+     * The lines in rank order: | # | Értékelés | Mélység | Változat |
+     */
+    private static class LineTableModel extends AbstractTableModel{
+        private final String[] columnNames = {"#", "Értékelés", "Mélység", "Változat"};
+        private final List<Line> lines = new ArrayList<>();
+
+        void setLine(Line line){
+            int row = line.number() - 1;
+            if(row < lines.size()){
+                lines.set(row, line);
+                fireTableRowsUpdated(row, row);
+                return;
+            }
+            // Ranks arrive in order within an iteration, so a new one is always the next row
+            while(lines.size() <= row){
+                lines.add(line);
+            }
+            fireTableDataChanged();
+        }
+
+        void clear(){
+            lines.clear();
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount(){
+            return lines.size();
+        }
+
+        @Override
+        public int getColumnCount(){
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column){
+            return columnNames[column];
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex){
+            Line line = lines.get(rowIndex);
+            switch(columnIndex){
+                case 0: return line.number();
+                case 1: return line.score();
+                case 2: return line.depth();
+                case 3: return line.moves();
+                default: return null;
+            }
+        }
+    }
+}
@@ -2,10 +2,8 @@ package Model.View;
 
 import javax.swing.*;
 import java.awt.*;
-import java.net.URL;
+import java.awt.image.*;
 import java.util.*;
-import java.io.*;
-import javax.imageio.*;
 
 import Model.*;
 import Model.Pieces.*;
@@ -14,6 +12,17 @@ public class BoardPanel extends JPanel{
     public static final int TILE_SIZE = 80;
     public static final int MARGIN = 30;
 
+    // Colours and fonts are created once, not on every repaint
+    private static final Color BACKGROUND_COLOR = new Color(40, 40, 40);
+    private static final Color LIGHT_TILE_COLOR = new Color(205, 170, 125); // Light wood
+    private static final Color DARK_TILE_COLOR = new Color(119, 148, 85);   // Green
+    private static final Color CHECK_COLOR = new Color(255, 0, 0, 180);
+    private static final Color SELECTED_COLOR = new Color(255, 255, 0, 100); // Transparent Yellow
+    private static final Color CAPTURE_HINT_COLOR = new Color(255, 100, 0, 150); // Orange/Reddish ring
+    private static final Color MOVE_HINT_COLOR = new Color(100, 100, 100, 128);
+    private static final Font COORDINATE_FONT = new Font("SansSerif", Font.BOLD, 14);
+    private static final Font SYMBOL_FONT = new Font("SansSerif", Font.BOLD, 40);
+
     // State variables managed by the Controller
     private Board currentBoard;
     private Set<Position> validMoves;
@@ -27,24 +36,32 @@ public class BoardPanel extends JPanel{
     private Point dragPosition;
 
     // Image Caching
-    private final Map<String, Image> pieceImages;
-    private final String IMAGE_PATH_PREFIX = "/Pictures/";
+    private final PieceSprites pieceSprites;
 
     // Red highlighting for King in check
     private Position kingInCheckPos = null;
 
+    /**
+     * The static part of the board (tiles and coordinates), rendered once.
+     * It is only rebuilt if the orientation, the size or the screen scale changes.
+     */
+    private BufferedImage boardBackground = null;
+    private boolean backgroundFromWhiteSide = true;
+    private double backgroundScale = 1.0;
+
 // class methods start here
     public BoardPanel(){
         setPreferredSize(new Dimension(8 * TILE_SIZE + 2 * MARGIN, 8 * TILE_SIZE + 2 * MARGIN));
-        setBackground(new Color(40, 40, 40));
+        setBackground(BACKGROUND_COLOR);
         setOpaque(true); // Ensuring background is painted
 
         this.validMoves = new HashSet<>();
-        this.pieceImages = new HashMap<>();
         // initializing board because of NPE
         this.currentBoard = new Board();
 
-        loadAllPieceImages();
+        // The images are decoded in the background, until then the Unicode fallback is drawn
+        this.pieceSprites = new PieceSprites();
+        pieceSprites.loadAsync(this::repaint);
     }
 
     /**
@@ -120,25 +137,34 @@ public class BoardPanel extends JPanel{
 
     /**
      * The core drawing method.
-     * This now iterates over VIEW coordinates and translates them
-     * to MODEL coordinates to fetch the correct piece.
+     * The tiles and coordinates come from the cached background image,
+     * only the highlights and the pieces are drawn on top of it.
+     * Only the tiles inside the clip (the dirty region) are visited.
      */
     @Override
     protected void paintComponent(Graphics g){
-        super.paintComponent(g);
         Graphics2D g2 = (Graphics2D) g;
 
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        // 1. Board background (tiles + coordinates)
+        g2.drawImage(getBoardBackground(g2), 0, 0, getWidth(), getHeight(), null);
 
-        // 1. Draw Coordinates (outside the translated grid)
-        drawCoordinates(g2);
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
         // 2. Translate grid to accounting for margin
         g2.translate(MARGIN, MARGIN);
 
-        // 3. Draw Board & Pieces by iterating over the VIEW (panel)
-        for(int viewRow = 0; viewRow < 8; viewRow++){
-            for(int viewCol = 0; viewCol < 8; viewCol++){
+        // 3. Only the view squares touching the dirty region need to be drawn
+        Rectangle clip = g2.getClipBounds();
+        int firstCol = 0, lastCol = 7, firstRow = 0, lastRow = 7;
+        if(clip != null){
+            firstCol = Math.max(0, Math.floorDiv(clip.x, TILE_SIZE));
+            lastCol = Math.min(7, Math.floorDiv(clip.x + clip.width - 1, TILE_SIZE));
+            firstRow = Math.max(0, Math.floorDiv(clip.y, TILE_SIZE));
+            lastRow = Math.min(7, Math.floorDiv(clip.y + clip.height - 1, TILE_SIZE));
+        }
+
+        for(int viewRow = firstRow; viewRow <= lastRow; viewRow++){
+            for(int viewCol = firstCol; viewCol <= lastCol; viewCol++){
                 // Get the corresponding MODEL position for this view square
                 Position modelPos = isViewFromWhiteSide ?
                         new Position(viewRow, viewCol) : new Position(7 - viewRow, 7 - viewCol);
@@ -146,21 +172,13 @@ public class BoardPanel extends JPanel{
                 int x = viewCol * TILE_SIZE;
                 int y = viewRow * TILE_SIZE;
 
-                // 1. Draw the tile
-                // Tile colour depends on the MODEL position
-                Color color = (modelPos.row() + modelPos.column()) % 2 == 0 ?
-                        new Color(205, 170, 125) : // Light wood
-                        new Color(119, 148, 85);   // Green
-                g2.setColor(color);
-                g2.fillRect(x, y, TILE_SIZE, TILE_SIZE);
-
-                // 2. Highlight King in Check (Red Background)
+                // Highlight King in Check (Red Background)
                 if(kingInCheckPos != null && kingInCheckPos.equals(modelPos)){
-                    g2.setColor(new Color(255, 0, 0, 180));
+                    g2.setColor(CHECK_COLOR);
                     g2.fillRect(x, y, TILE_SIZE, TILE_SIZE);
                 }
 
-                // 3. Draw the piece
+                // Draw the piece
                 if(currentBoard != null){
                     Piece piece = currentBoard.getPieceAt(modelPos);
                     if(piece != null && piece != draggedPiece){
@@ -179,6 +197,57 @@ public class BoardPanel extends JPanel{
         drawDraggedPiece(g2);
     }
 
+    /**
+     * Returns the cached board background, rendering it first if needed.
+     * The image is created at the device scale of the screen (HiDPI),
+     * in a format compatible with it, so drawing it is a plain copy.
+     */
+    private BufferedImage getBoardBackground(Graphics2D g2){
+        double scale = g2.getTransform().getScaleX();
+        int width = (int) Math.ceil(getWidth() * scale);
+        int height = (int) Math.ceil(getHeight() * scale);
+
+        if(boardBackground != null
+                && backgroundFromWhiteSide == isViewFromWhiteSide
+                && backgroundScale == scale
+                && boardBackground.getWidth() == width
+                && boardBackground.getHeight() == height){
+            return boardBackground;
+        }
+
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        BufferedImage image = gc != null ?
+                gc.createCompatibleImage(Math.max(1, width), Math.max(1, height)) :
+                new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_RGB);
+
+        Graphics2D bg = image.createGraphics();
+        bg.scale(scale, scale);
+        bg.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        bg.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+        bg.setColor(BACKGROUND_COLOR);
+        bg.fillRect(0, 0, getWidth(), getHeight());
+
+        // Coordinates (outside the grid)
+        drawCoordinates(bg);
+
+        // Tiles, colour depends on the MODEL position
+        for(int viewRow = 0; viewRow < 8; viewRow++){
+            for(int viewCol = 0; viewCol < 8; viewCol++){
+                int modelRow = isViewFromWhiteSide ? viewRow : 7 - viewRow;
+                int modelCol = isViewFromWhiteSide ? viewCol : 7 - viewCol;
+                bg.setColor((modelRow + modelCol) % 2 == 0 ? LIGHT_TILE_COLOR : DARK_TILE_COLOR);
+                bg.fillRect(MARGIN + viewCol * TILE_SIZE, MARGIN + viewRow * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+            }
+        }
+        bg.dispose();
+
+        this.boardBackground = image;
+        this.backgroundFromWhiteSide = isViewFromWhiteSide;
+        this.backgroundScale = scale;
+        return image;
+    }
+
     /**
      * Called by GameController to set the new board state after a move.
      */
@@ -227,8 +296,19 @@ public class BoardPanel extends JPanel{
      * Called by MouseController as the mouse is dragged.
      */
     public void updateDrag(Point point){
+        // Only the old and the new rectangle of the dragged piece need repainting
+        if(dragPosition != null){
+            repaint(getDragBounds(dragPosition));
+        }
         this.dragPosition = point;
-        repaint();
+        repaint(getDragBounds(point));
+    }
+
+    /**
+     * The area covered by the dragged piece, when the mouse is at 'point'.
+     */
+    private Rectangle getDragBounds(Point point){
+        return new Rectangle(point.x - TILE_SIZE / 2, point.y - TILE_SIZE / 2, TILE_SIZE, TILE_SIZE);
     }
 
     /**
@@ -243,7 +323,7 @@ public class BoardPanel extends JPanel{
 
     private void drawCoordinates(Graphics2D g2){
         g2.setColor(Color.WHITE);
-        g2.setFont(new Font("SansSerif", Font.BOLD, 14));
+        g2.setFont(COORDINATE_FONT);
         FontMetrics fm = g2.getFontMetrics();
 
         for(int i = 0; i < 8; i++){
@@ -264,14 +344,12 @@ public class BoardPanel extends JPanel{
             Point p = getRelativeScreenCoordinates(selectedPosition);
             // Point already includes Margin because getViewCoordinates adds it.
             // BUT we are inside a g2.translate(MARGIN, MARGIN) block, so we must subtract margin here.
-            g2.setColor(new Color(255, 255, 0, 100)); // Transparent Yellow
+            g2.setColor(SELECTED_COLOR);
             g2.fillRect(p.x, p.y, TILE_SIZE, TILE_SIZE);
         }
     }
 
     private void drawValidMoves(Graphics2D g2){
-        g2.setColor(new Color(139, 134, 128, 80)); // Transparent grey
-
         for(Position modelPos : validMoves){
             Point p = getRelativeScreenCoordinates(modelPos);
 
@@ -279,11 +357,11 @@ public class BoardPanel extends JPanel{
 
             if(targetPiece != null){
                 // Capture: Yellow corners or full background highlight
-                g2.setColor(new Color(255, 100, 0, 150)); // Orange/Reddish ring
+                g2.setColor(CAPTURE_HINT_COLOR);
                 g2.fillRect(p.x, p.y, TILE_SIZE, TILE_SIZE);
             }else{
                 // Move: Grey circle
-                g2.setColor(new Color(100, 100, 100, 128));
+                g2.setColor(MOVE_HINT_COLOR);
                 int radius = TILE_SIZE / 6;
                 g2.fillOval(p.x + TILE_SIZE/2 - radius, p.y + TILE_SIZE/2 - radius, radius * 2, radius * 2);
             }
@@ -301,44 +379,10 @@ public class BoardPanel extends JPanel{
         }
     }
 
-    /**
-     * Loads all chess piece images into a cache.
-     * This prevents reloading the same image multiple times, improving performance.
-     */
-    private void loadAllPieceImages(){
-        String[] colors = {"White", "Black"};
-        String[] types = {"Pawn", "Rook", "Knight", "Bishop", "Queen", "King"};
-
-        for(String color : colors){
-            for(String type : types){
-                String fileName = color + type + ".jpg";
-                String path = IMAGE_PATH_PREFIX + fileName;
-                try {
-                    URL url = getClass().getResource(path);
-                    if(url == null){
-                        System.err.println("Image not found: " + path);
-                        continue;
-                    }
-
-                    Image img = ImageIO.read(url);
-                    pieceImages.put(fileName, img.getScaledInstance(TILE_SIZE, TILE_SIZE, Image.SCALE_SMOOTH));
-
-                } catch(IOException e){
-                    System.err.println("Error loading image: " + fileName + " - " + e.getMessage());
-                } catch(NullPointerException e){
-                    System.err.println(e.getMessage());
-                }
-            }
-        }
-    }
-
     private void drawPieceAt(Graphics2D g2, Piece piece, int x, int y){
         if(currentBoard == null) return;
 
-        Image pieceImage = getPieceImage(piece);
-        if(pieceImage != null){
-            g2.drawImage(pieceImage, x, y, TILE_SIZE, TILE_SIZE, this);
-        }else{
+        if(!pieceSprites.draw(g2, piece, x, y, TILE_SIZE)){
             /**
              * great resource: https://en.wikipedia.org/wiki/Chess_symbols_in_Unicode
              * the white pieces are hollow, while the black pieces are filled in
@@ -346,7 +390,7 @@ public class BoardPanel extends JPanel{
             // Fallback: Draw Unicode Chess Symbols if image fails (unless something goes awry[e.g: failed download of repo], this is never used)
             g2.setColor(piece.isWhite() ? Color.WHITE : Color.BLACK);
             // Draw text outline for visibility
-            g2.setFont(new Font("SansSerif", Font.BOLD, 40));
+            g2.setFont(SYMBOL_FONT);
             String s = getPieceSymbol(piece);
             FontMetrics fm = g2.getFontMetrics();
             int tx = x + (TILE_SIZE - fm.stringWidth(s)) / 2;
@@ -356,24 +400,6 @@ public class BoardPanel extends JPanel{
         }
     }
 
-    /**
-     * Returns the appropriate image for a given piece.
-     * @param piece The piece for which to get the image.
-     * @return The scaled Image object, or null if not found.
-     */
-    private Image getPieceImage(Piece piece){
-        /**
-         * here was the fixing needed
-         * the piece type string was in full upper case letters
-         * where as the file name was in camel case writing
-         */
-        if(piece == null) return null;
-        String pieceName = piece.getType().name().substring(0,1);
-        pieceName +=  piece.getType().name().substring(1).toLowerCase();
-        String fileName = (piece.isWhite() ? "White" : "Black") + pieceName + ".jpg";
-        return pieceImages.get(fileName);
-    }
-
     // fallback option just in case (is a pretty good alternative, as the pieces are pretty)
     private String getPieceSymbol(Piece piece){
         if(piece == null){
@@ -8,6 +8,7 @@ import Model.Controller.*;
 public class MainFrame extends JFrame{
     private BoardPanel boardPanel;
     private SidePanel sidePanel;
+    private AnalysisPanel analysisPanel;
 
     // Controllers must be referenced to keep them alive and connected
     private final GameController gameController;
@@ -22,13 +23,20 @@ public class MainFrame extends JFrame{
         // 1. Create View components
         boardPanel = new BoardPanel();
         sidePanel = new SidePanel();
+        analysisPanel = new AnalysisPanel();
+
+        // The analysis sits next to the move log
+        JPanel eastPanel = new JPanel();
+        eastPanel.setLayout(new BoxLayout(eastPanel, BoxLayout.X_AXIS));
+        eastPanel.add(sidePanel);
+        eastPanel.add(analysisPanel);
 
         add(boardPanel, BorderLayout.CENTER);
-        add(sidePanel, BorderLayout.EAST);
+        add(eastPanel, BorderLayout.EAST);
 
         // 2. Initialize Controllers (Connecting MVC)
         // GameController coordinates the logic
-        gameController = new GameController(this, boardPanel, sidePanel);
+        gameController = new GameController(this, boardPanel, sidePanel, analysisPanel);
 
         // MenuController handles menu clicks
         menuController = new MenuController(gameController);
@@ -42,6 +50,9 @@ public class MainFrame extends JFrame{
         // 4. Setup Listeners
         boardPanel.addMouseListener(mouseController);
         boardPanel.addMouseMotionListener(mouseController);
+        sidePanel.setPlySelectionListener(gameController::handleShowPly);
+        analysisPanel.setAnalysisListener(gameController::handleToggleAnalysis);
+        analysisPanel.setLineCountListener(gameController::handleAnalysisLines);
 
         // 5. Finalize Window
         pack(); // Resize the window to fit components
@@ -62,6 +73,10 @@ public class MainFrame extends JFrame{
         fileMenu.addSeparator();
         addMenuItem(fileMenu, "Állapot Mentése (JSON)...", "SAVE_GAME_JSON", listener);
         addMenuItem(fileMenu, "Állapot Betöltése (JSON)...", "LOAD_GAME_JSON", listener);
+        JCheckBoxMenuItem autosaveItem = new JCheckBoxMenuItem("Automatikus mentés...");
+        autosaveItem.setActionCommand("TOGGLE_AUTOSAVE");
+        autosaveItem.addActionListener(listener);
+        fileMenu.add(autosaveItem);
         fileMenu.addSeparator();
         addMenuItem(fileMenu, "Exportálás PGN...", "EXPORT_PGN", listener);
         // Now importing is implemented
@@ -71,7 +86,13 @@ public class MainFrame extends JFrame{
 
         // Game Menu
         JMenu gameMenu = new JMenu("Játék");
+        addMenuItem(gameMenu, "Lépés visszavonása", "TAKEBACK", listener);
         addMenuItem(gameMenu, "Döntetlen ajánlása", "OFFER_DRAW", listener);
+        gameMenu.addSeparator();
+        addMenuItem(gameMenu, "Megnyitási könyv megnyitása...", "OPEN_BOOK", listener);
+        addMenuItem(gameMenu, "Könyvlépések", "BOOK_HINT", listener);
+        addMenuItem(gameMenu, "Végjáték-adatbázis megnyitása...", "OPEN_TABLEBASES", listener);
+        addMenuItem(gameMenu, "Végjáték-adatbázis állása", "TABLEBASE_HINT", listener);
 
         menuBar.add(fileMenu);
         menuBar.add(gameMenu);
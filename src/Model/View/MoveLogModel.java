@@ -4,6 +4,7 @@ import javax.swing.table.*;
 import java.util.*;
 
 import Model.*;
+import Model.IOs.*;
 
 /**
  * This is the custom TableModel for the JTable in SidePanel.
@@ -13,27 +14,102 @@ import Model.*;
  * | 2.  | Nf3   | Nc6   | */
 public class MoveLogModel extends AbstractTableModel{
     private final List<Move> moves;
+    // The SAN of every move, computed once when the move is added
+    private final List<String> sans;
     private final String[] columnNames = {"No.", "White", "Black"};
 
+    // The position after the last move in the log, needed for SAN disambiguation
+    private Board replayBoard;
+    private final PGNFormatter sanFormatter;
+
     public MoveLogModel(){
         this.moves = new ArrayList<>();
+        this.sans = new ArrayList<>();
+        this.replayBoard = new Board();
+        this.sanFormatter = new PGNFormatter();
     }
 
     /**
      * Public method to update the internal move list.
-     * It notifies the JTable that its data has completely changed.
+     * Only the difference to the current list is applied: the moves after the
+     * common prefix are dropped, and the new ones are appended.
+     * In the usual case (one new move) this costs O(1), regardless of game length.
      */
     public void setMoves(List<Move> newMoves){
-        this.moves.clear();
-        this.moves.addAll(newMoves);
-        // This is crucial! It tells the JTable to refresh itself.
-        fireTableDataChanged();
+        int common = Math.min(moves.size(), newMoves.size());
+
+        // Fast path: the last move we show is still in place, so the whole prefix is
+        if(common > 0 && moves.get(common - 1) != newMoves.get(common - 1)){
+            int firstDifference = 0;
+            while(firstDifference < common && moves.get(firstDifference) == newMoves.get(firstDifference)){
+                firstDifference++;
+            }
+            common = firstDifference;
+        }
+
+        truncate(common);
+        for(int i = common; i < newMoves.size(); i++){
+            appendMove(newMoves.get(i));
+        }
+    }
+
+    /**
+     * Adds a single move to the end of the log.
+     * Its SAN is computed here, once, and the table is notified of the changed row only.
+     */
+    public void appendMove(Move move){
+        sans.add(sanFormatter.toSan(replayBoard, move));
+        replayBoard.applyMove(move);
+        moves.add(move);
+
+        int ply = moves.size() - 1;
+        int row = ply / 2;
+        if(ply % 2 == 0){
+            // White's move starts a new row
+            fireTableRowsInserted(row, row);
+        }else{
+            // Black's move fills the second cell of the existing row
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    /**
+     * Removes the moves after the first 'plyCount' plies (e.g. after a takeback).
+     */
+    public void truncate(int plyCount){
+        int oldSize = moves.size();
+        if(plyCount >= oldSize){
+            return;
+        }
+        int oldRows = getRowCount();
+
+        moves.subList(plyCount, oldSize).clear();
+        sans.subList(plyCount, oldSize).clear();
+
+        // Rebuild the replay position, this is the rare case
+        replayBoard = new Board();
+        for(Move move : moves){
+            replayBoard.applyMove(move);
+        }
+
+        int newRows = getRowCount();
+        if(newRows < oldRows){
+            fireTableRowsDeleted(newRows, oldRows - 1);
+        }
+        if(plyCount % 2 == 1){
+            // The last remaining row lost its black move
+            fireTableRowsUpdated(newRows - 1, newRows - 1);
+        }
+    }
+
+    public int getPlyCount(){
+        return moves.size();
     }
 
     @Override
     public int getRowCount(){
         // The number of rows is (total moves / 2), rounded up.
-        return (int) Math.ceil(moves.size() / 2.0);
+        return (moves.size() + 1) / 2;
     }
 
     @Override
@@ -56,88 +132,14 @@ public class MoveLogModel extends AbstractTableModel{
                 // Column 1: White's move
                 // (rowIndex * 2) gives the index of the white move
                 int whiteMoveIndex = rowIndex * 2;
-                return (whiteMoveIndex < moves.size()) ? formatSan(moves.get(whiteMoveIndex)) : "";
+                return (whiteMoveIndex < sans.size()) ? sans.get(whiteMoveIndex) : "";
             case 2:
                 // Column 2: Black's move
                 // (rowIndex * 2 + 1) gives the index of the black move
                 int blackMoveIndex = rowIndex * 2 + 1;
-                return (blackMoveIndex < moves.size()) ? formatSan(moves.get(blackMoveIndex)) : "";
+                return (blackMoveIndex < sans.size()) ? sans.get(blackMoveIndex) : "";
             default:
                 return "";
         }
     }
-
-    /**
-     * Converts a Move object into a simple notation (e.g., "e2e4").
-     * A full implementation would convert this to Standard Algebraic Notation
-     * (e.g., "e4" or "Nf3"), which is much more complex.
-     */
-    private String formatSan(Move move){
-        // castling move
-        if(move.isCastling()){
-            boolean kingside = move.getTo().column() == 6;
-            return (kingside ? "O-O" : "O-O-O") + getCheckSymbol(move);
-        }
-
-        // Simple PGN/SAN formatter for display
-        StringBuilder sb = new StringBuilder();
-
-        // 1. Piece
-        if(move.getPieceMoved().getType() != PieceType.PAWN){
-            sb.append(getPieceChar(move.getPieceMoved().getType()));
-        }
-
-        // 2. Disambiguation (Simplified: always show file if capture by pawn)
-        if(move.getPieceCaptured() != null && move.getPieceMoved().getType() == PieceType.PAWN){
-            sb.append(getFileChar(move.getFrom().column()));
-        }
-
-        // 3. Capture
-        if(move.getPieceCaptured() != null){
-            sb.append("x");
-        }
-
-        // 4. Target
-        sb.append(positionToNotation(move.getTo()));
-
-        // 5. Promotion
-        if(move.isPromotion() && move.getPromotionPiece() != null){
-            sb.append("=").append(getPieceChar(move.getPromotionPiece().getType()));
-        }
-
-        // 6. Check or Mate
-        if(move.isCheckmate()){
-            sb.append("#"); // mate
-        }else if(move.isCheck()){
-            sb.append("+"); // check
-        }
-
-        return sb.toString();
-    }
-
-    private String getCheckSymbol(Move move){
-        if(move.isCheckmate()) return "#";
-        if(move.isCheck()) return "+";
-        return "";
-    }
-
-    private String getPieceChar(PieceType type){
-        switch(type){
-            case KNIGHT: return "N";
-            case BISHOP: return "B";
-            case ROOK: return "R";
-            case QUEEN: return "Q";
-            case KING: return "K";
-            default: return "";
-        }
-    }
-
-
-    private String positionToNotation(Position pos){
-        return getFileChar(pos.column()) + (8 - pos.row());
-    }
-
-    private String getFileChar(int col){
-        return String.valueOf((char)('a' + col));
-    }
 }
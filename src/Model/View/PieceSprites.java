@@ -0,0 +1,132 @@
+package Model.View;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import javax.imageio.*;
+
+import Model.Pieces.*;
+
+/**
+ * Sprite atlas of the 12 chess piece images.
+ *
+ * The images are decoded in parallel, off the EDT, when the application starts.
+ * They are then rasterised once into a single image compatible with the screen
+ * (a managed image, which Java2D can keep in video memory), at the exact pixel
+ * size of a tile, so drawing a piece is a plain, unscaled copy of its cell.
+ * The atlas is rebuilt if the tile's pixel size (e.g. HiDPI scale) or the screen changes.
+ *
+ * Cells are indexed by piece: White Pawn..King are 0-5, Black Pawn..King are 6-11.
+ */
+public class PieceSprites{
+    private static final String IMAGE_PATH_PREFIX = "/Pictures/";
+    private static final String[] COLOR_NAMES = {"White", "Black"};
+    // In the order of PieceType
+    private static final String[] TYPE_NAMES = {"Pawn", "Rook", "Knight", "Bishop", "Queen", "King"};
+    private static final int SPRITE_COUNT = 12;
+
+    // The decoded source images, null until loading has finished
+    private volatile BufferedImage[] sources = null;
+
+    // The rasterised atlas, only used on the EDT
+    private BufferedImage atlas = null;
+    private int atlasCellSize = -1;
+    private GraphicsDevice atlasDevice = null;
+
+    /**
+     * @return The atlas cell of the given piece.
+     */
+    public static int indexOf(Piece piece){
+        return (piece.isWhite() ? 0 : TYPE_NAMES.length) + piece.getType().ordinal();
+    }
+
+    /**
+     * Decodes all images in parallel in the background.
+     * When all of them are ready, onLoaded is run on the EDT.
+     */
+    public void loadAsync(Runnable onLoaded){
+        List<CompletableFuture<BufferedImage>> jobs = new ArrayList<>(SPRITE_COUNT);
+        for(int color = 0; color < COLOR_NAMES.length; color++){
+            for(int type = 0; type < TYPE_NAMES.length; type++){
+                String path = IMAGE_PATH_PREFIX + COLOR_NAMES[color] + TYPE_NAMES[type] + ".jpg";
+                jobs.add(CompletableFuture.supplyAsync(() -> readImage(path)));
+            }
+        }
+
+        CompletableFuture.allOf(jobs.toArray(new CompletableFuture<?>[0])).thenRun(() -> {
+            BufferedImage[] loaded = new BufferedImage[SPRITE_COUNT];
+            for(int i = 0; i < SPRITE_COUNT; i++){
+                loaded[i] = jobs.get(i).join();
+            }
+            SwingUtilities.invokeLater(() -> {
+                this.sources = loaded;
+                this.atlas = null;
+                onLoaded.run();
+            });
+        });
+    }
+
+    private static BufferedImage readImage(String path){
+        try {
+            URL url = PieceSprites.class.getResource(path);
+            if(url == null){
+                System.err.println("Image not found: " + path);
+                return null;
+            }
+            return ImageIO.read(url);
+        } catch(IOException e){
+            System.err.println("Error loading image: " + path + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Draws the piece's sprite into the tile at (x, y).
+     *
+     * @return false if the sprite is not available (yet), the caller should draw a fallback.
+     */
+    public boolean draw(Graphics2D g2, Piece piece, int x, int y, int tileSize){
+        BufferedImage[] loaded = sources;
+        int index = indexOf(piece);
+        if(loaded == null || loaded[index] == null){
+            return false;
+        }
+
+        // Size of a tile in device pixels
+        int cellSize = (int) Math.ceil(tileSize * g2.getTransform().getScaleX());
+        GraphicsConfiguration gc = g2.getDeviceConfiguration();
+        if(atlas == null || atlasCellSize != cellSize || atlasDevice != gc.getDevice()){
+            rasterise(loaded, cellSize, gc);
+        }
+
+        int sx = index * cellSize;
+        g2.drawImage(atlas, x, y, x + tileSize, y + tileSize, sx, 0, sx + cellSize, cellSize, null);
+        return true;
+    }
+
+    /**
+     * Scales every source image into its cell of a new atlas.
+     */
+    private void rasterise(BufferedImage[] loaded, int cellSize, GraphicsConfiguration gc){
+        BufferedImage image = gc.createCompatibleImage(SPRITE_COUNT * cellSize, cellSize, Transparency.TRANSLUCENT);
+        Graphics2D ag = image.createGraphics();
+        ag.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        ag.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+
+        for(int i = 0; i < SPRITE_COUNT; i++){
+            if(loaded[i] != null){
+                ag.drawImage(loaded[i], i * cellSize, 0, cellSize, cellSize, null);
+            }
+        }
+        ag.dispose();
+
+        this.atlas = image;
+        this.atlasCellSize = cellSize;
+        this.atlasDevice = gc.getDevice();
+    }
+}
@@ -0,0 +1,47 @@
+package Model.View;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * A small non-modal dialog showing the progress of a long background job
+ * (e.g. importing a large PGN file), with a Cancel button.
+ */
+public class ProgressDialog extends JDialog{
+    private final JProgressBar progressBar;
+
+    public ProgressDialog(Frame owner, String title, Runnable onCancel){
+        super(owner, title, false);
+        setLayout(new BorderLayout());
+        setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setPreferredSize(new Dimension(300, 24));
+
+        JPanel barPanel = new JPanel(new BorderLayout());
+        barPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 5, 10));
+        barPanel.add(progressBar, BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> {
+            cancelButton.setEnabled(false);
+            onCancel.run();
+        });
+        buttonPanel.add(cancelButton);
+
+        add(barPanel, BorderLayout.CENTER);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        pack();
+        setLocationRelativeTo(owner);
+    }
+
+    /**
+     * @param percent Progress between 0 and 100.
+     */
+    public void setProgress(int percent){
+        progressBar.setValue(percent);
+    }
+}
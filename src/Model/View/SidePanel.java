@@ -3,7 +3,9 @@ package Model.View;
 import javax.swing.*;
 import javax.swing.border.*;
 import java.awt.*;
+import java.awt.event.*;
 import java.util.List;
+import java.util.function.*;
 
 import Model.*;
 
@@ -86,9 +88,30 @@ public class SidePanel extends JPanel{
         this.repaint();
     }
 
+    /**
+     * Clicking a move in the log reports the ply after that move (1 = White's first move).
+     */
+    public void setPlySelectionListener(IntConsumer listener){
+        moveTable.addMouseListener(new MouseAdapter(){
+            @Override
+            public void mouseClicked(MouseEvent e){
+                int row = moveTable.rowAtPoint(e.getPoint());
+                int column = moveTable.columnAtPoint(e.getPoint());
+                if(row < 0){
+                    return;
+                }
+                int ply = row * 2 + (column == 2 ? 2 : 1);
+                if(ply <= moveLogModel.getPlyCount()){
+                    listener.accept(ply);
+                }
+            }
+        });
+    }
+
     /**
      * Called by GameController after a move is made.
-     * It passes the new list to the table model.
+     * It passes the new list to the table model, which only applies
+     * the difference (usually a single appended move).
      */
     public void updateMoveHistory(List<Move> moves){
         moveLogModel.setMoves(moves);
@@ -1,8 +1,12 @@
 import Model.*;
+import Model.IOs.*;
 import Model.Pieces.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -221,4 +225,245 @@ class ChessTests {
         Move legalMove = ruleEngine.generateMove(gameState, new Position(6, 4), new Position(5, 4));
         assertNotNull(legalMove, "Kötésben lévő bábu mozoghat a támadás vonalán");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testAllValidMovesFromStart() {
+        board.initialSetup();
+
+        // 8 pawns and 2 knights can move, 20 moves in total
+        Map<Position, Set<Position>> moves = ruleEngine.getAllValidMoves(gameState);
+        assertEquals(10, moves.size());
+        assertEquals(20, moves.values().stream().mapToInt(Set::size).sum());
+        assertEquals(ruleEngine.getValidMovesForPiece(gameState, new Position(7, 6)), moves.get(new Position(7, 6)));
+    }
+
+    // --- Engine move generation ---
+
+    @Test
+    void testCapturesAndQuietsSplitAllMoves() {
+        GameState state = new FENParser().parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        Set<String> all = uciSet(ruleEngine.getAllLegalMoves(state));
+        Set<String> captures = uciSet(ruleEngine.getLegalCaptures(state));
+        Set<String> quiets = uciSet(ruleEngine.getLegalQuietMoves(state));
+        assertEquals(48, all.size());
+        assertEquals(8, captures.size());
+        assertTrue(quiets.contains("e1g1") && quiets.contains("e1c1"), "Castling is quiet");
+        Set<String> union = new java.util.HashSet<>(captures);
+        union.addAll(quiets);
+        assertEquals(all, union);
+        assertEquals(all.size(), captures.size() + quiets.size());
+
+        assertNotNull(ruleEngine.getLegalMove(state, new Position(3, 4), new Position(1, 5), null)); // Nxf7
+        assertNull(ruleEngine.getLegalMove(state, new Position(3, 4), new Position(1, 4), null));    // Ne5-e7 isn't a knight move
+    }
+
+    @Test
+    void testEnPassantIsGenerated() {
+        // 1. e4 a6 2. e5 d5: exd6 e.p. is legal, and removes the d5 pawn
+        GameState state = new FENParser().parse("rnbqkbnr/1pp1pppp/p7/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 3");
+        Move enPassant = ruleEngine.getLegalMove(state, new Position(3, 4), new Position(2, 3), null);
+        assertNotNull(enPassant);
+        assertTrue(enPassant.isEnPassant());
+        assertTrue(uciSet(ruleEngine.getLegalCaptures(state)).contains("e5d6"));
+        assertNotNull(ruleEngine.generateMove(state, new Position(3, 4), new Position(2, 3)), "Also for the GUI");
+        state.makeMove(enPassant);
+        assertNull(state.getBoard().getPieceAt(new Position(3, 3)));
+
+        // Perft of a position full of en passant and pins (known counts: 14, 191, 2812)
+        GameState endgame = new FENParser().parse("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1");
+        assertEquals(14, perft(endgame, 1));
+        assertEquals(191, perft(endgame, 2));
+        assertEquals(2812, perft(endgame, 3));
+    }
+
+    @Test
+    void testGivesCheckMatchesMakingTheMove() {
+        // Discovered checks, pins, castling, en passant and promotions among them
+        String[] fens = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1"};
+        int checks = 0;
+        for (String fen : fens) {
+            checks += countChecks(new FENParser().parse(fen), 2);
+        }
+        assertTrue(checks > 100, "Only " + checks + " checking moves");
+    }
+
+    // Compares givesCheck() with the move made, for every move down to the depth
+    private int countChecks(GameState state, int depth) {
+        int checks = 0;
+        for (Move move : ruleEngine.getAllLegalMoves(state)) {
+            boolean predicted = ruleEngine.givesCheck(state.getBoard(), move);
+            GameState child = new GameState(state);
+            child.makeMove(move);
+            assertEquals(ruleEngine.isKingInCheck(child, child.isWhiteTurn()), predicted, MoveCodes.toUci(MoveCodes.encode(move)));
+            if (predicted) {
+                checks++;
+            }
+            if (depth > 1) {
+                checks += countChecks(child, depth - 1);
+            }
+        }
+        return checks;
+    }
+
+    private long perft(GameState state, int depth) {
+        List<Move> moves = ruleEngine.getAllLegalMoves(state);
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (Move move : moves) {
+            GameState child = new GameState(state);
+            child.makeMove(move);
+            nodes += perft(child, depth - 1);
+        }
+        return nodes;
+    }
+
+    private static Set<String> uciSet(List<Move> moves) {
+        Set<String> codes = new java.util.HashSet<>();
+        for (Move move : moves) {
+            codes.add(MoveCodes.toUci(MoveCodes.encode(move)));
+        }
+        return codes;
+    }
+
+    // --- Static exchange evaluation ---
+
+    @Test
+    void testStaticExchange() {
+        board.setPieceAt(new Position(7, 4), new King(true));   // e1
+        board.setPieceAt(new Position(0, 7), new King(false));  // h8
+        board.setPieceAt(new Position(4, 3), new Pawn(true));   // d4
+        board.setPieceAt(new Position(3, 4), new Pawn(false));  // e5
+        board.setPieceAt(new Position(2, 3), new Pawn(false));  // d6, defends e5
+        board.setPieceAt(new Position(7, 0), new Rook(true));   // a1
+        board.setPieceAt(new Position(3, 0), new Rook(false));  // a5, defended by nothing
+
+        // dxe5 dxe5: a pawn for a pawn
+        assertEquals(0, ruleEngine.staticExchange(board, new Move(new Position(4, 3), new Position(3, 4), board.getPieceAt(new Position(4, 3)))));
+        // Rxa5 wins a rook
+        assertEquals(500, ruleEngine.staticExchange(board, new Move(new Position(7, 0), new Position(3, 0), board.getPieceAt(new Position(7, 0)))));
+        // Rc1 is safe, until a pawn on b2 attacks c1
+        board.setPieceAt(new Position(3, 0), null);
+        Move rookToC1 = new Move(new Position(7, 0), new Position(7, 2), board.getPieceAt(new Position(7, 0)));
+        assertEquals(0, ruleEngine.staticExchange(board, rookToC1));
+        board.setPieceAt(new Position(6, 1), new Pawn(false)); // b2
+        assertEquals(-500, ruleEngine.staticExchange(board, rookToC1));
+    }
+
+    @Test
+    void testStaticExchangeSeesThroughBatteries() {
+        board.setPieceAt(new Position(7, 6), new King(true));   // g1
+        board.setPieceAt(new Position(0, 6), new King(false));  // g8
+        board.setPieceAt(new Position(7, 4), new Rook(true));   // e1
+        board.setPieceAt(new Position(6, 4), new Rook(true));   // e2
+        board.setPieceAt(new Position(3, 4), new Pawn(false));  // e5
+        board.setPieceAt(new Position(0, 4), new Rook(false));  // e8
+
+        // Rxe5 Rxe5 Rxe5: the rook behind joins in
+        Move capture = new Move(new Position(6, 4), new Position(3, 4), board.getPieceAt(new Position(6, 4)));
+        assertEquals(100, ruleEngine.staticExchange(board, capture));
+
+        // Without the second rook the pawn is poisoned
+        board.setPieceAt(new Position(7, 4), null);
+        assertEquals(-400, ruleEngine.staticExchange(board, capture));
+
+        // A king can't take back a defended piece: Qxd7+ and Kxd7 is illegal with the bishop on b5
+        board.setPieceAt(new Position(0, 6), null);
+        board.setPieceAt(new Position(0, 4), new King(false));  // e8 instead of the rook
+        board.setPieceAt(new Position(1, 3), new Pawn(false));  // d7
+        board.setPieceAt(new Position(7, 3), new Queen(true));  // d1
+        Move queenTakes = new Move(new Position(7, 3), new Position(1, 3), board.getPieceAt(new Position(7, 3)));
+        assertEquals(-800, ruleEngine.staticExchange(board, queenTakes));
+        board.setPieceAt(new Position(3, 1), new Bishop(true)); // b5
+        assertEquals(100, ruleEngine.staticExchange(board, queenTakes));
+    }
+
+    // --- Takeback and history ---
+
+    @Test
+    void testUndoRestoresSpecialMoves() {
+        FENParser fenParser = new FENParser();
+        FENFormatter fenFormatter = new FENFormatter();
+        // Castling, promotion and captures are all possible for White here
+        String fen = "r3k3/1P6/8/3pP3/8/8/8/R3K2R w KQq d6 3 20";
+
+        for (String uci : new String[]{"e1g1", "e1c1", "b7a8n", "b7b8q", "a1a8", "e5e6"}) {
+            GameState state = fenParser.parse(fen);
+            Move move = MoveCodes.decode(state, ruleEngine, MoveCodes.fromUci(uci));
+            assertNotNull(move, uci);
+            state.makeMove(move);
+            assertTrue(state.canUndo());
+
+            assertSame(move, state.undoMove());
+            assertEquals(fen.replace(" 20", " 1"), fenFormatter.format(state), "Takeback of " + uci);
+            assertTrue(state.getMoveHistory().isEmpty());
+        }
+    }
+
+    @Test
+    void testIncrementalTermsFollowMakeAndUndo() {
+        GameState state = new FENParser().parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        Board board = state.getBoard();
+        int middleGame = board.getMiddleGameScore();
+        int endGame = board.getEndGameScore();
+        int phase = board.getPhase();
+        assertEquals(2, board.getPieceCount(PieceType.KNIGHT, true));
+
+        // Random moves (castling, promotions and en passant included) keep the terms right...
+        Random random = new Random(44);
+        int played = 0;
+        for (; played < 150; played++) {
+            List<Move> moves = ruleEngine.getAllLegalMoves(state);
+            if (moves.isEmpty()) {
+                break;
+            }
+            state.makeMove(moves.get(random.nextInt(moves.size())));
+            assertTrue(board.termsMatchGrid(), "After " + state.getMoveHistory());
+        }
+        // ...and taking them all back restores the starting values
+        for (; played > 0; played--) {
+            state.undoMove();
+            assertTrue(board.termsMatchGrid());
+        }
+        assertEquals(middleGame, board.getMiddleGameScore());
+        assertEquals(endGame, board.getEndGameScore());
+        assertEquals(phase, board.getPhase());
+    }
+
+    @Test
+    void testHistoryNavigatorPositions() {
+        GameState game = new GameState();
+        HistoryNavigator navigator = new HistoryNavigator(4);
+        navigator.reset(game);
+
+        // Play 10 plies, remembering every position
+        FENFormatter fenFormatter = new FENFormatter();
+        java.util.List<String> positions = new java.util.ArrayList<>();
+        positions.add(fenFormatter.format(game));
+        String[] moves = {"e2e4", "d7d5", "e4d5", "d8d5", "b1c3", "d5a5", "d2d4", "c7c6", "g1f3", "c8g4"};
+        for (String uci : moves) {
+            game.makeMove(MoveCodes.decode(game, ruleEngine, MoveCodes.fromUci(uci)));
+            navigator.push(game);
+            positions.add(fenFormatter.format(game));
+        }
+
+        for (int ply = 0; ply <= moves.length; ply++) {
+            assertEquals(positions.get(ply), fenFormatter.format(navigator.positionAt(ply)), "Ply " + ply);
+        }
+
+        // A navigator rebuilt from the finished game finds the same positions
+        HistoryNavigator rebuilt = new HistoryNavigator(4);
+        rebuilt.reset(game);
+        assertEquals(positions.get(5), fenFormatter.format(rebuilt.positionAt(5)));
+
+        // After a takeback to ply 6 the later positions are gone
+        navigator.truncate(6);
+        assertEquals(6, navigator.size());
+        assertEquals(positions.get(6), fenFormatter.format(navigator.positionAt(6)));
+    }
+}
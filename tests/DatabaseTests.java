@@ -0,0 +1,177 @@
+import Model.*;
+import Model.Database.*;
+import Model.IOs.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseTests {
+
+    private StringDictionary dictionary;
+    private RuleEngine ruleEngine;
+
+    @BeforeEach
+    void setUp() {
+        dictionary = new StringDictionary();
+        ruleEngine = new RuleEngine();
+    }
+
+    // --- 1. Compact games ---
+
+    @Test
+    void testHeaderCodes() {
+        assertEquals(20240315, HeaderCodes.date("2024.03.15"));
+        assertEquals(20240000, HeaderCodes.date("2024.??.??"));
+        assertEquals("2024.??.??", HeaderCodes.dateString(20240000));
+        assertEquals("B90", HeaderCodes.ecoString(HeaderCodes.eco("B90")));
+        assertEquals(0, HeaderCodes.eco("Z99"));
+        assertEquals(HeaderCodes.RESULT_DRAW, HeaderCodes.result("1/2-1/2"));
+    }
+
+    @Test
+    void testCompactGameMaterialises() {
+        GameState played = randomGame(new Random(1), 40);
+        played.setPlayers(new Player("Carlsen", 2830), new Player("Nakamura", 2780));
+
+        CompactGame game = CompactGame.of(played, dictionary);
+        assertEquals("Carlsen", game.getWhite());
+        assertEquals(2780, game.getBlackElo());
+
+        GameState rebuilt = game.toGameState();
+        assertEquals(Zobrist.hash(played), Zobrist.hash(rebuilt));
+        assertEquals(played.getMoveHistory().size(), rebuilt.getMoveHistory().size());
+    }
+
+    @Test
+    void testStoreRoundTripWithPromotions() {
+        CompactGameStore store = new CompactGameStore(dictionary);
+        // The store doesn't replay the moves, so any codes do: a7a8=N, e2e4, h2h1=Q, b7b8=R
+        short[] moves = {
+                (short) MoveCodes.fromUci("a7a8n"), (short) MoveCodes.fromUci("e2e4"),
+                (short) MoveCodes.fromUci("h2h1q"), (short) MoveCodes.fromUci("b7b8r")};
+        Map<String, String> tags = Map.of("White", "A", "Black", "B", "Event", "Test",
+                "Date", "2020.01.02", "ECO", "C42", "Result", "0-1", "WhiteElo", "2100");
+        CompactGame game = CompactGame.of(tags, moves, dictionary);
+
+        int id = store.add(game);
+        assertEquals(game, store.get(id));
+        assertEquals(HeaderCodes.RESULT_BLACK_WINS, store.getResult(id));
+        assertEquals(4, store.getPlyCount(id));
+        assertThrows(IllegalArgumentException.class, () -> store.add(CompactGame.of(tags, moves, new StringDictionary())));
+    }
+
+    @Test
+    void testStoreStaysUnder150BytesPerGame() {
+        CompactGameStore store = new CompactGameStore(dictionary);
+        Random random = new Random(7);
+        List<CompactGame> games = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            CompactGame game = CompactGame.of(randomGame(random, 80), dictionary);
+            games.add(game);
+            store.add(game);
+        }
+        assertTrue(store.bytesPerGame() < 150, "Took " + store.bytesPerGame() + " bytes per game");
+        for (int i = 0; i < games.size(); i++) {
+            assertEquals(games.get(i), store.get(i));
+        }
+    }
+
+    @Test
+    void testGameFromFenRoundTrip() {
+        String fen = "4k3/8/8/8/8/8/8/R3K3 w Q - 0 1";
+        String pgn = String.join("\n", "[White \"A\"]", "[Black \"B\"]", "[Result \"1-0\"]",
+                "[SetUp \"1\"]", "[FEN \"" + fen + "\"]", "", "1. Ra7 Kf8 2. Ra8# 1-0", "");
+        CompactGame game = CompactGame.of(new PGNParser().parseTree(pgn), dictionary);
+        assertEquals(fen, game.getStartFen());
+        long mated = Zobrist.hash(new FENParser().parse("R4k2/8/8/8/8/8/8/4K3 b - - 3 2"));
+        assertEquals(mated, Zobrist.hash(game.toGameState()));
+
+        // Stored between two games from the initial position, which have no FEN
+        CompactGameStore store = new CompactGameStore(dictionary);
+        CompactGame before = CompactGame.of(randomGame(new Random(2), 30), dictionary);
+        assertNull(before.getStartFen());
+        store.add(before);
+        int id = store.add(game);
+        store.add(before);
+        assertEquals(game, store.get(id));
+        assertEquals(HeaderCodes.RESULT_WHITE_WINS, store.getResult(id));
+        assertEquals(mated, Zobrist.hash(store.get(id).toGameState()));
+        assertEquals(before, store.get(id + 1));
+
+        // A GameState doesn't know its set-up start, so it can't be packed
+        GameState played = new FENParser().parse(fen);
+        played.makeMove(MoveCodes.decode(played, ruleEngine, MoveCodes.fromUci("a1a7")));
+        assertThrows(IllegalArgumentException.class, () -> CompactGame.of(played, dictionary));
+    }
+
+    // --- 2. Header store ---
+
+    @Test
+    void testPgnGameReaderAndHeaderQueries() throws IOException {
+        String pgn = String.join("\n",
+                "[Event \"Open\"]", "[White \"Anand\"]", "[Black \"Kramnik\"]", "[Date \"2008.10.14\"]",
+                "[WhiteElo \"2783\"]", "[BlackElo \"2772\"]", "[ECO \"D49\"]", "[Result \"1-0\"]",
+                "", "1. d4 d5 2. c4 c6 1-0", "",
+                "% An escaped line",
+                "[Event \"Open\"]", "[White \"Kramnik\"]", "[Black \"Anand\"]", "[Date \"2008.10.15\"]",
+                "[ECO \"C42\"]", "[Result \"1/2-1/2\"]",
+                "", "1. e4 e5", "2. Nf3 Nf6 1/2-1/2", "",
+                "[Event \"Blitz\"]", "[White \"Carlsen\"]", "[Black \"Anand\"]", "[Date \"2019.??.??\"]",
+                "[WhiteElo \"2875\"]", "[BlackElo \"2767\"]", "[Result \"0-1\"]",
+                "", "1. e4 c5 0-1", "");
+
+        HeaderStore store = new HeaderStore(dictionary);
+        try (PGNGameReader reader = new PGNGameReader(new StringReader(pgn))) {
+            assertEquals(3, store.ingest(reader));
+        }
+
+        assertArrayEquals(new int[]{0, 1, 2}, store.find(new HeaderQuery().player("Anand")));
+        assertArrayEquals(new int[]{1}, store.find(new HeaderQuery().white("Kramnik")));
+        assertArrayEquals(new int[]{0, 2}, store.find(new HeaderQuery().minElo(2700)));
+        assertArrayEquals(new int[]{1}, store.find(new HeaderQuery().event("Open").result(HeaderCodes.RESULT_DRAW)));
+        assertArrayEquals(new int[]{2}, store.find(new HeaderQuery().dateBetween(20190000, 20191231)));
+        assertArrayEquals(new int[]{0}, store.find(new HeaderQuery().ecoBetween("D00", "D99")));
+        assertEquals(0, store.count(new HeaderQuery().player("Nobody")));
+        assertEquals("Carlsen", store.getWhite(2));
+    }
+
+    @Test
+    void testHeaderStoreParallelScanMatchesBruteForce() {
+        HeaderStore store = new HeaderStore(dictionary);
+        Random random = new Random(3);
+        int[] elos = new int[300_000];
+        Map<String, String> tags = new HashMap<>();
+        for (int i = 0; i < elos.length; i++) {
+            elos[i] = 1500 + random.nextInt(1300);
+            tags.put("White", "Player" + random.nextInt(1000));
+            tags.put("WhiteElo", String.valueOf(elos[i]));
+            tags.put("Result", i % 3 == 0 ? "1-0" : "0-1");
+            store.add(tags);
+        }
+
+        int[] found = store.find(new HeaderQuery().whiteElo(2500, 2600).result(HeaderCodes.RESULT_WHITE_WINS));
+        int expected = 0;
+        for (int i = 0; i < elos.length; i++) {
+            if (elos[i] >= 2500 && elos[i] <= 2600 && i % 3 == 0) {
+                assertEquals(i, found[expected++]);
+            }
+        }
+        assertEquals(expected, found.length);
+    }
+
+    private GameState randomGame(Random random, int plies) {
+        GameState state = new GameState();
+        for (int i = 0; i < plies; i++) {
+            List<Move> moves = ruleEngine.getAllLegalMoves(state);
+            if (moves.isEmpty()) {
+                break;
+            }
+            state.makeMove(moves.get(random.nextInt(moves.size())));
+        }
+        return state;
+    }
+}
@@ -0,0 +1,734 @@
+import Model.*;
+import Model.Book.*;
+import Model.Controller.AnalysisRunner;
+import Model.Engine.*;
+import Model.IOs.*;
+import Model.Match.*;
+import Model.Pieces.*;
+import Model.Tablebase.*;
+import Model.Tuning.*;
+import Model.View.AnalysisPanel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineTests {
+
+    @TempDir
+    Path tempDir;
+
+    private FENParser fenParser;
+    private RuleEngine ruleEngine;
+
+    @BeforeEach
+    void setUp() {
+        fenParser = new FENParser();
+        ruleEngine = new RuleEngine();
+    }
+
+    // --- 1. Positions and keys ---
+
+    @Test
+    void testFenStartPosition() {
+        GameState state = fenParser.parse(FENParser.START_FEN);
+        assertTrue(state.isWhiteTurn());
+        assertEquals(20, ruleEngine.getAllLegalMoves(state).size());
+        assertEquals(Zobrist.hash(new GameState()), Zobrist.hash(state), "FEN start position should hash like a new game");
+    }
+
+    @Test
+    void testInvalidFenRejected() {
+        assertThrows(IllegalArgumentException.class, () -> fenParser.parse("rnbqkbnr/pppppppp/8 w KQkq - 0 1"));
+    }
+
+    @Test
+    void testZobristTransposition() {
+        // 1. Nf3 Nf6 2. Nc3 and 1. Nc3 Nf6 2. Nf3 reach the same position
+        GameState first = play(FENParser.START_FEN, "g1f3", "g8f6", "b1c3");
+        GameState second = play(FENParser.START_FEN, "b1c3", "g8f6", "g1f3");
+        assertEquals(Zobrist.hash(first), Zobrist.hash(second));
+        assertNotEquals(Zobrist.hash(first), Zobrist.hash(play(FENParser.START_FEN, "g1f3", "g8f6")));
+    }
+
+    @Test
+    void testZobristKeysArePolyglotKeys() {
+        // The reference keys of the Polyglot book format
+        assertEquals(0x463b96181691fc9cL, Zobrist.hash(new GameState()));
+        assertEquals(0x823c9b50fd114196L, Zobrist.hash(play(FENParser.START_FEN, "e2e4")));
+        assertEquals(0x22a48b5a8e47ff78L, Zobrist.hash(play(FENParser.START_FEN, "e2e4", "d7d5", "e4e5", "f7f5")));
+        assertEquals(0x00fdd303c946bdd9L, Zobrist.hash(play(FENParser.START_FEN, "e2e4", "d7d5", "e4e5", "f7f5", "e1e2", "e8f7")));
+        assertEquals(0x3c8123ea7b067637L, Zobrist.hash(play(FENParser.START_FEN, "a2a4", "b7b5", "h2h4", "b5b4", "c2c4")));
+        assertEquals(0x5c3f9b829b279560L, Zobrist.hash(play(FENParser.START_FEN, "a2a4", "b7b5", "h2h4", "b5b4", "c2c4", "b4c3", "a1a3")));
+    }
+
+    @Test
+    void testIncrementalKeysMatchFullHash() {
+        // Castling both ways, en passant, promotions with and without capture
+        for (String fen : List.of("r3k2r/pPp2ppp/8/3pP3/8/8/PPP2PPP/R3K2R w KQkq d6 0 1",
+                "r3k2r/8/8/8/3pP3/8/1p4p1/R3K2R b KQkq e3 0 1")) {
+            checkIncrementalKeys(fenParser.parse(fen), 3);
+        }
+    }
+
+    // Makes and takes back every move, comparing the updated key with a full hash
+    private void checkIncrementalKeys(GameState state, int depth) {
+        if (depth == 0) {
+            return;
+        }
+        long key = Zobrist.hash(state);
+        for (Move move : ruleEngine.getAllLegalMoves(state)) {
+            long childKey = key ^ Zobrist.stateKey(state);
+            state.makeMove(move);
+            childKey ^= Zobrist.moveKey(move) ^ Zobrist.stateKey(state);
+            assertEquals(Zobrist.hash(state), childKey, move.toString());
+            checkIncrementalKeys(state, depth - 1);
+            state.undoMove();
+            assertEquals(key, Zobrist.hash(state), "Undo of " + move);
+            assertTrue(state.getBoard().termsMatchGrid());
+        }
+    }
+
+    @Test
+    void testUciMoveRoundTrip() {
+        for (String uci : List.of("e2e4", "g8f6", "a7a8q", "h2h1n")) {
+            assertEquals(uci, MoveCodes.toUci(MoveCodes.fromUci(uci)));
+        }
+        assertEquals(MoveCodes.NONE, MoveCodes.fromUci("e2e9"));
+    }
+
+    // --- 2. Search ---
+
+    @Test
+    void testSearchFindsMateInOne() {
+        // Back rank mate: Ra8#
+        GameState state = fenParser.parse("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        Search search = new Search(new ClassicalEvaluator(), new TranspositionTable(1));
+        SearchResult result = search.search(state, List.of(), SearchLimits.depth(3), null);
+        assertEquals("a1a8", MoveCodes.toUci(result.bestMove()));
+        assertEquals(Search.MATE - 1, result.score());
+    }
+
+    @Test
+    void testQuiescenceSeesTheRecapture() {
+        // Qxe5 wins a pawn one ply deep, but dxe5 takes the queen back
+        GameState state = fenParser.parse("4k3/8/3p4/4p3/8/8/8/4Q1K1 w - - 0 1");
+        Search search = new Search(new ClassicalEvaluator(), new TranspositionTable(1));
+        SearchResult result = search.search(state, List.of(), SearchLimits.depth(1), null);
+        assertNotEquals("e1e5", MoveCodes.toUci(result.bestMove()));
+        assertTrue(result.score() > 500, "Still a queen up: " + result.score());
+    }
+
+    @Test
+    void testSelectiveSearchFindsQuietMate() {
+        // Kf7! leaves Kh7 only, then Rh1#: a quiet first move that every pruning must let through
+        GameState state = fenParser.parse("7k/8/5K2/8/8/8/8/6R1 w - - 0 1");
+        for (SearchFeature feature : SearchFeature.values()) {
+            for (boolean enabled : new boolean[]{true, false}) {
+                Search search = new Search(new ClassicalEvaluator(), new TranspositionTable(1));
+                search.setEnabled(feature, enabled);
+                SearchResult result = search.search(state, List.of(), SearchLimits.depth(5), null);
+                assertEquals("f6f7", MoveCodes.toUci(result.bestMove()), feature + " " + enabled);
+                assertEquals(Search.MATE - 3, result.score(), feature + " " + enabled);
+            }
+        }
+    }
+
+    @Test
+    void testSelectiveSearchAgreesWithFullWidth() {
+        // Both searches must take the loose queen
+        GameState state = fenParser.parse("4k3/pp6/8/3q4/8/4N3/PP6/4K3 w - - 0 1");
+        Search full = new Search(new ClassicalEvaluator(), new TranspositionTable(1));
+        for (SearchFeature feature : SearchFeature.values()) {
+            full.setEnabled(feature, false);
+        }
+        SearchResult fullResult = full.search(state, List.of(), SearchLimits.depth(4), null);
+        Search selective = new Search(new ClassicalEvaluator(), new TranspositionTable(1));
+        SearchResult selectiveResult = selective.search(state, List.of(), SearchLimits.depth(4), null);
+        assertEquals(MoveCodes.toUci(fullResult.bestMove()), MoveCodes.toUci(selectiveResult.bestMove()));
+        assertTrue(selectiveResult.nodes() < fullResult.nodes(),
+                selectiveResult.nodes() + " nodes, full width " + fullResult.nodes());
+    }
+
+    @Test
+    void testMultiPvReportsDistinctLines() {
+        GameState state = fenParser.parse("4k3/pp6/8/3q4/8/4N3/PP6/4K3 w - - 0 1");
+        Search search = new Search(new ClassicalEvaluator(), new TranspositionTable(1));
+        search.setMultiPv(3);
+        List<SearchInfo> lastDepth = new ArrayList<>();
+        SearchResult result = search.search(state, List.of(), SearchLimits.depth(4), info -> {
+            if (info.multiPv() == 1) {
+                lastDepth.clear();
+            }
+            lastDepth.add(info);
+        });
+
+        assertEquals(3, lastDepth.size());
+        Set<Integer> firstMoves = new HashSet<>();
+        for (int i = 0; i < lastDepth.size(); i++) {
+            SearchInfo info = lastDepth.get(i);
+            assertEquals(i + 1, info.multiPv());
+            assertEquals(4, info.depth());
+            assertTrue(firstMoves.add(info.pv()[0]), "Repeated first move " + info.pvString());
+            if (i > 0) {
+                assertTrue(info.score() <= lastDepth.get(i - 1).score(), "Lines out of order");
+            }
+        }
+
+        // The first line is the move a single-line search plays
+        assertEquals("e3d5", MoveCodes.toUci(lastDepth.get(0).pv()[0]));
+        assertEquals(lastDepth.get(0).pv()[0], result.bestMove());
+        assertEquals(lastDepth.get(0).score(), result.score());
+    }
+
+    @Test
+    void testUciSession() throws IOException {
+        String input = String.join("\n",
+                "uci",
+                "setoption name Threads value 2",
+                "setoption name NullMove value false",
+                "isready",
+                "position startpos moves e2e4 e7e5",
+                "position startpos moves e2e4 e7e5 g1f3",
+                "go depth 2",
+                "quit") + "\n";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new UciEngine(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output).run();
+
+        String text = output.toString(StandardCharsets.UTF_8);
+        assertTrue(text.contains("uciok"));
+        assertTrue(text.contains("option name NullMove type check default true"));
+        assertTrue(text.contains("readyok"));
+        // quit stops the search, which still answers with its best move
+        assertTrue(text.contains("bestmove "));
+    }
+
+    @Test
+    void testBenchSignatureIsReproducible() throws IOException {
+        Bench.Result first = Bench.run(new Search(new ClassicalEvaluator(), new TranspositionTable(16)), 2, null);
+        Bench.Result second = Bench.run(new Search(new ClassicalEvaluator(), new TranspositionTable(16)), 2, null);
+        assertTrue(first.nodes() > 50 * 20);
+        assertEquals(first.nodes(), second.nodes());
+
+        // A search change shows in the signature
+        Search changed = new Search(new ClassicalEvaluator(), new TranspositionTable(16));
+        changed.setEnabled(SearchFeature.PVS, false);
+        assertNotEquals(first.nodes(), Bench.run(changed, 2, null).nodes());
+
+        // The UCI engine's default hash is the same size, the signature depends on it
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new UciEngine(new ByteArrayInputStream("bench 2\nquit\n".getBytes(StandardCharsets.UTF_8)), output).run();
+        assertTrue(output.toString(StandardCharsets.UTF_8).contains("Nodes searched  : " + first.nodes()));
+    }
+
+    @Test
+    void testPawnStructureIsSymmetricAndCached() {
+        String[] fens = {
+                "r1bqk2r/pp3ppp/2n1p3/2pp4/3P4/2P1PN2/P4PPP/R2QKB1R w KQkq - 0 1",
+                "4k3/pp3p2/6p1/2P5/1P6/8/P4PPP/4K3 w - - 0 1",
+                "6k1/5ppp/8/3pP3/8/8/5PPP/6K1 b - - 0 1"};
+        ClassicalEvaluator cached = new ClassicalEvaluator();
+        for (String fen : fens) {
+            GameState state = fenParser.parse(fen);
+            GameState mirrored = fenParser.parse(mirror(fen));
+            int fresh = new ClassicalEvaluator().evaluate(state);
+            assertEquals(fresh, new ClassicalEvaluator().evaluate(mirrored), "Mirror of " + fen);
+            assertEquals(fresh, cached.evaluate(state));
+            assertEquals(fresh, cached.evaluate(state), "From the cache: " + fen);
+        }
+        assertEquals(fens.length, cached.getPawnCache().getHits());
+
+        // An advanced passed pawn with a free path is worth much more than its square alone
+        int advanced = new ClassicalEvaluator().evaluate(fenParser.parse("4k3/8/3P4/8/8/8/8/4K3 w - - 0 1"));
+        int home = new ClassicalEvaluator().evaluate(fenParser.parse("4k3/8/8/8/8/3P4/8/4K3 w - - 0 1"));
+        assertTrue(advanced - home > 80, advanced + " vs " + home);
+    }
+
+    @Test
+    void testPawnCacheHitRateInSearch() {
+        Search search = new Search(new ClassicalEvaluator(), new TranspositionTable(1));
+        search.search(fenParser.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"), List.of(), SearchLimits.depth(6), null);
+        PawnCache cache = ((ClassicalEvaluator) search.getThreadEvaluators().get(0)).getPawnCache();
+        assertTrue(cache.getProbes() > 1000);
+        assertTrue(cache.getHitRate() > 0.9, "Hit rate " + cache.getHitRate());
+    }
+
+    @Test
+    void testNnueFileAndIncrementalAccumulators(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("start.nnue");
+        NnueNetwork.fromPieceSquareTables().save(file);
+        NnueNetwork network = NnueNetwork.load(file);
+
+        // The starting network adds up the middlegame tables, from the side to move's point of view
+        NnueEvaluator evaluator = new NnueEvaluator(network);
+        GameState state = fenParser.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        assertEquals(state.getBoard().getMiddleGameScore(), evaluator.evaluate(state));
+
+        // Updated accumulators give what fresh ones give, move after move and back
+        Random random = new Random(46);
+        for (int i = 0; i < 100; i++) {
+            List<Move> moves = ruleEngine.getAllLegalMoves(state);
+            if (moves.isEmpty()) {
+                break;
+            }
+            if (i % 10 == 9 && state.canUndo()) {
+                state.undoMove();
+            } else {
+                state.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+            int expected = state.getBoard().getMiddleGameScore() * (state.isWhiteTurn() ? 1 : -1);
+            assertEquals(expected, evaluator.evaluate(state), "After " + i + " moves");
+            assertEquals(expected, new NnueEvaluator(network).evaluate(state));
+        }
+
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> NnueNetwork.load(file));
+    }
+
+    @Test
+    void testUciSearchesWithNetwork(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("start.nnue");
+        NnueNetwork.fromPieceSquareTables().save(file);
+        String input = String.join("\n",
+                "setoption name EvalFile value " + file,
+                "position startpos moves e2e4",
+                "go depth 3",
+                "quit") + "\n";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new UciEngine(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output).run();
+        String text = output.toString(StandardCharsets.UTF_8);
+        assertTrue(text.contains("info string network"), text);
+        assertTrue(text.contains("bestmove "));
+    }
+
+    @Test
+    void testTuningPositionsFromPgn() throws IOException {
+        Path pgn = tempDir.resolve("tuning.pgn");
+        Files.writeString(pgn, String.join("\n",
+                "[Result \"1-0\"]", "",
+                "1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 4. Ba4 Nf6 5. O-O Be7 6. Re1 b5 7. Bb3 d6 8. c3 O-O",
+                "9. h3 Nb8 10. d4 Nbd7 1-0", "",
+                "[Result \"*\"]", "", "1. d4 d5 *", ""));
+        TuningPositions positions = new TuningPositions();
+        assertEquals(1, positions.addPgn(pgn), "An unfinished game teaches nothing");
+        assertEquals(12, positions.size(), "Plies 9 to 20, none of them after a capture or in check");
+    }
+
+    @Test
+    void testTexelTunerLearnsFromResults() {
+        // A knight up always wins here, so the knight must be worth more than the tables say
+        TuningPositions positions = new TuningPositions();
+        Random random = new Random(47);
+        for (int i = 0; i < 2000; i++) {
+            boolean whiteUp = random.nextBoolean();
+            String fen = whiteUp ? "4k3/pppp4/8/8/8/8/PPPP4/1N2K3 w - - 0 1" : "1n2k3/pppp4/8/8/8/8/PPPP4/4K3 w - - 0 1";
+            positions.add(fenParser.parse(fen), whiteUp ? 2 : 0);
+            positions.add(fenParser.parse("4k3/pppp4/8/8/8/8/PPPP4/4K3 w - - 0 1"), 1);
+        }
+        TexelTuner tuner = new TexelTuner(positions, 2);
+        try {
+            double before = tuner.error();
+            double knightBefore = tuner.getParameters()[PieceType.KNIGHT.ordinal() * 64 + 57];
+            assertTrue(tuner.fitScale() > 0);
+            double fitted = tuner.error();
+            assertTrue(fitted <= before);
+            for (int i = 0; i < 50; i++) {
+                tuner.epoch();
+            }
+            assertTrue(tuner.error() < fitted, tuner.error() + " vs " + fitted);
+            assertTrue(tuner.getParameters()[PieceType.KNIGHT.ordinal() * 64 + 57] > knightBefore + 20);
+        } finally {
+            tuner.close();
+        }
+    }
+
+    @Test
+    void testAnalysisPostsNoLineOfAnOlderPosition() throws InterruptedException {
+        // Every clear() is a start() or stop(); the posts record how many came before them
+        List<Integer> postedAfter = Collections.synchronizedList(new ArrayList<>());
+        List<String> postedMoves = Collections.synchronizedList(new ArrayList<>());
+        int[] clears = {0};
+        AnalysisPanel panel = new AnalysisPanel() {
+            @Override
+            public void clear() {
+                synchronized (clears) {
+                    clears[0]++;
+                }
+            }
+
+            @Override
+            public void post(Line line) {
+                synchronized (clears) {
+                    postedAfter.add(clears[0]);
+                    postedMoves.add(line.moves());
+                }
+            }
+        };
+        AnalysisRunner runner = new AnalysisRunner(panel);
+        // Opening moves begin with a pawn file or N, those of the rook ending with R or K
+        String[] positions = {FENParser.START_FEN, "4k3/8/8/8/8/8/8/R3K3 w - - 0 1"};
+        Map<Integer, Integer> positionAfter = new HashMap<>(); // By clear count, null: stopped
+        Random random = new Random(29);
+        for (int i = 0; i < 40; i++) {
+            int index = i % 2;
+            runner.start(fenParser.parse(positions[index]), List.of(), 1 + random.nextInt(3));
+            synchronized (clears) {
+                positionAfter.put(clears[0], index);
+            }
+            Thread.sleep(random.nextInt(4));
+            if (random.nextInt(4) == 0) {
+                runner.stop();
+            }
+        }
+        runner.start(fenParser.parse(positions[0]), List.of(), 2);
+        int last;
+        synchronized (clears) {
+            last = clears[0];
+            positionAfter.put(last, 0);
+        }
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!postedAfter.contains(last) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        runner.stop();
+
+        assertTrue(postedAfter.contains(last), "The last position was never analysed");
+        synchronized (postedAfter) {
+            for (int i = 0; i < postedAfter.size(); i++) {
+                Integer index = positionAfter.get(postedAfter.get(i));
+                String moves = postedMoves.get(i);
+                assertNotNull(index, "A line came after a stop: " + moves);
+                char first = moves.charAt(0);
+                boolean opening = Character.isLowerCase(first) || first == 'N';
+                assertEquals(index == 0, opening, "A line of the other position: " + moves);
+            }
+        }
+    }
+
+    // --- Matches ---
+
+    @Test
+    void testSprtDecidesOnClearResults() {
+        Sprt sprt = new Sprt(0, 5, 0.05, 0.05);
+        assertEquals(Math.log(0.05 / 0.95), sprt.getLowerBound(), 1e-9);
+        assertEquals(0, sprt.llr(0, 0, 0));
+        assertEquals(Sprt.Decision.CONTINUE, sprt.decide(10, 20, 8));
+        assertEquals(Sprt.Decision.ACCEPT_H1, sprt.decide(600, 200, 400));
+        assertEquals(Sprt.Decision.ACCEPT_H0, sprt.decide(400, 200, 600));
+        assertEquals(100, Sprt.elo(Sprt.expectedScore(100)), 1e-9);
+    }
+
+    @Test
+    void testMatchIsReproducibleWithNodeLimit() throws IOException, InterruptedException {
+        Path epd = tempDir.resolve("openings.epd");
+        Files.writeString(epd, String.join("\n",
+                "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - bm Bb5;",
+                "4k3/8/8/8/8/8/8/3NK3 w - -",
+                "not a position", ""));
+        OpeningSuite openings = OpeningSuite.load(epd);
+        assertEquals(2, openings.size());
+
+        String[] pgn = new String[2];
+        MatchRunner.Result[] results = new MatchRunner.Result[2];
+        for (int run = 0; run < 2; run++) {
+            MatchRunner runner = new MatchRunner(EngineConfig.parse("base,Hash=1"),
+                    EngineConfig.parse("noNull,Hash=1,NullMove=false"), openings);
+            runner.setTimeControl(TimeControl.nodes(400));
+            runner.setConcurrency(2);
+            runner.setSeed(48);
+            StringWriter out = new StringWriter();
+            runner.setPgnOutput(out);
+            results[run] = runner.run();
+            pgn[run] = out.toString();
+        }
+        assertEquals(4, results[0].games());
+        assertEquals(results[0].wins(), results[1].wins());
+        assertEquals(results[0].draws(), results[1].draws());
+
+        // The games end in any order, but are the same games
+        List<List<String>> games = new ArrayList<>();
+        for (String text : pgn) {
+            List<String> sorted = new ArrayList<>(Arrays.asList(text.strip().split("\n\n(?=\\[Event)")));
+            Collections.sort(sorted);
+            games.add(sorted);
+        }
+        assertEquals(games.get(0), games.get(1));
+        assertEquals(2, pgn[0].split("Insufficient material", -1).length - 1, "Both colours of the knight ending");
+
+        // Every game reads back, with each engine White twice
+        int firstAsWhite = 0;
+        try (PGNGameReader reader = new PGNGameReader(new StringReader(pgn[0]))) {
+            while (reader.next()) {
+                GameTree game = new PGNParser().parseTree(reader.getGameText());
+                assertNotEquals("*", game.getResult());
+                if (game.getTags().get("White").equals("base")) firstAsWhite++;
+            }
+            assertEquals(4, reader.getGameCount());
+        }
+        assertEquals(2, firstAsWhite);
+    }
+
+    // The same position with the colours swapped (and the board turned)
+    private static String mirror(String fen) {
+        String[] fields = fen.split(" ");
+        List<String> ranks = new ArrayList<>(Arrays.asList(fields[0].split("/")));
+        Collections.reverse(ranks);
+        StringBuilder placement = new StringBuilder();
+        for (char ch : String.join("/", ranks).toCharArray()) {
+            placement.append(Character.isUpperCase(ch) ? Character.toLowerCase(ch) : Character.toUpperCase(ch));
+        }
+        StringBuilder castling = new StringBuilder();
+        for (char ch : fields[2].toCharArray()) {
+            castling.append(ch == '-' ? ch : Character.isUpperCase(ch) ? Character.toLowerCase(ch) : Character.toUpperCase(ch));
+        }
+        String rights = castling.toString().chars().sorted().collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append).toString();
+        return placement + (fields[1].equals("w") ? " b " : " w ") + rights + " - " + fields[4] + " " + fields[5];
+    }
+
+    // --- 3. Opening book ---
+
+    @Test
+    void testBookBuiltFromPgn() throws IOException {
+        Path book = buildBook();
+        try (PolyglotBook polyglot = PolyglotBook.open(book)) {
+            List<BookMove> moves = polyglot.getMoves(new GameState());
+            assertEquals(2, moves.size());
+            // e4 won twice (2 + 2), d4 drew once (1)
+            assertEquals("e2e4", MoveCodes.toUci(moves.get(0).moveCode()));
+            assertEquals(4, moves.get(0).weight());
+            assertEquals("e2e4", MoveCodes.toUci(polyglot.bestMove(new GameState())));
+
+            // Castling is stored the Polyglot way (king takes rook) and read back as e1g1
+            GameState beforeCastling = play(FENParser.START_FEN, "e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "f8c5");
+            assertEquals("e1g1", MoveCodes.toUci(polyglot.bestMove(beforeCastling)));
+            assertEquals(MoveCodes.NONE, polyglot.bestMove(play(FENParser.START_FEN, "a2a3")));
+        }
+    }
+
+    @Test
+    void testUciPlaysBookMove() throws IOException {
+        Path book = buildBook();
+        String input = String.join("\n",
+                "setoption name BookFile value " + book,
+                "setoption name OwnBook value true",
+                "position startpos moves e2e4",
+                "go depth 20",
+                "quit") + "\n";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new UciEngine(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output).run();
+
+        String text = output.toString(StandardCharsets.UTF_8);
+        assertTrue(text.contains("bestmove e7e5"), text);
+        assertFalse(text.contains("info depth"), "A book move needs no search");
+    }
+
+    // --- 4. Tablebases ---
+
+    @Test
+    void testTablebasesAgreeWithRuleEngine() throws InterruptedException {
+        TablebaseProber prober = generateTablebases();
+        Random random = new Random(5);
+        for (TablebaseMaterial material : List.of(TablebaseMaterial.KQK, TablebaseMaterial.KRK, TablebaseMaterial.KPK)) {
+            int checked = 0;
+            while (checked < 150) {
+                GameState state = randomPosition(random, material.getPieces());
+                if (state == null) {
+                    continue;
+                }
+                TablebaseResult result = prober.probe(state);
+                assertNotNull(result, material + " " + state.getBoard());
+                assertEquals(bestOfChildren(prober, state), result, material + " position " + checked);
+                checked++;
+            }
+        }
+    }
+
+    @Test
+    void testTablebaseFilesAndKnownPositions() throws IOException, InterruptedException {
+        TablebaseProber generated = generateTablebases();
+        for (TablebaseMaterial material : generated.getMaterials()) {
+            assertTrue(Files.exists(tempDir.resolve(material.fileName())));
+        }
+        try (TablebaseProber prober = TablebaseProber.openDirectory(tempDir)) {
+            assertEquals(generated.getMaterials(), prober.getMaterials());
+            // Qh8 mates at once, also with the colours swapped
+            assertEquals(new TablebaseResult(1, 1), prober.probe(fenParser.parse("k7/8/1K6/8/8/7Q/8/8 w - - 0 1")));
+            assertEquals(new TablebaseResult(1, 1), prober.probe(fenParser.parse("8/8/7q/8/8/1k6/8/K7 b - - 0 1")));
+            // The rook pawn can't win against the king in the corner, the king in front of the pawn can
+            assertEquals(TablebaseResult.DRAW, prober.probe(fenParser.parse("k7/8/K7/P7/8/8/8/8 w - - 0 1")));
+            assertTrue(prober.probe(fenParser.parse("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1")).isWin());
+            assertEquals(TablebaseResult.DRAW, prober.probe(fenParser.parse("4k3/8/8/8/8/8/8/3NK3 w - - 0 1")));
+            assertNull(prober.probe(fenParser.parse("4k3/8/8/8/8/8/8/2BNK3 w - - 0 1")), "KBNK wasn't generated");
+        }
+    }
+
+    @Test
+    void testSearchScoresTablebaseMate() throws InterruptedException {
+        TablebaseProber prober = generateTablebases();
+        GameState state = fenParser.parse("8/8/8/4k3/8/8/8/R3K3 w - - 0 1");
+        TablebaseResult expected = prober.probe(state);
+        assertTrue(expected.isWin());
+
+        Search search = new Search(new ClassicalEvaluator(), new TranspositionTable(1));
+        search.setTablebases(prober);
+        SearchResult result = search.search(state, List.of(), SearchLimits.depth(1), null);
+        assertEquals(Search.MATE - expected.pliesToMate(), result.score(), "Every reply is in the table");
+    }
+
+    @Test
+    void testKbnkLongestMate() throws InterruptedException {
+        TablebaseGenerator generator = new TablebaseGenerator(TablebaseMaterial.KBNK, 2, new EnumMap<>(TablebaseMaterial.class));
+        TablebaseProber prober = new TablebaseProber();
+        prober.add(generator.generate());
+        // Bishop and knight mate in 33 moves at worst: 65 plies, one more with Black to move first
+        assertEquals(66, generator.getLongestMate());
+
+        Random random = new Random(11);
+        int checked = 0;
+        while (checked < 100) {
+            GameState state = randomPosition(random, TablebaseMaterial.KBNK.getPieces());
+            if (state == null) {
+                continue;
+            }
+            TablebaseResult result = prober.probe(state);
+            assertNotNull(result, state.getBoard().toString());
+            assertEquals(bestOfChildren(prober, state), result, "KBNK position " + checked);
+            checked++;
+        }
+    }
+
+    @Test
+    void testProbeSkipsPositionsWithTooManyMen() throws InterruptedException {
+        TablebaseProber prober = generateTablebases();
+        GameState state = fenParser.parse("8/8/8/4k3/8/8/8/R3K3 w - - 0 1");
+        assertEquals(3, state.getBoard().getPieceCount());
+        assertNotNull(prober.probe(state));
+        state = fenParser.parse("8/8/8/4k3/8/8/PPPP4/R3K3 w - - 0 1");
+        assertNull(prober.probe(state));
+    }
+
+    private TablebaseProber generateTablebases() throws InterruptedException {
+        Map<TablebaseMaterial, Tablebase> tables = new EnumMap<>(TablebaseMaterial.class);
+        TablebaseProber prober = new TablebaseProber();
+        for (TablebaseMaterial material : List.of(TablebaseMaterial.KQK, TablebaseMaterial.KRK, TablebaseMaterial.KPK)) {
+            Tablebase table = new TablebaseGenerator(material, 2, tables).generate();
+            try {
+                table.write(tempDir.resolve(material.fileName()));
+            } catch (IOException e) {
+                fail(e);
+            }
+            tables.put(material, table);
+            prober.add(table);
+        }
+        return prober;
+    }
+
+    // What the table must say if its children are right: win by the fastest mate, lose by the slowest
+    private TablebaseResult bestOfChildren(TablebaseProber prober, GameState state) {
+        List<Move> moves = ruleEngine.getAllLegalMoves(state);
+        if (moves.isEmpty()) {
+            return ruleEngine.isKingInCheck(state, state.isWhiteTurn()) ? new TablebaseResult(-1, 0) : TablebaseResult.DRAW;
+        }
+        int fastestWin = Integer.MAX_VALUE;
+        int slowestLoss = -1;
+        boolean canDraw = false;
+        for (Move move : moves) {
+            GameState child = new GameState(state);
+            child.makeMove(move);
+            TablebaseResult reply = prober.probe(child);
+            assertNotNull(reply, "Every reply stays in the tables");
+            if (reply.isLoss()) {
+                fastestWin = Math.min(fastestWin, reply.pliesToMate() + 1);
+            } else if (reply.isDraw()) {
+                canDraw = true;
+            } else {
+                slowestLoss = Math.max(slowestLoss, reply.pliesToMate() + 1);
+            }
+        }
+        if (fastestWin != Integer.MAX_VALUE) {
+            return new TablebaseResult(1, fastestWin);
+        }
+        return canDraw ? TablebaseResult.DRAW : new TablebaseResult(-1, slowestLoss);
+    }
+
+    // Kings and pieces on random squares for either side, or null if that isn't a legal position
+    private GameState randomPosition(Random random, PieceType[] pieces) {
+        boolean strongIsWhite = random.nextBoolean();
+        char[] board = new char[64];
+        Arrays.fill(board, '.');
+        String letters = "KK" + pieceLetters(pieces);
+        for (int i = 0; i < letters.length(); i++) {
+            int square = random.nextInt(64);
+            if (board[square] != '.') {
+                return null;
+            }
+            boolean white = (i == 0) == strongIsWhite || (i >= 2 && strongIsWhite);
+            if (i == 1) white = !strongIsWhite;
+            char letter = letters.charAt(i);
+            if (letter == 'P' && (square < 8 || square >= 56)) {
+                return null;
+            }
+            board[square] = white ? letter : Character.toLowerCase(letter);
+        }
+        StringBuilder fen = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                char c = board[row * 8 + col];
+                if (c == '.') {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) fen.append(empty);
+                empty = 0;
+                fen.append(c);
+            }
+            if (empty > 0) fen.append(empty);
+            if (row < 7) fen.append('/');
+        }
+        fen.append(random.nextBoolean() ? " w" : " b").append(" - - 0 1");
+        GameState state = fenParser.parse(fen.toString());
+        // The side that just moved can't be in check, and the kings can't touch
+        if (ruleEngine.isKingInCheck(state, !state.isWhiteTurn())) {
+            return null;
+        }
+        return state;
+    }
+
+    private static String pieceLetters(PieceType[] pieces) {
+        StringBuilder letters = new StringBuilder();
+        for (PieceType type : pieces) {
+            letters.append(type == PieceType.KNIGHT ? 'N' : type.name().charAt(0));
+        }
+        return letters.toString();
+    }
+
+    private Path buildBook() throws IOException {
+        Path pgn = tempDir.resolve("games.pgn");
+        Files.writeString(pgn, String.join("\n",
+                "[Result \"1-0\"]", "", "1. e4 e5 2. Nf3 Nc6 3. Bc4 Bc5 4. O-O Nf6 1-0", "",
+                "[Result \"1-0\"]", "", "1. e4 e5 2. Nf3 Nc6 3. Bc4 Bc5 4. O-O d6 1-0", "",
+                "[Result \"1/2-1/2\"]", "", "1. d4 d5 1/2-1/2", ""));
+        PolyglotBookBuilder builder = new PolyglotBookBuilder();
+        assertEquals(3, builder.addPgn(pgn));
+        Path book = tempDir.resolve("book.bin");
+        assertEquals(11, builder.write(book), "e4 and d4, e5 to O-O in the e4 games, Nf6 and d6, d5");
+        return book;
+    }
+
+    private GameState play(String fen, String... moves) {
+        GameState state = fenParser.parse(fen);
+        for (String uci : moves) {
+            Move move = MoveCodes.decode(state, ruleEngine, MoveCodes.fromUci(uci));
+            assertNotNull(move, uci);
+            state.makeMove(move);
+        }
+        return state;
+    }
+}
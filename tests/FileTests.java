@@ -1,6 +1,7 @@
 import Model.*;
 import Model.IOs.*;
 import Model.Pieces.*;
+import Model.View.*;
 
 import java.io.*;
 import java.nio.file.*;
@@ -61,6 +62,9 @@ public class FileTests {
 
         // Ellenőrizzük, hogy a tábla állása is helyreállt-e (pl. e4-en van-e a paraszt)
         assertNotNull(loadedState.getBoard().getPieceAt(new Position(4, 4)), "Az e4 mezőn parasztnak kell lennie");
+        // The evaluation terms aren't saved, they are worked out again
+        assertTrue(loadedState.getBoard().termsMatchGrid());
+        assertEquals(sampleGameState.getBoard().getMiddleGameScore(), loadedState.getBoard().getMiddleGameScore());
     }
 
     @Test
@@ -158,4 +162,167 @@ public class FileTests {
         assertEquals(2, state.getMoveHistory().size(), "A hibás lépést (Ke8) nem szabadott volna végrehajtani");
         //megtörténik, de dob egy error printet is
     }
-}
\ No newline at end of file
+
+    @Test
+    void testPgnImportCancelled() throws IOException {
+        File pgnFile = tempDir.resolve("cancelled.pgn").toFile();
+        Files.writeString(pgnFile.toPath(), "1. e4 e5 2. Nf3 Nc6 *");
+
+        // A cancelled background import interrupts the importing thread
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(InterruptedIOException.class, () -> pgnParser.importGame(pgnFile.getPath(), (done, total) -> {}));
+        } finally {
+            Thread.interrupted(); // clear the flag for the other tests
+        }
+    }
+
+    @Test
+    void testSanDisambiguation() {
+        PGNFormatter formatter = new PGNFormatter();
+        Board board = new Board();
+        board.setupEmpty();
+        board.setPieceAt(new Position(7, 4), new King(true));   // e1
+        board.setPieceAt(new Position(0, 4), new King(false));  // e8
+        board.setPieceAt(new Position(7, 1), new Knight(true)); // b1
+        board.setPieceAt(new Position(5, 5), new Knight(true)); // f3
+        board.setPieceAt(new Position(7, 0), new Rook(true));   // a1
+        board.setPieceAt(new Position(5, 0), new Rook(true));   // a3
+
+        Move knightMove = new Move(new Position(7, 1), new Position(6, 3), board.getPieceAt(new Position(7, 1)));
+        assertEquals("Nbd2", formatter.toSan(board, knightMove));
+
+        Move rookMove = new Move(new Position(7, 0), new Position(6, 0), board.getPieceAt(new Position(7, 0)));
+        assertEquals("R1a2", formatter.toSan(board, rookMove));
+    }
+
+    @Test
+    void testMoveLogModelAppendAndTruncate() {
+        MoveLogModel model = new MoveLogModel();
+        model.setMoves(sampleGameState.getMoveHistory());
+        assertEquals(1, model.getRowCount());
+        assertEquals("e4", model.getValueAt(0, 1));
+        assertEquals("e5", model.getValueAt(0, 2));
+
+        // Takeback of the black move keeps the row, but clears its second cell
+        model.truncate(1);
+        assertEquals(1, model.getRowCount());
+        assertEquals("", model.getValueAt(0, 2));
+
+        model.setMoves(sampleGameState.getMoveHistory());
+        assertEquals("e5", model.getValueAt(0, 2));
+    }
+
+    // --- Autosave journal tests ---
+
+    @Test
+    void testAtomicSaveLeavesNoTempFile() throws IOException {
+        Path save = tempDir.resolve("atomic.json");
+        jsonPersistence.saveGame(sampleGameState, save.toString());
+        jsonPersistence.saveGame(sampleGameState, save.toString()); // Replaces the old save
+
+        try (var files = Files.list(tempDir)) {
+            assertEquals(1, files.count(), "Only the save itself should be left");
+        }
+    }
+
+    @Test
+    void testMoveJournalReplayAndCompaction() throws IOException {
+        Path save = tempDir.resolve("autosave.json");
+        String[] moves = {"g1f3", "g8f6", "b1c3", "b8c6", "e2e4", "e7e5", "d2d4"};
+
+        // Compacts after every 4 moves, so the snapshot and the journal both hold some of the game
+        try (MoveJournal journal = new MoveJournal(save, jsonPersistence, new GameState(), 2, 1000, 4)) {
+            journal.open();
+            for (String uci : moves) {
+                journal.append(MoveCodes.fromUci(uci));
+            }
+        }
+
+        GameState loaded = MoveJournal.load(save, jsonPersistence);
+        assertEquals(moves.length, loaded.getMoveHistory().size());
+        assertEquals(3 * MoveJournal.RECORD_BYTES + 8, Files.size(MoveJournal.journalPathOf(save)), "3 moves after the last compaction");
+        assertFalse(loaded.isWhiteTurn());
+    }
+
+    @Test
+    void testMoveJournalIgnoresTornRecord() throws IOException {
+        Path save = tempDir.resolve("torn.json");
+        try (MoveJournal journal = new MoveJournal(save, jsonPersistence, new GameState())) {
+            journal.open();
+            journal.append(MoveCodes.fromUci("e2e4"));
+            journal.append(MoveCodes.fromUci("e7e5"));
+        }
+        // A crash in the middle of appending the third record
+        Files.write(MoveJournal.journalPathOf(save), new byte[]{0, 0, 0, 2, 0x1F}, StandardOpenOption.APPEND);
+
+        GameState loaded = MoveJournal.load(save, jsonPersistence);
+        assertEquals(2, loaded.getMoveHistory().size());
+    }
+
+    // --- Variation tree tests ---
+
+    @Test
+    void testGameTreePgnRoundTrip() {
+        String pgn = "[Event \"Analysis \\\"A\\\"\"]\n[White \"W\"]\n\n"
+                + "{Opening} 1. e4 $1 {Best by test} e5 (1... c5 2. Nf3 (2. c3 d5) 2... d6) (1... e6?! {French}) "
+                + "2. Nf3 Nc6 3. Bb5 ({Or} 3. Bc4 Bc5) 3... a6 1-0";
+        GameTree tree = pgnParser.parseTree(pgn);
+
+        assertEquals(6, tree.mainLine().length);
+        assertEquals("1-0", tree.getResult());
+        assertEquals("Analysis \"A\"", tree.getTags().get("Event"));
+        assertEquals("Opening", tree.getComment(GameTree.ROOT));
+        int e4 = tree.getFirstChild(GameTree.ROOT);
+        assertArrayEquals(new int[]{1}, tree.getNags(e4));
+        assertEquals(3, tree.getChildCount(e4), "e5, c5 and e6");
+
+        String formatted = new PGNFormatter().formatTree(tree);
+        assertEquals(formatted, new PGNFormatter().formatTree(pgnParser.parseTree(formatted)), "Formatting the parsed output should give it back");
+        assertTrue(formatted.contains("(1... c5 2. Nf3 (2. c3 d5) 2... d6)"), formatted);
+        assertTrue(formatted.contains("({Or} 3. Bc4 Bc5)"), formatted);
+    }
+
+    @Test
+    void testGameTreePromoteAndDelete() {
+        GameTree tree = pgnParser.parseTree("1. e4 e5 (1... c5 2. Nf3) (1... e6) 2. Nf3 *");
+        int e4 = tree.getFirstChild(GameTree.ROOT);
+        int c5 = tree.findChild(e4, MoveCodes.fromUci("c7c5"));
+        int nf3 = tree.getFirstChild(c5);
+
+        tree.makeMainLine(nf3);
+        assertTrue(tree.isMainLine(nf3));
+        assertEquals(c5, tree.getFirstChild(e4));
+
+        int e6 = tree.findChild(e4, MoveCodes.fromUci("e7e6"));
+        tree.delete(e6);
+        assertEquals(2, tree.getChildCount(e4));
+
+        // Root, e4, c5, Nf3, e5, Nf3: the deleted slot is reclaimed
+        int[] newIndex = tree.compact();
+        assertEquals(6, tree.size());
+        assertEquals(GameTree.NONE, newIndex[e6]);
+        assertEquals(MoveCodes.fromUci("c7c5"), tree.getMoveCode(tree.getFirstChild(newIndex[e4])));
+    }
+
+    @Test
+    void testGameTreeCursorOnLargeTree() {
+        // A long game of knight shuffles, with a one-move variation at every ply
+        GameTree tree = new GameTree();
+        GameTree.Cursor cursor = tree.cursor(new GameState());
+        String[] cycle = {"g1f3", "g8f6", "f3g1", "f6g8"};
+        for (int i = 0; i < 20_000; i++) {
+            int parent = cursor.getNode();
+            cursor.play(MoveCodes.fromUci(cycle[i % 4]));
+            tree.addMove(parent, MoveCodes.fromUci(i % 2 == 0 ? "b1c3" : "b8c6"));
+        }
+        assertEquals(40_001, tree.size());
+
+        int[] mainLine = tree.mainLine();
+        cursor.moveTo(mainLine[10]);
+        assertEquals(11, cursor.getState().getMoveHistory().size());
+        assertTrue(cursor.nextVariation());
+        assertEquals(11, cursor.getState().getMoveHistory().size());
+        assertEquals(40_001, tree.depthFirstOrder().length);
+    }
+}
@@ -0,0 +1,170 @@
+package Model.Engine;
+
+import Model.*;
+import Model.IOs.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * MovePicker and MoveOrdering are package-private, so their tests live in the engine's package.
+ */
+class MoveOrderingTests {
+
+    // White to move: exd5 (queen) and exf5 (rook) win material, Rxa3 loses the rook to bxa3,
+    // and the king may not go to d1, d2, f1 or f2
+    private static final String FEN = "4k3/8/8/3q1r2/1p2P3/n7/8/R3K2R w - - 0 1";
+
+    private GameState state;
+    private RuleEngine ruleEngine;
+    private MoveOrdering ordering;
+
+    @BeforeEach
+    void setUp() {
+        state = new FENParser().parse(FEN);
+        ruleEngine = new RuleEngine();
+        ordering = new MoveOrdering();
+    }
+
+    // --- 1. Move picker ---
+
+    @Test
+    void testPickerStagesInOrder() {
+        // Killers of ply 0: a1a2, then e4d5, which is a capture here and must wait for its own stage
+        ordering.recordCutoff(true, 0, code("e4d5"), MoveCodes.NONE, 1, new int[0], 0);
+        ordering.recordCutoff(true, 0, code("a1a2"), MoveCodes.NONE, 1, new int[0], 0);
+        // Counter-move of Black's e7e8: e1e2
+        ordering.recordCutoff(true, 5, code("e1e2"), code("e7e8"), 1, new int[0], 0);
+
+        MovePicker picker = new MovePicker(state, ruleEngine, ordering, code("h1h7"), 0, code("e7e8"), false);
+        List<Integer> picked = pickAll(picker);
+
+        assertEquals(List.of(code("h1h7"), code("e4d5"), code("e4f5"), code("a1a2"), code("e1e2")), picked.subList(0, 5),
+                "Hash move, captures by victim, killer, counter-move");
+        assertEquals(code("a1a3"), picked.get(picked.size() - 1), "The losing capture comes last");
+        for (int code : picked.subList(5, picked.size() - 1)) {
+            assertTrue(picker.isQuiet(MoveCodes.decode(state, ruleEngine, code)), MoveCodes.toUci(code));
+        }
+        assertAllLegalOnce(picked);
+    }
+
+    @Test
+    void testPickerSkipsIllegalKillersAndCounterMove() {
+        // Pseudo-legal king moves onto attacked squares, remembered from other positions
+        ordering.recordCutoff(true, 0, code("e1d1"), MoveCodes.NONE, 1, new int[0], 0);
+        ordering.recordCutoff(true, 0, code("e1f1"), MoveCodes.NONE, 1, new int[0], 0);
+        ordering.recordCutoff(true, 5, code("e1d2"), code("e7e8"), 1, new int[0], 0);
+
+        List<Integer> picked = pickAll(new MovePicker(state, ruleEngine, ordering, MoveCodes.NONE, 0, code("e7e8"), false));
+        assertFalse(picked.contains(code("e1d1")));
+        assertFalse(picked.contains(code("e1f1")));
+        assertFalse(picked.contains(code("e1d2")));
+        assertAllLegalOnce(picked);
+    }
+
+    @Test
+    void testPickerGeneratesQuietsOnlyWhenReached() {
+        int[] quietCalls = {0};
+        RuleEngine counting = new RuleEngine() {
+            @Override
+            public List<Move> getLegalQuietMoves(GameState state) {
+                quietCalls[0]++;
+                return super.getLegalQuietMoves(state);
+            }
+        };
+        MovePicker picker = new MovePicker(state, counting, ordering, MoveCodes.NONE, 0, MoveCodes.NONE, false);
+        assertEquals(code("e4d5"), MoveCodes.encode(picker.next()));
+        assertEquals(code("e4f5"), MoveCodes.encode(picker.next()));
+        assertEquals(0, quietCalls[0], "A cutoff on a capture never pays for the quiet moves");
+
+        while (picker.next() != null) {
+            // Drain the rest
+        }
+        assertEquals(1, quietCalls[0]);
+
+        // The quiescence search never gets to the quiet moves at all
+        MovePicker captures = new MovePicker(state, counting, ordering, code("h1h7"), 0, MoveCodes.NONE, true);
+        assertEquals(List.of(code("e4d5"), code("e4f5")), pickAll(captures));
+        assertEquals(1, quietCalls[0]);
+    }
+
+    // --- 2. Move ordering tables ---
+
+    @Test
+    void testKillersShift() {
+        ordering.recordCutoff(true, 3, code("a1a2"), MoveCodes.NONE, 1, new int[0], 0);
+        ordering.recordCutoff(true, 3, code("h1h2"), MoveCodes.NONE, 1, new int[0], 0);
+        assertEquals(code("h1h2"), ordering.killer(3, 0));
+        assertEquals(code("a1a2"), ordering.killer(3, 1));
+
+        // The first killer cutting off again doesn't push the second one out
+        ordering.recordCutoff(true, 3, code("h1h2"), MoveCodes.NONE, 1, new int[0], 0);
+        assertEquals(code("h1h2"), ordering.killer(3, 0));
+        assertEquals(code("a1a2"), ordering.killer(3, 1));
+
+        ordering.recordCutoff(true, 3, code("e1e2"), MoveCodes.NONE, 1, new int[0], 0);
+        assertEquals(code("e1e2"), ordering.killer(3, 0));
+        assertEquals(code("h1h2"), ordering.killer(3, 1));
+        assertEquals(MoveCodes.NONE, ordering.killer(4, 0), "Other plies keep their own killers");
+    }
+
+    @Test
+    void testHistoryBonusAndMalusWithGravity() {
+        int cutoff = code("h1h7");
+        int tried = code("a1a2");
+        ordering.recordCutoff(true, 0, cutoff, MoveCodes.NONE, 3, new int[]{tried, cutoff}, 2);
+        assertEquals(9, ordering.history(true, cutoff), "depth * depth for the move that cut off");
+        assertEquals(-9, ordering.history(true, tried), "and as much off the quiet moves tried before it");
+        assertEquals(0, ordering.history(false, cutoff), "Each side has its own table");
+
+        // The bonus is capped, and shrinks as the score nears the limit
+        for (int i = 0; i < 1000; i++) {
+            ordering.recordCutoff(true, 0, cutoff, MoveCodes.NONE, 30, new int[]{tried}, 1);
+        }
+        int high = ordering.history(true, cutoff);
+        assertTrue(high > MoveOrdering.HISTORY_MAX * 9 / 10 && high <= MoveOrdering.HISTORY_MAX, String.valueOf(high));
+        int low = ordering.history(true, tried);
+        assertTrue(low < -MoveOrdering.HISTORY_MAX * 9 / 10 && low >= -MoveOrdering.HISTORY_MAX, String.valueOf(low));
+
+        // A malus near the top takes off more than the bonus adds back
+        ordering.recordCutoff(true, 0, tried, MoveCodes.NONE, 20, new int[]{cutoff}, 1);
+        assertTrue(high - ordering.history(true, cutoff) > 400);
+    }
+
+    @Test
+    void testCounterMoves() {
+        int previous = code("e7e8");
+        assertEquals(MoveCodes.NONE, ordering.counterMove(true, previous));
+        ordering.recordCutoff(true, 2, code("e1e2"), previous, 1, new int[0], 0);
+        assertEquals(code("e1e2"), ordering.counterMove(true, previous));
+        assertEquals(MoveCodes.NONE, ordering.counterMove(false, previous), "Stored by the side that made the move");
+        assertEquals(MoveCodes.NONE, ordering.counterMove(true, MoveCodes.NONE), "Nothing to counter at the root");
+
+        ordering.recordCutoff(true, 2, code("h1h2"), previous, 1, new int[0], 0);
+        assertEquals(code("h1h2"), ordering.counterMove(true, previous), "The last refutation replaces the old one");
+    }
+
+    private static int code(String uci) {
+        return MoveCodes.fromUci(uci);
+    }
+
+    private static List<Integer> pickAll(MovePicker picker) {
+        List<Integer> codes = new ArrayList<>();
+        for (Move move = picker.next(); move != null; move = picker.next()) {
+            codes.add(MoveCodes.encode(move));
+        }
+        return codes;
+    }
+
+    private void assertAllLegalOnce(List<Integer> picked) {
+        Set<Integer> legal = new HashSet<>();
+        for (Move move : ruleEngine.getAllLegalMoves(state)) {
+            legal.add(MoveCodes.encode(move));
+        }
+        assertEquals(legal.size(), picked.size(), "No move may be handed out twice");
+        assertEquals(legal, new HashSet<>(picked));
+    }
+}
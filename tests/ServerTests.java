@@ -0,0 +1,191 @@
+import Model.*;
+import Model.Server.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerTests {
+
+    private GameServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = GameServer.loopback();
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void testMoveValidation() throws IOException {
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+
+            out.println("NEW");
+            String id = in.readLine().substring("GAME ".length());
+
+            out.println("MOVE " + id + " e2e5");
+            assertEquals("ILLEGAL", in.readLine());
+
+            // Fool's mate
+            for (String move : new String[]{"f2f3", "e7e5", "g2g4"}) {
+                out.println("MOVE " + id + " " + move);
+                assertEquals("OK ONGOING", in.readLine());
+            }
+            out.println("MOVE " + id + " d8h4");
+            assertEquals("OK CHECKMATE", in.readLine());
+
+            out.println("CLOSE " + id);
+            assertEquals("OK", in.readLine());
+        }
+        assertEquals(5, server.getValidationLatency().count(), "Rejected moves are validated too");
+    }
+
+    @Test
+    void testLoadGenerator() throws Exception {
+        LoadGenerator.Report report = new LoadGenerator("localhost", server.getPort()).run(50, 40, 42);
+        assertEquals(0, report.rejected());
+        assertTrue(report.moves() > 0);
+        assertEquals(report.moves(), server.getValidationLatency().count());
+        assertEquals(0, server.getRegistry().size(), "Every game should have been closed");
+        assertTrue(server.getValidationLatency().percentile(99) > 0);
+    }
+
+    @Test
+    void testSpectatorsFollowGames() throws Exception {
+        LoadGenerator.Report report = new LoadGenerator("localhost", server.getPort()).run(4, 3, 60, 7);
+        assertEquals(0, report.rejected());
+        assertEquals(0, report.spectatorMismatches());
+        // Every spectator gets at least a snapshot, and together they see every move
+        assertTrue(report.spectatorMessages() >= 3 * report.moves());
+    }
+
+    @Test
+    void testSlowSpectatorResyncsFromSnapshot() throws Exception {
+        GameState game = new GameState();
+        RuleEngine ruleEngine = new RuleEngine();
+        GameBroadcaster broadcaster = new GameBroadcaster(game, 8, 4);
+
+        // A spectator stuck on its first write while 20 moves are played
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        WritableByteChannel slowChannel = new WritableByteChannel() {
+            private final WritableByteChannel target = Channels.newChannel(received);
+            public int write(ByteBuffer src) throws IOException {
+                writing.countDown();
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                synchronized (received) {
+                    return target.write(src);
+                }
+            }
+            public boolean isOpen() { return true; }
+            public void close() {}
+        };
+        Thread spectator = Thread.ofVirtual().start(() -> {
+            try {
+                broadcaster.stream(slowChannel);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        writing.await();
+        String[] moves = {"g1f3", "g8f6", "f3g1", "f6g8"};
+        for (int i = 0; i < 20; i++) {
+            Move move = MoveCodes.decode(game, ruleEngine, MoveCodes.fromUci(moves[i % 4]));
+            game.makeMove(move);
+            broadcaster.publish(game, MoveCodes.encode(move));
+        }
+        unblock.countDown();
+
+        // Wait until the spectator has caught up with the last move, then end the stream
+        int lastSeq = -1;
+        for (int tries = 0; tries < 200 && lastSeq != 20; tries++) {
+            Thread.sleep(10);
+            lastSeq = lastSeqOf(received);
+        }
+        broadcaster.close();
+        spectator.join();
+
+        assertEquals(20, lastSeq);
+        assertEquals(1, broadcaster.getResyncCount(), "The spectator fell out of the ring and should resync once");
+    }
+
+    @Test
+    void testSpectatorGetsTheLastMovesAfterClose() throws Exception {
+        GameState game = new GameState();
+        RuleEngine ruleEngine = new RuleEngine();
+        GameBroadcaster broadcaster = new GameBroadcaster(game, 8, 4);
+
+        // The spectator is still writing the snapshot when the game ends
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        WritableByteChannel channel = new WritableByteChannel() {
+            private final WritableByteChannel target = Channels.newChannel(received);
+            public int write(ByteBuffer src) throws IOException {
+                writing.countDown();
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                synchronized (received) {
+                    return target.write(src);
+                }
+            }
+            public boolean isOpen() { return true; }
+            public void close() {}
+        };
+        Thread spectator = Thread.ofVirtual().start(() -> {
+            try {
+                broadcaster.stream(channel);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        writing.await();
+        for (String uci : new String[]{"f2f3", "e7e5", "g2g4", "d8h4"}) {
+            Move move = MoveCodes.decode(game, ruleEngine, MoveCodes.fromUci(uci));
+            game.makeMove(move);
+            broadcaster.publish(game, MoveCodes.encode(move));
+        }
+        broadcaster.close();
+        unblock.countDown();
+        spectator.join();
+
+        assertEquals(4, lastSeqOf(received), "The mating move must reach the spectator");
+    }
+
+    private int lastSeqOf(ByteArrayOutputStream received) throws IOException {
+        byte[] bytes;
+        synchronized (received) {
+            bytes = received.toByteArray();
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        int lastSeq = -1;
+        while (in.available() > 0) {
+            lastSeq = SpectatorProtocol.read(in).seq();
+        }
+        return lastSeq;
+    }
+}